@@ -0,0 +1,157 @@
+package collectors;
+
+import java.io.Serializable;
+
+import housing.Household;
+
+/**************************************************************************************************
+ * Class to decide, deterministically, which agents are to be recorded when only a sample of them
+ * is written to file. Each agent is assigned a pseudo-uniform number by hashing its id, such that
+ * the same agents are always selected and can thus be followed over time. Optionally, the sampling
+ * fraction can be made to depend on the stratum (BTL gene, tenure or income percentile band) of a
+ * reference household, in which case each recorded agent carries a sampling weight (the inverse of
+ * the sampling fraction of its stratum) which allows for unbiased (Horvitz-Thompson) estimates.
+ * When each agent represents several identical households or houses (AGENT_WEIGHT), this number
+ * multiplies the sampling weight, such that weighted sums of the records estimate totals of the
+ * represented population, consistently with the aggregate outputs.
+ *
+ *************************************************************************************************/
+public class AgentSampler implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private Stratification  stratification; // Household characteristic used to define the strata
+    private double []       fractions; // Sampling fraction for each stratum
+    private long            salt; // Salt added to the id before hashing, to decorrelate different samplers
+    private int             agentWeight; // Number of households (houses) represented by each agent
+    private boolean         active; // False if all agents are recorded with weight 1.0, i.e., if all fractions are 1.0
+                                    // and each agent represents a single household (house)
+
+    public enum Stratification { NONE, BTL, TENURE, INCOME }
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param baseFraction Fraction of agents to be sampled, before applying any stratum-specific rates
+     * @param stratification Name of the stratification to use (NONE, BTL, TENURE or INCOME)
+     * @param stratumRates Comma-separated list of relative sampling rates for each stratum, which multiply the base
+     *                     fraction (capped at 1.0). An empty list sets all rates to 1.0
+     * @param salt Salt added to the agent ids before hashing
+     * @param agentWeight Number of households (houses) represented by each agent
+     */
+    public AgentSampler(double baseFraction, String stratification, String stratumRates, long salt,
+                        int agentWeight) {
+        this.stratification = Stratification.valueOf(stratification.trim().toUpperCase());
+        this.salt = salt;
+        this.agentWeight = agentWeight;
+        // Read relative rates for each stratum, if any
+        double [] rates;
+        if (stratumRates.trim().isEmpty()) {
+            rates = new double[0];
+        } else {
+            String [] values = stratumRates.split(",");
+            rates = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                rates[i] = Double.parseDouble(values[i].trim());
+            }
+        }
+        // Find the number of strata, checking consistency with the number of rates provided
+        int nStrata;
+        switch (this.stratification) {
+            case BTL: nStrata = 2; break;
+            case TENURE: nStrata = 4; break;
+            case INCOME: nStrata = (rates.length > 0) ? rates.length : 5; break;
+            default: nStrata = 1;
+        }
+        if (rates.length > 0 && rates.length != nStrata) {
+            System.out.println("Number of sampling rates (" + rates.length + ") does not match the number of strata ("
+                    + nStrata + ") for stratification " + this.stratification);
+            System.exit(0);
+        }
+        // Compute sampling fractions for each stratum
+        fractions = new double[nStrata];
+        active = (agentWeight > 1);
+        for (int i = 0; i < nStrata; i++) {
+            fractions[i] = Math.min(1.0, baseFraction*((rates.length > 0) ? rates[i] : 1.0));
+            if (fractions[i] < 1.0) active = true;
+        }
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Sampling weight for the agent with the given id, using the stratum of the given household
+     *
+     * @param id Id of the agent to be sampled (a household or a house)
+     * @param h Household used to assign a stratum to the agent
+     * @return Zero if the agent is not to be recorded, otherwise the number of households (houses) it represents
+     * divided by the sampling fraction of its stratum
+     */
+    public double getWeight(int id, Household h) {
+        if (!active) return 1.0;
+        double fraction = fractions[getStratum(h)];
+        if (fraction >= 1.0) return agentWeight;
+        if (fraction > 0.0 && hashToUnitInterval(id) < fraction) {
+            return agentWeight/fraction;
+        } else {
+            return 0.0;
+        }
+    }
+
+    /**
+     * @return True if the agent with the given id is to be recorded
+     */
+    public boolean isSampled(int id, Household h) { return getWeight(id, h) > 0.0; }
+
+    /**
+     * Stratum to which a household belongs. For tenure, the strata are ordered as owner-occupiers, renters,
+     * households in social housing and active BTL investors (owning, at least, one BTL property)
+     */
+    private int getStratum(Household h) {
+        switch (stratification) {
+            case BTL:
+                return h.behaviour.isPropertyInvestor() ? 1 : 0;
+            case TENURE:
+                if (h.getNProperties() > 1) {
+                    return 3;
+                } else if (h.isHomeowner()) {
+                    return 0;
+                } else if (h.isRenting()) {
+                    return 1;
+                } else {
+                    return 2;
+                }
+            case INCOME:
+                return Math.min((int)(h.getIncomePercentile()*fractions.length), fractions.length - 1);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Map an id to a pseudo-uniform number in [0, 1) by means of the SplitMix64 finalising function, such that
+     * consecutive ids lead to uncorrelated numbers
+     */
+    private double hashToUnitInterval(int id) {
+        long z = id + salt + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30))*0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27))*0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11)*0x1.0p-53;
+    }
+
+    //----- Getter/setter methods -----//
+
+    /**
+     * @return False if all agents are recorded with weight 1.0
+     */
+    public boolean isActive() { return active; }
+}
@@ -0,0 +1,149 @@
+package collectors;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**************************************************************************************************
+ * Class to decide when enough simulations have been run, for adaptive Monte Carlo replication.
+ * Each simulation is summarised, for each monitored indicator, by the average of its values over
+ * a number of final time steps. Across simulations, a streaming (Welford) estimate of the mean and
+ * variance of these run averages is kept, from which the half-width of a Student t confidence
+ * interval for their mean is computed. Replication can stop as soon as, for every monitored
+ * indicator, this half-width is below its target, given either in the units of the indicator or,
+ * if followed by %, as a percentage of the absolute value of its mean.
+ *
+ *************************************************************************************************/
+public class ConvergenceMonitor {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private Indicator []    indicators; // Indicators monitored
+    private double []       targets; // Target confidence interval half-width for each indicator
+    private boolean []      relative; // True for targets given as a percentage of the mean
+    private int             firstStep; // First time step contributing to the run averages
+    private double          confidenceLevel;
+    private double []       runSums; // Sum of the values of each indicator over the current run
+    private int             runCount; // Number of time steps summed over the current run
+    private double []       runAverages; // Average of each indicator over the last completed run
+    private int             nRuns; // Number of runs completed
+    private double []       means; // Mean of the run averages of each indicator
+    private double []       m2; // Sum of squared deviations of the run averages of each indicator from their mean
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param convergenceTargets Comma-separated list of <INDICATOR>:<target> entries, with each target being either an
+     *                           absolute half-width or, if followed by %, a half-width relative to the mean
+     * @param windowSteps Number of final time steps averaged for each run
+     * @param nSteps Number of time steps of each run
+     * @param confidenceLevel Confidence level of the intervals
+     */
+    public ConvergenceMonitor(String convergenceTargets, int windowSteps, int nSteps, double confidenceLevel) {
+        String [] entries = convergenceTargets.split(",");
+        indicators = new Indicator[entries.length];
+        targets = new double[entries.length];
+        relative = new boolean[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            String [] parts = entries[i].split(":");
+            try {
+                indicators[i] = Indicator.valueOf(parts[0].trim().toUpperCase());
+                String target = parts[1].trim();
+                relative[i] = target.endsWith("%");
+                targets[i] = Double.parseDouble(relative[i] ? target.substring(0, target.length() - 1) : target);
+                if (relative[i]) targets[i] /= 100.0;
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                System.out.println("Convergence target '" + entries[i].trim() + "' is not of the form "
+                        + "<INDICATOR>:<half-width> or <INDICATOR>:<half-width>%, with a valid indicator name");
+                System.exit(0);
+            }
+        }
+        firstStep = nSteps - Math.min(windowSteps, nSteps) + 1;
+        this.confidenceLevel = confidenceLevel;
+        runSums = new double[indicators.length];
+        runAverages = new double[indicators.length];
+        means = new double[indicators.length];
+        m2 = new double[indicators.length];
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Start a new run, discarding the sums of any previous one
+     */
+    public void startRun() {
+        Arrays.fill(runSums, 0.0);
+        runCount = 0;
+    }
+
+    /**
+     * Add the current values of all monitored indicators to the run sums, if within the final time steps
+     */
+    public void step(int time) { step(time, i -> indicators[i].getValue()); }
+
+    /**
+     * Add given values of all monitored indicators to the run sums, if within the final time steps
+     *
+     * @param values Function returning the value of the i-th monitored indicator
+     */
+    void step(int time, IntToDoubleFunction values) {
+        if (time < firstStep) return;
+        for (int i = 0; i < indicators.length; i++) runSums[i] += values.applyAsDouble(i);
+        runCount++;
+    }
+
+    /**
+     * Finish a run, updating the mean and variance of the run averages of each indicator
+     */
+    public void finishRun() {
+        nRuns++;
+        for (int i = 0; i < indicators.length; i++) {
+            runAverages[i] = runSums[i]/runCount;
+            double delta = runAverages[i] - means[i];
+            means[i] += delta/nRuns;
+            m2[i] += delta*(runAverages[i] - means[i]);
+        }
+    }
+
+    /**
+     * @return Half-width of the confidence interval for the mean of the run averages of an indicator (infinite before
+     * the second run)
+     */
+    public double getHalfWidth(int i) {
+        if (nRuns < 2) return Double.POSITIVE_INFINITY;
+        double t = new TDistribution(null, nRuns - 1).inverseCumulativeProbability(0.5 + confidenceLevel/2.0);
+        return t*Math.sqrt(m2[i]/(nRuns - 1)/nRuns);
+    }
+
+    /**
+     * @return Target half-width of the confidence interval of an indicator, in the units of the indicator
+     */
+    public double getTarget(int i) { return relative[i] ? targets[i]*Math.abs(means[i]) : targets[i]; }
+
+    /**
+     * @return True if, for all monitored indicators, the confidence interval half-width is at or below its target
+     */
+    public boolean hasConverged() {
+        for (int i = 0; i < indicators.length; i++) {
+            if (getHalfWidth(i) > getTarget(i)) return false;
+        }
+        return true;
+    }
+
+    //----- Getter/setter methods -----//
+
+    public Indicator [] getIndicators() { return indicators; }
+
+    public int getnRuns() { return nRuns; }
+
+    public double getRunAverage(int i) { return runAverages[i]; }
+
+    public double getMean(int i) { return means[i]; }
+}
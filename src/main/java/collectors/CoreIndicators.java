@@ -3,8 +3,7 @@ package collectors;
 import housing.Config;
 import housing.Model;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.Serializable;
 
 /**************************************************************************************************
  * Class to collect the information on the "Core Indicators" as defined by the Bank of England at
@@ -16,12 +15,14 @@ import java.util.Collections;
  * @author danial, Adrian Carro
  *
  *************************************************************************************************/
-public class CoreIndicators {
+public class CoreIndicators implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private Config config = Model.config;   // Passes the Model's configuration parameters object to a private field
 
     //-------------------//
@@ -35,14 +36,14 @@ public class CoreIndicators {
      *
      * Median and mean are computed over a rolling window of size config.ROLLING_WINDOW_SIZE_FOR_CORE_INDICATORS
      */
-    double getOwnerOccupierLTVMeanAboveMedian() { return 100.0 * getMeanAboveMedian(Model.creditSupply.getOO_ltv()); }
+    double getOwnerOccupierLTVMeanAboveMedian() { return 100.0 * Model.creditSupply.getOO_ltv().getMeanAboveMedian(); }
 
     /**
      * 1.b - LTI and LTV ratios on new residential mortgages: Owner-occupier mortgage LTI ratio (mean above the median)
      *
      * Median and mean are computed over a rolling window of size config.ROLLING_WINDOW_SIZE_FOR_CORE_INDICATORS
      */
-    double getOwnerOccupierLTIMeanAboveMedian() { return getMeanAboveMedian(Model.creditSupply.getOO_lti()); }
+    double getOwnerOccupierLTIMeanAboveMedian() { return Model.creditSupply.getOO_lti().getMeanAboveMedian(); }
 
     /**
      * 1.c - LTI and LTV ratios on new residential mortgages: Buy-to-let mortgage LTV ratio (mean)
@@ -105,7 +106,7 @@ public class CoreIndicators {
      */
     int getMortgageApprovals() {
         return (int) (getMean(Model.creditSupply.getnNewMortgagesArray()) * config.getUKHouseholds()
-                / Model.households.size());
+                / Model.householdStats.getnHouseholds());
     }
 
     /**
@@ -116,7 +117,7 @@ public class CoreIndicators {
      */
     int getHousingTransactions() {
         return (int) (getMean(Model.housingMarketStats.getnSalesArray()) * config.getUKHouseholds()
-                / Model.households.size());
+                / Model.householdStats.getnHouseholds());
     }
 
     /**
@@ -127,7 +128,7 @@ public class CoreIndicators {
      */
     int getAdvancesToFTB() {
         return (int) (getMean(Model.creditSupply.getnNewFTBMortgagesArray()) * config.getUKHouseholds()
-                / Model.households.size());
+                / Model.householdStats.getnHouseholds());
     }
 
     /**
@@ -138,7 +139,7 @@ public class CoreIndicators {
      */
     int getAdvancesToBTL() {
         return (int) (getMean(Model.creditSupply.getnNewBTLMortgagesArray()) * config.getUKHouseholds()
-                / Model.households.size());
+                / Model.householdStats.getnHouseholds());
     }
 
     /**
@@ -169,7 +170,7 @@ public class CoreIndicators {
      * is, over active buy-to-let investors, owner-occupying households, renters and homeless households.
      */
     double getPriceToIncome() {
-        return Model.housingMarketStats.getHPI() * config.derivedParams.HOUSE_PRICES_MEAN * Model.households.size()
+        return Model.housingMarketStats.getHPI() * config.derivedParams.HOUSE_PRICES_MEAN * Model.householdStats.getnHouseholds()
                 / (Model.householdStats.getActiveBTLAnnualisedNetTotalIncome()
                 + Model.householdStats.getOwnerOccupierAnnualisedNetTotalIncome()
                 + Model.householdStats.getRentingAnnualisedNetTotalIncome()
@@ -195,35 +196,6 @@ public class CoreIndicators {
 
     //---------------------------------------- Utilities ----------------------------------------//
 
-    /**
-     * Compute the mean above the median of an ArrayList of ArrayList of Doubles by combining all ArrayLists into a
-     * single one, ordering it, finding the mid-point and finding the mean for values at or above this mid-point.
-     *
-     * @param arrayListOfArrayLists ArrayList of ArrayLists of Doubles
-     * @return Mean above the median if ArrayList of ArrayLists contains at least an element, NaN otherwise
-     */
-    private double getMeanAboveMedian(ArrayList<ArrayList<Double>> arrayListOfArrayLists) {
-        // Combine all ArrayLists (all months) into a single one
-        ArrayList<Double> combined = new ArrayList<>();
-        for (ArrayList<Double> arrayList : arrayListOfArrayLists) {
-            combined.addAll(arrayList);
-        }
-        // Order this combined ArrayList so that its mid-point is the median
-        Collections.sort(combined);
-        // Find the mid-point, that is, the position of the median in the ArrayList (or the position just before it)
-        int midPoint = combined.size()/2;
-        // Finally, compute the mean above the median (mean over elements at and above the mid-point)
-        double sum = 0.0;
-        for (int i = midPoint; i < combined.size(); i++) {
-            sum += combined.get(i);
-        }
-        if ((combined.size() - midPoint) > 0) {
-            return sum / (combined.size() - midPoint);
-        } else {
-            return Double.NaN;
-        }
-    }
-
     private double getMeanOfSums(double[] sumsArray, int[] nElementsArray) {
         int nElements =  0;
         double sum = 0.0;
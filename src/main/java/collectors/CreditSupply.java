@@ -4,25 +4,30 @@ import housing.Model;
 import housing.Household;
 import housing.MortgageAgreement;
 
-import java.util.ArrayList;
+import java.io.Serializable;
 
 /**************************************************************************************************
- * Class to record mortgage data
+ * Class to record mortgage data. Numbers of mortgages and amounts of credit are weighted by the
+ * number of households each borrower represents, while individual LTV and LTI values are stored
+ * once per borrower agent, which gives the same medians and means as long as all agents share the
+ * same weight.
  *
  * @author daniel, Adrian Carro
  *
  *************************************************************************************************/
-public class CreditSupply {
+public class CreditSupply implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private int                             rollingWindow;              // Size of the window to compute rolling averages of core indicators
     private int                             currentTime;                // Local copy of the current time so as to avoid repeated calls to Model
     private int                             currentIndex;               // Local copy of the (current time % rolling window) so as to avoid repeated calls to Model
-    private ArrayList<ArrayList<Double>>    oo_ltv;                     // LTV values of individual OO (FTB + HM) mortgage stored on a rolling basis
-    private ArrayList<ArrayList<Double>>    oo_lti;                     // LTI values of individual OO (FTB + HM) mortgage stored on a rolling basis
+    private RollingValues                   oo_ltv;                     // LTV values of individual OO (FTB + HM) mortgage stored on a rolling basis
+    private RollingValues                   oo_lti;                     // LTI values of individual OO (FTB + HM) mortgage stored on a rolling basis
     private double[]                        btl_ltv_sums;               // Sum of monthly LTV values of BTL mortgage stored on a rolling basis
     private double                          interestRate;               // To record interest rate and give it to recorder object for file writing
     private double[]                        totalCreditStock;           // Total stock of mortgage credit stored on an annual rolling basis
@@ -41,15 +46,17 @@ public class CreditSupply {
     //----- Constructors -----//
     //------------------------//
 
-    public CreditSupply(int targetPopulation, int rollingWindow) {
+    /**
+     * @param targetPopulation Target number of households
+     * @param rollingWindow Size of the window to compute rolling averages of core indicators
+     * @param sketchAccuracy Relative accuracy of the sketches used to approximate the mean above the median of OO LTV and
+     *                       LTI values, or 0 to store individual values and compute it exactly
+     */
+    public CreditSupply(int targetPopulation, int rollingWindow, double sketchAccuracy) {
         this.rollingWindow = rollingWindow;
-        oo_ltv = new ArrayList<>(this.rollingWindow);
-        oo_lti = new ArrayList<>(this.rollingWindow);
-        for (int i = 0; i < this.rollingWindow; i++) {
-            // Initial capacity designed for efficiency up to around 5% of households getting a new mortgage per month
-            oo_ltv.add(new ArrayList<>((int)(targetPopulation * 0.05)));
-            oo_lti.add(new ArrayList<>((int)(targetPopulation * 0.05)));
-        }
+        // Initial capacity designed for efficiency up to around 5% of households getting a new mortgage per month
+        oo_ltv = new RollingValues(this.rollingWindow, (int)(targetPopulation * 0.05), sketchAccuracy);
+        oo_lti = new RollingValues(this.rollingWindow, (int)(targetPopulation * 0.05), sketchAccuracy);
         btl_ltv_sums = new double[this.rollingWindow];
         nNewMortgagesArray = new int[this.rollingWindow];
         nNewFTBMortgagesArray = new int[this.rollingWindow];
@@ -63,8 +70,8 @@ public class CreditSupply {
 
     public void init() {
         for (int i = 0; i < rollingWindow; i++) {
-            oo_ltv.get(i).clear();
-            oo_lti.get(i).clear();
+            oo_ltv.clear(i);
+            oo_lti.clear(i);
             btl_ltv_sums[i] = 0.0;
             nNewMortgagesArray[i] = 0;
             nNewFTBMortgagesArray[i] = 0;
@@ -77,6 +84,23 @@ public class CreditSupply {
         }
     }
 
+    /**
+     * Multiply the rolling counts and sums of new mortgages, as well as the annual record of credit stocks, by a given
+     * factor, for them to remain consistent with the population after every household has been replicated this number
+     * of times (see housing.WarmStart)
+     */
+    public void scaleCounts(int factor) {
+        for (int i = 0; i < rollingWindow; i++) {
+            btl_ltv_sums[i] *= factor;
+            nNewMortgagesArray[i] *= factor;
+            nNewFTBMortgagesArray[i] *= factor;
+            nNewBTLMortgagesArray[i] *= factor;
+        }
+        for (int i = 0; i < 12; i++) {
+            totalCreditStock[i] *= factor;
+        }
+    }
+
     public void preClearingResetCounters(int currentTime) {
         this.currentTime = currentTime;
         currentIndex = this.currentTime % rollingWindow;
@@ -87,8 +111,8 @@ public class CreditSupply {
         newCreditToHM = 0.0;
         newCreditToFTB = 0.0;
         newCreditToBTL = 0.0;
-        oo_ltv.get(currentIndex).clear();
-        oo_lti.get(currentIndex).clear();
+        oo_ltv.clear(currentIndex);
+        oo_lti.clear(currentIndex);
         btl_ltv_sums[currentIndex] = 0.0;
     }
 
@@ -98,16 +122,9 @@ public class CreditSupply {
     public void postClearingRecord() {
         // Update interest rate
         interestRate = Model.bank.getMortgageInterestRate();
-        // Count current total stock of mortgage credit, distinguishing between OO (FTB + HM) and BTL credit
-        totalOOCredit = 0.0;
-        totalBTLCredit = 0.0;
-        for(MortgageAgreement m : Model.bank.mortgages) {
-            if(m.isBuyToLet) {
-                totalBTLCredit += m.principal;
-            } else {
-                totalOOCredit += m.principal;
-            }
-        }
+        // Read current total stock of mortgage credit, distinguishing between OO (FTB + HM) and BTL credit
+        totalOOCredit = Model.bank.getTotalOOCredit()*Model.config.AGENT_WEIGHT;
+        totalBTLCredit = Model.bank.getTotalBTLCredit()*Model.config.AGENT_WEIGHT;
         // Compute net credit growth = current total stock - total stock a year ago) / total stock a year ago
         if (totalCreditStock[currentTime % 12] > 0.0) {
             netCreditGrowth = (totalOOCredit + totalBTLCredit - totalCreditStock[currentTime % 12])
@@ -125,37 +142,39 @@ public class CreditSupply {
      * @param approval Mortgage agreement
      */
     public void recordLoan(Household h, MortgageAgreement approval) {
-        nNewMortgagesArray[currentIndex] += 1;
+        int weight = h.getWeight();
+        nNewMortgagesArray[currentIndex] += weight;
         if (approval.isFirstTimeBuyer) {
-            nNewFTBMortgagesArray[currentIndex] += 1;
-            newCreditToFTB += approval.principal;
-            oo_ltv.get(currentIndex).add(approval.principal / (approval.principal + approval.downPayment));
-            oo_lti.get(currentIndex).add(approval.principal / h.getAnnualGrossEmploymentIncome());
+            nNewFTBMortgagesArray[currentIndex] += weight;
+            newCreditToFTB += weight*approval.getPrincipal();
+            oo_ltv.add(currentIndex, approval.getPrincipal() / (approval.getPrincipal() + approval.downPayment));
+            oo_lti.add(currentIndex, approval.getPrincipal() / h.getAnnualGrossEmploymentIncome());
             if (h.behaviour.isPropertyInvestor()) {
-                nNewFTBMortgagesToBTL += 1;
+                nNewFTBMortgagesToBTL += weight;
             }
         } else if (approval.isBuyToLet) {
-            newCreditToBTL += approval.principal;
-            btl_ltv_sums[currentIndex] += approval.principal / (approval.principal + approval.downPayment);
-            nNewBTLMortgagesArray[currentIndex] += 1;
+            newCreditToBTL += weight*approval.getPrincipal();
+            btl_ltv_sums[currentIndex] += weight*approval.getPrincipal()
+                    / (approval.getPrincipal() + approval.downPayment);
+            nNewBTLMortgagesArray[currentIndex] += weight;
         } else {
-            newCreditToHM += approval.principal;
-            oo_ltv.get(currentIndex).add(approval.principal / (approval.principal + approval.downPayment));
-            oo_lti.get(currentIndex).add(approval.principal / h.getAnnualGrossEmploymentIncome());
+            newCreditToHM += weight*approval.getPrincipal();
+            oo_ltv.add(currentIndex, approval.getPrincipal() / (approval.getPrincipal() + approval.downPayment));
+            oo_lti.add(currentIndex, approval.getPrincipal() / h.getAnnualGrossEmploymentIncome());
         }
     }
 
     //----- Getter/setter methods -----//
 
-    ArrayList<ArrayList<Double>> getOO_ltv() { return oo_ltv; }
+    RollingValues getOO_ltv() { return oo_ltv; }
 
-    ArrayList<ArrayList<Double>> getOO_lti() { return oo_lti; }
+    RollingValues getOO_lti() { return oo_lti; }
 
     double[] getBTL_ltv_sums() { return btl_ltv_sums; }
 
     double getInterestRate() { return interestRate; }
 
-    int getnStockMortgages() { return Model.bank.mortgages.size(); }
+    int getnStockMortgages() { return Model.bank.getnMortgages()*Model.config.AGENT_WEIGHT; }
 
     int[] getnNewMortgagesArray() { return nNewMortgagesArray; }
 
@@ -2,22 +2,36 @@ package collectors;
 
 import housing.*;
 
-import java.util.Map;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 
 /**************************************************************************************************
- * Class to collect regional household statistics
+ * Class to collect regional household statistics. Rather than re-scanning the whole population
+ * every month, the numbers of households of each type and their income sums are kept up to date
+ * incrementally: households notify this class whenever an event (a purchase, a sale, the start or
+ * end of a tenancy, an eviction, an inheritance, a birth, a death, a payment agreement coming to an
+ * end or a change in employment income) may have changed their type, net income or rent, and only
+ * the contributions of these households are re-computed at the next record. Income sums are kept
+ * in fixed-point (long) format, so that adding and subtracting contributions does not accumulate
+ * rounding errors over time. All counts and sums are weighted by the number of households each
+ * agent represents.
  *
  * @author daniel, Adrian Carro
  *
  *************************************************************************************************/
-public class HouseholdStats {
+public class HouseholdStats implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     // General fields
     private Config  config = Model.config; // Passes the Model's configuration parameters object to a private field
+    private AgentSampler microDataSampler = new AgentSampler(config.MICRO_DATA_SAMPLING_FRACTION,
+            config.SAMPLING_STRATIFICATION, config.SAMPLING_STRATUM_RATES, 0L, config.AGENT_WEIGHT); // Selects households to record micro-data for
 
     // Fields for counting numbers of the different types of households and household conditions
     private int     nBTL; // Number of buy-to-let (BTL) households, i.e., households with the BTL gene (includes both active and inactive)
@@ -29,6 +43,7 @@ public class HouseholdStats {
     private int     nRenting; // Number of (by definition, non-BTL) households renting their home
     private int     nNonBTLHomeless; // Number of homeless non-BTL households
     private int     nNonBTLBankruptcies; // Number of non-BTL households going bankrupt in a given time step
+    private int     nHouseholds; // Total number of households
 
     // Fields for summing annualised net total incomes
     private double  activeBTLAnnualisedNetTotalIncome;
@@ -36,6 +51,23 @@ public class HouseholdStats {
     private double  rentingAnnualisedNetTotalIncome;
     private double  homelessAnnualisedNetTotalIncome;
 
+    // Fields for keeping the above counts and sums up to date incrementally
+    private static final int    N_TYPES = 6;
+    private static final int    ACTIVE_BTL = 0;
+    private static final int    BTL_OWNER_OCCUPIER = 1;
+    private static final int    BTL_HOMELESS = 2;
+    private static final int    NON_BTL_OWNER_OCCUPIER = 3;
+    private static final int    RENTING = 4;
+    private static final int    NON_BTL_HOMELESS = 5;
+    private static final double FIXED_POINT_SCALE = 0x1.0p24; // Scale for storing monetary sums as long integers
+    private HashMap<Household, Contribution>    contributions = new HashMap<>(); // Contribution of each household at the last record
+    private LinkedHashSet<Household>            householdsToUpdate = new LinkedHashSet<>(); // Households whose contribution may have changed since the last record
+    private int []      nHouseholdsPerType = new int[N_TYPES];
+    private long []     monthlyNetTotalIncomePerType = new long[N_TYPES]; // Fixed-point sums of monthly net total incomes
+    private long []     monthlyRentPerQuality = new long[config.derivedParams.N_QUALITIES]; // Fixed-point sums of rents paid by (non-BTL) renters, by quality of their home
+    private int         nBTLBankruptciesCounter; // Counter for the number of BTL households going bankrupt in the current time step
+    private int         nNonBTLBankruptciesCounter; // Counter for the number of non-BTL households going bankrupt in the current time step
+
     // Other fields
     private double  sumStockYield; // Sum of stock gross rental yields of all currently occupied rental properties
     private int     nNonBTLBidsAboveExpAvSalePrice; // Number of normal (non-BTL) bids with desired housing expenditure above the exponential moving average sale price
@@ -43,6 +75,18 @@ public class HouseholdStats {
     private int     nNonBTLBidsAboveExpAvSalePriceCounter; // Counter for the number of normal (non-BTL) bids with desired housing expenditure above the exp. mov. av. sale price
     private int     nBTLBidsAboveExpAvSalePriceCounter; // Counter for the number of BTL bids with desired housing expenditure above the exp. mov. av. sale price
 
+    /**
+     * Class to store the contribution of a single household to the incrementally updated counts and sums
+     */
+    private static class Contribution implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int     weight; // Number of households represented by the household
+        int     type; // Type of household, -1 if not counted in any type
+        long    monthlyNetTotalIncome; // Fixed-point monthly net total income
+        int     rentQuality; // Quality of the rented home, -1 if not counted as renting
+        long    monthlyRent; // Fixed-point monthly rent
+    }
+
     //-------------------//
     //----- Methods -----//
     //-------------------//
@@ -53,102 +97,63 @@ public class HouseholdStats {
     public void init() {
         nNonBTLBidsAboveExpAvSalePriceCounter = 0;
         nBTLBidsAboveExpAvSalePriceCounter = 0;
+        contributions.clear();
+        householdsToUpdate.clear();
+        nHouseholds = 0;
+        nHouseholdsPerType = new int[N_TYPES];
+        monthlyNetTotalIncomePerType = new long[N_TYPES];
+        monthlyRentPerQuality = new long[config.derivedParams.N_QUALITIES];
+        nBTLBankruptciesCounter = 0;
+        nNonBTLBankruptciesCounter = 0;
     }
 
     public void record() {
-        // Initialise variables to sum
-        nBTL = 0;
-        nActiveBTL = 0;
-        nBTLOwnerOccupier = 0;
-        nBTLHomeless = 0;
-        nBTLBankruptcies = 0;
-        nNonBTLOwnerOccupier = 0;
-        nRenting = 0;
-        nNonBTLHomeless = 0;
-        nNonBTLBankruptcies = 0;
-        activeBTLAnnualisedNetTotalIncome = 0.0;
-        ownerOccupierAnnualisedNetTotalIncome = 0.0;
-        rentingAnnualisedNetTotalIncome = 0.0;
-        homelessAnnualisedNetTotalIncome = 0.0;
+        // Update the contributions of all households whose situation may have changed since the last record
+        for (Household h : householdsToUpdate) {
+            removeContribution(h);
+            addContribution(h);
+        }
+        householdsToUpdate.clear();
+        // Read numbers of households of each type and their summed incomes from the incrementally updated aggregates
+        nActiveBTL = nHouseholdsPerType[ACTIVE_BTL];
+        nBTLOwnerOccupier = nHouseholdsPerType[BTL_OWNER_OCCUPIER];
+        nBTLHomeless = nHouseholdsPerType[BTL_HOMELESS];
+        nBTL = nActiveBTL + nBTLOwnerOccupier + nBTLHomeless;
+        nNonBTLOwnerOccupier = nHouseholdsPerType[NON_BTL_OWNER_OCCUPIER];
+        nRenting = nHouseholdsPerType[RENTING];
+        nNonBTLHomeless = nHouseholdsPerType[NON_BTL_HOMELESS];
+        activeBTLAnnualisedNetTotalIncome = monthlyNetTotalIncomePerType[ACTIVE_BTL]/FIXED_POINT_SCALE;
+        ownerOccupierAnnualisedNetTotalIncome = (monthlyNetTotalIncomePerType[BTL_OWNER_OCCUPIER]
+                + monthlyNetTotalIncomePerType[NON_BTL_OWNER_OCCUPIER])/FIXED_POINT_SCALE;
+        rentingAnnualisedNetTotalIncome = monthlyNetTotalIncomePerType[RENTING]/FIXED_POINT_SCALE;
+        homelessAnnualisedNetTotalIncome = (monthlyNetTotalIncomePerType[BTL_HOMELESS]
+                + monthlyNetTotalIncomePerType[NON_BTL_HOMELESS])/FIXED_POINT_SCALE;
+        // Pass number of bankruptcies to persistent variables and re-initialise to zero the counters
+        nBTLBankruptcies = nBTLBankruptciesCounter;
+        nNonBTLBankruptcies = nNonBTLBankruptciesCounter;
+        nBTLBankruptciesCounter = 0;
+        nNonBTLBankruptciesCounter = 0;
+        // Compute stock gross rental yields from the rents paid for each quality, as current average prices change
+        // every month for all qualities
         sumStockYield = 0.0;
-        // Time stamp householdStats microDataRecorders
-        Model.microDataRecorder.timeStampSingleRunSingleVariableFiles(Model.getTime(), config.recordHouseholdID,
-                config.recordEmploymentIncome, config.recordRentalIncome, config.recordBankBalance,
-                config.recordHousingWealth, config.recordNHousesOwned, config.recordAge, config.recordSavingRate);
-        // Run through all households counting population in each type and summing their gross incomes
-        for (Household h : Model.households) {
-            if (h.behaviour.isPropertyInvestor()) {
-                ++nBTL;
-                if (h.isBankrupt()) nBTLBankruptcies += 1;
-                // Active BTL investors
-                if (h.getNProperties() > 1) {
-                    ++nActiveBTL;
-                    activeBTLAnnualisedNetTotalIncome += h.getMonthlyNetTotalIncome();
-                // Inactive BTL investors who own their house
-                } else if (h.getNProperties() == 1) {
-                    ++nBTLOwnerOccupier;
-                    ownerOccupierAnnualisedNetTotalIncome += h.getMonthlyNetTotalIncome();
-                // Inactive BTL investors in social housing
-                } else {
-                    ++nBTLHomeless;
-                    homelessAnnualisedNetTotalIncome += h.getMonthlyNetTotalIncome();
-                }
-            } else {
-                if (h.isBankrupt()) nNonBTLBankruptcies += 1;
-                // Non-BTL investors who own their house
-                if (h.isHomeowner()) {
-                    ++nNonBTLOwnerOccupier;
-                    ownerOccupierAnnualisedNetTotalIncome += h.getMonthlyNetTotalIncome();
-                    // Non-BTL investors renting
-                } else if (h.isRenting()) {
-                    ++nRenting;
-                    rentingAnnualisedNetTotalIncome += h.getMonthlyNetTotalIncome();
-                    if (Model.housingMarketStats.getExpAvSalePriceForQuality(h.getHome().getQuality()) > 0) {
-                        sumStockYield += h.getHousePayments().get(h.getHome()).monthlyPayment
-                                *config.constants.MONTHS_IN_YEAR
-                                /Model.housingMarketStats.getExpAvSalePriceForQuality(h.getHome().getQuality());
-                    }
-                    // Non-BTL investors in social housing
-                } else if (h.isInSocialHousing()) {
-                    ++nNonBTLHomeless;
-                    homelessAnnualisedNetTotalIncome += h.getMonthlyNetTotalIncome();
-                }
-            }
-            // Record household micro-data
-            if (config.recordHouseholdID) {
-                Model.microDataRecorder.recordHouseholdID(Model.getTime(), h.id);
-            }
-            if (config.recordEmploymentIncome) {
-                Model.microDataRecorder.recordEmploymentIncome(Model.getTime(), h.getMonthlyGrossEmploymentIncome());
-            }
-            if (config.recordRentalIncome) {
-                Model.microDataRecorder.recordRentalIncome(Model.getTime(), h.getMonthlyGrossRentalIncome());
+        for (int q = 0; q < monthlyRentPerQuality.length; q++) {
+            if (monthlyRentPerQuality[q] != 0 && Model.housingMarketStats.getExpAvSalePriceForQuality(q) > 0) {
+                sumStockYield += monthlyRentPerQuality[q]/FIXED_POINT_SCALE*config.constants.MONTHS_IN_YEAR
+                        /Model.housingMarketStats.getExpAvSalePriceForQuality(q);
             }
-            if (config.recordBankBalance) {
-                Model.microDataRecorder.recordBankBalance(Model.getTime(), h.getBankBalance());
-            }
-            if (config.recordHousingWealth) {
-                // Housing wealth is computed as mark-to-market net housing wealth, thus looking at current average
-                // prices for houses of the same quality
-                double housingWealth = 0.0;
-                for (Map.Entry<House, PaymentAgreement> entry : h.getHousePayments().entrySet()) {
-                    House house = entry.getKey();
-                    PaymentAgreement payment = entry.getValue();
-                    if (payment instanceof MortgageAgreement && house.owner == h) {
-                        housingWealth += Model.housingMarketStats.getExpAvSalePriceForQuality(house.getQuality())
-                                - ((MortgageAgreement) payment).principal;
-                    }
+        }
+        // Time stamp householdStats microDataRecorders and record household micro-data, only for those households
+        // selected by the sampler (unless results are not written to files)
+        if (Model.microDataRecorder != null) {
+            Model.microDataRecorder.timeStampSingleRunSingleVariableFiles(Model.getTime(), config.recordHouseholdID,
+                    config.recordEmploymentIncome, config.recordRentalIncome, config.recordBankBalance,
+                    config.recordHousingWealth, config.recordNHousesOwned, config.recordAge, config.recordSavingRate,
+                    microDataSampler.isActive());
+            if (Model.microDataRecorder.isTimeToRecord(Model.getTime())) {
+                for (Household h : Model.households) {
+                    double samplingWeight = microDataSampler.getWeight(h.id, h);
+                    if (samplingWeight > 0.0) recordMicroData(h, samplingWeight);
                 }
-                Model.microDataRecorder.recordHousingWealth(Model.getTime(), housingWealth);
-            }
-            if (config.recordNHousesOwned) {
-                Model.microDataRecorder.recordNHousesOwned(Model.getTime(), h.getNProperties());
-            }
-            if (config.recordAge) {
-                Model.microDataRecorder.recordAge(Model.getTime(), h.getAge());
-            }
-            if (config.recordSavingRate) {
-                Model.microDataRecorder.recordSavingRate(Model.getTime(), h.getSavingRate());
             }
         }
         // Annualise monthly income data
@@ -164,13 +169,148 @@ public class HouseholdStats {
         nBTLBidsAboveExpAvSalePriceCounter = 0;
     }
 
+    /**
+     * Flag a household whose type, net total income or rent may have changed, such that its contribution to the counts
+     * and sums of this class is updated at the next record. Newly born households are flagged upon creation
+     */
+    public void flagForUpdate(Household h) { householdsToUpdate.add(h); }
+
+    /**
+     * Flag all households for update, as needed whenever parameters affecting all households' incomes have changed
+     */
+    public void flagAllForUpdate() { householdsToUpdate.addAll(Model.households); }
+
+    /**
+     * Remove the contribution of a household that has died from the counts and sums of this class
+     */
+    public void removeHousehold(Household h) {
+        removeContribution(h);
+        householdsToUpdate.remove(h);
+    }
+
+    /**
+     * Count a household going bankrupt in the current time step
+     */
+    public void countBankruptcy(Household h) {
+        if (h.behaviour.isPropertyInvestor()) {
+            nBTLBankruptciesCounter += h.getWeight();
+        } else {
+            nNonBTLBankruptciesCounter += h.getWeight();
+        }
+    }
+
+    /**
+     * Find the current type, net total income and rent of a household, and add them to the counts and sums
+     */
+    private void addContribution(Household h) {
+        Contribution c = new Contribution();
+        c.weight = h.getWeight();
+        c.type = -1;
+        c.rentQuality = -1;
+        if (h.behaviour.isPropertyInvestor()) {
+            int nProperties = h.getNProperties();
+            // Active BTL investors
+            if (nProperties > 1) {
+                c.type = ACTIVE_BTL;
+            // Inactive BTL investors who own their house
+            } else if (nProperties == 1) {
+                c.type = BTL_OWNER_OCCUPIER;
+            // Inactive BTL investors in social housing
+            } else {
+                c.type = BTL_HOMELESS;
+            }
+        } else {
+            // Non-BTL investors who own their house
+            if (h.isHomeowner()) {
+                c.type = NON_BTL_OWNER_OCCUPIER;
+            // Non-BTL investors renting
+            } else if (h.isRenting()) {
+                c.type = RENTING;
+                c.rentQuality = h.getHome().getQuality();
+                c.monthlyRent = c.weight*Math.round(h.getHoldings().getPayment(h.getHome()).getMonthlyPayment()
+                        *FIXED_POINT_SCALE);
+                monthlyRentPerQuality[c.rentQuality] += c.monthlyRent;
+            // Non-BTL investors in social housing
+            } else if (h.isInSocialHousing()) {
+                c.type = NON_BTL_HOMELESS;
+            }
+        }
+        if (c.type >= 0) {
+            c.monthlyNetTotalIncome = c.weight*Math.round(h.getMonthlyNetTotalIncome()*FIXED_POINT_SCALE);
+            nHouseholdsPerType[c.type] += c.weight;
+            monthlyNetTotalIncomePerType[c.type] += c.monthlyNetTotalIncome;
+        }
+        nHouseholds += c.weight;
+        contributions.put(h, c);
+    }
+
+    /**
+     * Subtract the last recorded contribution of a household, if any, from the counts and sums
+     */
+    private void removeContribution(Household h) {
+        Contribution c = contributions.remove(h);
+        if (c == null) return;
+        nHouseholds -= c.weight;
+        if (c.type >= 0) {
+            nHouseholdsPerType[c.type] -= c.weight;
+            monthlyNetTotalIncomePerType[c.type] -= c.monthlyNetTotalIncome;
+        }
+        if (c.rentQuality >= 0) monthlyRentPerQuality[c.rentQuality] -= c.monthlyRent;
+    }
+
+    /**
+     * Write micro-data for a given household, together with its sampling weight if only a sample of households is
+     * being recorded
+     */
+    private void recordMicroData(Household h, double samplingWeight) {
+        if (config.recordHouseholdID) {
+            Model.microDataRecorder.recordHouseholdID(Model.getTime(), h.id);
+        }
+        if (config.recordEmploymentIncome) {
+            Model.microDataRecorder.recordEmploymentIncome(Model.getTime(), h.getMonthlyGrossEmploymentIncome());
+        }
+        if (config.recordRentalIncome) {
+            Model.microDataRecorder.recordRentalIncome(Model.getTime(), h.getMonthlyGrossRentalIncome());
+        }
+        if (config.recordBankBalance) {
+            Model.microDataRecorder.recordBankBalance(Model.getTime(), h.getBankBalance());
+        }
+        if (config.recordHousingWealth) {
+            // Housing wealth is computed as mark-to-market net housing wealth, thus looking at current average
+            // prices for houses of the same quality
+            double housingWealth = 0.0;
+            PropertyHoldings holdings = h.getHoldings();
+            for (int i = 0; i < holdings.size(); i++) {
+                House house = holdings.getHouse(i);
+                PaymentAgreement payment = holdings.getPayment(i);
+                if (payment instanceof MortgageAgreement && house.owner == h) {
+                    housingWealth += Model.housingMarketStats.getExpAvSalePriceForQuality(house.getQuality())
+                            - ((MortgageAgreement) payment).getPrincipal();
+                }
+            }
+            Model.microDataRecorder.recordHousingWealth(Model.getTime(), housingWealth);
+        }
+        if (config.recordNHousesOwned) {
+            Model.microDataRecorder.recordNHousesOwned(Model.getTime(), h.getNProperties());
+        }
+        if (config.recordAge) {
+            Model.microDataRecorder.recordAge(Model.getTime(), h.getAge());
+        }
+        if (config.recordSavingRate) {
+            Model.microDataRecorder.recordSavingRate(Model.getTime(), h.getSavingRate());
+        }
+        if (microDataSampler.isActive()) {
+            Model.microDataRecorder.recordSamplingWeight(Model.getTime(), samplingWeight);
+        }
+    }
+
     /**
      * Count number of normal (non-BTL) bidders with desired expenditures above the (minimum quality, q=0) exponential
      * moving average sale price
      */
-    public void countNonBTLBidsAboveExpAvSalePrice(double price) {
+    public void countNonBTLBidsAboveExpAvSalePrice(Household h, double price) {
         if (price >= Model.housingMarketStats.getExpAvSalePriceForQuality(0)) {
-            nNonBTLBidsAboveExpAvSalePriceCounter++;
+            nNonBTLBidsAboveExpAvSalePriceCounter += h.getWeight();
         }
     }
 
@@ -178,14 +318,19 @@ public class HouseholdStats {
      * Count number of BTL bidders with desired expenditures above the (minimum quality, q=0) exponential moving average
      * sale price
      */
-    public void countBTLBidsAboveExpAvSalePrice(double price) {
+    public void countBTLBidsAboveExpAvSalePrice(Household h, double price) {
         if (price >= Model.housingMarketStats.getExpAvSalePriceForQuality(0)) {
-            nBTLBidsAboveExpAvSalePriceCounter++;
+            nBTLBidsAboveExpAvSalePriceCounter += h.getWeight();
         }
     }
 
     //----- Getter/setter methods -----//
 
+    /**
+     * @return True if only a sample of households is being recorded, and thus sampling weights are to be written
+     */
+    public boolean isMicroDataSampled() { return microDataSampler.isActive(); }
+
     // Getters for numbers of households variables
     int getnBTL() { return nBTL; }
     int getnActiveBTL() { return nActiveBTL; }
@@ -199,6 +344,7 @@ public class HouseholdStats {
     int getnOwnerOccupier() { return nBTLOwnerOccupier + nNonBTLOwnerOccupier; }
     int getnHomeless() { return nBTLHomeless + nNonBTLHomeless; }
     int getnNonOwner() { return nRenting + getnHomeless(); }
+    int getnHouseholds() { return nHouseholds; }
 
     // Getters for annualised income variables
     double getActiveBTLAnnualisedNetTotalIncome() { return activeBTLAnnualisedNetTotalIncome; }
@@ -218,13 +364,13 @@ public class HouseholdStats {
     // Getters for other variables...
     // ... number of empty houses (total number of houses minus number of non-homeless households)
     int getnEmptyHouses() {
-        return Model.construction.getHousingStock() + nBTLHomeless + nNonBTLHomeless - Model.households.size();
+        return Model.construction.getWeightedHousingStock() + nBTLHomeless + nNonBTLHomeless - nHouseholds;
     }
     // ... proportion of housing stock owned by buy-to-let investors (all rental properties, plus all empty houses not
     // owned by the construction sector)
     double getBTLStockFraction() {
         return ((double)(getnEmptyHouses() - Model.housingMarketStats.getnUnsoldNewBuild()
-                + nRenting))/Model.construction.getHousingStock();
+                + nRenting))/Model.construction.getWeightedHousingStock();
     }
     // ... number of normal (non-BTL) bidders with desired housing expenditure above the exponential moving average sale price
     int getnNonBTLBidsAboveExpAvSalePrice() { return nNonBTLBidsAboveExpAvSalePrice; }
@@ -4,20 +4,25 @@ import housing.*;
 
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 
+import java.io.Serializable;
 import java.util.Arrays;
 
 /**************************************************************************************************
- * Class to collect regional sale market statistics
+ * Class to collect regional sale market statistics. All counts of bids, offers and sales, as well as
+ * all sums from which averages are computed, are weighted by the number of households or houses
+ * each bid or offer represents.
  *
  * @author daniel, Adrian Carro
  *
  *************************************************************************************************/
-public class HousingMarketStats {
+public class HousingMarketStats implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     // General fields
     private HousingMarket           market;                 // Declared HousingMarket so that it can accommodate both sale and rental markets
     private Config                  config = Model.config;  // Passes the Model's configuration parameters object to a private field
@@ -35,8 +40,8 @@ public class HousingMarketStats {
     private int                     nBTLSellers;
     private double                  sumBidPrices;
     private double                  sumOfferPrices;
-    private double []               offerPrices;
-    private double []               bidPrices;
+    private LogHistogram            offerPriceSketch; // Distribution of offer prices, re-used every month
+    private LogHistogram            bidPriceSketch; // Distribution of bid prices, re-used every month
 
     // Variables computed during market clearing, counters
     private int                     ftbSalesCount; // Dummy variable to count sales to first-time buyers
@@ -88,6 +93,8 @@ public class HousingMarketStats {
                 config.derivedParams.N_QUALITIES); // Copies reference prices from data/HouseSaleMarket into referencePricePerQuality
         HPIRecord = new DescriptiveStatistics(config.derivedParams.HPI_RECORD_LENGTH);
         nSalesArray = new int[this.rollingWindow];
+        offerPriceSketch = new LogHistogram(1.0, 1.0e9, config.MARKET_PRICE_SKETCH_ACCURACY);
+        bidPriceSketch = new LogHistogram(1.0, 1.0e9, config.MARKET_PRICE_SKETCH_ACCURACY);
     }
 
     //-------------------//
@@ -106,8 +113,8 @@ public class HousingMarketStats {
         nUnsoldNewBuild = 0;
         sumBidPrices = 0.0;
         sumOfferPrices = 0.0;
-        offerPrices = new double[nSellers];
-        bidPrices = new double[nBuyers];
+        offerPriceSketch.clear();
+        bidPriceSketch.clear();
 
         // Set zero initial value for persistent variables whose count is computed during market clearing
         for (int i = 0; i < rollingWindow; i++) {
@@ -136,6 +143,16 @@ public class HousingMarketStats {
         longTermHousePriceAppreciation = housePriceAppreciation(config.HPA_YEARS_TO_CHECK);
     }
 
+    /**
+     * Multiply the rolling counts of sales by a given factor, for them to remain consistent with the population after
+     * every household has been replicated this number of times (see housing.WarmStart)
+     */
+    public void scaleCounts(int factor) {
+        for (int i = 0; i < rollingWindow; i++) {
+            nSalesArray[i] *= factor;
+        }
+    }
+
     //----- Pre-market-clearing methods -----//
 
     /**
@@ -155,48 +172,45 @@ public class HousingMarketStats {
         nSalesPerQualityCount = new int[config.derivedParams.N_QUALITIES];
 
         // Re-initialise to zero variables computed before market clearing
-        nBuyers = market.getBids().size();
+        nBuyers = 0;
         nBTLBuyers = 0;
         for (HouseBidderRecord bid: market.getBids()) {
+            nBuyers += bid.getBidder().getWeight();
             if (bid.getBidder().behaviour.isPropertyInvestor() && bid.getBidder().getHome() != null) {
-                nBTLBuyers++;
+                nBTLBuyers += bid.getBidder().getWeight();
             }
         }
-        nSellers = market.getOffersPQ().size();
+        nSellers = 0;
         nNewSellers = 0;
         nBTLSellers = 0;
         for (HousingMarketRecord element: market.getOffersPQ()) {
             HouseOfferRecord offer = (HouseOfferRecord)element;
+            nSellers += offer.getHouse().getWeight();
             if (offer.gettInitialListing() == Model.getTime()) {
-                nNewSellers++;
+                nNewSellers += offer.getHouse().getWeight();
             }
             if (offer.getHouse().owner != Model.construction) {
                 Household h = (Household) offer.getHouse().owner;
                 if (h.behaviour.isPropertyInvestor()) {
-                    nBTLSellers++;
+                    nBTLSellers += offer.getHouse().getWeight();
                 }
             }
         }
         sumBidPrices = 0.0;
         sumOfferPrices = 0.0;
-        offerPrices = new double[nSellers];
-        bidPrices = new double[nBuyers];
+        offerPriceSketch.clear();
+        bidPriceSketch.clear();
 
-
-        // Record bid prices and their average
-        int i = 0;
+        // Record bid prices, their average and their distribution
         for(HouseBidderRecord bid : market.getBids()) {
-            sumBidPrices += bid.getPrice();
-            bidPrices[i] = bid.getPrice();
-            ++i;
+            sumBidPrices += bid.getBidder().getWeight()*bid.getPrice();
+            bidPriceSketch.add(bid.getPrice(), bid.getBidder().getWeight());
         }
 
-        // Record offer prices, their average, and the number of empty and new houses
-        i = 0;
+        // Record offer prices, their average and their distribution
         for(HousingMarketRecord sale : market.getOffersPQ()) {
-            sumOfferPrices += sale.getPrice();
-            offerPrices[i] = sale.getPrice();
-            ++i;
+            sumOfferPrices += ((HouseOfferRecord)sale).getHouse().getWeight()*sale.getPrice();
+            offerPriceSketch.add(sale.getPrice(), ((HouseOfferRecord)sale).getHouse().getWeight());
         }
     }
 
@@ -210,22 +224,25 @@ public class HousingMarketStats {
      * @param sale HouseOfferRecord with information on the seller/landlord and the offered property
      */
     public void recordTransaction(HouseBidderRecord purchase, HouseOfferRecord sale) {
-        sumMonthsOnMarketCount += Model.getTime() - sale.gettInitialListing();
-        sumMonthsOnMarketPerQualityCount[sale.getQuality()] += Model.getTime() - sale.gettInitialListing();
-        sumSalePricePerQualityCount[sale.getQuality()] += sale.getPrice();
-        nSalesPerQualityCount[sale.getQuality()]++;
-        sumSoldReferencePriceCount += referencePricePerQuality[sale.getQuality()];
-        sumSoldPriceCount += sale.getPrice();
-        nSalesArray[currentIndex] += 1;
+        int weight = sale.getHouse().getWeight();
+        sumMonthsOnMarketCount += weight*(Model.getTime() - sale.gettInitialListing());
+        sumMonthsOnMarketPerQualityCount[sale.getQuality()] += weight*(Model.getTime() - sale.gettInitialListing());
+        sumSalePricePerQualityCount[sale.getQuality()] += weight*sale.getPrice();
+        nSalesPerQualityCount[sale.getQuality()] += weight;
+        sumSoldReferencePriceCount += weight*referencePricePerQuality[sale.getQuality()];
+        sumSoldPriceCount += weight*sale.getPrice();
+        nSalesArray[currentIndex] += weight;
         MortgageAgreement mortgage = purchase.getBidder().mortgageFor(sale.getHouse());
         if(mortgage != null) {
             if(mortgage.isFirstTimeBuyer) {
-                ftbSalesCount += 1;
+                ftbSalesCount += weight;
             } else if(mortgage.isBuyToLet) {
-                btlSalesCount += 1;
+                btlSalesCount += weight;
             }
         }
-        Model.transactionRecorder.recordTransaction(purchase, sale, mortgage, market);
+        if (Model.transactionRecorder != null) {
+            Model.transactionRecorder.recordTransaction(purchase, sale, mortgage, market);
+        }
     }
 
     //----- Post-market-clearing methods -----//
@@ -282,7 +299,8 @@ public class HousingMarketStats {
         // ...record number of unsold new build houses
         nUnsoldNewBuild = 0;
         for(HousingMarketRecord sale : market.getOffersPQ()) {
-            if(((HouseOfferRecord) sale).getHouse().owner == Model.construction) nUnsoldNewBuild++;
+            House house = ((HouseOfferRecord) sale).getHouse();
+            if(house.owner == Model.construction) nUnsoldNewBuild += house.getWeight();
         }
     }
 
@@ -339,8 +357,8 @@ public class HousingMarketStats {
     int getnNewSellers() { return nNewSellers; }
     int getnBTLSellers() { return nBTLSellers; }
     int getnUnsoldNewBuild() { return nUnsoldNewBuild; }
-    double [] getOfferPrices() { return offerPrices; }
-    double [] getBidPrices() { return bidPrices; }
+    public LogHistogram getOfferPriceSketch() { return offerPriceSketch; }
+    public LogHistogram getBidPriceSketch() { return bidPriceSketch; }
 
     // Getters for variables computed after market clearing to keep the previous values during the clearing
     int getnSales() { return nSalesArray[currentIndex]; }
@@ -0,0 +1,80 @@
+package collectors;
+
+import java.util.function.DoubleSupplier;
+
+import housing.Model;
+
+/**************************************************************************************************
+ * Enumeration of the aggregate indicators that can be passed, at the end of each time step, to the
+ * listener of a simulation run through the embeddable API (see housing.Simulation). Each indicator
+ * is computed by the same getter used to write it to the general output file or to the core
+ * indicator files, such that values are those that would be written, only without rounding.
+ *
+ *************************************************************************************************/
+public enum Indicator {
+
+    // Number of households of each type
+    N_HOUSEHOLDS(() -> Model.householdStats.getnHouseholds()),
+    N_HOMELESS(() -> Model.householdStats.getnHomeless()),
+    N_RENTING(() -> Model.householdStats.getnRenting()),
+    N_OWNER_OCCUPIER(() -> Model.householdStats.getnOwnerOccupier()),
+    N_ACTIVE_BTL(() -> Model.householdStats.getnActiveBTL()),
+    // Numbers of houses of each type
+    HOUSING_STOCK(() -> Model.construction.getWeightedHousingStock()),
+    N_EMPTY_HOUSES(() -> Model.householdStats.getnEmptyHouses()),
+    // House sale market data
+    SALE_HPI(() -> Model.housingMarketStats.getHPI()),
+    SALE_ANNUAL_HPA(() -> Model.housingMarketStats.getAnnualHPA()),
+    SALE_AV_SALE_PRICE(() -> Model.housingMarketStats.getAvSalePrice()),
+    SALE_AV_MONTHS_ON_MARKET(() -> Model.housingMarketStats.getAvMonthsOnMarket()),
+    SALE_N_BUYERS(() -> Model.housingMarketStats.getnBuyers()),
+    SALE_N_SELLERS(() -> Model.housingMarketStats.getnSellers()),
+    SALE_N_SALES(() -> Model.housingMarketStats.getnSales()),
+    // Rental market data
+    RENTAL_HPI(() -> Model.rentalMarketStats.getHPI()),
+    RENTAL_AV_SALE_PRICE(() -> Model.rentalMarketStats.getAvSalePrice()),
+    RENTAL_N_SALES(() -> Model.rentalMarketStats.getnSales()),
+    RENTAL_EXP_AV_FLOW_YIELD(() -> Model.rentalMarketStats.getExpAvFlowYield()),
+    // Credit data
+    N_STOCK_MORTGAGES(() -> Model.creditSupply.getnStockMortgages()),
+    NEW_TOTAL_CREDIT(() -> Model.creditSupply.getNewCreditTotal()),
+    CREDIT_STOCK(() -> Model.creditSupply.getTotalBTLCredit() + Model.creditSupply.getTotalOOCredit()),
+    INTEREST_RATE(() -> Model.creditSupply.getInterestRate()),
+    // Core indicators
+    OO_LTV(() -> Model.coreIndicators.getOwnerOccupierLTVMeanAboveMedian()),
+    OO_LTI(() -> Model.coreIndicators.getOwnerOccupierLTIMeanAboveMedian()),
+    BTL_LTV(() -> Model.coreIndicators.getBuyToLetLTVMean()),
+    CREDIT_GROWTH(() -> Model.coreIndicators.getHouseholdCreditGrowth()),
+    DEBT_TO_INCOME(() -> Model.coreIndicators.getMortgageDebtToIncome()),
+    OO_DEBT_TO_INCOME(() -> Model.coreIndicators.getOOMortgageDebtToIncome()),
+    MORTGAGE_APPROVALS(() -> Model.coreIndicators.getMortgageApprovals()),
+    HOUSING_TRANSACTIONS(() -> Model.coreIndicators.getHousingTransactions()),
+    ADVANCES_TO_FTB(() -> Model.coreIndicators.getAdvancesToFTB()),
+    ADVANCES_TO_BTL(() -> Model.coreIndicators.getAdvancesToBTL()),
+    ADVANCES_TO_HM(() -> Model.coreIndicators.getAdvancesToHM()),
+    HOUSE_PRICE_GROWTH(() -> Model.coreIndicators.getHousePriceGrowth()),
+    PRICE_TO_INCOME(() -> Model.coreIndicators.getPriceToIncome()),
+    RENTAL_YIELD(() -> Model.coreIndicators.getAvStockRentalYield()),
+    INTEREST_RATE_SPREAD(() -> Model.coreIndicators.getInterestRateSpread());
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private final DoubleSupplier    getter;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    Indicator(DoubleSupplier getter) { this.getter = getter; }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * @return Value of this indicator at the end of the current time step
+     */
+    public double getValue() { return getter.getAsDouble(); }
+}
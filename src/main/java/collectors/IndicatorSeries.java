@@ -0,0 +1,69 @@
+package collectors;
+
+import java.util.Arrays;
+
+import housing.SimulationListener;
+
+/**************************************************************************************************
+ * Class to keep in memory the full time series of a number of aggregate indicators of a simulation
+ * run through the embeddable API (see housing.Simulation), such that they can be used directly,
+ * for instance by calibration or optimisation loops, without writing and reading any files.
+ *
+ *************************************************************************************************/
+public class IndicatorSeries implements SimulationListener {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private Indicator []    indicators;
+    private int []          positions; // Position of each indicator within the indicators array, -1 if not recorded
+    private double [][]     series; // Values of each recorded indicator, for each time step
+    private int             nSteps; // Number of time steps recorded so far
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param indicators Indicators to record (all of them, if none is given)
+     */
+    public IndicatorSeries(Indicator... indicators) {
+        this.indicators = (indicators.length > 0) ? indicators.clone() : Indicator.values();
+        positions = new int[Indicator.values().length];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < this.indicators.length; i++) positions[this.indicators[i].ordinal()] = i;
+        series = new double[this.indicators.length][64];
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    @Override
+    public Indicator [] getIndicators() { return indicators; }
+
+    @Override
+    public void stepCompleted(int time, double [] values) {
+        if (nSteps == series[0].length) {
+            for (int i = 0; i < series.length; i++) series[i] = Arrays.copyOf(series[i], 2*nSteps);
+        }
+        for (int i = 0; i < series.length; i++) series[i][nSteps] = values[i];
+        nSteps++;
+    }
+
+    /**
+     * @return Number of time steps recorded
+     */
+    public int getNSteps() { return nSteps; }
+
+    /**
+     * @return Time series of a given indicator, with one value per time step recorded
+     */
+    public double [] get(Indicator indicator) {
+        if (positions[indicator.ordinal()] < 0) {
+            throw new IllegalArgumentException("Indicator " + indicator + " is not being recorded");
+        }
+        return Arrays.copyOf(series[positions[indicator.ordinal()]], nSteps);
+    }
+}
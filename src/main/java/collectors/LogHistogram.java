@@ -0,0 +1,130 @@
+package collectors;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Class implementing a fixed-size, mergeable histogram with logarithmically spaced buckets, such
+ * that each bucket spans values within a given relative accuracy of each other. Each bucket keeps
+ * both the (weighted) number and the (weighted) sum of its values, so that quantiles can be
+ * estimated by the mean of the bucket they fall into, and sums of values above a given rank are
+ * only approximated within a single bucket. Values below the lower limit go to the first bucket
+ * and values above the upper limit go to the last one, their sums being still exact. Histograms
+ * with the same limits and accuracy can be merged by simply adding their buckets, and can be
+ * cleared and re-used without any new allocation, such that memory does not depend on the number
+ * of values added.
+ *
+ *************************************************************************************************/
+public class LogHistogram implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private double      minValue; // Upper limit of the first bucket
+    private double      logGamma; // Logarithm of the ratio between the upper and the lower limit of each bucket
+    private double []   counts; // Weighted number of values in each bucket
+    private double []   sums; // Weighted sum of the values in each bucket
+    private double      totalCount; // Weighted number of values in all buckets
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param minValue Lower limit of the buckets, smaller values going to the first bucket
+     * @param maxValue Upper limit of the buckets, larger values going to the last bucket
+     * @param relativeAccuracy Relative accuracy of the buckets, strictly between 0 and 1
+     */
+    public LogHistogram(double minValue, double maxValue, double relativeAccuracy) {
+        this.minValue = minValue;
+        logGamma = Math.log((1.0 + relativeAccuracy)/(1.0 - relativeAccuracy));
+        int nBuckets = (int)Math.ceil(Math.log(maxValue/minValue)/logGamma) + 1;
+        counts = new double[nBuckets];
+        sums = new double[nBuckets];
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Remove all values, keeping the buckets for re-use
+     */
+    public void clear() {
+        Arrays.fill(counts, 0.0);
+        Arrays.fill(sums, 0.0);
+        totalCount = 0.0;
+    }
+
+    /**
+     * Add a value with a given weight (the number of identical values it represents)
+     */
+    public void add(double value, double weight) {
+        int bucket = (int)Math.ceil(Math.log(value/minValue)/logGamma);
+        if (!(bucket > 0)) bucket = 0; // Also catches non-positive values, for which the logarithm is NaN
+        bucket = Math.min(bucket, counts.length - 1);
+        counts[bucket] += weight;
+        sums[bucket] += weight*value;
+        totalCount += weight;
+    }
+
+    /**
+     * Add all values of another histogram, with the same limits and accuracy, to this one
+     */
+    public void merge(LogHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+            sums[i] += other.sums[i];
+        }
+        totalCount += other.totalCount;
+    }
+
+    /**
+     * @return Estimate of the p-quantile, as the mean of the values in the bucket containing it, NaN if empty
+     */
+    public double getQuantile(double p) {
+        if (totalCount <= 0.0) return Double.NaN;
+        double rank = p*totalCount;
+        double below = 0.0;
+        int last = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] <= 0.0) continue;
+            below += counts[i];
+            last = i;
+            if (below > rank) break;
+        }
+        return sums[last]/counts[last];
+    }
+
+    /**
+     * Estimate the sum of the values at and above a given rank (counting from 0 for the smallest value), approximating
+     * only the values within the bucket containing this rank by their bucket mean
+     */
+    double getSumAbove(double rank) {
+        double below = 0.0; // Weighted number of values in the buckets already visited
+        double sum = 0.0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] <= 0.0) continue;
+            if (below >= rank) {
+                sum += sums[i];
+            } else if (below + counts[i] > rank) {
+                sum += (below + counts[i] - rank)*sums[i]/counts[i];
+            }
+            below += counts[i];
+        }
+        return sum;
+    }
+
+    //----- Getter/setter methods -----//
+
+    public double getTotalCount() { return totalCount; }
+
+    public int getnBuckets() { return counts.length; }
+
+    public double getBucketLowerBound(int i) { return (i == 0) ? 0.0 : minValue*Math.exp((i - 1)*logGamma); }
+
+    public double getBucketCount(int i) { return counts[i]; }
+}
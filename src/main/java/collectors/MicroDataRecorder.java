@@ -22,6 +22,7 @@ public class MicroDataRecorder {
     private PrintWriter     outfileNHousesOwned;
     private PrintWriter     outfileAge;
     private PrintWriter     outfileSavingRate;
+    private PrintWriter     outfileSamplingWeight;
 
     private int             timeToStartMicroPrinting = 996;
     private int             freqOfMicroPrinting = 12;
@@ -39,7 +40,8 @@ public class MicroDataRecorder {
     public void openSingleRunSingleVariableFiles(int nRun, boolean recordHouseholdID, boolean recordEmploymentIncome,
                                                  boolean recordRentalIncome, boolean recordBankBalance,
                                                  boolean recordHousingWealth, boolean recordNHousesOwned,
-                                                 boolean recordAge, boolean recordSavingRate) {
+                                                 boolean recordAge, boolean recordSavingRate,
+                                                 boolean recordSamplingWeight) {
         if (recordHouseholdID) {
             try {
                 outfileHouseholdID = new PrintWriter(outputFolder + "HouseholdID-run" + nRun
@@ -104,13 +106,22 @@ public class MicroDataRecorder {
                 e.printStackTrace();
             }
         }
+        if (recordSamplingWeight) {
+            try {
+                outfileSamplingWeight = new PrintWriter(outputFolder + "SamplingWeight-run" + nRun
+                        + ".csv", "UTF-8");
+            } catch (FileNotFoundException | UnsupportedEncodingException e) {
+                e.printStackTrace();
+            }
+        }
     }
 
     void timeStampSingleRunSingleVariableFiles(int time, boolean recordHouseholdID, boolean recordEmploymentIncome,
                                                boolean recordRentalIncome, boolean recordBankBalance,
                                                boolean recordHousingWealth, boolean recordNHousesOwned,
-                                               boolean recordAge, boolean recordSavingRate) {
-        if (time % freqOfMicroPrinting == 0 && time >= timeToStartMicroPrinting) {
+                                               boolean recordAge, boolean recordSavingRate,
+                                               boolean recordSamplingWeight) {
+        if (isTimeToRecord(time)) {
             if (recordHouseholdID) {
                 if (time != timeToStartMicroPrinting) {
                     outfileHouseholdID.println("");
@@ -159,9 +170,22 @@ public class MicroDataRecorder {
                 }
                 outfileSavingRate.print(time);
             }
+            if (recordSamplingWeight) {
+                if (time != timeToStartMicroPrinting) {
+                    outfileSamplingWeight.println("");
+                }
+                outfileSamplingWeight.print(time);
+            }
         }
     }
 
+    /**
+     * @return True if micro-data is to be written at this time step
+     */
+    boolean isTimeToRecord(int time) {
+        return time % freqOfMicroPrinting == 0 && time >= timeToStartMicroPrinting;
+    }
+
     void recordHouseholdID(int time, int householdID) {
         if (time % freqOfMicroPrinting == 0 && time >= timeToStartMicroPrinting) {
             outfileHouseholdID.format(Locale.ROOT, "; %d", householdID);
@@ -210,9 +234,15 @@ public class MicroDataRecorder {
         }
     }
 
+    void recordSamplingWeight(int time, double samplingWeight) {
+        if (time % freqOfMicroPrinting == 0 && time >= timeToStartMicroPrinting) {
+            outfileSamplingWeight.format(Locale.ROOT, "; %.4f", samplingWeight);
+        }
+    }
+
     public void finishRun(boolean recordHouseholdID, boolean recordEmploymentIncome, boolean recordRentalIncome,
                           boolean recordBankBalance, boolean recordHousingWealth, boolean recordNHousesOwned,
-                          boolean recordAge, boolean recordSavingRate) {
+                          boolean recordAge, boolean recordSavingRate, boolean recordSamplingWeight) {
         if (recordHouseholdID) {
             outfileHouseholdID.close();
         }
@@ -237,5 +267,8 @@ public class MicroDataRecorder {
         if (recordSavingRate) {
             outfileSavingRate.close();
         }
+        if (recordSamplingWeight) {
+            outfileSamplingWeight.close();
+        }
     }
 }
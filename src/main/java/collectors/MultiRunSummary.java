@@ -0,0 +1,205 @@
+package collectors;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.Locale;
+
+/**************************************************************************************************
+ * Class to aggregate, while simulations run, statistics across runs of a number of variables at
+ * each time step, such that summaries of many runs can be obtained without writing and reading
+ * back single-run files. For each variable and time step, a streaming (Welford) estimate of the
+ * mean and variance across runs is kept, together with a P-squared sketch (Jain and Chlamtac,
+ * 1985, extended to several quantiles by Raatikainen, 1987) of the requested quantiles. The sketch
+ * uses a fixed number of markers, two more than twice the number of quantiles, and its estimates
+ * are exact as long as the number of runs does not exceed this number of markers. NaN values are
+ * left out of the statistics of their variable and time step.
+ *
+ *************************************************************************************************/
+public class MultiRunSummary {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private String []   names; // Name of each variable
+    private String []   quantileLabels; // Quantiles as requested, used for column names
+    private double []   quantiles; // Quantiles requested, in increasing order
+    private double []   markerProbabilities; // Quantile tracked by each marker of the sketch
+    private int         nVariables;
+    private int         nMarkers;
+    private int         nSteps;
+    private int []      nRuns; // Number of runs having reached each time step
+    private int []      counts; // Number of (non-NaN) values of each variable at each time step
+    private double []   means; // Mean of each variable at each time step
+    private double []   m2; // Sum of squared deviations from the mean of each variable at each time step
+    private double []   heights; // Marker heights of each variable at each time step (sorted values for few runs)
+    private int []      positions; // Marker positions (starting from 1) of each variable at each time step
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param names Name of each variable
+     * @param nSteps Last time step to be aggregated
+     * @param quantiles Comma-separated list of quantiles to be estimated, each strictly between 0 and 1
+     */
+    public MultiRunSummary(String [] names, int nSteps, String quantiles) {
+        this.names = names;
+        this.nSteps = nSteps;
+        nVariables = names.length;
+        quantileLabels = quantiles.trim().isEmpty() ? new String[0] : quantiles.split(",");
+        this.quantiles = new double[quantileLabels.length];
+        for (int i = 0; i < quantileLabels.length; i++) {
+            quantileLabels[i] = quantileLabels[i].trim();
+            try {
+                this.quantiles[i] = Double.parseDouble(quantileLabels[i]);
+            } catch (NumberFormatException nfe) {
+                this.quantiles[i] = Double.NaN;
+            }
+            if (!(this.quantiles[i] > 0.0 && this.quantiles[i] < 1.0)
+                    || (i > 0 && this.quantiles[i] <= this.quantiles[i - 1])) {
+                System.out.println("Summary quantiles '" + quantiles + "' must be given in increasing order, each "
+                        + "strictly between 0 and 1");
+                System.exit(0);
+            }
+        }
+        // Each quantile is tracked by a marker, with further markers at the minimum, the maximum and half-way between
+        // each pair of consecutive ones
+        nMarkers = 2*this.quantiles.length + 3;
+        markerProbabilities = new double[nMarkers];
+        markerProbabilities[nMarkers - 1] = 1.0;
+        for (int i = 0; i < this.quantiles.length; i++) {
+            markerProbabilities[2*i + 2] = this.quantiles[i];
+            markerProbabilities[2*i + 1] = (this.quantiles[i] + ((i > 0) ? this.quantiles[i - 1] : 0.0))/2.0;
+        }
+        markerProbabilities[nMarkers - 2] = (1.0 + ((this.quantiles.length > 0) ?
+                this.quantiles[this.quantiles.length - 1] : 0.0))/2.0;
+        int nCells = (nSteps + 1)*nVariables;
+        nRuns = new int[nSteps + 1];
+        counts = new int[nCells];
+        means = new double[nCells];
+        m2 = new double[nCells];
+        heights = new double[nCells*nMarkers];
+        positions = new int[nCells*nMarkers];
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Add the values of all variables at a given time step of a run
+     *
+     * @param time Time step, ignored if beyond the last time step to be aggregated
+     * @param values Value of each variable, in the same order as their names
+     */
+    public void add(int time, double [] values) {
+        if (time < 0 || time > nSteps) return;
+        nRuns[time]++;
+        for (int v = 0; v < nVariables; v++) {
+            double x = values[v];
+            if (Double.isNaN(x)) continue;
+            int cell = time*nVariables + v;
+            int n = ++counts[cell];
+            double delta = x - means[cell];
+            means[cell] += delta/n;
+            m2[cell] += delta*(x - means[cell]);
+            updateSketch(cell*nMarkers, n, x);
+        }
+    }
+
+    /**
+     * Update the quantile sketch starting at a given offset with its n-th value
+     */
+    private void updateSketch(int base, int n, double x) {
+        // Until all markers are filled, simply keep the values sorted
+        if (n <= nMarkers) {
+            int i = base + n - 1;
+            while (i > base && heights[i - 1] > x) {
+                heights[i] = heights[i - 1];
+                i--;
+            }
+            heights[i] = x;
+            if (n == nMarkers) for (int j = 0; j < nMarkers; j++) positions[base + j] = j + 1;
+            return;
+        }
+        // Find the cell of the new value, updating the extreme markers if needed, and shift the markers above it
+        int k;
+        if (x < heights[base]) {
+            heights[base] = x;
+            k = 0;
+        } else if (x >= heights[base + nMarkers - 1]) {
+            heights[base + nMarkers - 1] = x;
+            k = nMarkers - 2;
+        } else {
+            k = 0;
+            while (heights[base + k + 1] <= x) k++;
+        }
+        for (int j = k + 1; j < nMarkers; j++) positions[base + j]++;
+        // Move each inner marker by one position towards its desired position, if one or more positions away from it
+        for (int j = 1; j < nMarkers - 1; j++) {
+            int i = base + j;
+            double d = 1.0 + (n - 1)*markerProbabilities[j] - positions[i];
+            if ((d >= 1.0 && positions[i + 1] - positions[i] > 1) || (d <= -1.0 && positions[i - 1] - positions[i] < -1)) {
+                int s = (d > 0.0) ? 1 : -1;
+                double parabolic = heights[i] + (double)s/(positions[i + 1] - positions[i - 1])
+                        *((positions[i] - positions[i - 1] + s)*(heights[i + 1] - heights[i])
+                        /(positions[i + 1] - positions[i])
+                        + (positions[i + 1] - positions[i] - s)*(heights[i] - heights[i - 1])
+                        /(positions[i] - positions[i - 1]));
+                if (heights[i - 1] < parabolic && parabolic < heights[i + 1]) {
+                    heights[i] = parabolic;
+                } else {
+                    heights[i] += s*(heights[i + s] - heights[i])/(positions[i + s] - positions[i]);
+                }
+                positions[i] += s;
+            }
+        }
+    }
+
+    /**
+     * @return Estimate of the q-th requested quantile of a variable at a time step, from the sorted values (by linear
+     * interpolation) if there are no more of them than markers, or from the marker tracking it otherwise
+     */
+    private double getQuantile(int cell, int q) {
+        int n = counts[cell];
+        int base = cell*nMarkers;
+        if (n == 0) return Double.NaN;
+        if (n > nMarkers) return heights[base + 2*q + 2];
+        double position = quantiles[q]*(n - 1);
+        int lower = (int)position;
+        if (lower + 1 >= n) return heights[base + n - 1];
+        return heights[base + lower] + (position - lower)*(heights[base + lower + 1] - heights[base + lower]);
+    }
+
+    /**
+     * Write the summary to a file, with a row for each time step reached by any run and, for each variable, columns
+     * for its mean, standard deviation (NaN for a single value) and requested quantiles across runs
+     */
+    public void write(String fileName) {
+        try (PrintWriter writer = new PrintWriter(fileName, "UTF-8")) {
+            writer.print("Model time; nRuns");
+            for (String name : names) {
+                writer.print("; " + name + " mean; " + name + " sd");
+                for (String label : quantileLabels) writer.print("; " + name + " q" + label);
+            }
+            for (int time = 0; time <= nSteps; time++) {
+                if (nRuns[time] == 0) continue;
+                writer.format(Locale.ROOT, "%n%d; %d", time, nRuns[time]);
+                for (int v = 0; v < nVariables; v++) {
+                    int cell = time*nVariables + v;
+                    double sd = (counts[cell] > 1) ? Math.sqrt(m2[cell]/(counts[cell] - 1)) : Double.NaN;
+                    writer.format(Locale.ROOT, "; %.6g; %.6g", (counts[cell] > 0) ? means[cell] : Double.NaN, sd);
+                    for (int q = 0; q < quantiles.length; q++) {
+                        writer.format(Locale.ROOT, "; %.6g", getQuantile(cell, q));
+                    }
+                }
+            }
+            writer.println("");
+        } catch (FileNotFoundException | UnsupportedEncodingException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package collectors;
+
+import java.util.Arrays;
+import java.util.function.ToDoubleFunction;
+
+import org.apache.commons.math3.distribution.TDistribution;
+
+/**************************************************************************************************
+ * Class to compare a baseline and a policy variant run in pairs, that is, forked from the same
+ * state and with the same seed (and, for the comparison to be efficient, with common random
+ * numbers). Each run of each arm is summarised, for every indicator, by the average of its values
+ * over a number of final time steps. Across pairs, streaming (Welford) estimates are kept of the
+ * mean and variance of the paired differences (variant minus baseline), as well as of the variance
+ * of each arm, such that the half-width of the confidence interval of the mean difference can be
+ * compared with the one that independent runs of both arms would have given.
+ *
+ *************************************************************************************************/
+public class PairedComparison {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final int    N_INDICATORS = Indicator.values().length;
+
+    private int             firstStep; // First time step contributing to the run averages
+    private double          confidenceLevel;
+    private int             arm = -1; // Arm currently running (0 for baseline, 1 for variant), -1 for none
+    private double [][]     runSums = new double[2][N_INDICATORS]; // Sum of each indicator over the current run of each arm
+    private int []          runCounts = new int[2]; // Number of time steps summed over the current run of each arm
+    private double [][]     runAverages = new double[2][N_INDICATORS]; // Average of each indicator over the last pair
+    private int             nPairs; // Number of pairs completed
+    private double [][]     means = new double[3][N_INDICATORS]; // Mean of each arm and of the differences
+    private double [][]     m2 = new double[3][N_INDICATORS]; // Sum of squared deviations of each arm and of the differences
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param windowSteps Number of final time steps averaged for each run
+     * @param nSteps Number of time steps of each run
+     * @param confidenceLevel Confidence level of the intervals
+     */
+    public PairedComparison(int windowSteps, int nSteps, double confidenceLevel) {
+        firstStep = nSteps - Math.min(windowSteps, nSteps) + 1;
+        this.confidenceLevel = confidenceLevel;
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Set the arm currently running, discarding the sums of any previous run of it
+     *
+     * @param arm 0 for the baseline, 1 for the variant, -1 while neither is running (as before the fork)
+     */
+    public void setArm(int arm) {
+        this.arm = arm;
+        if (arm < 0) return;
+        Arrays.fill(runSums[arm], 0.0);
+        runCounts[arm] = 0;
+    }
+
+    /**
+     * Add the current values of all indicators to the run sums of the current arm, if within the final time steps
+     */
+    public void step(int time) { step(time, Indicator::getValue); }
+
+    /**
+     * Add given values of all indicators to the run sums of the current arm, if within the final time steps
+     *
+     * @param values Function returning the value of each indicator
+     */
+    void step(int time, ToDoubleFunction<Indicator> values) {
+        if (arm < 0 || time < firstStep) return;
+        for (Indicator indicator : Indicator.values()) {
+            runSums[arm][indicator.ordinal()] += values.applyAsDouble(indicator);
+        }
+        runCounts[arm]++;
+    }
+
+    /**
+     * Finish a pair of runs, updating the means and variances of both arms and of their differences
+     */
+    public void finishPair() {
+        nPairs++;
+        for (int i = 0; i < N_INDICATORS; i++) {
+            runAverages[0][i] = runSums[0][i]/runCounts[0];
+            runAverages[1][i] = runSums[1][i]/runCounts[1];
+            double [] values = {runAverages[0][i], runAverages[1][i], runAverages[1][i] - runAverages[0][i]};
+            for (int k = 0; k < 3; k++) {
+                double delta = values[k] - means[k][i];
+                means[k][i] += delta/nPairs;
+                m2[k][i] += delta*(values[k] - means[k][i]);
+            }
+        }
+    }
+
+    private double getT() {
+        return new TDistribution(null, nPairs - 1).inverseCumulativeProbability(0.5 + confidenceLevel/2.0);
+    }
+
+    //----- Getter/setter methods -----//
+
+    public int getnPairs() { return nPairs; }
+
+    public double getBaselineAverage(Indicator indicator) { return runAverages[0][indicator.ordinal()]; }
+
+    public double getVariantAverage(Indicator indicator) { return runAverages[1][indicator.ordinal()]; }
+
+    public double getMeanDifference(Indicator indicator) { return means[2][indicator.ordinal()]; }
+
+    /**
+     * @return Half-width of the confidence interval of the mean paired difference (infinite before the second pair)
+     */
+    public double getPairedHalfWidth(Indicator indicator) {
+        if (nPairs < 2) return Double.POSITIVE_INFINITY;
+        return getT()*Math.sqrt(m2[2][indicator.ordinal()]/(nPairs - 1)/nPairs);
+    }
+
+    /**
+     * @return Half-width of the confidence interval of the difference of means that the same number of independent runs
+     * of each arm would give, estimated from the variances of both arms (infinite before the second pair)
+     */
+    public double getIndependentHalfWidth(Indicator indicator) {
+        if (nPairs < 2) return Double.POSITIVE_INFINITY;
+        int i = indicator.ordinal();
+        return getT()*Math.sqrt((m2[0][i] + m2[1][i])/(nPairs - 1)/nPairs);
+    }
+}
@@ -7,6 +7,7 @@ import java.io.UnsupportedEncodingException;
 import java.util.Locale;
 
 import housing.Model;
+import housing.MortgageStressTest;
 
 /**************************************************************************************************
  * Class to write output to files
@@ -20,10 +21,41 @@ public class Recorder {
     //----- Fields -----//
     //------------------//
 
+    private static final String OUTPUT_HEADER = "Model time; "
+            // Number of households of each type
+            + "nNonBTLHomeless; nBTLHomeless; nHomeless; nRenting; nNonOwner; "
+            + "nNonBTLOwnerOccupier; nBTLOwnerOccupier; nOwnerOccupier; nActiveBTL; nBTL; nNonBTLBankrupt; "
+            + "nBTLBankrupt; TotalPopulation; "
+            // Numbers of houses of each type
+            + "HousingStock; nEmptyHouses; BTLStockFraction; "
+            // House sale market data
+            + "Sale HPI; Sale AnnualHPA; Sale AvBidPrice; Sale AvOfferPrice; Sale AvSalePrice; "
+            + "Sale AvMonthsOnMarket; Sale nBuyers; "
+            + "Sale nBTLBuyers; Sale nSellers; Sale nNewSellers; Sale nBTLSellers; Sale nSales; "
+            + "Sale nNonBTLBidsAboveExpAvSalePrice; Sale nBTLBidsAboveExpAvSalePrice; Sale nSalesToBTL; "
+            + "Sale nSalesToFTB; "
+            // Rental market data
+            + "Rental HPI; Rental AnnualHPA; Rental AvBidPrice; Rental AvOfferPrice; Rental AvSalePrice; "
+            + "Rental AvMonthsOnMarket; Rental nBuyers; Rental nSellers; "
+            + "Rental nSales; Rental ExpAvFlowYield; "
+            // Credit data
+            + "nStockMortgages; nNewFTBMortgages; nNewFTBMortgagesToBTL; nNewHMMortgages; "
+            + "nNewBTLMortgages; newFTBCredit; newHMCredit; newBTLCredit; newTotalCredit; creditStock; "
+            + "interestRate";
+    private static final String [] CORE_INDICATOR_NAMES = {"ooLTV", "ooLTI", "btlLTV", "creditGrowth", "debtToIncome",
+            "ooDebtToIncome", "mortgageApprovals", "housingTransactions", "advancesToFTB", "advancesToBTL",
+            "advancesToHM", "housePriceGrowth", "priceToIncome", "rentalYield", "interestRateSpread"};
+
     private String outputFolder;
 
     private PrintWriter outfile;
     private PrintWriter qualityBandPriceFile;
+    private PrintWriter priceDistributionFile; // Null unless quantiles of bid and offer prices are written
+    private double [] priceQuantiles; // Quantiles of bid and offer prices to be written
+    private PrintWriter stressTestFile; // Null unless stress tests of the mortgage book are written
+    private int stressTestPeriod; // Number of months between consecutive stress tests
+    private double [] rateShocks; // Rate shocks of the stress tests
+    private double [] incomeShocks; // Income shocks of the stress tests
 
     private PrintWriter ooLTV;
     private PrintWriter ooLTI;
@@ -41,6 +73,13 @@ public class Recorder {
     private PrintWriter rentalYield;
     private PrintWriter interestRateSpread;
 
+    private PrintWriter convergence; // Null unless simulations are replicated adaptively
+    private PrintWriter paired; // Null unless a baseline and a variant are run in pairs
+    private MultiRunSummary summary; // Null unless statistics across runs are aggregated in-process
+    private double [] summaryValues; // Re-used array of values passed to the summary at each time step
+
+    private boolean     firstTimeStamp; // True until the first time stamp of each run is written
+
     //------------------------//
     //----- Constructors -----//
     //------------------------//
@@ -92,33 +131,35 @@ public class Recorder {
         }
     }
 
-    public void openSingleRunFiles(int nRun, boolean recordQualityBandPrice, int nQualityBands) {
-        // Try opening general output file and write first row header with column names
-        try {
-            outfile = new PrintWriter(outputFolder + "Output-run" + nRun + ".csv", "UTF-8");
-            outfile.print("Model time; "
-                    // Number of households of each type
-                    + "nNonBTLHomeless; nBTLHomeless; nHomeless; nRenting; nNonOwner; "
-                    + "nNonBTLOwnerOccupier; nBTLOwnerOccupier; nOwnerOccupier; nActiveBTL; nBTL; nNonBTLBankrupt; "
-                    + "nBTLBankrupt; TotalPopulation; "
-                    // Numbers of houses of each type
-                    + "HousingStock; nEmptyHouses; BTLStockFraction; "
-                    // House sale market data
-                    + "Sale HPI; Sale AnnualHPA; Sale AvBidPrice; Sale AvOfferPrice; Sale AvSalePrice; "
-                    + "Sale AvMonthsOnMarket; Sale nBuyers; "
-                    + "Sale nBTLBuyers; Sale nSellers; Sale nNewSellers; Sale nBTLSellers; Sale nSales; "
-                    + "Sale nNonBTLBidsAboveExpAvSalePrice; Sale nBTLBidsAboveExpAvSalePrice; Sale nSalesToBTL; "
-                    + "Sale nSalesToFTB; "
-                    // Rental market data
-                    + "Rental HPI; Rental AnnualHPA; Rental AvBidPrice; Rental AvOfferPrice; Rental AvSalePrice; "
-                    + "Rental AvMonthsOnMarket; Rental nBuyers; Rental nSellers; "
-                    + "Rental nSales; Rental ExpAvFlowYield; "
-                    // Credit data
-                    + "nStockMortgages; nNewFTBMortgages; nNewFTBMortgagesToBTL; nNewHMMortgages; "
-                    + "nNewBTLMortgages; newFTBCredit; newHMCredit; newBTLCredit; newTotalCredit; creditStock; "
-                    + "interestRate");
-        } catch (FileNotFoundException | UnsupportedEncodingException e) {
-            e.printStackTrace();
+    /**
+     * Start aggregating statistics across runs, at each time step, of all general output variables and core indicators,
+     * to be written to a MultiRunSummary.csv file when finished
+     *
+     * @param nSteps Last time step of each run
+     * @param quantiles Comma-separated list of quantiles to be estimated across runs
+     */
+    public void openSummary(int nSteps, String quantiles) {
+        String [] outputNames = OUTPUT_HEADER.split("; ");
+        String [] names = new String[outputNames.length - 1 + CORE_INDICATOR_NAMES.length];
+        System.arraycopy(outputNames, 1, names, 0, outputNames.length - 1);
+        System.arraycopy(CORE_INDICATOR_NAMES, 0, names, outputNames.length - 1, CORE_INDICATOR_NAMES.length);
+        summary = new MultiRunSummary(names, nSteps, quantiles);
+        summaryValues = new double[names.length];
+    }
+
+    public void openSingleRunFiles(int nRun, boolean recordOutputFile, boolean recordQualityBandPrice,
+                                   int nQualityBands) {
+        firstTimeStamp = true;
+        // If recording of the general output is active, try opening its file and write first row header with column
+        // names
+        outfile = null;
+        if (recordOutputFile) {
+            try {
+                outfile = new PrintWriter(outputFolder + "Output-run" + nRun + ".csv", "UTF-8");
+                outfile.print(OUTPUT_HEADER);
+            } catch (FileNotFoundException | UnsupportedEncodingException e) {
+                e.printStackTrace();
+            }
         }
         // If recording of quality band prices is active...
         if(recordQualityBandPrice) {
@@ -135,11 +176,75 @@ public class Recorder {
         }
     }
 
+    /**
+     * Open the single-run file reporting, at each time step, quantiles of the distributions of bid and offer prices in
+     * both the sale and the rental markets, as estimated from their sketches
+     *
+     * @param nRun Number of the run
+     * @param quantiles Comma-separated list of quantiles to be written
+     */
+    public void openPriceDistributionFile(int nRun, String quantiles) {
+        String [] labels = quantiles.split(",");
+        priceQuantiles = parseList(quantiles, "Price distribution quantiles");
+        try {
+            priceDistributionFile = new PrintWriter(outputFolder + "PriceDistribution-run" + nRun + ".csv", "UTF-8");
+            priceDistributionFile.print("Model time");
+            for (String prices : new String[] {"Sale bid", "Sale offer", "Rental bid", "Rental offer"}) {
+                for (String label : labels) priceDistributionFile.print("; " + prices + " q" + label.trim());
+            }
+        } catch (FileNotFoundException | UnsupportedEncodingException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Open the single-run file reporting, every given number of months, distribution summaries of the repayment burdens
+     * of the bank's mortgage book revalued under every combination of the given shocks, with a row for each combination
+     *
+     * @param nRun Number of the run
+     * @param period Number of months between consecutive stress tests, which are run at multiples of it
+     * @param rateShocks Comma-separated list of absolute changes to the annual mortgage interest rate
+     * @param incomeShocks Comma-separated list of relative changes to the gross employment income of borrowers
+     */
+    public void openMortgageStressTestFile(int nRun, int period, String rateShocks, String incomeShocks) {
+        if (period <= 0) {
+            System.out.println("Mortgage stress test period must be positive");
+            System.exit(0);
+        }
+        stressTestPeriod = period;
+        this.rateShocks = parseList(rateShocks, "Mortgage stress test rate shocks");
+        this.incomeShocks = parseList(incomeShocks, "Mortgage stress test income shocks");
+        try {
+            stressTestFile = new PrintWriter(outputFolder + "MortgageStressTest-run" + nRun + ".csv", "UTF-8");
+            stressTestFile.print("Model time; Rate shock; Income shock; nMortgages; nBorrowers; nOOBorrowers; "
+                    + "Mean PTI; Median PTI; P90 PTI; P99 PTI; Share above max affordability; nBTLBorrowers; "
+                    + "Mean ICR; P10 ICR; Median ICR; Share below min ICR; Share at risk of arrears; "
+                    + "Total monthly payments");
+        } catch (FileNotFoundException | UnsupportedEncodingException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Parse a comma-separated list of numbers, exiting with a message naming the list if any of them is not a number
+     */
+    private static double [] parseList(String list, String description) {
+        String [] elements = list.split(",");
+        double [] values = new double[elements.length];
+        try {
+            for (int i = 0; i < elements.length; i++) values[i] = Double.parseDouble(elements[i].trim());
+        } catch (NumberFormatException nfe) {
+            System.out.println(description + " '" + list + "' are not a comma-separated list of numbers");
+            System.exit(0);
+        }
+        return values;
+    }
+
     public void writeTimeStampResults(boolean recordCoreIndicators, int time, boolean recordQualityBandPrice) {
         if (recordCoreIndicators) {
             // If not at the first point in time...
-            if (time > 0) {
-                // ...write value separation for core indicators (except for time 0)
+            if (!firstTimeStamp) {
+                // ...write value separation for core indicators (except for the first time stamp of the run)
                 ooLTV.print("; ");
                 ooLTI.print("; ");
                 btlLTV.print("; ");
@@ -174,12 +279,8 @@ public class Recorder {
             interestRateSpread.format(Locale.ROOT, "%.4f", Model.coreIndicators.getInterestRateSpread());
         }
 
-        // Write general output results to output file
-        outfile.format(Locale.ROOT, "%n%d; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; " +
-                        "%d; %d; %.4f; " +
-                        "%.4f; %.4e; %.2f; %.2f; %.2f; %.4f; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; " +
-                        "%.4f; %.4e; %.2f; %.2f; %.2f; %.4f; %d; %d; %d; %.4f; " +
-                        "%d; %d; %d; %d; %d; %.2f; %.2f; %.2f; %.2f; %.2f; %.6f", time,
+        // Collect general output results and write them to output file
+        Object [] values = {time,
                 // Number of households of each type
                 Model.householdStats.getnNonBTLHomeless(),
                 Model.householdStats.getnBTLHomeless(),
@@ -193,9 +294,9 @@ public class Recorder {
                 Model.householdStats.getnBTL(),
                 Model.householdStats.getnNonBTLBankruptcies(),
                 Model.householdStats.getnBTLBankruptcies(),
-                Model.households.size(),
+                Model.householdStats.getnHouseholds(),
                 // Numbers of houses of each type
-                Model.construction.getHousingStock(),
+                Model.construction.getWeightedHousingStock(),
                 Model.householdStats.getnEmptyHouses(),
                 Model.householdStats.getBTLStockFraction(),
                 // House sale market data
@@ -237,7 +338,66 @@ public class Recorder {
                 Model.creditSupply.getNewCreditToBTL(),
                 Model.creditSupply.getNewCreditTotal(),
                 (Model.creditSupply.getTotalBTLCredit() + Model.creditSupply.getTotalOOCredit()),
-                Model.creditSupply.getInterestRate());
+                Model.creditSupply.getInterestRate()};
+        if (outfile != null) {
+            outfile.format(Locale.ROOT, "%n%d; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; " +
+                            "%d; %d; %.4f; " +
+                            "%.4f; %.4e; %.2f; %.2f; %.2f; %.4f; %d; %d; %d; %d; %d; %d; %d; %d; %d; %d; " +
+                            "%.4f; %.4e; %.2f; %.2f; %.2f; %.4f; %d; %d; %d; %.4f; " +
+                            "%d; %d; %d; %d; %d; %.2f; %.2f; %.2f; %.2f; %.2f; %.6f", values);
+        }
+
+        // Pass all general output results and core indicators to the summary
+        if (summary != null) {
+            for (int i = 1; i < values.length; i++) summaryValues[i - 1] = ((Number)values[i]).doubleValue();
+            int i = values.length - 1;
+            summaryValues[i++] = Model.coreIndicators.getOwnerOccupierLTVMeanAboveMedian();
+            summaryValues[i++] = Model.coreIndicators.getOwnerOccupierLTIMeanAboveMedian();
+            summaryValues[i++] = Model.coreIndicators.getBuyToLetLTVMean();
+            summaryValues[i++] = Model.coreIndicators.getHouseholdCreditGrowth();
+            summaryValues[i++] = Model.coreIndicators.getMortgageDebtToIncome();
+            summaryValues[i++] = Model.coreIndicators.getOOMortgageDebtToIncome();
+            summaryValues[i++] = Model.coreIndicators.getMortgageApprovals();
+            summaryValues[i++] = Model.coreIndicators.getHousingTransactions();
+            summaryValues[i++] = Model.coreIndicators.getAdvancesToFTB();
+            summaryValues[i++] = Model.coreIndicators.getAdvancesToBTL();
+            summaryValues[i++] = Model.coreIndicators.getAdvancesToHM();
+            summaryValues[i++] = Model.coreIndicators.getHousePriceGrowth();
+            summaryValues[i++] = Model.coreIndicators.getPriceToIncome();
+            summaryValues[i++] = Model.coreIndicators.getAvStockRentalYield();
+            summaryValues[i] = Model.coreIndicators.getInterestRateSpread();
+            summary.add(time, summaryValues);
+        }
+        firstTimeStamp = false;
+
+        // Write quantiles of bid and offer prices to file
+        if (priceDistributionFile != null) {
+            priceDistributionFile.format(Locale.ROOT, "%n%d", time);
+            for (LogHistogram sketch : new LogHistogram[] {Model.housingMarketStats.getBidPriceSketch(),
+                    Model.housingMarketStats.getOfferPriceSketch(), Model.rentalMarketStats.getBidPriceSketch(),
+                    Model.rentalMarketStats.getOfferPriceSketch()}) {
+                for (double quantile : priceQuantiles) {
+                    priceDistributionFile.format(Locale.ROOT, "; %.2f", sketch.getQuantile(quantile));
+                }
+            }
+        }
+
+        // Write a stress test of the mortgage book to file
+        if (stressTestFile != null && time % stressTestPeriod == 0) {
+            MortgageStressTest test = Model.bank.revalueMortgageBook(rateShocks, incomeShocks);
+            for (int i = 0; i < rateShocks.length; i++) {
+                for (int j = 0; j < incomeShocks.length; j++) {
+                    stressTestFile.format(Locale.ROOT, "%n%d; %.4f; %.4f; %d; %d; %d; %.6g; %.6g; %.6g; %.6g; %.6g; "
+                            + "%d; %.6g; %.6g; %.6g; %.6g; %.6g; %.2f", time, rateShocks[i], incomeShocks[j],
+                            test.getnMortgages(), test.getnBorrowers(), test.getnOOBorrowers(i, j),
+                            test.getMeanPTI(i, j), test.getMedianPTI(i, j), test.getP90PTI(i, j),
+                            test.getP99PTI(i, j), test.getShareAboveMaxAffordability(i, j),
+                            test.getnBTLBorrowers(i, j), test.getMeanICR(i, j), test.getP10ICR(i, j),
+                            test.getMedianICR(i, j), test.getShareBelowMinICR(i, j),
+                            test.getShareAtRiskOfArrears(i, j), test.getTotalMonthlyPayments(i, j));
+                }
+            }
+        }
 
         // Write quality band prices to file
         if (recordQualityBandPrice) {
@@ -266,13 +426,83 @@ public class Recorder {
             rentalYield.println("");
             interestRateSpread.println("");
         }
-        outfile.close();
+        if (outfile != null) outfile.close();
+        if (priceDistributionFile != null) {
+            priceDistributionFile.close();
+            priceDistributionFile = null;
+        }
+        if (stressTestFile != null) {
+            stressTestFile.close();
+            stressTestFile = null;
+        }
         if (recordQualityBandPrice) {
             qualityBandPriceFile.close();
         }
     }
 
+    /**
+     * Open the multi-run file reporting, after each run, the run average, the mean across runs and the confidence
+     * interval half-width (together with its target) of each indicator monitored for adaptive replication
+     */
+    public void openConvergenceFile(ConvergenceMonitor monitor) {
+        try {
+            convergence = new PrintWriter(outputFolder + "Convergence.csv", "UTF-8");
+        } catch (FileNotFoundException | UnsupportedEncodingException e) {
+            e.printStackTrace();
+        }
+        convergence.print("Run");
+        for (Indicator indicator : monitor.getIndicators()) {
+            convergence.print("; " + indicator + " run average; " + indicator + " mean; " + indicator
+                    + " half-width; " + indicator + " target");
+        }
+        convergence.println("; Converged");
+    }
+
+    public void writeConvergence(int nRun, ConvergenceMonitor monitor) {
+        convergence.print(nRun);
+        for (int i = 0; i < monitor.getIndicators().length; i++) {
+            convergence.format(Locale.ROOT, "; %.6g; %.6g; %.6g; %.6g", monitor.getRunAverage(i),
+                    monitor.getMean(i), monitor.getHalfWidth(i), monitor.getTarget(i));
+        }
+        convergence.println("; " + monitor.hasConverged());
+    }
+
+    /**
+     * Open the multi-run file reporting, after each pair of runs, the run averages of both arms of a paired comparison
+     * and their difference, together with the mean difference across pairs and the confidence interval half-widths
+     * obtained from the paired differences and from the variances of both arms (as if runs were independent)
+     */
+    public void openPairedFile() {
+        try {
+            paired = new PrintWriter(outputFolder + "Paired.csv", "UTF-8");
+        } catch (FileNotFoundException | UnsupportedEncodingException e) {
+            e.printStackTrace();
+        }
+        paired.print("Run");
+        for (Indicator indicator : Indicator.values()) {
+            paired.print("; " + indicator + " baseline; " + indicator + " variant; " + indicator + " difference; "
+                    + indicator + " mean difference; " + indicator + " paired half-width; " + indicator
+                    + " independent half-width");
+        }
+        paired.println("");
+    }
+
+    public void writePaired(int nRun, PairedComparison comparison) {
+        paired.print(nRun);
+        for (Indicator indicator : Indicator.values()) {
+            paired.format(Locale.ROOT, "; %.6g; %.6g; %.6g; %.6g; %.6g; %.6g", comparison.getBaselineAverage(indicator),
+                    comparison.getVariantAverage(indicator),
+                    comparison.getVariantAverage(indicator) - comparison.getBaselineAverage(indicator),
+                    comparison.getMeanDifference(indicator), comparison.getPairedHalfWidth(indicator),
+                    comparison.getIndependentHalfWidth(indicator));
+        }
+        paired.println("");
+    }
+
     public void finish(boolean recordCoreIndicators) {
+        if (convergence != null) convergence.close();
+        if (paired != null) paired.close();
+        if (summary != null) summary.write(outputFolder + "MultiRunSummary.csv");
         if (recordCoreIndicators) {
             ooLTV.close();
             ooLTI.close();
@@ -0,0 +1,166 @@
+package collectors;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Class to store individual values (such as the LTV or LTI ratios of new mortgages) on a rolling
+ * basis, with a slot for each month of the rolling window, and to compute the mean of the values
+ * above their median over the whole window. In exact mode, the values of each month are kept in a
+ * primitive array, and the median is found by quickselect over a re-used scratch array, without
+ * sorting. In approximate mode, values are not kept, but added to a mergeable sketch for each
+ * month (see LogHistogram). Sketches are merged over the window, and only the values within the
+ * bucket of the median are approximated by their bucket mean, such that the relative error of the
+ * result is bounded by the relative accuracy of the buckets.
+ *
+ *************************************************************************************************/
+class RollingValues implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private static final double MIN_VALUE = 1.0e-4; // Lower limit of the buckets, smaller values go to the first one
+    private static final double MAX_VALUE = 1.0e4; // Upper limit of the buckets, larger values go to the last one
+
+    private int                 window;
+    private boolean             approximate;
+    // Exact mode
+    private double [][]         values; // Values added for each month of the window
+    private int []              sizes; // Number of values added for each month of the window
+    private transient double [] scratch; // Re-used array into which the values of the whole window are copied
+    // Approximate mode
+    private LogHistogram []     sketches; // Sketch of the values added for each month of the window
+    private LogHistogram        merged; // Re-used sketch into which those of the whole window are merged
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param window Number of months of the rolling window
+     * @param initialCapacity Initial number of values that can be stored for each month without resizing (exact mode)
+     * @param sketchAccuracy Relative accuracy of the sketch buckets, or 0 for exact computation
+     */
+    RollingValues(int window, int initialCapacity, double sketchAccuracy) {
+        this.window = window;
+        approximate = (sketchAccuracy > 0.0);
+        sizes = new int[window];
+        if (approximate) {
+            sketches = new LogHistogram[window];
+            for (int i = 0; i < window; i++) sketches[i] = new LogHistogram(MIN_VALUE, MAX_VALUE, sketchAccuracy);
+            merged = new LogHistogram(MIN_VALUE, MAX_VALUE, sketchAccuracy);
+        } else {
+            values = new double[window][Math.max(initialCapacity, 1)];
+        }
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Remove all values of a given month of the window
+     */
+    void clear(int month) {
+        sizes[month] = 0;
+        if (approximate) sketches[month].clear();
+    }
+
+    /**
+     * Add a value to a given month of the window
+     */
+    void add(int month, double value) {
+        if (approximate) {
+            sketches[month].add(value, 1.0);
+        } else {
+            if (sizes[month] == values[month].length) {
+                values[month] = Arrays.copyOf(values[month], 2*values[month].length);
+            }
+            values[month][sizes[month]] = value;
+        }
+        sizes[month]++;
+    }
+
+    /**
+     * @return Mean over the values at and above the median of all values in the window (taking, for an even number of
+     * values, the upper of the two middle ones as the median), NaN if there are no values
+     */
+    double getMeanAboveMedian() {
+        int n = 0;
+        for (int size : sizes) n += size;
+        if (n == 0) return Double.NaN;
+        int midPoint = n/2;
+        double sumAbove = approximate ? getSketchedSumAbove(midPoint) : getExactSumAbove(n, midPoint);
+        return sumAbove/(n - midPoint);
+    }
+
+    /**
+     * Copy all values into the scratch array and select, by quickselect, the element at a given position of the sorted
+     * array, such that all elements after it are larger or equal
+     *
+     * @return Sum of the elements at and after the given position of the sorted array
+     */
+    private double getExactSumAbove(int n, int midPoint) {
+        if (scratch == null || scratch.length < n) scratch = new double[2*n];
+        int offset = 0;
+        for (int month = 0; month < window; month++) {
+            System.arraycopy(values[month], 0, scratch, offset, sizes[month]);
+            offset += sizes[month];
+        }
+        select(scratch, n, midPoint);
+        double sum = 0.0;
+        for (int i = midPoint; i < n; i++) sum += scratch[i];
+        return sum;
+    }
+
+    /**
+     * Partially order the first n elements of an array (by Hoare partitioning around median-of-three pivots), such that
+     * the element at position k is the one a sort would put there, and no element after it is smaller
+     */
+    private static void select(double [] a, int n, int k) {
+        int left = 0;
+        int right = n - 1;
+        while (right > left) {
+            // Take the median of the first, middle and last elements as pivot, leaving them in order
+            int middle = (left + right) >>> 1;
+            if (a[middle] < a[left]) swap(a, middle, left);
+            if (a[right] < a[left]) swap(a, right, left);
+            if (a[right] < a[middle]) swap(a, right, middle);
+            double pivot = a[middle];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) swap(a, i++, j--);
+            }
+            // Continue only within the part containing position k
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void swap(double [] a, int i, int j) {
+        double temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    /**
+     * Merge the sketches of all months of the window and estimate from them the sum of the values at and after a given
+     * position of the sorted values
+     */
+    private double getSketchedSumAbove(int midPoint) {
+        merged.clear();
+        for (LogHistogram sketch : sketches) merged.merge(sketch);
+        return merged.getSumAbove(midPoint);
+    }
+}
@@ -20,6 +20,8 @@ public class TransactionRecorder {
     private PrintWriter     outfileSaleTransactions;
     private PrintWriter     outfileRentalTransactions;
     private PrintWriter     outfileNBidUpFrequency;
+    private AgentSampler    sampler = new AgentSampler(config.TRANSACTION_SAMPLING_FRACTION,
+            config.SAMPLING_STRATIFICATION, config.SAMPLING_STRATUM_RATES, 0x5DEECE66DL, config.AGENT_WEIGHT); // Selects transactions to record from house ids
 
     //------------------------//
     //----- Constructors -----//
@@ -45,7 +47,8 @@ public class TransactionRecorder {
                         + "annualInterestRate; ICR; maturity; "
                         + "firstTimeBuyerMortgage; buyToLetMortgage; sellerId; sellerAge; sellerHasBTLGene; "
                         + "sellerMonthlyGrossTotalIncome; sellerMonthlyGrossEmploymentIncome; "
-                        + "sellerPostPurchaseBankBalance; sellerCapGainCoeff");
+                        + "sellerPostPurchaseBankBalance; sellerCapGainCoeff"
+                        + (sampler.isActive() ? "; samplingWeight" : ""));
             } catch (FileNotFoundException | UnsupportedEncodingException e) {
                 e.printStackTrace();
             }
@@ -57,7 +60,8 @@ public class TransactionRecorder {
                         + "buyerAge; buyerMonthlyGrossTotalIncome; buyerMonthlyGrossEmploymentIncome; "
                         + "buyerPostPurchaseBankBalance; sellerId; sellerAge; sellerHasBTLGene; "
                         + "sellerMonthlyGrossTotalIncome; sellerMonthlyGrossEmploymentIncome; "
-                        + "sellerPostPurchaseBankBalance");
+                        + "sellerPostPurchaseBankBalance"
+                        + (sampler.isActive() ? "; samplingWeight" : ""));
             } catch (FileNotFoundException | UnsupportedEncodingException e) {
                 e.printStackTrace();
             }
@@ -80,19 +84,24 @@ public class TransactionRecorder {
     void recordTransaction(HouseBidderRecord purchase, HouseOfferRecord sale, MortgageAgreement mortgage,
                            HousingMarket market) {
         if (config.recordTransactions && (Model.getTime() >= config.TIME_TO_START_RECORDING_TRANSACTIONS)) {
+            // Only houses selected by the sampler are recorded, with transactions stratified according to the buyer
+            double weight = sampler.getWeight(sale.getHouse().id, purchase.getBidder());
+            if (weight == 0.0) return;
             if (market instanceof HouseSaleMarket) {
                 recordSaleTransaction(purchase, sale, mortgage);
+                if (sampler.isActive()) outfileSaleTransactions.format(Locale.ROOT, "; %.4f", weight);
             } else {
                 recordRentalTransaction(purchase, sale);
+                if (sampler.isActive()) outfileRentalTransactions.format(Locale.ROOT, "; %.4f", weight);
             }
         }
     }
 
     private void recordSaleTransaction(HouseBidderRecord purchase, HouseOfferRecord sale, MortgageAgreement mortgage) {
         double ICR;
-        if (mortgage.principal > 0.0 && mortgage.isBuyToLet) {
+        if (mortgage.getPrincipal() > 0.0 && mortgage.isBuyToLet) {
             ICR = Model.rentalMarketStats.getExpAvFlowYield() * sale.getPrice() /
-                    (mortgage.principal * mortgage.getAnnualInterestRate());
+                    (mortgage.getPrincipal() * mortgage.getAnnualInterestRate());
         } else {
             ICR = Double.NaN;
         }
@@ -114,8 +123,8 @@ public class TransactionRecorder {
                 purchase.getBidder().getBankBalance(),
                 purchase.getBidder().behaviour.getBTLCapGainCoefficient(),
                 mortgage.downPayment,
-                mortgage.principal,
-                mortgage.monthlyPayment,
+                mortgage.getPrincipal(),
+                mortgage.getMonthlyPayment(),
                 mortgage.getAnnualInterestRate(),
                 ICR,
                 mortgage.getMaturity(),
@@ -0,0 +1,392 @@
+package data;
+
+import housing.Model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import utilities.BinnedData;
+import utilities.BinnedDataDouble;
+import utilities.Pdf;
+
+/**************************************************************************************************
+ * Class to cache, in a binary file, the calibration data structures derived from the data files
+ * (binned distributions, inverse cumulative distribution tables of pdfs, tax bands and rates...),
+ * such that runs after the first one can read them instead of parsing and processing the data files.
+ * Each structure is stored as an array of doubles under a name, together with a key made of the
+ * length and CRC-32 checksum of the data file it was derived from and of a checksum of everything
+ * else the loaders depend on (a loader version, to be increased whenever any loader changes, and the
+ * configuration values and constants used in deriving the structures). A structure is only read
+ * from the cache if its key still matches that of the current data file and loaders. Otherwise, or
+ * if the structure is not in the cache, it is computed from the data file as usual and immediately
+ * appended to the cache file, an entry appended later replacing any earlier one with the same name.
+ * The cache file is memory-mapped when first read, and each entry is appended, together with its
+ * length and checksum, under an exclusive file lock, such that simultaneous runs sharing the same
+ * cache file neither read partially written entries nor corrupt each other's.
+ *
+ * The cache is only used if a file name is given by CALIBRATION_CACHE_FILE. Note that results do
+ * not depend on whether the cache is used or not, as all values are stored with full precision.
+ *
+ *************************************************************************************************/
+public class CalibrationCache {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final int                    MAGIC = 0x484D4343; // Identifies cache files ("HMCC")
+    private static final int                    VERSION = 2; // To be increased whenever the format of any entry changes
+    private static final int                    LOADER_VERSION = 1; // To be increased whenever any loader changes the
+                                                                    // structures it derives from its data file
+    private static final String                 LOADER_PARAMETERS = "LOADER_VERSION=" + LOADER_VERSION
+            + ", MONTHS_IN_YEAR=" + Model.config.constants.MONTHS_IN_YEAR + ", CDF_SAMPLES=" + Pdf.DEFAULT_CDF_SAMPLES
+            + ", INTEGRATION_STEPS=" + Pdf.INTEGRATION_STEPS; // Everything the loaders depend on besides their data file
+    private static final int                    HEADER_LENGTH = 8; // Magic number (4 bytes) and version (4 bytes)
+    private static final int                    KEY_LENGTH = 16; // File length (8 bytes), file CRC-32 (4 bytes) and
+                                                                 // loader parameters CRC-32 (4 bytes)
+
+    private static String                       fileName = Model.config.CALIBRATION_CACHE_FILE;
+    private static boolean                      enabled = !fileName.isEmpty();
+    private static Map<String, Entry>           entries = readEntries(); // Cached entries by name
+    private static HashMap<String, byte []>     keys = new HashMap<>(); // Key of each data file read so far
+
+    /**
+     * Class to store a cached structure, encoded as an array of doubles, with the key of its data file and loader
+     */
+    private static class Entry {
+        byte []     key;
+        double []   values;
+
+        Entry(byte [] key, double [] values) {
+            this.key = key;
+            this.values = values;
+        }
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    //----- Typed access methods -----//
+
+    /**
+     * Get binned data from the cache or, if not available, load it and store it in the cache
+     *
+     * @param name Name of the structure within the cache
+     * @param sourceFileName Data file from which the structure is derived
+     * @param loader Function to load the structure from the data file
+     */
+    public static BinnedDataDouble getBinnedData(String name, String sourceFileName,
+                                                 Supplier<BinnedDataDouble> loader) {
+        if (!enabled) return loader.get();
+        double [] values = lookup(name, sourceFileName);
+        if (values != null) return decodeBinnedData(values, 0);
+        BinnedDataDouble data = loader.get();
+        store(name, sourceFileName, encodeBinnedData(data));
+        return data;
+    }
+
+    /**
+     * Get binned data read from a given data file, from the cache if available
+     */
+    public static BinnedDataDouble getBinnedData(String sourceFileName) {
+        return getBinnedData("BinnedDataDouble:" + sourceFileName, sourceFileName,
+                () -> new BinnedDataDouble(sourceFileName));
+    }
+
+    /**
+     * Get a pdf read from a given (binned) data file, from the cache if available, thus skipping the integration needed
+     * to compute its inverse cumulative distribution
+     */
+    public static Pdf getPdf(String sourceFileName) {
+        if (!enabled) return new Pdf(sourceFileName);
+        String name = "Pdf:" + sourceFileName;
+        double [] values = lookup(name, sourceFileName);
+        if (values != null) return decodePdf(values, 0);
+        Pdf pdf = new Pdf(sourceFileName);
+        store(name, sourceFileName, encodePdf(pdf));
+        return pdf;
+    }
+
+    /**
+     * Get binned pdfs (a pdf for each bin of a conditioning variable) from the cache or, if not available, load them
+     * and store them in the cache
+     *
+     * @param name Name of the structure within the cache
+     * @param sourceFileName Data file from which the structure is derived
+     * @param loader Function to load the structure from the data file
+     */
+    public static BinnedData<Pdf> getBinnedPdfs(String name, String sourceFileName,
+                                                Supplier<BinnedData<Pdf>> loader) {
+        if (!enabled) return loader.get();
+        double [] values = lookup(name, sourceFileName);
+        if (values != null) {
+            BinnedData<Pdf> data = new BinnedData<>(values[0], values[1]);
+            int position = 3;
+            for (int i = 0; i < (int)values[2]; i++) {
+                data.add(decodePdf(values, position));
+                position += encodedPdfLength(values, position);
+            }
+            return data;
+        }
+        BinnedData<Pdf> data = loader.get();
+        double [][] encodedPdfs = new double[data.size()][];
+        int length = 3;
+        for (int i = 0; i < data.size(); i++) {
+            encodedPdfs[i] = encodePdf(data.get(i));
+            length += encodedPdfs[i].length;
+        }
+        values = new double[length];
+        values[0] = data.getSupportLowerBound();
+        values[1] = data.getBinWidth();
+        values[2] = data.size();
+        int position = 3;
+        for (double [] encodedPdf : encodedPdfs) {
+            System.arraycopy(encodedPdf, 0, values, position, encodedPdf.length);
+            position += encodedPdf.length;
+        }
+        store(name, sourceFileName, values);
+        return data;
+    }
+
+    /**
+     * Get a number of arrays of equal length from the cache or, if not available, load them and store them in the cache
+     *
+     * @param name Name of the structure within the cache
+     * @param sourceFileName Data file from which the arrays are derived
+     * @param loader Function to load the arrays from the data file
+     */
+    public static double [][] getArrays(String name, String sourceFileName, Supplier<double [][]> loader) {
+        if (!enabled) return loader.get();
+        double [] values = lookup(name, sourceFileName);
+        if (values != null) {
+            double [][] arrays = new double[(int)values[0]][];
+            int length = (int)values[1];
+            for (int i = 0; i < arrays.length; i++) {
+                arrays[i] = Arrays.copyOfRange(values, 2 + i*length, 2 + (i + 1)*length);
+            }
+            return arrays;
+        }
+        double [][] arrays = loader.get();
+        int length = (arrays.length > 0) ? arrays[0].length : 0;
+        values = new double[2 + arrays.length*length];
+        values[0] = arrays.length;
+        values[1] = length;
+        for (int i = 0; i < arrays.length; i++) System.arraycopy(arrays[i], 0, values, 2 + i*length, length);
+        store(name, sourceFileName, values);
+        return arrays;
+    }
+
+    //----- Encoding methods -----//
+
+    /**
+     * Encode binned data as {first bin minimum, bin width, number of bins, bin values...}
+     */
+    private static double [] encodeBinnedData(BinnedDataDouble data) {
+        double [] values = new double[3 + data.size()];
+        values[0] = data.getSupportLowerBound();
+        values[1] = data.getBinWidth();
+        values[2] = data.size();
+        for (int i = 0; i < data.size(); i++) values[3 + i] = data.get(i);
+        return values;
+    }
+
+    private static BinnedDataDouble decodeBinnedData(double [] values, int position) {
+        BinnedDataDouble data = new BinnedDataDouble(values[position], values[position + 1]);
+        int nBins = (int)values[position + 2];
+        for (int i = 0; i < nBins; i++) data.add(values[position + 3 + i]);
+        return data;
+    }
+
+    /**
+     * Encode a pdf built from binned data as {encoded binned data..., number of samples, inverse CDF values...}
+     */
+    private static double [] encodePdf(Pdf pdf) {
+        double [] data = encodeBinnedData(pdf.getBinnedData());
+        double [] inverseCDF = pdf.getInverseCDF();
+        double [] values = Arrays.copyOf(data, data.length + 1 + inverseCDF.length);
+        values[data.length] = inverseCDF.length;
+        System.arraycopy(inverseCDF, 0, values, data.length + 1, inverseCDF.length);
+        return values;
+    }
+
+    private static Pdf decodePdf(double [] values, int position) {
+        BinnedDataDouble data = decodeBinnedData(values, position);
+        int inverseCDFPosition = position + 3 + data.size() + 1;
+        return new Pdf(data, Arrays.copyOfRange(values, inverseCDFPosition,
+                inverseCDFPosition + (int)values[inverseCDFPosition - 1]));
+    }
+
+    private static int encodedPdfLength(double [] values, int position) {
+        int nBins = (int)values[position + 2];
+        return 3 + nBins + 1 + (int)values[position + 3 + nBins];
+    }
+
+    //----- Cache file methods -----//
+
+    /**
+     * Discard all entries and keys held in memory, and read the entries again from the cache file, as a new run would
+     */
+    static void reload() {
+        keys.clear();
+        entries = readEntries();
+    }
+
+    /**
+     * Find a structure in the cache, checking that it was derived from the current contents of its data file with the
+     * current loader version and parameters
+     *
+     * @return The encoded structure, or null if the cache is not in use or does not hold an up to date version of it
+     */
+    private static double [] lookup(String name, String sourceFileName) {
+        Entry entry = entries.get(name);
+        if (entry == null || !Arrays.equals(entry.key, getKey(sourceFileName))) return null;
+        return entry.values;
+    }
+
+    /**
+     * Add a newly computed structure to the cache and append it to the cache file
+     */
+    private static void store(String name, String sourceFileName, double [] values) {
+        Entry entry = new Entry(getKey(sourceFileName), values);
+        entries.put(name, entry);
+        appendEntry(name, entry);
+    }
+
+    /**
+     * Compute (only once per run) the key of the structures derived from a data file, made of the length and the CRC-32
+     * checksum of the data file, followed by the CRC-32 checksum of the loader version and parameters. Note that a
+     * cryptographic hash is not needed here, and its provider would take longer to load than the cache saves for some
+     * of the data files
+     */
+    private static byte [] getKey(String sourceFileName) {
+        byte [] key = keys.get(sourceFileName);
+        if (key == null) {
+            CRC32 parametersCrc = new CRC32();
+            parametersCrc.update(LOADER_PARAMETERS.getBytes(StandardCharsets.UTF_8));
+            try {
+                byte [] contents = Files.readAllBytes(Paths.get(sourceFileName));
+                CRC32 crc = new CRC32();
+                crc.update(contents);
+                key = ByteBuffer.allocate(KEY_LENGTH).putLong(contents.length).putInt((int)crc.getValue())
+                        .putInt((int)parametersCrc.getValue()).array();
+            } catch (IOException e) {
+                System.out.println("Exception " + e + " while trying to hash file '" + sourceFileName + "'");
+                e.printStackTrace();
+                key = new byte[KEY_LENGTH]; // Matches no entry, as a cached structure cannot come from a missing file
+            }
+            keys.put(sourceFileName, key);
+        }
+        return key;
+    }
+
+    /**
+     * Read all entries from the (memory-mapped) cache file, under a shared lock such that no entry is being appended
+     * meanwhile. Files with a different format version or any reading problem are ignored, thus starting with an empty
+     * cache
+     */
+    private static Map<String, Entry> readEntries() {
+        Map<String, Entry> entries = new HashMap<>();
+        if (!enabled || !new File(fileName).exists()) return entries;
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            FileLock lock = channel.lock(0, Long.MAX_VALUE, true);
+            try {
+                readEntries(channel, entries);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("Exception " + e + " while trying to read calibration cache file '" + fileName
+                    + "', calibration data will be read from the data files");
+            entries.clear();
+        }
+        return entries;
+    }
+
+    /**
+     * Read entries from a cache file into a map, an entry appended later replacing any earlier one with the same name.
+     * Reading stops at the first incomplete or corrupted entry, as left by a run interrupted while appending it
+     *
+     * @return Length of the valid part of the file, zero if the file does not start with a valid header
+     */
+    private static long readEntries(FileChannel channel, Map<String, Entry> entries) throws IOException {
+        if (channel.size() < HEADER_LENGTH) return 0;
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return 0;
+        int position = HEADER_LENGTH;
+        while (buffer.remaining() >= 8) {
+            int length = buffer.getInt();
+            if (length < 8 || length > buffer.remaining() - 4) break;
+            ByteBuffer record = buffer.slice();
+            record.limit(length);
+            buffer.position(position + 4 + length);
+            CRC32 crc = new CRC32();
+            crc.update(record.duplicate());
+            if (buffer.getInt() != (int)crc.getValue()) break;
+            position = buffer.position();
+            byte [] nameBytes = new byte[record.getInt()];
+            record.get(nameBytes);
+            byte [] key = new byte[KEY_LENGTH];
+            record.get(key);
+            double [] values = new double[record.getInt()];
+            record.asDoubleBuffer().get(values);
+            entries.put(new String(nameBytes, StandardCharsets.UTF_8), new Entry(key, values));
+        }
+        return position;
+    }
+
+    /**
+     * Append an entry to the cache file, under an exclusive lock such that simultaneous runs sharing the same cache
+     * file neither read a partially appended entry nor interleave their own. Entries already appended by another run
+     * with the same key are not appended again, any invalid tail left by an interrupted run is discarded first, and a
+     * new or invalid file is started from its header
+     */
+    private static synchronized void appendEntry(String name, Entry entry) {
+        byte [] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = 4 + nameBytes.length + KEY_LENGTH + 4 + 8*entry.values.length;
+        ByteBuffer record = ByteBuffer.allocate(4 + length + 4);
+        record.putInt(length).putInt(nameBytes.length).put(nameBytes).put(entry.key).putInt(entry.values.length);
+        for (double value : entry.values) record.putDouble(value);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, length);
+        record.putInt((int)crc.getValue());
+        record.flip();
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                Map<String, Entry> fileEntries = new HashMap<>();
+                long position = readEntries(channel, fileEntries);
+                // Another run may have appended the same entry since this one read the file
+                Entry fileEntry = fileEntries.get(name);
+                if (fileEntry != null && Arrays.equals(fileEntry.key, entry.key)) return;
+                if (position == 0) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION);
+                    header.flip();
+                    while (header.hasRemaining()) position += channel.write(header, position);
+                }
+                if (channel.size() > position) channel.truncate(position);
+                while (record.hasRemaining()) position += channel.write(record, position);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to write calibration cache file '" + fileName
+                    + "'");
+            ioe.printStackTrace();
+        }
+    }
+}
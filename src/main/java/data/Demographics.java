@@ -21,11 +21,11 @@ public class Demographics {
 
     private static Config config = Model.config; // Passes the Model's configuration parameters object to a private field
 
-    // Read original age distribution from file
-    private static BinnedDataDouble ageDistribution = new BinnedDataDouble(config.DATA_AGE_DISTRIBUTION);
-
-    // Transform original age distribution to a new distribution with monthly bins (linear assumption)
-    private static BinnedDataDouble monthlyAgeDistribution = transformAgeDistributionToMonthly(ageDistribution);
+    // Read original age distribution from file and transform it to a new distribution with monthly bins (linear
+    // assumption), unless the latter is available at the calibration cache
+    private static BinnedDataDouble monthlyAgeDistribution = CalibrationCache.getBinnedData(
+            "Demographics.monthlyAgeDistribution", config.DATA_AGE_DISTRIBUTION,
+            () -> transformAgeDistributionToMonthly(new BinnedDataDouble(config.DATA_AGE_DISTRIBUTION)));
 
     // Compute expected number of households for each monthly age band given a certain target population
     private static int [] expectedHouseholdsPerAgeBand = computeExpectedHouseholdsPerAgeBand(monthlyAgeDistribution,
@@ -150,6 +150,27 @@ public class Demographics {
 
     //----- Getter/setter methods -----//
 
+    /**
+     * Recompute the expected number of households in each age band for a given target population, such as the reduced
+     * population of a warm start burn-in period
+     */
+    public static void setTargetPopulation(int targetPopulation) {
+        expectedHouseholdsPerAgeBand = computeExpectedHouseholdsPerAgeBand(monthlyAgeDistribution, targetPopulation);
+    }
+
+    /**
+     * Recompute the expected number of households in each age band for a target population made of a number of
+     * identical copies of a reduced population, such as the population replicated at the end of a warm start burn-in,
+     * so that the replicated population already has the expected number of households in each band
+     *
+     * @param reducedPopulation Target population of each copy
+     * @param nCopies Number of copies
+     */
+    public static void setTargetPopulation(int reducedPopulation, int nCopies) {
+        setTargetPopulation(reducedPopulation);
+        for (int i = 0; i < expectedHouseholdsPerAgeBand.length; i++) expectedHouseholdsPerAgeBand[i] *= nCopies;
+    }
+
     public static int getExpectedHouseholdsForAgeBand(int i) {
         return expectedHouseholdsPerAgeBand[i];
     }
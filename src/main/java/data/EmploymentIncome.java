@@ -30,7 +30,8 @@ public class EmploymentIncome {
     /***
      * Calibrated against LCFS 2012 data
      */
-    static private BinnedData<Pdf> lnIncomeGivenAge = loadGrossEmploymentIncomePDFGivenAge();
+    static private BinnedData<Pdf> lnIncomeGivenAge = CalibrationCache.getBinnedPdfs("EmploymentIncome.lnIncomeGivenAge",
+            Model.config.DATA_INCOME_GIVEN_AGE, EmploymentIncome::loadGrossEmploymentIncomePDFGivenAge);
 
     //-------------------//
     //----- Methods -----//
@@ -21,8 +21,9 @@ public class Government {
 
     /** Declarations and initialisations **/
 
-    public static BandsAndRates tax = readBandsAndRates(Model.config.DATA_TAX_RATES);
-    public static BandsAndRates nationalInsurance = readBandsAndRates(Model.config.DATA_NATIONAL_INSURANCE_RATES);
+    public static BandsAndRates tax = getBandsAndRates("Government.tax", Model.config.DATA_TAX_RATES);
+    public static BandsAndRates nationalInsurance = getBandsAndRates("Government.nationalInsurance",
+            Model.config.DATA_NATIONAL_INSURANCE_RATES);
 
     /**
      * Class to group bands and rates arrays in a single object, such that it can be returned from methods
@@ -32,6 +33,32 @@ public class Government {
         public Double[] rates = null;
     }
 
+    /**
+     * Method to get bands and rates from the calibration cache or, if not available there, read them from a file
+     * @param   name        String with name of the bands and rates within the cache
+     * @param   fileName    String with name of file (address inside source folder)
+     * @return  BandsAndRates object containing two arrays of Doubles, one with the bands and the other with the rates
+     */
+    private static BandsAndRates getBandsAndRates(String name, String fileName) {
+        double [][] arrays = CalibrationCache.getArrays(name, fileName, () -> {
+            BandsAndRates bandsAndRates = readBandsAndRates(fileName);
+            double [][] result = new double[2][bandsAndRates.bands.length];
+            for (int i = 0; i < bandsAndRates.bands.length; i++) {
+                result[0][i] = bandsAndRates.bands[i];
+                result[1][i] = bandsAndRates.rates[i];
+            }
+            return result;
+        });
+        BandsAndRates bandsAndRates = new BandsAndRates();
+        bandsAndRates.bands = new Double[arrays[0].length];
+        bandsAndRates.rates = new Double[arrays[1].length];
+        for (int i = 0; i < arrays[0].length; i++) {
+            bandsAndRates.bands[i] = arrays[0][i];
+            bandsAndRates.rates[i] = arrays[1][i];
+        }
+        return bandsAndRates;
+    }
+
     /**
      * Method to read bands and rates from a file, to be used to read both tax and national insurance data
      * @param   fileName    String with name of file (address inside source folder)
@@ -7,7 +7,10 @@ import org.apache.commons.math3.distribution.LogNormalDistribution;
 
 /**************************************************************************************************
  * Class to encapsulate reference house prices from Land Registry Price Paid Data as a log-normal
- * distribution, as well as a reference price for each house quality band
+ * distribution, as well as a reference price for each house quality band. As the number of quality
+ * bands depends on the target population, reference prices are re-computed whenever requested with
+ * a configuration differing from the one they were last computed with, as for successive runs of a
+ * daemon with different configuration overrides
  *
  * @author daniel, Adrian Carro
  *
@@ -18,16 +21,9 @@ public class HouseSaleMarket {
     //----- Fields -----//
     //------------------//
 
-    private static Config                   config = Model.config; // Passes the Model's configuration parameters object to a private field
-    // In the log-normal distribution, the 1st parameter is the scale (mean of the normally distributed logarithm of the
-    // distribution), the 2nd parameter is the shape (standard deviation of the normally distributed natural logarithm
-    // of the distribution)
-    private static LogNormalDistribution    housePriceDistribution =
-            new LogNormalDistribution(config.HOUSE_PRICES_SCALE, config.HOUSE_PRICES_SHAPE);
-    private static LogNormalDistribution    rentPriceDistribution =
-            new LogNormalDistribution(config.RENTAL_PRICES_SCALE, config.RENTAL_PRICES_SHAPE);
-    private static double []                referencePrices = setupReferencePrices(housePriceDistribution);
-    private static double []                referenceRentalPrices = setupReferencePrices(rentPriceDistribution);
+    private static Config                   config; // Configuration with which reference prices were last computed
+    private static double []                referencePrices;
+    private static double []                referenceRentalPrices;
 
     //-------------------//
     //----- Methods -----//
@@ -36,12 +32,41 @@ public class HouseSaleMarket {
     /**
      * @return referencePrices Array of doubles with the reference price for each quality band
      */
-    public static double [] getReferencePricePerQuality() { return referencePrices; }
+    public static double [] getReferencePricePerQuality() {
+        updateReferencePrices();
+        return referencePrices;
+    }
 
     /**
      * @return referenceRentalPrices Array of doubles with the reference rental price for each quality band
      */
-    public static double [] getReferenceRentalPricePerQuality() { return referenceRentalPrices; }
+    public static double [] getReferenceRentalPricePerQuality() {
+        updateReferencePrices();
+        return referenceRentalPrices;
+    }
+
+    /**
+     * Compute reference prices for the Model's current configuration, unless they were already computed with the same
+     * number of quality bands and price distribution parameters
+     */
+    private static void updateReferencePrices() {
+        Config newConfig = Model.config;
+        if (config != null && config.derivedParams.N_QUALITIES == newConfig.derivedParams.N_QUALITIES
+                && config.HOUSE_PRICES_SCALE == newConfig.HOUSE_PRICES_SCALE
+                && config.HOUSE_PRICES_SHAPE == newConfig.HOUSE_PRICES_SHAPE
+                && config.RENTAL_PRICES_SCALE == newConfig.RENTAL_PRICES_SCALE
+                && config.RENTAL_PRICES_SHAPE == newConfig.RENTAL_PRICES_SHAPE) {
+            return;
+        }
+        config = newConfig;
+        // In the log-normal distribution, the 1st parameter is the scale (mean of the normally distributed logarithm
+        // of the distribution), the 2nd parameter is the shape (standard deviation of the normally distributed natural
+        // logarithm of the distribution)
+        referencePrices = setupReferencePrices(new LogNormalDistribution(config.HOUSE_PRICES_SCALE,
+                config.HOUSE_PRICES_SHAPE));
+        referenceRentalPrices = setupReferencePrices(new LogNormalDistribution(config.RENTAL_PRICES_SCALE,
+                config.RENTAL_PRICES_SHAPE));
+    }
 
     /**
      * Given a certain distribution of prices, set up initial reference prices for each quality band
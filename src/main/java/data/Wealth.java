@@ -24,7 +24,8 @@ public class Wealth {
     //----- Fields -----//
     //------------------//
 
-    static private BinnedData<Pdf> lnWealthGivenLnIncome = loadLnWealthPDFGivenLnIncome();
+    static private BinnedData<Pdf> lnWealthGivenLnIncome = CalibrationCache.getBinnedPdfs("Wealth.lnWealthGivenLnIncome",
+            Model.config.DATA_WEALTH_GIVEN_INCOME, Wealth::loadLnWealthPDFGivenLnIncome);
 
     //-------------------//
     //----- Methods -----//
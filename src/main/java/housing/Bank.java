@@ -1,8 +1,8 @@
 package housing;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
 
 /**************************************************************************************************
  * Class to represent a mortgage-lender (i.e. a bank or building society), whose only function is
@@ -11,18 +11,20 @@ import java.util.HashSet;
  * @author daniel, davidrpugh, Adrian Carro
  *
  *************************************************************************************************/
-public class Bank {
+public class Bank implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     // General fields
     private Config              config = Model.config;      // Passes the Model's configuration parameters object to a private field
     private CentralBank         centralBank;                // Connection to the central bank to ask for policy
 
     // Bank fields
-    public HashSet<MortgageAgreement>   mortgages;                  // All unpaid mortgage contracts supplied by the bank
+    private MortgageBook                mortgageBook;               // All unpaid mortgage contracts supplied by the bank
     private double                      interestSpread;             // Current mortgage interest spread above base rate (monthly rate*12)
 
     // LTI tracking fields
@@ -64,17 +66,26 @@ public class Bank {
     // ICR internal policy thresholds
     private double              hardMinICR;                 // ICR hard minimum for the ratio of expected rental yield over interest monthly payment
 
+    // Affordability table: snapshot of all policy limits and payment factors, taken once per time step
+    private int                 affordabilityTableStamp;    // Counter identifying the current snapshot, for memoised max prices to be checked against
+    private double []           ltvDenominators;            // One minus the LTV limit for FTB, HM and BTL mortgages, in this order
+    private double              tableHardMaxAffordability;  // Most constraining affordability limit
+    private double              icrDenominator;             // One minus the expected rental yield over the ICR limit times the interest rate
+    private double []           homePaymentFactors;         // Monthly payment factor for home (non-BTL) mortgages, by number of payments
+
     //------------------------//
     //----- Constructors -----//
     //------------------------//
 
     public Bank(CentralBank centralBank) {
         this.centralBank = centralBank;
-        mortgages = new HashSet<>();
+        mortgageBook = new MortgageBook(config.TARGET_POPULATION);
         nFTBMortOverSoftMaxLTI_List = new ArrayList<>();
         nFTBMortgages_List = new ArrayList<>();
         nHMMortOverSoftMaxLTI_List = new ArrayList<>();
         nHMMortgages_List = new ArrayList<>();
+        ltvDenominators = new double[3];
+        homePaymentFactors = new double[config.MORTGAGE_DURATION_YEARS * config.constants.MONTHS_IN_YEAR + 1];
     }
 
     //-------------------//
@@ -82,11 +93,19 @@ public class Bank {
     //-------------------//
 
     void init() {
-        mortgages.clear();
+        mortgageBook.clear();
         initLTICounters();
         setMortgageInterestRate(config.BANK_INITIAL_RATE); // Central Bank must already be initiated at this point!
         resetMonthlyCounters();
-        monthlyCreditSupplyOld = config.BANK_INITIAL_CREDIT_SUPPLY * config.TARGET_POPULATION;
+        monthlyCreditSupplyOld = config.BANK_INITIAL_CREDIT_SUPPLY * Model.getTargetPopulation();
+        setInternalPolicyThresholds();
+    }
+
+    /**
+     * Set all internal policy thresholds to their configuration values, both at initialisation and whenever the
+     * configuration is changed during a simulation (for instance, for a forked scenario)
+     */
+    void setInternalPolicyThresholds() {
         // Setup initial LTV internal policy thresholds
         firstTimeBuyerHardMaxLTV = config.BANK_LTV_HARD_MAX_FTB;
         homeMoverHardMaxLTV = config.BANK_LTV_HARD_MAX_HM;
@@ -233,26 +252,6 @@ public class Bank {
         interestSpread = rate - centralBank.getBaseRate();
     }
 
-    /**
-     * Get the monthly payment factor, i.e., the monthly payment on a mortgage as a fraction of the mortgage principal.
-     * This takes into account age-based restrictions for non-BTL mortgages via the number of payments.
-     */
-    private double getMonthlyPaymentFactor(boolean isHome, double age) {
-        double r = getMortgageInterestRate() / config.constants.MONTHS_IN_YEAR;
-        // For non-BTL purchases, compute payment factor to pay off the principal in the agreed number of payments,
-        // coherent with any mortgage length age-based restrictions
-        if (isHome) {
-            if (getNPayments(true, age) > 0) {
-                return r / (1.0 - Math.pow(1.0 + r, -getNPayments(true, age)));
-            } else {
-                throw new RuntimeException("Trying to find monthly payment factor for a zero payments mortgage");
-            }
-        // For BTL purchases, compute interest-only payment factor (age-based restrictions applied elsewhere)
-        } else {
-            return r;
-        }
-    }
-
     /**
      * Compute the number of payments, taking into account differentiated age-based restrictions for BTL and non-BTL
      * bids. In particular, BTL mortgages always have full maturity, but they can only be approved before the household
@@ -280,7 +279,7 @@ public class Bank {
     }
 
     /**
-     * Arrange a mortgage contract and get a MortgageAgreement object, which is added to the Bank's HashSet of mortgages
+     * Arrange a mortgage contract and get a MortgageAgreement object, which is added to the Bank's mortgage book
      * and entered into CreditSupply statistics.
      *
      * @param h The household requesting the mortgage
@@ -289,14 +288,22 @@ public class Bank {
      * @return The MortgageApproval object
      */
     MortgageAgreement requestLoan(Household h, double housePrice, double desiredDownPayment, boolean isHome) {
-        // Request the mortgage and create the MortgageAgreement object with all the required parameters
-        MortgageAgreement approval = requestApproval(h, housePrice, desiredDownPayment, isHome);
+        // Quote the mortgage and create the MortgageAgreement object with all the quoted terms
+        MortgageQuote quote = new MortgageQuote();
+        quoteMortgage(h, housePrice, desiredDownPayment, isHome, quote);
+        MortgageAgreement approval = new MortgageAgreement(h, !isHome);
+        approval.principal = quote.principal;
+        approval.downPayment = quote.downPayment;
+        approval.monthlyPayment = quote.monthlyPayment;
+        approval.nPayments = quote.nPayments;
+        approval.monthlyInterestRate = quote.monthlyInterestRate;
+        approval.purchasePrice = quote.getPurchasePrice();
         // If this is an actual mortgage, i.e., with a non-zero principal...
         if (approval.principal > 0.0) {
-            // ...add it to the Bank's HashSet of mortgages
-            mortgages.add(approval);
+            // ...add it to the Bank's mortgage book
+            mortgageBook.add(approval, h);
             // ...add the principal to the new supply/demand of credit
-            monthlyCreditSupply += approval.principal;
+            monthlyCreditSupply += approval.getPrincipal();
             // ...update various statistics at CreditSupply
             Model.creditSupply.recordLoan(h, approval);
             // ... count the number of non-BTL mortgages over the soft LTI limit imposed by the Central Bank...
@@ -304,14 +311,14 @@ public class Bank {
                 // ...differentiating between first-time buyers
                 if (h.isFirstTimeBuyer()) {
                     ++nFTBMortgages_New;
-                    if (approval.principal > h.getAnnualGrossEmploymentIncome()
+                    if (approval.getPrincipal() > h.getAnnualGrossEmploymentIncome()
                             * centralBank.getFirstTimeBuyerSoftMaxLTI()) {
                         ++nFTBMortOverSoftMaxLTI_New;
                     }
                 // ...and home movers
                 } else {
                     ++nHMMortgages_New;
-                    if (approval.principal > h.getAnnualGrossEmploymentIncome()
+                    if (approval.getPrincipal() > h.getAnnualGrossEmploymentIncome()
                             * centralBank.getHomeMoverSoftMaxLTI()) {
                         ++nHMMortOverSoftMaxLTI_New;
                     }
@@ -322,19 +329,19 @@ public class Bank {
     }
 
     /**
-     * Request a mortgage approval without actually signing a mortgage contract, i.e., the returned
-     * MortgageAgreement object is not added to the Bank's HashSet of mortgages nor entered into CreditSupply
-     * statistics. This is useful for households to explore the details of the best available mortgage contract before
-     * deciding whether to actually go ahead and sign it.
+     * Quote the terms of the best mortgage available to a household for a given house price, without signing any
+     * mortgage contract, i.e., no MortgageAgreement object is created and neither the Bank's mortgage book nor any
+     * statistics (at the Bank, the Central Bank or CreditSupply) are modified. This is useful for households to explore
+     * the details of the best available mortgage contract before deciding whether to actually go ahead and sign it.
      *
      * @param h The household requesting the mortgage
      * @param housePrice The price of the house that household h wants to buy
      * @param isHome True if household h plans to live in the house (non-BTL mortgage)
-     * @return The MortgageApproval object
+     * @param approval MortgageQuote object to be filled in with the quoted terms (any previous values are overwritten)
      */
-    MortgageAgreement requestApproval(Household h, double housePrice, double desiredDownPayment, boolean isHome) {
-        // Create a MortgageAgreement object to store and return the new mortgage data
-        MortgageAgreement approval = new MortgageAgreement(h, !isHome);
+    void quoteMortgage(Household h, double housePrice, double desiredDownPayment, boolean isHome,
+                       MortgageQuote approval) {
+        int nPayments = getNPayments(isHome, h.getAge());
 
         /*
          * Constraints for all mortgages
@@ -344,7 +351,7 @@ public class Bank {
         // price
         approval.principal = housePrice * getLoanToValueLimit(h.isFirstTimeBuyer(), isHome);
 
-        if (getNPayments(isHome, h.getAge()) > 0) {
+        if (nPayments > 0) {
 
             /*
              * Constraints specific to non-BTL mortgages
@@ -354,8 +361,8 @@ public class Bank {
                 // Affordability constraint: it sets a maximum value for the monthly mortgage payment divided by the
                 // household's monthly gross employment income
                 double affordable_principal = getHardMaxAffordability() * h.getMonthlyGrossEmploymentIncome()
-                        / getMonthlyPaymentFactor(true, h.getAge());
-                if (getMonthlyPaymentFactor(true, h.getAge()) == 1.0) affordable_principal = 0.0;
+                        / homePaymentFactors[nPayments];
+                if (homePaymentFactors[nPayments] == 1.0) affordable_principal = 0.0;
                 approval.principal = Math.min(approval.principal, affordable_principal);
                 // Loan-To-Income (LTI) constraint: it sets a maximum value for the principal divided by the household's
                 // annual gross employment income. The specific LTI limit used is that offered to the household in the
@@ -402,25 +409,24 @@ public class Bank {
         }
 
         /*
-         * Set the rest of the variables of the MortgageAgreement object
+         * Set the rest of the variables of the MortgageQuote object
          */
 
-        if (getNPayments(isHome, h.getAge()) > 0) {
-            approval.monthlyPayment = approval.principal * getMonthlyPaymentFactor(isHome, h.getAge());
+        approval.monthlyInterestRate = getMortgageInterestRate() / config.constants.MONTHS_IN_YEAR;
+        if (nPayments > 0) {
+            approval.monthlyPayment = approval.principal
+                    * (isHome ? homePaymentFactors[nPayments] : approval.monthlyInterestRate);
         } else {
             approval.monthlyPayment = 0.0;
         }
-        approval.nPayments = getNPayments(isHome, h.getAge());
-        approval.monthlyInterestRate = getMortgageInterestRate() / config.constants.MONTHS_IN_YEAR;
-        approval.purchasePrice = approval.principal + approval.downPayment;
+        approval.nPayments = nPayments;
         // Throw error and stop program if requested mortgage has down-payment larger than household's liquid wealth
         if (approval.downPayment > liquidWealth) {
-            System.out.println("Error at Bank.requestApproval(), down-payment larger than household's bank balance: "
+            System.out.println("Error at Bank.quoteMortgage(), down-payment larger than household's bank balance: "
                     + "downpayment = " + approval.downPayment + ", bank balance = " + liquidWealth);
             System.exit(0);
         }
 
-        return approval;
     }
 
     /**
@@ -434,13 +440,27 @@ public class Bank {
      * @return A double with the maximum house price that this mortgage-lender is willing to approve a mortgage for
      */
     double getMaxMortgagePrice(Household h, boolean isHome) {
+        double max_price = h.getMemoisedMaxMortgagePrice(isHome, affordabilityTableStamp);
+        if (Double.isNaN(max_price)) {
+            max_price = computeMaxMortgagePrice(h, isHome);
+            h.memoiseMaxMortgagePrice(isHome, affordabilityTableStamp, max_price);
+        }
+        return max_price;
+    }
+
+    /**
+     * Compute, for a given household, the maximum house price that this mortgage-lender is willing to approve a
+     * mortgage for, using the policy limits and payment factors stored in the affordability table
+     */
+    private double computeMaxMortgagePrice(Household h, boolean isHome) {
         // First, maximise leverage by maximising the down-payment, thus using all the liquid wealth of the household
         // (except 1 cent to avoid rounding errors), with no home equity added, as home-movers always sell their homes
         // before bidding for new ones
         double max_downpayment = h.getBankBalance() - 0.01;
 
         // If number of payments is zero, then no principal is approved, purchase must be paid outright
-        if (getNPayments(isHome, h.getAge()) == 0) return max_downpayment;
+        int nPayments = getNPayments(isHome, h.getAge());
+        if (nPayments == 0) return max_downpayment;
 
         /*
          * Constraints for all mortgages
@@ -448,7 +468,7 @@ public class Bank {
 
         // Loan-To-Value (LTV) constraint: it sets a maximum value for the ratio of the principal divided by the house
         // price, thus setting a maximum house price given a fixed (maximised) down-payment
-        double max_price = max_downpayment / (1.0 - getLoanToValueLimit(h.isFirstTimeBuyer(), isHome));
+        double max_price = max_downpayment / ltvDenominators[isHome ? (h.isFirstTimeBuyer() ? 0 : 1) : 2];
 
         /*
          * Constraints specific to non-BTL mortgages
@@ -457,9 +477,9 @@ public class Bank {
         if (isHome) {
             // Affordability constraint: it sets a maximum value for the monthly mortgage payment divided by the
             // household's monthly gross employment income
-            double affordable_max_price = max_downpayment + getHardMaxAffordability()
-                    * h.getMonthlyGrossEmploymentIncome() / getMonthlyPaymentFactor(true, h.getAge());
-            if (getMonthlyPaymentFactor(true, h.getAge()) == 1.0) affordable_max_price = max_downpayment;
+            double affordable_max_price = max_downpayment + tableHardMaxAffordability
+                    * h.getMonthlyGrossEmploymentIncome() / homePaymentFactors[nPayments];
+            if (homePaymentFactors[nPayments] == 1.0) affordable_max_price = max_downpayment;
             max_price = Math.min(max_price, affordable_max_price);
             // Loan-To-Income (LTI) constraint: it sets a maximum value for the principal divided by the household's
             // annual gross employment income. The specific LTI limit used is that offered to the household in the
@@ -475,8 +495,7 @@ public class Bank {
         } else {
             // Interest Coverage Ratio (ICR) constraint: it sets a minimum value for the expected annual rental income
             // divided by the annual interest expenses
-            double icr_max_price = max_downpayment / (1.0 - Model.rentalMarketStats.getExpAvFlowYield()
-                    / (getHardMinICR() * getMortgageInterestRate()));
+            double icr_max_price = max_downpayment / icrDenominator;
             // When the rental yield is larger than the interest rate times the ICR, then the ICR does never constrain
             if (icr_max_price < 0.0) icr_max_price = Double.POSITIVE_INFINITY;
             max_price = Math.min(max_price,  icr_max_price);
@@ -486,11 +505,63 @@ public class Bank {
     }
 
     /**
-     * End a mortgage contract by removing it from the Bank's HashSet of mortgages
-     *
-     * @param mortgage The MortgageAgreement object to be removed
+     * Take a snapshot of all policy limits and payment factors needed to compute maximum mortgage prices, which are
+     * fixed between the end of a time step (after both the bank and the central bank have updated their rates and
+     * policies, and rental market statistics have been recorded) and the end of the next one. This must be called after
+     * initialisation and after each time step, as well as whenever policies are otherwise changed. All maximum prices
+     * memoised by households with the previous snapshot are thus invalidated.
+     */
+    void updateAffordabilityTable() {
+        affordabilityTableStamp++;
+        ltvDenominators[0] = 1.0 - getLoanToValueLimit(true, true);
+        ltvDenominators[1] = 1.0 - getLoanToValueLimit(false, true);
+        ltvDenominators[2] = 1.0 - getLoanToValueLimit(false, false);
+        tableHardMaxAffordability = getHardMaxAffordability();
+        icrDenominator = 1.0 - Model.rentalMarketStats.getExpAvFlowYield()
+                / (getHardMinICR() * getMortgageInterestRate());
+        double r = getMortgageInterestRate() / config.constants.MONTHS_IN_YEAR;
+        homePaymentFactors[0] = Double.NaN; // Zero payments mortgages are never priced
+        for (int n = 1; n < homePaymentFactors.length; n++) {
+            homePaymentFactors[n] = r / (1.0 - Math.pow(1.0 + r, -n));
+        }
+    }
+
+    /**
+     * Make the monthly payments of all mortgages in the Bank's mortgage book, passing the amounts due to the borrowers
+     */
+    void amortiseMortgages() { mortgageBook.amortise(); }
+
+    /**
+     * Add to the mortgage book a replica of an existing mortgage for a new borrower, without counting it as new credit
+     * supplied this month. The replica must already hold its own copy of the mortgage terms (see
+     * MortgageAgreement.detachReplicaFromBook())
+     */
+    void addReplicaMortgage(MortgageAgreement replica, Household borrower) { mortgageBook.add(replica, borrower); }
+
+    /**
+     * Multiply all counters of mortgages and credit supplied by a given factor, for them to remain consistent with the
+     * population after every household has been replicated this number of times (see WarmStart)
      */
-    void endMortgageContract(MortgageAgreement mortgage) { mortgages.remove(mortgage); }
+    void scaleCounters(int factor) {
+        nFTBMortOverSoftMaxLTI_Prospec *= factor;
+        nFTBMortOverSoftMaxLTI_New *= factor;
+        nFTBMortOverSoftMaxLTI_Acc *= factor;
+        nFTBMortOverSoftMaxLTI_List.replaceAll(n -> n*factor);
+        nFTBMortgages_Prospec *= factor;
+        nFTBMortgages_New *= factor;
+        nFTBMortgages_Acc *= factor;
+        nFTBMortgages_List.replaceAll(n -> n*factor);
+        nHMMortOverSoftMaxLTI_Prospec *= factor;
+        nHMMortOverSoftMaxLTI_New *= factor;
+        nHMMortOverSoftMaxLTI_Acc *= factor;
+        nHMMortOverSoftMaxLTI_List.replaceAll(n -> n*factor);
+        nHMMortgages_Prospec *= factor;
+        nHMMortgages_New *= factor;
+        nHMMortgages_Acc *= factor;
+        nHMMortgages_List.replaceAll(n -> n*factor);
+        monthlyCreditSupply *= factor;
+        monthlyCreditSupplyOld *= factor;
+    }
 
     //----- Mortgage policy methods -----//
 
@@ -582,6 +653,20 @@ public class Bank {
         }
     }
 
+    /**
+     * Revalue the whole mortgage book under every combination of the given interest rate and income shocks, as if all
+     * mortgages were repriced at the shocked rate, without modifying any mortgage. Affordability and ICR breaches are
+     * measured against the current (most constraining) limits of the bank and the central bank.
+     *
+     * @param rateShocks Absolute changes to the annual mortgage interest rate (e.g., 0.01 for a 1 percentage point rise)
+     * @param incomeShocks Relative changes to the gross employment income of borrowers (e.g., -0.05 for a 5% fall)
+     * @return Distribution summaries of payment-to-income ratios, ICRs and arrears risk for each combination of shocks
+     */
+    public MortgageStressTest revalueMortgageBook(double [] rateShocks, double [] incomeShocks) {
+        return new MortgageStressTest(mortgageBook, rateShocks, incomeShocks, getHardMaxAffordability(),
+                getHardMinICR());
+    }
+
     /**
      * Get the most constraining affordability limit, between the private and the central bank policies
      */
@@ -596,6 +681,14 @@ public class Bank {
 
     public double getInterestSpread() { return interestSpread; }
 
+    // Getters for mortgage book totals
+    public int getnMortgages() { return mortgageBook.size(); }
+    MortgageBook getMortgageBook() { return mortgageBook; }
+    public double getTotalBTLCredit() { return mortgageBook.getTotalBTLPrincipal(); }
+    public double getTotalOOCredit() { return mortgageBook.getTotalOOPrincipal(); }
+    public double getTotalFTBCredit() { return mortgageBook.getTotalFTBPrincipal(); }
+    public double getTotalMonthlyMortgagePayments() { return mortgageBook.getTotalMonthlyPayments(); }
+
     /**
      * This method notifies the bank that the household is accepting the approval in principle letter offered and thus
      * sending a bid to the sales market. The purpose is for the bank to take this information into account for
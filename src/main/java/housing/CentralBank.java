@@ -1,5 +1,7 @@
 package housing;
 
+import java.io.Serializable;
+
 /**************************************************************************************************
  * Class to represent the mortgage policy regulator or Central Bank. It reads a number of policy
  * thresholds from the config object into local variables with the purpose of allowing for dynamic
@@ -9,12 +11,14 @@ package housing;
  *
  *************************************************************************************************/
 
-public class CentralBank {
+public class CentralBank implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     // General fields
     private Config      config = Model.config;      // Passes the Model's configuration parameters object to a private field
 
@@ -0,0 +1,200 @@
+package housing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import collectors.CoreIndicators;
+import collectors.CreditSupply;
+import collectors.HouseholdStats;
+import collectors.HousingMarketStats;
+import collectors.RentalMarketStats;
+
+import utilities.RandomSource;
+
+/**************************************************************************************************
+ * Class to store the full state of a simulation at the end of a given time step, such that it can
+ * be written to a compact (compressed) binary file and later restored, with the restored simulation
+ * continuing exactly as the original one would have. The state includes all households with their
+ * payment agreements, all houses and their ownership and tenancy relations, the offer books of both
+ * markets, the bank's mortgage book and LTI counters, the rolling windows of all statistics
+ * collectors and the state of the random number generators, together with the seed from which any
+ * further substreams are derived (with common random numbers). Note that the configuration is not
+ * stored, but taken from the Model at restore time, such that recording options or the number of
+ * time steps can be changed for the restored run.
+ *
+ *************************************************************************************************/
+public class Checkpoint implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 2L;
+
+    private int                     time; // Time step at the end of which the checkpoint was taken
+    private RandomSource            prng;
+    private int                     runSeed; // Seed from which the substreams of the run are derived
+    private Demographics            demographics;
+    private Construction            construction;
+    private CentralBank             centralBank;
+    private Bank                    bank;
+    private HouseSaleMarket         houseSaleMarket;
+    private HouseRentalMarket       houseRentalMarket;
+    private ArrayList<Household>    households;
+    private CreditSupply            creditSupply;
+    private CoreIndicators          coreIndicators;
+    private HouseholdStats          householdStats;
+    private HousingMarketStats      housingMarketStats;
+    private RentalMarketStats       rentalMarketStats;
+    private int                     householdIdPool;
+    private int                     houseIdPool;
+    private int                     marketRecordIdPool;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Collect references to all objects making up the current state of the Model
+     */
+    private Checkpoint() {
+        time = Model.getTime();
+        prng = Model.prng;
+        runSeed = Model.runSeed;
+        demographics = Model.demographics;
+        construction = Model.construction;
+        centralBank = Model.centralBank;
+        bank = Model.bank;
+        houseSaleMarket = Model.houseSaleMarket;
+        houseRentalMarket = Model.houseRentalMarket;
+        households = Model.households;
+        creditSupply = Model.creditSupply;
+        coreIndicators = Model.coreIndicators;
+        householdStats = Model.householdStats;
+        housingMarketStats = Model.housingMarketStats;
+        rentalMarketStats = Model.rentalMarketStats;
+        householdIdPool = Household.getIdPool();
+        houseIdPool = House.getIdPool();
+        marketRecordIdPool = HousingMarketRecord.getIdPool();
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Write the current state of the Model to a checkpoint file
+     *
+     * @param fileName Address of the checkpoint file to be written
+     */
+    public static void save(String fileName) {
+        try (OutputStream stream = new FileOutputStream(fileName)) {
+            write(stream);
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to write checkpoint file '" + fileName + "'");
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Replace the current state of the Model with that stored in a checkpoint file
+     *
+     * @param fileName Address of the checkpoint file to be read
+     * @return Time step at the end of which the checkpoint was taken
+     */
+    public static int restore(String fileName) {
+        try (InputStream stream = new FileInputStream(fileName)) {
+            return read(stream);
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Exception " + e + " while trying to read checkpoint file '" + fileName + "'");
+            e.printStackTrace();
+            System.exit(0);
+            return -1;
+        }
+    }
+
+    /**
+     * Serialise the current state of the Model into a compressed stream. References to the Model's configuration are
+     * replaced by a placeholder, so that the configuration is not stored
+     */
+    static void write(OutputStream stream) throws IOException {
+        GZIPOutputStream zipStream = new GZIPOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        ObjectOutputStream objectStream = new ObjectOutputStream(zipStream) {
+            {
+                enableReplaceObject(true);
+            }
+            @Override
+            protected Object replaceObject(Object obj) {
+                return (obj == Model.config) ? ConfigPlaceholder.INSTANCE : obj;
+            }
+        };
+        objectStream.writeObject(new Checkpoint());
+        objectStream.flush();
+        zipStream.finish();
+        zipStream.flush();
+    }
+
+    /**
+     * Deserialise a Model state from a compressed stream and install it as the current state of the Model. All
+     * configuration placeholders are resolved to the current configuration of the Model
+     *
+     * @return Time step at the end of which the checkpoint was taken
+     */
+    static int read(InputStream stream) throws IOException, ClassNotFoundException {
+        ObjectInputStream objectStream = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(stream,
+                1 << 16))) {
+            {
+                enableResolveObject(true);
+            }
+            @Override
+            protected Object resolveObject(Object obj) {
+                return (obj == ConfigPlaceholder.INSTANCE) ? Model.config : obj;
+            }
+        };
+        Checkpoint checkpoint = (Checkpoint)objectStream.readObject();
+        checkpoint.install();
+        return checkpoint.time;
+    }
+
+    /**
+     * Pass all objects in this checkpoint to the corresponding Model fields, updating also any static references to
+     * the replaced objects
+     */
+    private void install() {
+        Model.t = time;
+        Model.prng = prng;
+        Model.runSeed = runSeed;
+        Model.demographics = demographics;
+        Model.construction = construction;
+        Model.centralBank = centralBank;
+        Model.bank = bank;
+        Model.houseSaleMarket = houseSaleMarket;
+        Model.houseRentalMarket = houseRentalMarket;
+        Model.households = households;
+        Model.creditSupply = creditSupply;
+        Model.coreIndicators = coreIndicators;
+        Model.householdStats = householdStats;
+        Model.housingMarketStats = housingMarketStats;
+        Model.rentalMarketStats = rentalMarketStats;
+        Household.setIdPool(householdIdPool);
+        House.setIdPool(houseIdPool);
+        HousingMarketRecord.setIdPool(marketRecordIdPool);
+        HouseholdBehaviour.updateModelReferences();
+    }
+
+    /**
+     * Placeholder written instead of the Model's configuration object
+     */
+    private enum ConfigPlaceholder { INSTANCE }
+}
@@ -27,16 +27,36 @@ public class Config {
 
     // General model control
     int SEED;                                           // Seed for the random number generator
+    String RNG_ALGORITHM;                               // Random number generator algorithm (MERSENNE_TWISTER, XOSHIRO256PP or SPLITMIX64)
+    boolean COMMON_RANDOM_NUMBERS;                      // True for each household and subsystem to draw from its own named substream of the seed
     int N_STEPS;                                        // Simulation duration in time steps
-    int N_SIMS;                                         // Number of simulations to run (monte-carlo)
+    int N_SIMS;                                         // Number of simulations to run (monte-carlo), maximum number if run adaptively
+    String CONVERGENCE_TARGETS;                         // Comma-separated <INDICATOR>:<half-width> targets for adaptive replication, empty for none
+    int CONVERGENCE_STEPS;                              // Number of final time steps averaged for each simulation when checking convergence or pairing runs
+    double CONVERGENCE_CONFIDENCE;                      // Confidence level of the convergence and paired comparison intervals
+    int MIN_N_SIMS;                                     // Minimum number of simulations to run adaptively before checking convergence
     public int TARGET_POPULATION;                       // Target number of households
+    public int AGENT_WEIGHT;                            // Number of identical households (houses) represented by each household (house) agent
+    int WARM_START_SCALE;                               // Factor by which the population is reduced during the burn-in period (1 for no warm start)
+    int WARM_START_TIME;                                // Time step at the end of which the reduced population is replicated up to the target population
     public int TIME_TO_START_RECORDING_TRANSACTIONS;    // Time step to start recording transactions (to avoid too large files)
     int ROLLING_WINDOW_SIZE_FOR_CORE_INDICATORS;        // Size, in months, of the rolling window used to compute averages of core indicators
+    public double MARKET_PRICE_SKETCH_ACCURACY;         // Relative accuracy of the sketches of the distributions of bid and offer prices
+    double CORE_INDICATOR_SKETCH_ACCURACY;              // Relative accuracy of the sketches approximating OO LTV and LTI means above the median (0 for exact)
     private double CUMULATIVE_WEIGHT_BEYOND_YEAR;       // Total cumulative weight given to events older than 12 months when computing exponential moving averages
     public boolean recordTransactions;                  // True to write data for each transaction
     boolean recordNBidUpFrequency;                      // True to write the frequency of the number of bid-ups
     boolean recordCoreIndicators;                       // True to write time series for each core indicator
+    boolean recordOutputFile;                           // True to write the general output file of each run
+    boolean recordMultiRunSummary;                      // True to aggregate statistics across runs in-process and write them to a single file
+    String MULTI_RUN_SUMMARY_QUANTILES;                 // Comma-separated quantiles across runs written to the multi-run summary
     boolean recordQualityBandPrice;                     // True to write time series of prices for each quality band to a single file per run
+    boolean recordPriceDistribution;                    // True to write time series of quantiles of bid and offer prices to a single file per run
+    String PRICE_DISTRIBUTION_QUANTILES;                // Comma-separated quantiles of bid and offer prices to be written
+    boolean recordMortgageStressTest;                   // True to write a stress test of the bank's mortgage book to a single file per run
+    int MORTGAGE_STRESS_TEST_PERIOD;                    // Number of months between consecutive stress tests of the mortgage book
+    String MORTGAGE_STRESS_TEST_RATE_SHOCKS;            // Comma-separated absolute changes to the annual mortgage interest rate
+    String MORTGAGE_STRESS_TEST_INCOME_SHOCKS;          // Comma-separated relative changes to the gross employment income of borrowers
     public boolean recordHouseholdID;                   // True to write individual household ID so as to identify households across time steps
     public boolean recordEmploymentIncome;              // True to write individual household monthly gross employment income data
     public boolean recordRentalIncome;                  // True to write individual household monthly gross rental income data (after market clearing)
@@ -45,6 +65,11 @@ public class Config {
     public boolean recordNHousesOwned;                  // True to write individual household number of houses owned data (after market clearing)
     public boolean recordAge;                           // True to write individual household age of the household representative person
     public boolean recordSavingRate;                    // True to write individual household saving rate data [1 - (taxExpenses + housing expenses(except deposits) + essentialConsumption + nonEssentialConsumption)/monthlyGrossTotalIncome]
+    public double MICRO_DATA_SAMPLING_FRACTION;         // Fraction of households whose micro-data is written, selected deterministically from their ids
+    public double TRANSACTION_SAMPLING_FRACTION;        // Fraction of houses whose transactions are written, selected deterministically from their ids
+    public String SAMPLING_STRATIFICATION;              // Household characteristic used to stratify the micro-data and transaction samples (NONE, BTL, TENURE or INCOME)
+    public String SAMPLING_STRATUM_RATES;               // Comma-separated relative sampling rates for each stratum, multiplying the above sampling fractions
+    public String CALIBRATION_CACHE_FILE;               // Binary file caching calibration data structures derived from the data files, empty for no cache
 
     // Central Bank policy
     double CENTRAL_BANK_INITIAL_BASE_RATE;              // Central Bank initial base rate
@@ -235,7 +260,13 @@ public class Config {
     /**
      * Constructor with full initialization, used only for the original Model Config instance
      */
-    public Config (String configFileName) { getConfigValues(configFileName); }
+    public Config (String configFileName) { getConfigValues(configFileName, new Properties()); }
+
+    /**
+     * Constructor with full initialization, where the values read from the configuration file are replaced by those
+     * given as overrides, used for the configurations of scenarios forked from the original Model
+     */
+    public Config (String configFileName, Properties overrides) { getConfigValues(configFileName, overrides); }
 
     //-------------------//
     //----- Methods -----//
@@ -243,15 +274,38 @@ public class Config {
 
     public int getUKHouseholds() { return UK_HOUSEHOLDS; }
 
+    /**
+     * Check whether another configuration reads its calibration data from the same data files (and calibration cache
+     * file) as this one, such that calibration data already loaded for this configuration can be shared with it
+     *
+     * @param other Configuration to compare with
+     */
+    public boolean hasSameDataFiles(Config other) {
+        for (Field field : this.getClass().getDeclaredFields()) {
+            if (field.getName().startsWith("DATA_") || field.getName().equals("CALIBRATION_CACHE_FILE")) {
+                try {
+                    if (!field.get(this).equals(field.get(other))) return false;
+                } catch (IllegalAccessException iae) {
+                    System.out.println("Exception " + iae + " while trying to read the field " + field.getName());
+                    iae.printStackTrace();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * Method to read configuration parameters from a configuration (.properties) file
      * @param   configFileName    String with name of configuration (.properties) file (address inside source folder)
+     * @param   overrides         Properties replacing those read from the configuration file (possibly empty)
      */
-    private void getConfigValues(String configFileName) {
+    private void getConfigValues(String configFileName, Properties overrides) {
         // Try-with-resources statement
         try (FileReader fileReader = new FileReader(configFileName)) {
             Properties prop = new Properties();
             prop.load(fileReader);
+            prop.putAll(overrides);
             // Check that all parameters declared in the configuration (.properties) file are also declared in this class
             try {
                 Set<String> setOfFields = new HashSet<>();
@@ -368,9 +422,10 @@ public class Config {
         derivedParams.N_PAYMENTS = MORTGAGE_DURATION_YEARS*constants.MONTHS_IN_YEAR;
         // Construction parameters
         derivedParams.UK_HOUSES_PER_HOUSEHOLD = (double)UK_DWELLINGS / UK_HOUSEHOLDS; // Target ratio of houses per household
-        // House parameters
-        derivedParams.N_QUALITIES = (int)Math.round(TARGET_POPULATION * derivedParams.UK_HOUSES_PER_HOUSEHOLD
-                / (HOLD_PERIOD * constants.MONTHS_IN_YEAR));
+        // House parameters (quality bands are set for the represented population, not the number of agents, such that
+        // prices do not depend on the agent weight)
+        derivedParams.N_QUALITIES = (int)Math.round(TARGET_POPULATION * AGENT_WEIGHT
+                * derivedParams.UK_HOUSES_PER_HOUSEHOLD / (HOLD_PERIOD * constants.MONTHS_IN_YEAR));
     }
 
     /**
@@ -1,28 +1,32 @@
 package housing;
 
-import org.apache.commons.math3.random.MersenneTwister;
+import utilities.RandomSource;
 
+import java.io.Serializable;
 import java.util.HashSet;
+import java.util.Set;
 
 
-public class Construction implements IHouseOwner{
+public class Construction implements IHouseOwner, Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private int                         housingStock; // Total number of houses in the whole model
     private int                         nNewBuild; // Number of houses built this month
 
     private Config                      config = Model.config; // Passes the Model's configuration parameters object to a private field
-    private MersenneTwister             prng;
+    private RandomSource                prng;
     private HashSet<House>              onMarket;
 
     //------------------------//
     //----- Constructors -----//
     //------------------------//
 
-    public Construction(MersenneTwister prng) {
+    public Construction(RandomSource prng) {
         housingStock = 0;
         onMarket = new HashSet<>();
         this.prng = prng;
@@ -46,10 +50,10 @@ public class Construction implements IHouseOwner{
         }
         // Then, compute target housing stock dependent on current and target population
         int targetStock;
-        if(Model.households.size() < config.TARGET_POPULATION) {
+        if(Model.households.size() < Model.getTargetPopulation()) {
             targetStock = (int)(Model.households.size()*config.derivedParams.UK_HOUSES_PER_HOUSEHOLD);
         } else {
-            targetStock = (int)(config.TARGET_POPULATION*config.derivedParams.UK_HOUSES_PER_HOUSEHOLD);
+            targetStock = (int)(Model.getTargetPopulation()*config.derivedParams.UK_HOUSES_PER_HOUSEHOLD);
         }
         // ...compute the shortfall of houses
         int shortFall = targetStock - housingStock;
@@ -85,9 +89,32 @@ public class Construction implements IHouseOwner{
         System.out.println("Strange: the construction sector is trying to let a house!");
     }
 
+    /**
+     * Add to the housing stock houses which have not been built this month, such as replicas of existing houses (see
+     * WarmStart)
+     */
+    void addToHousingStock(int nHouses) { housingStock += nHouses; }
+
+    /**
+     * Take ownership of a replica of an unsold new-build house, already on the sale market (see WarmStart)
+     */
+    void addReplicaOnMarket(House h) { onMarket.add(h); }
+
     //----- Getter/setter methods -----//
 
+    void setPrng(RandomSource prng) { this.prng = prng; }
+
     public int getHousingStock() { return housingStock; }
 
+    /**
+     * @return Unsold new-build houses on the sale market
+     */
+    Set<House> getHousesOnMarket() { return onMarket; }
+
+    /**
+     * @return Number of houses represented by the housing stock, i.e., sum of the weights of all houses
+     */
+    public int getWeightedHousingStock() { return housingStock*config.AGENT_WEIGHT; }
+
     public int getnNewBuild() { return nNewBuild; }
 }
@@ -1,17 +1,20 @@
 package housing;
 
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Iterator;
 
-import org.apache.commons.math3.random.MersenneTwister;
+import utilities.RandomSource;
 
-public class Demographics {
+public class Demographics implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
-    private MersenneTwister     prng;
+    private static final long serialVersionUID = 1L;
+
+    private RandomSource        prng;
     private double              firstBinMin = data.Demographics.getMonthlyAgeDistributionMinimum();
     private double              binWidth = data.Demographics.getMonthlyAgeDistributionBinWidth();
     private int []              householdsPerAgeBand = new int[data.Demographics.getMonthlyAgeDistributionSize() + 1];
@@ -22,7 +25,7 @@ public class Demographics {
     //----- Constructors -----//
     //------------------------//
 
-    public Demographics(MersenneTwister prng) { this.prng = prng; }
+    public Demographics(RandomSource prng) { this.prng = prng; }
 
     //-------------------//
     //----- Methods -----//
@@ -116,7 +119,8 @@ public class Demographics {
         while (iterator.hasNext()) {
             Household h = iterator.next();
             int i = (int)((h.getAge() - firstBinMin)/binWidth);
-            if (prng.nextDouble() < deathProbabilities[i]) {
+            // No random draw is needed for age bands without any deaths to implement
+            if (deathProbabilities[i] > 0.0 && prng.nextDouble() < deathProbabilities[i]) {
                 iterator.remove();
                 // Implement inheritance with a randomly chosen heir
                 h.transferAllWealthTo(Model.households.get(prng.nextInt(Model.households.size())));
@@ -129,4 +133,8 @@ public class Demographics {
             }
         }
     }
+
+    //----- Getter/setter methods -----//
+
+    void setPrng(RandomSource prng) { this.prng = prng; }
 }
@@ -1,17 +1,21 @@
 package housing;
 
+import java.io.Serializable;
+
 /**************************************************************************************************
  * Class to represent a house with all its intrinsic characteristics.
  *
  * @author daniel, Adrian Carro
  *
  *************************************************************************************************/
-public class House implements Comparable<House> {
+public class House implements Comparable<House>, Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private static int  id_pool = 0;
 
     public IHouseOwner  owner;
@@ -59,6 +63,20 @@ public class House implements Comparable<House> {
 
     public int getQuality() { return quality; }
 
+    /**
+     * @return Number of identical houses represented by this house, always equal to that of the household agents
+     */
+    public int getWeight() { return Model.config.AGENT_WEIGHT; }
+
+    static int getIdPool() { return id_pool; }
+
+    /**
+     * Give this house a new id from the pool, as for a newly built house (used for replicas, see WarmStart)
+     */
+    void assignNewId() { id = ++id_pool; }
+
+    static void setIdPool(int idPool) { id_pool = idPool; }
+
     @Override
     public int compareTo(House o) { return((int)Math.signum(id-o.id)); }
 
@@ -16,6 +16,8 @@ public class HouseBidderRecord extends HousingMarketRecord {
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private Household bidder; // Household who is bidding to buy or rent a house
     private boolean BTLBid; // True if the bid is for a buy-to-let property, false for a home bid (Note that rental bids are all set to false)
     private double desiredDownPayment;
@@ -17,6 +17,8 @@ public class HouseOfferRecord extends HousingMarketRecord {
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private House                           house;
     private ArrayList<HouseBidderRecord>    matchedBids;
     private double                          initialListedPrice;
@@ -1,6 +1,9 @@
 package housing;
 
-import org.apache.commons.math3.random.MersenneTwister;
+import java.util.ArrayList;
+
+import utilities.EventCalendar;
+import utilities.RandomSource;
 
 /**************************************************************************************************
  * Class to represent the rental market
@@ -10,16 +13,55 @@ import org.apache.commons.math3.random.MersenneTwister;
  *************************************************************************************************/
 public class HouseRentalMarket extends HousingMarket {
 
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private EventCalendar<RentalAgreement>  tenancyEnds; // Rental agreements scheduled by the time step of their last payment
+    private ArrayList<RentalAgreement>      dueTenancyEnds = new ArrayList<>(); // Reusable list of tenancy ends due this month
+
     //------------------------//
     //----- Constructors -----//
     //------------------------//
 
-    public HouseRentalMarket(MersenneTwister prng) { super(prng); }
+    public HouseRentalMarket(RandomSource prng) {
+        super(prng);
+        tenancyEnds = new EventCalendar<>(Model.config.TENANCY_LENGTH_MAX + 1);
+    }
 
     //-------------------//
     //----- Methods -----//
     //-------------------//
 
+    @Override
+    public void init() {
+        super.init();
+        tenancyEnds.clear();
+    }
+
+    /**
+     * Notify all tenants whose rental agreements make their last payment this month, for them to end their tenancies
+     * during their step. Agreements which have already been terminated (by eviction, death or the tenant buying a
+     * house) are ignored by their former tenants
+     *
+     * @param time Current time step
+     */
+    void notifyTenancyEnds(int time) {
+        tenancyEnds.collectDueEvents(time, dueTenancyEnds);
+        for (RentalAgreement rent : dueTenancyEnds) rent.tenant.tenancyEndDue(rent);
+        dueTenancyEnds.clear();
+    }
+
+    /**
+     * Schedule the end of an already existing tenancy, such as that of a replica of a tenant (see WarmStart), for the
+     * time step of the last payment of its rental agreement
+     */
+    void scheduleTenancyEnd(RentalAgreement rent) {
+        if (rent.getnPayments() > 0) tenancyEnds.schedule(Model.getTime() + rent.getnPayments(), rent);
+    }
+
     /**
      * Deal with everything necessary whenever a house gets rented out, such as deleting the rentalRecord, signaling
      * both the renter and the landlord to complete everything on their respective sides, adding relevant data to
@@ -33,7 +75,11 @@ public class HouseRentalMarket extends HousingMarket {
     public void completeTransaction(HouseBidderRecord purchase, HouseOfferRecord sale) {
         sale.getHouse().rentalRecord = null;
         // This affects: house's resident, renter's home, renter's housePayments, renter, seller's rental income
-        sale.getHouse().owner.completeHouseLet(sale, purchase.getBidder().completeHouseRental(sale));
+        RentalAgreement rent = purchase.getBidder().completeHouseRental(sale);
+        sale.getHouse().owner.completeHouseLet(sale, rent);
+        // Schedule the end of the tenancy for the time step of its last payment (one payment is made per month,
+        // starting next month)
+        tenancyEnds.schedule(Model.getTime() + rent.getnPayments(), rent);
         // This uses: house's id and quality; mortgage's type, downpayment and principal; sale's initial listing price,
         // initial listing time and final price; buyer's id, age, BTL gene, income, rental income, bank balance, and
         // capital gains coefficient; and seller's id, age, BTL gene, income, rental income, bank balance and capital
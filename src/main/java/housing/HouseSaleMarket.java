@@ -1,8 +1,11 @@
 package housing;
 
+import java.util.ArrayList;
 import java.util.Iterator;
-import org.apache.commons.math3.random.MersenneTwister;
+
+import utilities.EventCalendar;
 import utilities.PriorityQueue2D;
+import utilities.RandomSource;
 
 /**************************************************************************************************
  * Class to represent the sales market
@@ -16,15 +19,22 @@ public class HouseSaleMarket extends HousingMarket {
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private PriorityQueue2D<HousingMarketRecord>    offersPY;
+    private EventCalendar<Household>                homeSaleDecisions; // Owner-occupiers scheduled by the time step of their next decision to sell their home
+    private ArrayList<Household>                    dueHomeSaleDecisions = new ArrayList<>(); // Reusable list of decisions due this month
+    private double                                  homeSaleProbability; // Monthly probability of selling used for the scheduled decisions
 
     //------------------------//
     //----- Constructors -----//
     //------------------------//
 
-    HouseSaleMarket(MersenneTwister prng) {
+    HouseSaleMarket(RandomSource prng) {
         super(prng);
         offersPY = new PriorityQueue2D<>(new HousingMarketRecord.PYComparator());
+        homeSaleDecisions = new EventCalendar<>((int)Math.ceil(1.0/Model.config.derivedParams.MONTHLY_P_SELL));
+        homeSaleProbability = Model.config.derivedParams.MONTHLY_P_SELL;
     }
 
     //-------------------//
@@ -35,8 +45,34 @@ public class HouseSaleMarket extends HousingMarket {
     public void init() {
         super.init();
         offersPY.clear();
+        homeSaleDecisions.clear();
+        homeSaleProbability = Model.config.derivedParams.MONTHLY_P_SELL;
+    }
+
+    /**
+     * Notify all owner-occupiers whose decision to sell their home is scheduled for this month, for them to consider
+     * selling during their step. Decisions no longer scheduled (as households have moved out of their homes or died) are
+     * ignored by their households. If the monthly probability of selling has changed since decisions were scheduled (as
+     * when forking a scenario), all decisions are scheduled again with the new probability
+     *
+     * @param time Current time step
+     */
+    void notifyHomeSaleDecisions(int time) {
+        if (homeSaleProbability != Model.config.derivedParams.MONTHLY_P_SELL) {
+            homeSaleProbability = Model.config.derivedParams.MONTHLY_P_SELL;
+            homeSaleDecisions.clear();
+            for (Household h : Model.households) h.restartHomeSaleDecisions();
+        }
+        homeSaleDecisions.collectDueEvents(time, dueHomeSaleDecisions);
+        for (Household h : dueHomeSaleDecisions) h.homeSaleDecisionDue(time);
+        dueHomeSaleDecisions.clear();
     }
 
+    /**
+     * Schedule the next decision of an owner-occupier to sell its home for a given time step
+     */
+    void scheduleHomeSaleDecision(int time, Household h) { homeSaleDecisions.schedule(time, h); }
+
     /**
      * Deal with everything necessary whenever a house gets sold, such as deleting the saleRecord, signaling both the
      * seller and the buyer to complete everything on their respective sides, adding relevant data to statistics and
@@ -60,7 +96,11 @@ public class HouseSaleMarket extends HousingMarket {
         // capital gains coefficient; and seller's id, age, BTL gene, income, rental income, bank balance and capital
         // gains coefficient
         Model.housingMarketStats.recordTransaction(purchase, sale);
+        IHouseOwner seller = sale.getHouse().owner;
         sale.getHouse().owner = purchase.getBidder();
+        // Ownership affects the cached totals of the holdings of both buyer and seller
+        purchase.getBidder().getHoldings().invalidateTotals();
+        if (seller instanceof Household) ((Household)seller).getHoldings().invalidateTotals();
     }
 
     @Override
@@ -78,6 +118,12 @@ public class HouseSaleMarket extends HousingMarket {
         hsr.getHouse().resetSaleRecord();
     }
 
+    @Override
+    void addReplicaOffer(HouseOfferRecord hsr) {
+        super.addReplicaOffer(hsr);
+        offersPY.add(hsr);
+    }
+
     @Override
     public void updateOffer(HouseOfferRecord hsr, double newPrice) {
         offersPY.remove(hsr);
@@ -1,11 +1,9 @@
 package housing;
 
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.io.Serializable;
+import java.util.ArrayList;
 
-import org.apache.commons.math3.random.MersenneTwister;
+import utilities.RandomSource;
 
 /**************************************************************************************************
  * This represents a household who receives an income, consumes, saves and can buy, sell, let, and
@@ -15,12 +13,14 @@ import org.apache.commons.math3.random.MersenneTwister;
  *
  *************************************************************************************************/
 
-public class Household implements IHouseOwner {
+public class Household implements IHouseOwner, Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private static int          id_pool;
 
     public int                  id; // Only used for identifying households within the class TransactionRecorder
@@ -32,16 +32,23 @@ public class Household implements IHouseOwner {
     double                      incomePercentile; // Fixed for the whole lifetime of the household
 
     private House                           home;
-    private Map<House, PaymentAgreement>    housePayments = new TreeMap<>(); // Houses owned and their payment agreements
-    private Map<House, RentalAgreement>     rentalContracts = new TreeMap<>(); // Houses rented out by this landlord and their payment agreements
+    private PropertyHoldings                holdings = new PropertyHoldings(this); // Houses owned, rented and rented out, with their payment agreements
     private Config                          config = Model.config; // Passes the Model's configuration parameters object to a private field
-    private MersenneTwister                 prng;
+    private RandomSource                    prng;
     private double                          age; // Age of the household representative person
     private double                          bankBalance;
     private double                          savingRate; // (disposableIncome - nonEssentialConsumption)/grossTotalIncome
+    private double                          monthlyMortgagePayment; // Sum of all mortgage payments made this month
+    private ArrayList<MortgageAgreement>    maturingMortgages; // Mortgages with their final payment due this month, null if none
     private boolean                         isFirstTimeBuyer;
     private boolean                         isBankrupt;
+    private boolean                         isTenancyEndDue; // True if the household's rental agreement makes its last payment this month
+    private boolean                         isHomeSaleDue; // True if the household decides to sell its home this month
+    private int                             homeSaleTime = -1; // Time step of the next scheduled decision to sell the home, -1 if none
     private double                          persistentLTILimit; // LTI limit currently offered by the bank to this household in an approval in principle letter
+    private int                             maxMortgagePriceStamp; // Stamp of the bank's affordability table used for the memoised max prices, -1 if invalid
+    private double                          maxMortgagePriceHome; // Memoised max price for a home (non-BTL) mortgage, NaN if not computed
+    private double                          maxMortgagePriceBTL; // Memoised max price for a BTL mortgage, NaN if not computed
 
     //------------------------//
     //----- Constructors -----//
@@ -51,20 +58,24 @@ public class Household implements IHouseOwner {
      * Initialises behaviour (determine whether the household will be a BTL investor). Households start off in social
      * housing and with their "desired bank balance" in the bank
      */
-    public Household(MersenneTwister prng, double age) {
-        this.prng = prng; // Passes the Model's random number generator to a private field of each instance
+    public Household(RandomSource prng, double age) {
+        id = ++id_pool;
+        // Pass the given random number generator to a private field or, with common random numbers, draw from a
+        // substream of this household
+        this.prng = config.COMMON_RANDOM_NUMBERS ? Model.getSubstream("household" + id) : prng;
         this.age = age;
         home = null;
         isFirstTimeBuyer = true;
         isBankrupt = false;
-        id = ++id_pool;
         incomePercentile = this.prng.nextDouble();
-        behaviour = new HouseholdBehaviour(incomePercentile);
+        behaviour = new HouseholdBehaviour(this.prng, incomePercentile);
         // Find initial values for the annual and monthly gross employment income
         annualGrossEmploymentIncome = data.EmploymentIncome.getAnnualGrossEmploymentIncome(age, incomePercentile);
         monthlyGrossEmploymentIncome = annualGrossEmploymentIncome/config.constants.MONTHS_IN_YEAR;
         bankBalance = data.Wealth.getDesiredBankBalance(getAnnualGrossTotalIncome(), behaviour.getPropensityToSave()); // Desired bank balance is used as initial value for actual bank balance
         persistentLTILimit = -1; // Dummy value to catch usages before set up
+        invalidateMaxMortgagePrices();
+        Model.householdStats.flagForUpdate(this);
     }
 
     //-------------------//
@@ -83,9 +94,13 @@ public class Household implements IHouseOwner {
      */
     public void step() {
         isBankrupt = false; // Delete bankruptcies from previous time step
-        // Update annual and monthly gross employment income
+        // Update annual and monthly gross employment income (which only changes when changing age band)
+        double previousAnnualGrossEmploymentIncome = annualGrossEmploymentIncome;
         annualGrossEmploymentIncome = data.EmploymentIncome.getAnnualGrossEmploymentIncome(age, incomePercentile);
         monthlyGrossEmploymentIncome = annualGrossEmploymentIncome/config.constants.MONTHS_IN_YEAR;
+        if (annualGrossEmploymentIncome != previousAnnualGrossEmploymentIncome) {
+            Model.householdStats.flagForUpdate(this);
+        }
         // Update desired purchase price
         desiredPurchasePrice = behaviour.updateDesiredPurchasePrice(annualGrossEmploymentIncome);
         // desiredPurchasePrice = behaviour.getAltDesiredPurchasePrice(annualGrossEmploymentIncome, behaviour.decideLTV(this));
@@ -106,18 +121,15 @@ public class Household implements IHouseOwner {
         if (bankBalance < 0.0) {
             bankBalance = 1.0;
             isBankrupt = true;
+            Model.householdStats.countBankruptcy(this);
         }
-        // Manage owned properties and close debts on previously owned properties. To this end, first, create an
-        // iterator over the house-paymentAgreement pairs at the household's housePayments object
-        Iterator<Entry<House, PaymentAgreement>> paymentIt = housePayments.entrySet().iterator();
-        Entry<House, PaymentAgreement> entry;
-        House h;
-        PaymentAgreement payment;
-        // Iterate over these house-paymentAgreement pairs...
-        while (paymentIt.hasNext()) {
-            entry = paymentIt.next();
-            h = entry.getKey();
-            payment = entry.getValue();
+        invalidateMaxMortgagePrices();
+        // Manage owned properties and close debts on previously owned properties. To this end, iterate over the
+        // house-paymentAgreement pairs at the household's holdings...
+        int i = 0;
+        while (i < holdings.size()) {
+            House h = holdings.getHouse(i);
+            PaymentAgreement payment = holdings.getPayment(i);
             // ...if the household is the owner of the house, then manage it
             if (h.owner == this) {
                 manageHouse(h);
@@ -129,24 +141,28 @@ public class Household implements IHouseOwner {
                 // ...always try to pay off this type of debt
                 MortgageAgreement mortgage = (MortgageAgreement) payment;
                 bankBalance -= mortgage.payoff(bankBalance);
-                // ...and remove it from the payments object as soon as the household manages to do so
-                if ((payment.nPayments == 0) & (mortgage.principal == 0.0)) {
-                    paymentIt.remove();
+                invalidateMaxMortgagePrices();
+                // ...and remove it from the holdings as soon as the household manages to do so
+                if ((payment.getnPayments() == 0) & (mortgage.getPrincipal() == 0.0)) {
+                    holdings.removeAt(i);
+                    continue;
                 }
             }
+            i++;
         }
         // Make housing decisions depending on current housing state
         if (isInSocialHousing()) {
             bidForAHome(); // When BTL households are born, they enter here the first time and until they manage to buy a home!
         } else if (isRenting()) {
-            if (housePayments.get(home).nPayments == 0) { // End of rental period for this tenant
+            if (isTenancyEndDue) { // End of rental period for this tenant
+                isTenancyEndDue = false;
                 endTenancy();
                 bidForAHome();
             }            
         } else if (behaviour.isPropertyInvestor()) { // Only BTL investors who already own a home enter here
             // BTL investors always bid the price corresponding to the maximum mortgage they could get
             double price = Model.bank.getMaxMortgagePrice(this, false);
-            Model.householdStats.countBTLBidsAboveExpAvSalePrice(price);
+            Model.householdStats.countBTLBidsAboveExpAvSalePrice(this, price);
             if (behaviour.decideToBuyInvestmentProperty(this)) {
                 double desiredDownPayment = behaviour.decideDownPayment(this, price, false);
                 Model.houseSaleMarket.bid(this, price, true, desiredDownPayment);
@@ -166,9 +182,29 @@ public class Household implements IHouseOwner {
         // Subtract essential, necessary consumption
         // TODO: ESSENTIAL_CONSUMPTION_FRACTION is not explained in the paper, all support is said to be consumed
         monthlyDisposableIncome -= config.ESSENTIAL_CONSUMPTION_FRACTION*config.GOVERNMENT_MONTHLY_INCOME_SUPPORT;
-        // Subtract housing consumption
-        for(PaymentAgreement payment: housePayments.values()) {
-            monthlyDisposableIncome -= payment.makeMonthlyPayment();
+        // Subtract housing consumption, i.e., all mortgage payments already made this month (by the bank when amortising
+        // its mortgage book), the final payments of any mortgages reaching maturity and, if renting, the rent
+        monthlyDisposableIncome -= monthlyMortgagePayment;
+        monthlyMortgagePayment = 0.0;
+        if (maturingMortgages != null) {
+            for (MortgageAgreement mortgage : maturingMortgages) {
+                monthlyDisposableIncome -= mortgage.makeMonthlyPayment();
+            }
+            maturingMortgages = null;
+            holdings.invalidateTotals();
+        }
+        if (isRenting()) {
+            PaymentAgreement rent = holdings.getPayment(home);
+            int nPaymentsBefore = rent.getnPayments();
+            monthlyDisposableIncome -= rent.makeMonthlyPayment();
+            // A rental agreement coming to an end changes the rental income and finance costs of the landlord
+            if (nPaymentsBefore > 0 && rent.getnPayments() == 0) {
+                Model.householdStats.flagForUpdate(this);
+                if (home.owner instanceof Household) {
+                    ((Household)home.owner).holdings.invalidateTotals();
+                    Model.householdStats.flagForUpdate((Household)home.owner);
+                }
+            }
         }
         return monthlyDisposableIncome;
     }
@@ -205,16 +241,7 @@ public class Household implements IHouseOwner {
      * only mortgages, and that non BTL households inheriting properties never inherit any debt on these properties
      */
     private double getAnnualFinanceCosts() {
-        double financeCosts = 0.0;
-        for (Map.Entry<House, PaymentAgreement> entry : housePayments.entrySet()) {
-            House house = entry.getKey();
-            PaymentAgreement payment = entry.getValue();
-            if (payment instanceof MortgageAgreement && house.owner == this && payment.nextPayment() != 0.0
-                    && house.resident != null && house.resident.getHousePayments().get(house).nextPayment() != 0.0) {
-                financeCosts += payment.nextPayment();
-            }
-        }
-        return financeCosts*config.constants.MONTHS_IN_YEAR;
+        return holdings.getMonthlyFinanceCosts()*config.constants.MONTHS_IN_YEAR;
     }
 
     /**
@@ -230,13 +257,7 @@ public class Household implements IHouseOwner {
     /**
      * Adds up this month's rental income from all currently owned and rented properties
      */
-    public double getMonthlyGrossRentalIncome() {
-        double monthlyGrossRentalIncome = 0.0;
-        for(RentalAgreement rentalAgreement: rentalContracts.values()) {
-            monthlyGrossRentalIncome += rentalAgreement.nextPayment();
-        }
-        return monthlyGrossRentalIncome;
-    }
+    public double getMonthlyGrossRentalIncome() { return holdings.getMonthlyGrossRentalIncome(); }
 
     //----- Methods for house owners -----//
 
@@ -257,7 +278,7 @@ public class Household implements IHouseOwner {
             if (Model.getTime() > forSale.gettInitialListing()) {
                 // ...then update its price, if the new price is above the mortgage debt on this house
                 double newPrice = behaviour.rethinkHouseSalePrice(forSale);
-                if (newPrice > mortgageFor(house).principal) {
+                if (newPrice > mortgageFor(house).getPrincipal()) {
                     Model.houseSaleMarket.updateOffer(forSale, newPrice);
                 // ...otherwise, remove the offer from the sale market (note that investment properties will continue to be rented out)
                 } else {
@@ -285,7 +306,7 @@ public class Household implements IHouseOwner {
         double principal;
         MortgageAgreement mortgage = mortgageFor(h);
         if(mortgage != null) {
-            principal = mortgage.principal;
+            principal = mortgage.getPrincipal();
         } else {
             principal = 0.0;
         }
@@ -320,10 +341,11 @@ public class Household implements IHouseOwner {
         MortgageAgreement mortgage = Model.bank.requestLoan(this, sale.getPrice(),
                 desiredDownPayment, home == null);
         bankBalance -= mortgage.downPayment;
-        housePayments.put(sale.getHouse(), mortgage);
+        holdings.put(sale.getHouse(), mortgage);
         if (home == null) { // move in to house
             home = sale.getHouse();
             sale.getHouse().resident = this;
+            if (homeSaleTime < 0) scheduleHomeSaleDecision();
         } else if (sale.getHouse().resident == null) { // put empty buy-to-let house on rental market
             Model.houseRentalMarket.offer(sale.getHouse(), behaviour.getInitialRentPrice(sale.getQuality()),
                     false);
@@ -331,6 +353,8 @@ public class Household implements IHouseOwner {
             System.out.println("Strange: Bought a home with a resident");
         }
         isFirstTimeBuyer = false;
+        invalidateMaxMortgagePrices();
+        Model.householdStats.flagForUpdate(this);
     }
 
     /********************************************************
@@ -342,10 +366,12 @@ public class Household implements IHouseOwner {
         // Second, find mortgage object and pay off as much outstanding debt as possible given bank balance
         MortgageAgreement mortgage = mortgageFor(sale.getHouse());
         bankBalance -= mortgage.payoff(bankBalance);
-        // Third, if there is no more outstanding debt, remove the house from the household's housePayments object
-        if (mortgage.nPayments == 0) {
-            housePayments.remove(sale.getHouse());
-            // TODO: Warning, if bankBalance is not enough to pay mortgage back, then the house stays in housePayments,
+        invalidateMaxMortgagePrices();
+        holdings.invalidateTotals();
+        // Third, if there is no more outstanding debt, remove the house from the household's holdings
+        if (mortgage.getnPayments() == 0) {
+            holdings.remove(sale.getHouse());
+            // TODO: Warning, if bankBalance is not enough to pay mortgage back, then the house stays in holdings,
             // TODO: consequences to be checked. Looking forward, properties and payment agreements should be kept apart
         }
         // Fourth, if the house is still being offered on the rental market, withdraw the offer
@@ -359,9 +385,10 @@ public class Household implements IHouseOwner {
         // ...otherwise, if the house has a resident, it must be a renter, who must get evicted, also the rental income
         // corresponding to this tenancy must be subtracted from the owner's monthly rental income
         } else if (sale.getHouse().resident != null) {
-            rentalContracts.remove(sale.getHouse());
+            holdings.removeRentalContract(sale.getHouse());
             sale.getHouse().resident.getEvicted();
         }
+        Model.householdStats.flagForUpdate(this);
     }
     
     /**
@@ -372,15 +399,16 @@ public class Household implements IHouseOwner {
     public void endOfLettingAgreement(House h, PaymentAgreement contract) {
         // TODO: Not sure if these checks are really needed here
         // Check that this household is the owner of the corresponding house
-        if(!housePayments.containsKey(h)) {
+        if(!holdings.contains(h)) {
             System.out.println("Strange: I don't own this house in endOfLettingAgreement");
         }
         // Check that the house is not currently being already offered in the rental market
         if(h.isOnRentalMarket()) System.out.println("Strange: got endOfLettingAgreement on house on rental market");
         // Remove the old rental contract from the landlord's list of rental contracts
-        rentalContracts.remove(h);
+        holdings.removeRentalContract(h);
         // Put house back on rental market
         Model.houseRentalMarket.offer(h, behaviour.getInitialRentPrice(h.getQuality()), false);
+        Model.householdStats.flagForUpdate(this);
     }
 
     /**********************************************************
@@ -390,11 +418,21 @@ public class Household implements IHouseOwner {
      **********************************************************/
     private void endTenancy() {
         home.resident = null;
-        home.owner.endOfLettingAgreement(home, housePayments.get(home));
-        housePayments.remove(home);
+        home.owner.endOfLettingAgreement(home, holdings.getPayment(home));
+        holdings.remove(home);
         home = null;
+        isTenancyEndDue = false;
+        Model.householdStats.flagForUpdate(this);
     }
     
+    /**
+     * The rental market notifies the tenant when its rental agreement is due to make its last payment this month, for
+     * the tenant to end the tenancy during its step. Notifications for agreements no longer in place are ignored
+     */
+    void tenancyEndDue(RentalAgreement rent) {
+        if (isRenting() && holdings.getPayment(home) == rent) isTenancyEndDue = true;
+    }
+
     /*** Landlord has told this household to get out: leave without informing landlord */
     private void getEvicted() {
         if(home == null) {
@@ -403,9 +441,11 @@ public class Household implements IHouseOwner {
         if(home.owner == this) {
             System.out.println("Strange: got evicted from a home I own");
         }
-        housePayments.remove(home);
+        holdings.remove(home);
         home.resident = null;
-        home = null;        
+        home = null;
+        isTenancyEndDue = false;
+        Model.householdStats.flagForUpdate(this);
     }
 
     /**
@@ -420,15 +460,16 @@ public class Household implements IHouseOwner {
         if(home != null) System.out.println("Strange: I'm renting a house but not homeless");
         if(sale.getHouse().resident != null) System.out.println("Strange: tenant moving into an occupied house");
         // Create a new rental agreement with the agreed price and with a random length between a minimum and a maximum
-        RentalAgreement rent = new RentalAgreement();
+        RentalAgreement rent = new RentalAgreement(this);
         rent.monthlyPayment = sale.getPrice();
         rent.nPayments = config.TENANCY_LENGTH_MIN
                 + prng.nextInt(config.TENANCY_LENGTH_MAX - config.TENANCY_LENGTH_MIN + 1);
-        // Add the rental agreement to the house payments object of the tenant household
-        housePayments.put(sale.getHouse(), rent);
+        // Add the rental agreement to the holdings of the tenant household
+        holdings.put(sale.getHouse(), rent);
         // Set the house as the tenant's home and the tenant as the house's resident
         home = sale.getHouse();
         sale.getHouse().resident = this;
+        Model.householdStats.flagForUpdate(this);
         // Return the rental agreement for passing it to the landlord
         return rent;
     }
@@ -443,10 +484,11 @@ public class Household implements IHouseOwner {
     private void bidForAHome() {
         // Before any maximum mortgage price calculation, update the persistent LTI limit for this household
         persistentLTILimit = Model.bank.getLoanToIncomeLimit(isFirstTimeBuyer());
+        invalidateMaxMortgagePrices();
         // Find household's desired housing expenditure, capped to the maximum mortgage available to the household
         double price = Math.min(getDesiredPurchasePrice(), Model.bank.getMaxMortgagePrice(this, true));
         // Record the bid on householdStats for counting the number of bids above exponential moving average sale price
-        Model.householdStats.countNonBTLBidsAboveExpAvSalePrice(price);
+        Model.householdStats.countNonBTLBidsAboveExpAvSalePrice(this, price);
         // Compare costs to decide whether to buy or rent...
         double desiredDownPayment = behaviour.decideDownPayment(this, price, true);
         if (behaviour.decideRentOrPurchase(this, price, desiredDownPayment, getDesiredPurchasePrice())) {
@@ -468,19 +510,57 @@ public class Household implements IHouseOwner {
      ********************************************************/
     private boolean decideToSellHouse(House h) {
         if(h == home) {
-            return(behaviour.decideToSellHome());
+            boolean decision = isHomeSaleDue;
+            isHomeSaleDue = false;
+            return(decision);
         } else {
             return(behaviour.decideToSellInvestmentProperty(h, this));
         }
     }
 
+    /**
+     * Draw the time step of the next decision to sell the home (see HouseholdBehaviour.decideHomeSaleTime) and schedule
+     * it at the sale market
+     */
+    private void scheduleHomeSaleDecision() {
+        homeSaleTime = behaviour.decideHomeSaleTime();
+        if (homeSaleTime >= 0) Model.houseSaleMarket.scheduleHomeSaleDecision(homeSaleTime, this);
+    }
+
+    /**
+     * The sale market notifies the household when a decision to sell its home is scheduled for this month. If still an
+     * owner-occupier, the household decides to sell during its step, unless its home is already on the market, and
+     * schedules its next decision. Notifications for decisions no longer scheduled are ignored
+     */
+    void homeSaleDecisionDue(int time) {
+        if (time != homeSaleTime) return;
+        if (isHomeowner()) {
+            if (!home.isOnMarket()) isHomeSaleDue = true;
+            scheduleHomeSaleDecision();
+        } else {
+            homeSaleTime = -1;
+        }
+    }
+
+    /**
+     * Forget any scheduled decision to sell the home and, if an owner-occupier, schedule a new one. As the geometric
+     * waiting time is memoryless, this leaves the distribution of this time unchanged, while allowing replicas of a
+     * household (see WarmStart) to sell at different times than the original household, and decisions to be scheduled
+     * again after a change of the monthly probability of selling
+     */
+    void restartHomeSaleDecisions() {
+        homeSaleTime = -1;
+        if (isHomeowner()) scheduleHomeSaleDecision();
+    }
+
     /***
      * Do stuff necessary when BTL investor lets out a rental
      * property
      */
     @Override
     public void completeHouseLet(HouseOfferRecord sale, RentalAgreement rentalAgreement) {
-        rentalContracts.put(sale.getHouse(), rentalAgreement);
+        holdings.putRentalContract(sale.getHouse(), rentalAgreement);
+        Model.householdStats.flagForUpdate(this);
     }
 
     /////////////////////////////////////////////////////////
@@ -500,16 +580,11 @@ public class Household implements IHouseOwner {
             System.out.println("Strange: I'm transferring all my wealth to myself");
             System.exit(0);
         }
-        // Create an iterator over the house-paymentAgreement pairs at the deceased household's housePayments object
-        Iterator<Entry<House, PaymentAgreement>> paymentIt = housePayments.entrySet().iterator();
-        Entry<House, PaymentAgreement> entry;
-        House h;
-        PaymentAgreement payment;
-        // Iterate over these house-paymentAgreement pairs
-        while (paymentIt.hasNext()) {
-            entry = paymentIt.next();
-            h = entry.getKey();
-            payment = entry.getValue();
+        // Iterate over the house-paymentAgreement pairs at the deceased household's holdings, removing each of them
+        // after processing it
+        while (holdings.size() > 0) {
+            House h = holdings.getHouse(0);
+            PaymentAgreement payment = holdings.getPayment(0);
             // If the deceased household owns the house, then...
             if (h.owner == this) {
                 // ...first, withdraw the house from any market where it is currently being offered
@@ -533,17 +608,20 @@ public class Household implements IHouseOwner {
             } else if (h == home) {
                 h.resident = null;
                 home = null;
-                h.owner.endOfLettingAgreement(h, housePayments.get(h));
+                h.owner.endOfLettingAgreement(h, holdings.getPayment(h));
             }
             // If payment agreement is a mortgage, then try to pay off as much as possible from the deceased household's bank balance
             if (payment instanceof MortgageAgreement) {
                 bankBalance -= ((MortgageAgreement) payment).payoff();
             }
-            // Remove the house-paymentAgreement entry from the deceased household's housePayments object
-            paymentIt.remove(); // TODO: Not sure this is necessary. Note, though, that this implies erasing all outstanding debt
+            // Remove the house-paymentAgreement entry from the deceased household's holdings
+            holdings.removeAt(0); // TODO: Not sure this is necessary. Note, though, that this implies erasing all outstanding debt
         }
         // Finally, transfer all remaining liquid wealth to the beneficiary household
         beneficiary.bankBalance += Math.max(0.0, bankBalance);
+        beneficiary.invalidateMaxMortgagePrices();
+        // Remove the deceased household from the household statistics
+        Model.householdStats.removeHousehold(this);
     }
     
     /**
@@ -562,8 +640,8 @@ public class Household implements IHouseOwner {
         nullMortgage.monthlyPayment = 0.0;
         nullMortgage.principal = 0.0; // If changed, trigger to re-try selling must be added to manageHouse, otherwise non-BTL households could keep BTL properties indefinitely
         nullMortgage.purchasePrice = oldPurchasePrice;
-        // Become the owner of the inherited house and include it in my housePayments list (with a null mortgage)
-        housePayments.put(h, nullMortgage);
+        // Become the owner of the inherited house and include it in my holdings (with a null mortgage)
+        holdings.put(h, nullMortgage);
         h.owner = this;
         // Check for residents in the inherited house
         if(h.resident != null) {
@@ -579,6 +657,7 @@ public class Household implements IHouseOwner {
             home = h;
             h.resident = this;
             isFirstTimeBuyer = false; // Households inheriting a home cannot be considered fist-time buyers anymore
+            if (homeSaleTime < 0) scheduleHomeSaleDecision();
         // If owning a home and having the BTL gene...
         } else if(behaviour.isPropertyInvestor()) {
             // ...decide whether to sell the inherited house
@@ -592,13 +671,40 @@ public class Household implements IHouseOwner {
             putHouseForSale(h);
             Model.houseRentalMarket.offer(h, behaviour.getInitialRentPrice(h.getQuality()), false);
         }
+        Model.householdStats.flagForUpdate(this);
     }
 
     //----- Helpers -----//
 
+    static int getIdPool() { return id_pool; }
+
+    /**
+     * Give this household a new id from the pool, as for a newly created household (used for replicas, see WarmStart)
+     */
+    void assignNewId() { id = ++id_pool; }
+
+    /**
+     * Replace the random number generator of this household and its behaviour, as when re-seeding substreams
+     */
+    void setPrng(RandomSource prng) {
+        this.prng = prng;
+        behaviour.setPrng(prng);
+    }
+
+    static void setIdPool(int idPool) { id_pool = idPool; }
+
     public double getAge() { return age; }
 
-    void ageOneMonth() { age += 1.0/config.constants.MONTHS_IN_YEAR; }
+    /**
+     * @return Number of identical households represented by this agent, currently the same for all agents, such that
+     * every match between a bid and an offer at the markets stands for as many identical transactions
+     */
+    public int getWeight() { return config.AGENT_WEIGHT; }
+
+    void ageOneMonth() {
+        age += 1.0/config.constants.MONTHS_IN_YEAR;
+        invalidateMaxMortgagePrices();
+    }
 
     public boolean isHomeowner() {
         if(home == null) return(false);
@@ -620,19 +726,21 @@ public class Household implements IHouseOwner {
 
     public House getHome() { return home; }
 
-    public Map<House, PaymentAgreement> getHousePayments() { return housePayments; }
+    public PropertyHoldings getHoldings() { return holdings; }
 
     public double getAnnualGrossEmploymentIncome() { return annualGrossEmploymentIncome; }
 
     public double getMonthlyGrossEmploymentIncome() { return monthlyGrossEmploymentIncome; }
 
+    public double getIncomePercentile() { return incomePercentile; }
+
     /***
      * @return Number of properties this household currently has on the sale market
      */
     public int nPropertiesForSale() {
         int n=0;
-        for(House h : housePayments.keySet()) {
-            if(h.isOnMarket()) ++n;
+        for(int i = 0; i < holdings.size(); ++i) {
+            if(holdings.getHouse(i).isOnMarket()) ++n;
         }
         return(n);
     }
@@ -644,17 +752,7 @@ public class Household implements IHouseOwner {
      *
      * @return Number of houses owned by this household
      */
-    public int getNProperties() {
-        int nHouses = 0;
-        for (Map.Entry<House, PaymentAgreement> entry : housePayments.entrySet()) {
-            House house = entry.getKey();
-            PaymentAgreement payment = entry.getValue();
-            if (payment instanceof MortgageAgreement && house.owner == this) {
-                nHouses += 1;
-            }
-        }
-        return nHouses;
-    }
+    public int getNProperties() { return holdings.getNProperties(); }
 
     /***
      * @return Current mark-to-market (with exponentially averaged prices per quality) equity in this household's home.
@@ -662,11 +760,11 @@ public class Household implements IHouseOwner {
     double getHomeEquity() {
         if(!isHomeowner()) return(0.0);
         return Model.housingMarketStats.getExpAvSalePriceForQuality(home.getQuality())
-                - mortgageFor(home).principal;
+                - mortgageFor(home).getPrincipal();
     }
     
     public MortgageAgreement mortgageFor(House h) {
-        PaymentAgreement payment = housePayments.get(h);
+        PaymentAgreement payment = holdings.getPayment(h);
         if(payment instanceof MortgageAgreement) {
             return((MortgageAgreement)payment);
         }
@@ -674,9 +772,9 @@ public class Household implements IHouseOwner {
     }
 
     public double monthlyPaymentOn(House h) {
-        PaymentAgreement payment = housePayments.get(h);
+        PaymentAgreement payment = holdings.getPayment(h);
         if(payment != null) {
-            return(payment.monthlyPayment);
+            return(payment.getMonthlyPayment());
         }
         return(0.0);        
     }
@@ -686,4 +784,56 @@ public class Household implements IHouseOwner {
     public double getDesiredPurchasePrice() { return desiredPurchasePrice; }
 
     double getPersistentLTILimit() { return persistentLTILimit; }
+
+    /**
+     * Get the maximum mortgage price memoised for this household, if it was computed with the bank's current
+     * affordability table and none of the household's variables it depends on has changed since
+     *
+     * @param isHome True for a home (non-BTL) mortgage, false for a BTL mortgage
+     * @param stamp Stamp of the bank's current affordability table
+     * @return The memoised maximum price, or NaN if no valid value is memoised
+     */
+    double getMemoisedMaxMortgagePrice(boolean isHome, int stamp) {
+        if (stamp != maxMortgagePriceStamp) return Double.NaN;
+        return isHome ? maxMortgagePriceHome : maxMortgagePriceBTL;
+    }
+
+    /**
+     * Memoise a maximum mortgage price computed by the bank with the affordability table of a given stamp
+     */
+    void memoiseMaxMortgagePrice(boolean isHome, int stamp, double price) {
+        if (stamp != maxMortgagePriceStamp) {
+            invalidateMaxMortgagePrices();
+            maxMortgagePriceStamp = stamp;
+        }
+        if (isHome) {
+            maxMortgagePriceHome = price;
+        } else {
+            maxMortgagePriceBTL = price;
+        }
+    }
+
+    /**
+     * Invalidate memoised maximum mortgage prices. This must be called whenever any of the household's variables used
+     * by the bank to compute them (bank balance, age, employment income, first-time buyer status or persistent LTI
+     * limit) changes
+     */
+    private void invalidateMaxMortgagePrices() {
+        maxMortgagePriceStamp = -1;
+        maxMortgagePriceHome = Double.NaN;
+        maxMortgagePriceBTL = Double.NaN;
+    }
+
+    /**
+     * Add a mortgage payment made this month, to be subtracted from the household's disposable income at its next step
+     */
+    void addMonthlyMortgagePayment(double payment) { monthlyMortgagePayment += payment; }
+
+    /**
+     * Add a mortgage with its final payment due this month, for the household to make this payment at its next step
+     */
+    void addMaturingMortgage(MortgageAgreement mortgage) {
+        if (maturingMortgages == null) maturingMortgages = new ArrayList<>(1);
+        maturingMortgages.add(mortgage);
+    }
 }
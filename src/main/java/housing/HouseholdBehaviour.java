@@ -1,13 +1,17 @@
 package housing;
 
+import java.io.Serializable;
+
 import org.apache.commons.math3.distribution.LogNormalDistribution;
-import org.apache.commons.math3.random.MersenneTwister;
 
 import collectors.HousingMarketStats;
 import collectors.RentalMarketStats;
 
+import data.CalibrationCache;
+
 import utilities.BinnedDataDouble;
 import utilities.Pdf;
+import utilities.RandomSource;
 
 /**************************************************************************************************
  * Class to implement the behavioural decisions made by households
@@ -15,23 +19,26 @@ import utilities.Pdf;
  * @author daniel, Adrian Carro
  *
  *************************************************************************************************/
-public class HouseholdBehaviour {
+public class HouseholdBehaviour implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private static Config                   config = Model.config; // Passes the Model's configuration parameters object to a private static field
-    private static MersenneTwister          prng = Model.prng; // Passes the Model's random number generator to a private static field
     private static HousingMarketStats       housingMarketStats = Model.housingMarketStats; // Passes the Model's housing market stats object to a private static field
     private static RentalMarketStats        rentalMarketStats = Model.rentalMarketStats; // Passes the Model's rental market stats object to a private static field
-    private static Pdf                      saleMarkUpPdf = new Pdf(config.DATA_INITIAL_SALE_MARKUP_DIST); // Read initial sale price mark-up distribution from file
-    private static Pdf                      rentMarkUpPdf = new Pdf(config.DATA_INITIAL_RENT_MARKUP_DIST); // Read initial rent price mark-up distribution from file
-    private static LogNormalDistribution    downpaymentDistFTB = new LogNormalDistribution(prng,
+    private static Pdf                      saleMarkUpPdf = CalibrationCache.getPdf(config.DATA_INITIAL_SALE_MARKUP_DIST); // Read initial sale price mark-up distribution from file (or cache)
+    private static Pdf                      rentMarkUpPdf = CalibrationCache.getPdf(config.DATA_INITIAL_RENT_MARKUP_DIST); // Read initial rent price mark-up distribution from file (or cache)
+    private static LogNormalDistribution    downpaymentDistFTB = new LogNormalDistribution(Model.prng,
             config.DOWNPAYMENT_FTB_SCALE, config.DOWNPAYMENT_FTB_SHAPE); // Size distribution for downpayments of first-time-buyers
-    private static LogNormalDistribution    downpaymentDistOO = new LogNormalDistribution(prng,
+    private static LogNormalDistribution    downpaymentDistOO = new LogNormalDistribution(Model.prng,
             config.DOWNPAYMENT_OO_SCALE, config.DOWNPAYMENT_OO_SHAPE); // Size distribution for downpayments of owner-occupiers
-    private static BinnedDataDouble         BTLProbability = new BinnedDataDouble(config.DATA_BTL_PROBABILITY);
+    private static BinnedDataDouble         BTLProbability = CalibrationCache.getBinnedData(config.DATA_BTL_PROBABILITY);
+    private static MortgageQuote            mortgageQuote = new MortgageQuote(); // Reusable quote to evaluate hypothetical mortgages
+    private RandomSource                    prng; // Random number generator of the household
     private boolean                         BTLInvestor;
     private double                          BTLCapGainCoefficient; // Sensitivity of BTL investors to capital gain, 0.0 cares only about rental yield, 1.0 cares only about cap gain
     private double                          propensityToSave;
@@ -45,9 +52,11 @@ public class HouseholdBehaviour {
      * investor "gene" (given its income percentile), and, if so, the specific attitude of the BTL household towards
      * investing, that is,whether rental-income-driven, capital-gains-driven or both
      *
+     * @param prng Random number generator of the household
      * @param incomePercentile Fixed income percentile for the household (assumed constant over a lifetime)
      */
-    HouseholdBehaviour(double incomePercentile) {
+    HouseholdBehaviour(RandomSource prng, double incomePercentile) {
+        this.prng = prng;
         // Compute propensity to save, so that it is constant for a given household
         propensityToSave = prng.nextDouble();
         // Decide if household is a BTL investor and, if so, its tendency to seek capital gains or rental yields
@@ -171,11 +180,30 @@ public class HouseholdBehaviour {
      * This method implements a household's decision to sell their owner-occupied property. On average, households sell
      * owner-occupied houses every 11 years, due to exogenous reasons not addressed in the model.
      *
-     * @return True if the owner-occupier decides to sell the house and false otherwise.
+     * Instead of a Bernoulli draw with the monthly probability of selling every month, the time step of the next
+     * decision to sell is drawn in advance from the equivalent geometric waiting time distribution, and scheduled at the
+     * sale market (see HouseSaleMarket.notifyHomeSaleDecisions), such that owner-occupiers neither draw a random number
+     * nor are visited in the months in which they do not sell. Decisions falling on months in which the household does
+     * not consider selling (as its home is already on the market) are simply ignored, which, as the geometric waiting
+     * time is memoryless, leaves the distribution of the following decisions unchanged.
+     *
+     * @return Time step of the next decision of the owner-occupier to sell its home, or -1 if it never sells it
      */
-    boolean decideToSellHome() {
+    int decideHomeSaleTime() {
         // TODO: This if implies BTL agents never sell their homes, need to explain in paper!
-        return !isPropertyInvestor() && (prng.nextDouble() < config.derivedParams.MONTHLY_P_SELL);
+        if (isPropertyInvestor()) return -1;
+        return Model.getTime() + drawGeometricWaitingTime(config.derivedParams.MONTHLY_P_SELL);
+    }
+
+    /**
+     * Draw the number of monthly trials up to (and including) the first success for a given monthly probability of
+     * success, i.e., a geometric waiting time with support 1, 2, 3... (capped so as to avoid overflows)
+     */
+    private int drawGeometricWaitingTime(double p) {
+        if (p >= 1.0) return 1;
+        if (p <= 0.0) return Integer.MAX_VALUE/2;
+        double waitingTime = 1.0 + Math.floor(Math.log(1.0 - prng.nextDouble())/Math.log(1.0 - p));
+        return (int)Math.min(waitingTime, Integer.MAX_VALUE/2);
     }
 
     /**
@@ -266,10 +294,9 @@ public class HouseholdBehaviour {
             return false;
         }
         // Find out potential mortgage characteristics...
-        MortgageAgreement mortgageApproval = Model.bank.requestApproval(me, purchasePrice,
-                desiredDownPayment, true);
+        Model.bank.quoteMortgage(me, purchasePrice, desiredDownPayment, true, mortgageQuote);
         // ...compute both purchase and rental annual costs...
-        double costOfHouse = mortgageApproval.monthlyPayment * config.constants.MONTHS_IN_YEAR
+        double costOfHouse = mortgageQuote.getMonthlyPayment() * config.constants.MONTHS_IN_YEAR
                 - purchasePrice*getLongTermHPAExpectation();
         double costOfRent = rentalMarketStats.getExpAvSalePriceForQuality(newHouseQuality)
                 *config.constants.MONTHS_IN_YEAR;
@@ -298,7 +325,7 @@ public class HouseholdBehaviour {
 
         // Fast decisions...
         // ... from 2 years to maturity, put property for sale whenever bank balance not enough for principal repayment
-        if (mortgage.nPayments <= 24 & mortgage.principal > me.getBankBalance()) {
+        if (mortgage.getnPayments() <= 24 & mortgage.getPrincipal() > me.getBankBalance()) {
             return true;
         }
         // ...always keep at least one investment property (i.e., at least two properties)
@@ -311,7 +338,7 @@ public class HouseholdBehaviour {
         // ...find its current (fair market value) sale price
         double currentMarketPrice = housingMarketStats.getExpAvSalePriceForQuality(h.getQuality());
         // ...find equity, or assets minus liabilities
-        double equity = Math.max(0.01, currentMarketPrice - mortgage.principal); // The 0.01 prevents possible divisions by zero later on
+        double equity = Math.max(0.01, currentMarketPrice - mortgage.getPrincipal()); // The 0.01 prevents possible divisions by zero later on
         // ...find the leverage on that mortgage (Assets divided by equity, or return on equity)
         double leverage = currentMarketPrice / equity;
         // ...find the expected rental yield of this property as its current rental price (under current average
@@ -361,15 +388,15 @@ public class HouseholdBehaviour {
         // household and assuming an average rental yield (over all qualities). This is found as a weighted mix of both
         // rental yield and capital gain times the leverage
         // ...find mortgage with maximum leverage by requesting maximum mortgage with minimum downpayment
-        MortgageAgreement mortgage = Model.bank.requestApproval(me, maxPrice, 0.0, false);
+        Model.bank.quoteMortgage(me, maxPrice, 0.0, false, mortgageQuote);
         // ...find equity, or assets minus liabilities (which, initially, is simply the downpayment)
-        double equity = Math.max(0.01, mortgage.downPayment); // The 0.01 prevents possible divisions by zero later on
+        double equity = Math.max(0.01, mortgageQuote.getDownPayment()); // The 0.01 prevents possible divisions by zero later on
         // ...find the leverage on that mortgage (Assets divided by equity, or return on equity)
-        double leverage = mortgage.purchasePrice/equity;
+        double leverage = mortgageQuote.getPurchasePrice()/equity;
         // ...find the expected rental yield as an (exponential) average over all house qualities
         double rentalYield = rentalMarketStats.getExpAvFlowYield();
         // ...find the mortgage rate (pounds paid a year per pound of equity)
-        double mortgageRate = mortgage.nextPayment()*config.constants.MONTHS_IN_YEAR/equity;
+        double mortgageRate = mortgageQuote.nextPayment()*config.constants.MONTHS_IN_YEAR/equity;
         // ...finally, find expected equity yield, or yield on equity
         double expectedEquityYield = leverage*((1.0 - BTLCapGainCoefficient)*rentalYield
                 + BTLCapGainCoefficient*getLongTermHPAExpectation())
@@ -420,6 +447,23 @@ public class HouseholdBehaviour {
      */
     private double sigma(double x) { return 1.0/(1.0 + Math.exp(-1.0*x)); }
 
+    /**
+     * Pass again the Model's configuration and market stats objects to the corresponding private static fields,
+     * re-building also the downpayment distributions. This is needed whenever these Model objects are replaced, as
+     * when restoring a checkpoint or starting a new run of a daemon
+     */
+    static void updateModelReferences() {
+        config = Model.config;
+        housingMarketStats = Model.housingMarketStats;
+        rentalMarketStats = Model.rentalMarketStats;
+        downpaymentDistFTB = new LogNormalDistribution(Model.prng, config.DOWNPAYMENT_FTB_SCALE,
+                config.DOWNPAYMENT_FTB_SHAPE);
+        downpaymentDistOO = new LogNormalDistribution(Model.prng, config.DOWNPAYMENT_OO_SCALE,
+                config.DOWNPAYMENT_OO_SHAPE);
+    }
+
+    void setPrng(RandomSource prng) { this.prng = prng; }
+
     /**
      * Expectations of future house price growth are based on previous trend (longTermHPA), times a dampening or
      * multiplier factor (depending on its value being <1 or >1), plus a constant (which can be positive or negative),
@@ -1,12 +1,13 @@
 package housing;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Iterator;
 
 import org.apache.commons.math3.distribution.GeometricDistribution;
-import org.apache.commons.math3.random.MersenneTwister;
 
 import utilities.PriorityQueue2D;
+import utilities.RandomSource;
 
 /**************************************************************************************************
  * Class that implements the market mechanism behind both the sale and the rental markets
@@ -14,14 +15,16 @@ import utilities.PriorityQueue2D;
  * @author daniel, Adrian Carro
  *
  *************************************************************************************************/
-public abstract class HousingMarket {
+public abstract class HousingMarket implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private Config                                  config = Model.config; // Passes the Model's configuration parameters object to a private field
-    private MersenneTwister                         prng;
+    private RandomSource                            prng;
     private PriorityQueue2D<HousingMarketRecord>    offersPQ;
     private ArrayList<HouseBidderRecord>            bids;
     private int []                                  nBidUpFrequency; // Counts the frequency of the number of bid-ups. TODO: Move to a collector class
@@ -30,7 +33,7 @@ public abstract class HousingMarket {
     //----- Constructors -----//
     //------------------------//
 
-    HousingMarket(MersenneTwister prng) {
+    HousingMarket(RandomSource prng) {
         offersPQ = new PriorityQueue2D<>(new HousingMarketRecord.PQComparator()); //Priority Queue of (Price, Quality)
         // The integer passed to the ArrayList constructor is an initially declared capacity (for initial memory
         // allocation purposes), it will actually have size zero and only grow by adding elements
@@ -80,6 +83,11 @@ public abstract class HousingMarket {
      */
     public void removeOffer(HouseOfferRecord hsr) { offersPQ.remove(hsr); }
 
+    /**
+     * Add to the offer book an already existing offer record, such as that of a replica of a house (see WarmStart)
+     */
+    void addReplicaOffer(HouseOfferRecord hsr) { offersPQ.add(hsr); }
+
     /**
      * Make a non-BTL bid on the market, i.e. make an offer on a (yet to be decided) house to become the household's home
      * 
@@ -105,8 +113,8 @@ public abstract class HousingMarket {
             clearMatches(); // Step 2: iterate through offers
         }
         bids.clear();
-        // Record the frequency of bid-ups
-        if (config.recordNBidUpFrequency) {
+        // Record the frequency of bid-ups (unless results are not written to files)
+        if (config.recordNBidUpFrequency && Model.transactionRecorder != null) {
             Model.transactionRecorder.recordNBidUpFrequency(Model.getTime(), nBidUpFrequency);
         }
     }
@@ -239,6 +247,8 @@ public abstract class HousingMarket {
 
     //----- Getter/setter methods -----//
 
+    void setPrng(RandomSource prng) { this.prng = prng; }
+
     public ArrayList<HouseBidderRecord> getBids() { return bids; }
 
     public PriorityQueue2D<HousingMarketRecord> getOffersPQ() { return offersPQ; }
@@ -1,5 +1,7 @@
 package housing;
 
+import java.io.Serializable;
+
 import utilities.PriorityQueue2D;
 
 /**************************************************************************************************
@@ -11,12 +13,14 @@ import utilities.PriorityQueue2D;
  * @author daniel, Adrian Carro
  *
  *************************************************************************************************/
-public abstract class HousingMarketRecord {
+public abstract class HousingMarketRecord implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private double price;
     private int id;  // In order to get a unique, repeatable ordering
     private static int id_pool = 0;
@@ -38,7 +42,9 @@ public abstract class HousingMarketRecord {
      * Class that implements the comparators needed for inserting HousingMarketRecord objects into PriorityQueue2D. In
      * particular, this class implements the comparators for a price-quality priority queue.
      */
-    public static class PQComparator implements PriorityQueue2D.XYComparator<HousingMarketRecord> {
+    public static class PQComparator implements PriorityQueue2D.XYComparator<HousingMarketRecord>, Serializable {
+
+        private static final long serialVersionUID = 1L;
 
         /**
          * @return -1 or 1 if arg0 is, respectively, cheaper than or more expensive than arg1 solving the arg0 == arg1
@@ -78,7 +84,9 @@ public abstract class HousingMarketRecord {
      * Class that implements the comparators needed for inserting HousingMarketRecord objects into PriorityQueue2D. In
      * particular, this class implements the comparators for a price-yield priority queue.
      */
-    public static class PYComparator implements PriorityQueue2D.XYComparator<HousingMarketRecord> {
+    public static class PYComparator implements PriorityQueue2D.XYComparator<HousingMarketRecord>, Serializable {
+
+        private static final long serialVersionUID = 1L;
 
         /**
          * @return -1 or 1 if arg0 is, respectively, cheaper than or more expensive than arg1 solving the arg0 == arg1
@@ -131,6 +139,16 @@ public abstract class HousingMarketRecord {
 
     public int getId() { return id; }
 
+    static int getIdPool() { return id_pool; }
+
+    /**
+     * Give this record a new id from the pool, as for a newly created record (used for replicas, see WarmStart). Note
+     * that this must happen before the record is added to any priority queue
+     */
+    void assignNewId() { id = id_pool++; }
+
+    static void setIdPool(int idPool) { id_pool = idPool; }
+
     public double getPrice() { return price; }
 
     public void setPrice(double newPrice) { price = newPrice; }
@@ -1,14 +1,20 @@
 package housing;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Properties;
 import java.util.Scanner;
+import java.util.TreeMap;
 import java.time.Instant;
 
 import collectors.*;
 
-import org.apache.commons.math3.random.MersenneTwister;
+import utilities.RandomSource;
+
 import org.apache.commons.cli.*;
 import org.apache.commons.io.FileUtils;
 
@@ -26,9 +32,42 @@ import org.apache.commons.io.FileUtils;
  *                      created if it does not exist.
  * -dev                 Removes security question before erasing the content inside output folder
  *                      (if the folder already exists).
+ * -saveCheckpoint <arg> File to which the full state of the simulation is written at the end of the
+ *                      time step given by -checkpointTime (by default, the last time step). With
+ *                      several simulations, the run number is appended to the file name.
+ * -checkpointTime <arg> Time step at the end of which the checkpoint is written.
+ * -loadCheckpoint <arg> File from which the full state of the simulation is restored, instead of
+ *                      initialising it, before running the remaining time steps. Simulations after
+ *                      the first one are re-seeded with SEED + simulation number - 1.
+ * -forkScenarios <arg> File with scenario definitions, each line of the form
+ *                      <scenario>.<PARAMETER> = <value>. Each simulation runs until the time step given
+ *                      by -forkTime and then continues separately for each scenario, with its
+ *                      parameter overrides and its own random number stream (seeded from its SEED),
+ *                      writing results to a sub-folder of the output folder named after the scenario.
+ * -forkTime <arg>      Time step at the end of which scenarios are forked.
+ * -pairedVariant <arg> File with parameter overrides, each line of the form <PARAMETER> = <value>,
+ *                      defining a policy variant to be compared with the baseline configuration.
+ *                      Each simulation runs until the time step given by -forkTime and then continues
+ *                      separately as a 'baseline' and a 'variant' scenario sharing the same seed, with
+ *                      common random numbers (unless COMMON_RANDOM_NUMBERS=false is passed). The
+ *                      differences between both arms, with confidence intervals computed from the
+ *                      pairs, are written to a Paired.csv file.
+ * -daemon <arg>        Instead of running any simulation, stay resident as a daemon accepting
+ *                      simulation requests on the given local port, from callers presenting the
+ *                      token given by the environment variable HOUSING_DAEMON_TOKEN, and writing
+ *                      their results within the output folder (see SimulationDaemon).
+ * -sweep <arg>         Instead of a single set of simulations, run a design-of-experiments sweep
+ *                      defined in the given file, skipping runs already in the sweep cache, and
+ *                      write the summary of each run to the output folder (see Sweep).
+ * -sweepWorker <arg>   Run jobs of the sweep coordinated by a process running with -sweep, at the
+ *                      given <host>:<port>, until it is done, presenting the token shared with the
+ *                      coordinator through the environment variable HOUSING_SWEEP_TOKEN.
  * -help                Print input arguments usage information.
+ * <PARAMETER>=<value>  Any number of trailing arguments of this form override the values of the
+ *                      corresponding parameters in the config file, and are written to an
+ *                      'overrides.properties' file in the output folder.
  *
- * Note that the seed for random number generation is set from the config file.
+ * Note that the seed for random number generation is set from the config file (or an override).
  *
  * @author daniel, Adrian Carro
  *
@@ -41,7 +80,7 @@ public class Model {
     //------------------//
 
     public static Config                config;
-    public static MersenneTwister       prng;
+    public static RandomSource          prng;
     public static Construction          construction;
     public static CentralBank           centralBank;
     public static Bank                  bank;
@@ -53,17 +92,38 @@ public class Model {
     public static HouseholdStats        householdStats;
     public static HousingMarketStats    housingMarketStats;
     public static RentalMarketStats     rentalMarketStats;
-    public static TransactionRecorder   transactionRecorder;
-    public static MicroDataRecorder     microDataRecorder;
+    public static TransactionRecorder   transactionRecorder; // Null if results are not written to files
+    public static MicroDataRecorder     microDataRecorder; // Null if results are not written to files
     public static int                   nSimulation; // To keep track of the simulation number
     public static int                   t; // To keep track of time (in months)
+    private static int                  targetPopulation; // Current target population, reduced during a warm start burn-in
 
     static Government                   government;
+    static Demographics                 demographics;
+    static Recorder                     recorder; // Null if results are not written to files
+    static int                          runSeed; // Seed from which all substreams of the current run are derived
 
-    private static Demographics         demographics;
-    private static Recorder             recorder;
     private static String               configFileName;
+    private static Properties           configOverrides; // Parameter values replacing those in the config file
     private static String               outputFolder;
+    private static String               saveCheckpointFileName; // Null if no checkpoint is to be written
+    private static int                  checkpointTime; // Time step at the end of which the checkpoint is written
+    private static String               loadCheckpointFileName; // Null if simulations are to start from scratch
+    private static ScenarioFork         scenarioFork; // Null if no scenarios are to be forked
+    private static String               scenariosFileName; // Null if no scenarios are to be forked
+    private static int                  forkTime; // Time step at the end of which scenarios are forked
+    private static String               pairedVariantFileName; // Null if no paired variant is to be run
+    private static PairedComparison     pairedComparison; // Null if no paired variant is to be run
+    private static boolean              devBoolean; // True if an existing output folder is to be used without asking
+    private static int                  daemonPort; // Negative if no daemon is to be started
+    private static String               sweepFileName; // Null if no sweep is to be run
+    private static String               sweepCoordinator; // Null if this process is not to work for a sweep coordinator
+    private static SimulationListener   listener; // Null if no listener is to be passed indicators at each time step
+    private static ConvergenceMonitor   convergenceMonitor; // Null unless simulations are replicated adaptively
+    private static Indicator []         listenerIndicators; // Indicators requested by the listener
+    private static double []            listenerValues; // Re-used array of values passed to the listener
+    private static Config               dataConfig; // Configuration of the first run within this process, whose data
+                                                    // files were read into the calibration data held in static fields
 
     //------------------------//
     //----- Constructors -----//
@@ -71,26 +131,43 @@ public class Model {
 
     /**
      * @param configFileName String with the address of the configuration file
+     * @param configOverrides Parameter values replacing those read from the configuration file (possibly empty)
      * @param outputFolder String with the address of the folder for storing results
      */
-    public Model(String configFileName, String outputFolder) {
-        config = new Config(configFileName);
-        prng = new MersenneTwister(config.SEED);
+    public Model(String configFileName, Properties configOverrides, String outputFolder) {
+        this(new Config(configFileName, configOverrides), outputFolder);
+    }
+
+    /**
+     * @param config Configuration to use
+     * @param outputFolder String with the address of the folder for storing results, or null if results are not to be
+     *                     written to files
+     */
+    public Model(Config config, String outputFolder) {
+        Model.config = config;
+        prng = RandomSource.create(config.RNG_ALGORITHM, config.SEED);
+        runSeed = config.SEED;
 
         government = new Government();
-        demographics = new Demographics(prng);
-        construction = new Construction(prng);
+        demographics = new Demographics(getSubstream("demographics"));
+        construction = new Construction(getSubstream("construction"));
         centralBank = new CentralBank();
         bank = new Bank(centralBank);
         households = new ArrayList<>((int)(config.TARGET_POPULATION * 1.2)); // This accounts for fluctuations 20% over the target
-        houseSaleMarket = new HouseSaleMarket(prng);
-        houseRentalMarket = new HouseRentalMarket(prng);
+        houseSaleMarket = new HouseSaleMarket(getSubstream("saleMarket"));
+        houseRentalMarket = new HouseRentalMarket(getSubstream("rentalMarket"));
 
-        recorder = new collectors.Recorder(outputFolder);
-        transactionRecorder = new TransactionRecorder(outputFolder);
-        microDataRecorder = new MicroDataRecorder(outputFolder);
+        if (outputFolder != null) {
+            recorder = new collectors.Recorder(outputFolder);
+            transactionRecorder = new TransactionRecorder(outputFolder);
+            microDataRecorder = new MicroDataRecorder(outputFolder);
+        } else {
+            recorder = null;
+            transactionRecorder = null;
+            microDataRecorder = null;
+        }
         creditSupply = new collectors.CreditSupply(config.TARGET_POPULATION,
-                config.ROLLING_WINDOW_SIZE_FOR_CORE_INDICATORS);
+                config.ROLLING_WINDOW_SIZE_FOR_CORE_INDICATORS, config.CORE_INDICATOR_SKETCH_ACCURACY);
         coreIndicators = new collectors.CoreIndicators();
         householdStats = new collectors.HouseholdStats();
         housingMarketStats = new collectors.HousingMarketStats(houseSaleMarket,
@@ -107,67 +184,357 @@ public class Model {
 
     public static void main(String[] args) {
 
-        long start = System.nanoTime();
-
         // Handle input arguments from command line
-        handleInputArguments(args);
+        if (!handleInputArguments(args)) System.exit(0);
+
+        // Either stay resident serving simulation requests or run the simulations requested by the command line
+        if (daemonPort >= 0) {
+            SimulationDaemon.serve(daemonPort, configFileName, outputFolder);
+        } else if (sweepCoordinator != null) {
+            Sweep.work(configFileName, configOverrides, sweepCoordinator);
+        } else if (prepareOutputFolder(true)) {
+            if (sweepFileName != null) {
+                new Sweep(configFileName, configOverrides, sweepFileName, outputFolder).run();
+            } else {
+                run();
+            }
+        }
+
+        //Stop the program when finished
+        System.exit(0);
+    }
+
+    /**
+     * Run all simulations requested by the input arguments last handled. All state left by any previous run within the
+     * same process (as in a daemon) is replaced, such that each run gives the same results as a fresh process would
+     */
+    static void run() {
+
+        long start = System.nanoTime();
 
         // Create an instance of Model in order to initialise it (reading config file)
-        new Model(configFileName, outputFolder);
+        create(new Config(configFileName, configOverrides), outputFolder);
+
+        // If no time has been given for writing a checkpoint, write it at the end of the last time step
+        if (checkpointTime < 0) checkpointTime = config.N_STEPS;
+
+        // A warm start must replicate the population before the end of the simulation and before any scenario fork
+        if (config.WARM_START_SCALE > 1 && loadCheckpointFileName == null
+                && (config.WARM_START_TIME >= config.N_STEPS
+                || (scenariosFileName != null && forkTime <= config.WARM_START_TIME))) {
+            System.out.println("Warm start time " + config.WARM_START_TIME + " must be earlier than both the number "
+                    + "of time steps and the scenario fork time");
+            System.exit(0);
+        }
 
         // Open files for writing multiple runs results
         recorder.openMultiRunFiles(config.recordCoreIndicators);
+        if (config.recordMultiRunSummary) recorder.openSummary(config.N_STEPS, config.MULTI_RUN_SUMMARY_QUANTILES);
 
-        // Perform config.N_SIMS simulations
-        for (nSimulation = 1; nSimulation <= config.N_SIMS; nSimulation += 1) {
-
-            // For each simulation, open files for writing single-run results
-            recorder.openSingleRunFiles(nSimulation, config.recordQualityBandPrice, config.derivedParams.N_QUALITIES);
-            transactionRecorder.openSingleRunFiles(nSimulation, config.recordTransactions,
-                    config.recordNBidUpFrequency);
-            microDataRecorder.openSingleRunSingleVariableFiles(nSimulation, config.recordHouseholdID,
-                    config.recordEmploymentIncome, config.recordRentalIncome, config.recordBankBalance,
-                    config.recordHousingWealth, config.recordNHousesOwned, config.recordAge, config.recordSavingRate);
-
-            // For each simulation, initialise both houseSaleMarket and houseRentalMarket variables (including HPI)
-            init();
+        // If convergence targets are given, run simulations adaptively, monitoring the chosen indicators
+        if (!config.CONVERGENCE_TARGETS.trim().isEmpty()) {
+            if (scenariosFileName != null) {
+                System.out.println("Convergence targets cannot be combined with scenario forks");
+                System.exit(0);
+            }
+            if (config.MIN_N_SIMS < 2) {
+                System.out.println("MIN_N_SIMS must be at least 2 for simulations to be run adaptively");
+                System.exit(0);
+            }
+            convergenceMonitor = new ConvergenceMonitor(config.CONVERGENCE_TARGETS, config.CONVERGENCE_STEPS,
+                    config.N_STEPS, config.CONVERGENCE_CONFIDENCE);
+            recorder.openConvergenceFile(convergenceMonitor);
+        }
 
-            // For each simulation, run config.N_STEPS time steps
-            for (t = 0; t <= config.N_STEPS; t += 1) {
+        // If scenarios are to be forked, read their definitions and prepare their output folders and files
+        if (scenariosFileName != null) {
+            scenarioFork = new ScenarioFork(configFileName, configOverrides, scenariosFileName, outputFolder);
+        }
 
-                // Steps model and stores sale and rental markets bid and offer prices, and their averages, into their
-                // respective variables
-                modelStep();
+        // If a paired variant is to be run, fork a baseline and a variant scenario and compare them pair by pair
+        if (pairedVariantFileName != null) {
+            if (scenariosFileName != null || convergenceMonitor != null) {
+                System.out.println("A paired variant cannot be combined with scenario forks or convergence targets");
+                System.exit(0);
+            }
+            TreeMap<String, Properties> overridesByScenario = new TreeMap<>();
+            overridesByScenario.put("baseline", new Properties());
+            overridesByScenario.put("variant", readPairedVariant());
+            scenarioFork = new ScenarioFork(configFileName, configOverrides, overridesByScenario, outputFolder);
+            pairedComparison = new PairedComparison(config.CONVERGENCE_STEPS, config.N_STEPS,
+                    config.CONVERGENCE_CONFIDENCE);
+            recorder.openPairedFile();
+        }
 
-                // Write results of this time step and run to both multi- and single-run files
-                recorder.writeTimeStampResults(config.recordCoreIndicators, t, config.recordQualityBandPrice);
+        // Perform config.N_SIMS simulations or, if running adaptively, as many as needed to meet the convergence targets
+        boolean lastRun = (config.N_SIMS < 1);
+        for (nSimulation = 1; !lastRun; nSimulation += 1) {
 
-                // Print time information to screen
-                if (t % 100 == 0) {
-                    System.out.println("Simulation: " + nSimulation + ", time: " + t);
+            // For each simulation, open files for writing single-run results
+            openSingleRunFiles();
+
+            // For each simulation, either restore its state from a checkpoint or initialise it
+            int tStart = startSimulation();
+
+            // Record the random number generator actually in use (which, for restored runs, is that stored in the
+            // checkpoint) together with the other run metadata
+            if (nSimulation == 1) writeMetadata();
+            if (convergenceMonitor != null) convergenceMonitor.startRun();
+
+            // For each simulation, run config.N_STEPS time steps or, if scenarios are to be forked, run only until the
+            // fork time and then continue each scenario from there until its own config.N_STEPS
+            if (scenarioFork != null) {
+                runTimeSteps(tStart, forkTime);
+                scenarioFork.run(forkTime);
+                if (pairedComparison != null) {
+                    pairedComparison.finishPair();
+                    recorder.writePaired(nSimulation, pairedComparison);
                 }
+            } else {
+                runTimeSteps(tStart, config.N_STEPS);
+            }
+
+            // If running adaptively, update the convergence statistics and stop as soon as all targets are met
+            lastRun = (nSimulation >= config.N_SIMS);
+            if (convergenceMonitor != null) {
+                convergenceMonitor.finishRun();
+                recorder.writeConvergence(nSimulation, convergenceMonitor);
+                if (nSimulation >= config.MIN_N_SIMS && convergenceMonitor.hasConverged()) lastRun = true;
             }
 
             // Finish each simulation within the recorders (closing single-run files, changing line in multi-run files)
-            recorder.finishRun(config.recordCoreIndicators, config.recordQualityBandPrice,
-                    nSimulation == config.N_SIMS);
-            transactionRecorder.finishRun(config.recordTransactions, config.recordNBidUpFrequency);
-            microDataRecorder.finishRun(config.recordHouseholdID, config.recordEmploymentIncome,
-                    config.recordRentalIncome, config.recordBankBalance, config.recordHousingWealth,
-                    config.recordNHousesOwned, config.recordAge, config.recordSavingRate);
+            finishRun(lastRun);
+        }
+        if (convergenceMonitor != null) {
+            System.out.println((convergenceMonitor.hasConverged() ? "Convergence targets met" : "Convergence targets "
+                    + "not met") + " after " + convergenceMonitor.getnRuns() + " simulations");
         }
 
         // After the last simulation, clean up
         recorder.finish(config.recordCoreIndicators);
+        if (scenarioFork != null) scenarioFork.finish();
 
         long elapsedTime = System.nanoTime() - start;
         System.out.println("Computing time: " + (double)elapsedTime/1_000_000_000);
+    }
 
-        //Stop the program when finished
-        System.exit(0);
+    /**
+     * Run a single simulation for a given configuration without writing any files, passing the values of the
+     * indicators requested by a listener at the end of each time step (see Simulation)
+     *
+     * @param config Configuration to use, with N_SIMS and all file recording options ignored
+     * @param listener Listener to be passed the values of the indicators it requests at the end of each time step
+     * @throws IllegalArgumentException If the configuration is not valid for a run within this process, including
+     * configurations reading different data files from those of the first run (see create)
+     */
+    static void runWithListener(Config config, SimulationListener listener) {
+        if (config.WARM_START_SCALE > 1 && config.WARM_START_TIME >= config.N_STEPS) {
+            throw new IllegalArgumentException("Warm start time " + config.WARM_START_TIME + " must be earlier than "
+                    + "the number of time steps");
+        }
+        if (dataConfig != null && !config.hasSameDataFiles(dataConfig)) {
+            throw new IllegalArgumentException("Configuration reads different data files (DATA_* or "
+                    + "CALIBRATION_CACHE_FILE parameters) from those already loaded by a previous run in this process");
+        }
+        saveCheckpointFileName = null;
+        loadCheckpointFileName = null;
+        create(config, null);
+        listenerIndicators = listener.getIndicators();
+        listenerValues = new double[listenerIndicators.length];
+        Model.listener = listener;
+        try {
+            nSimulation = 1;
+            runTimeSteps(startSimulation(), config.N_STEPS);
+        } finally {
+            Model.listener = null;
+        }
+    }
+
+    /**
+     * Create an instance of Model, replacing all model state left by any previous run within the same process, and pass
+     * its objects to those classes keeping static references to them. Note that calibration data read from data files
+     * (see the data package, Government and HouseholdBehaviour) is also held in static fields, but is only loaded once
+     * per process, with the data files of the first run, which are thus kept to check later configurations against
+     *
+     * @param config Configuration to use
+     * @param outputFolder Folder for storing results, or null if results are not to be written to files
+     */
+    private static void create(Config config, String outputFolder) {
+        // Start the numbering of households, houses and market records from scratch
+        Household.setIdPool(0);
+        House.setIdPool(0);
+        HousingMarketRecord.setIdPool(0);
+        scenarioFork = null;
+        convergenceMonitor = null;
+        pairedComparison = null;
+        if (dataConfig == null) dataConfig = config;
+        new Model(config, outputFolder);
+        HouseholdBehaviour.updateModelReferences();
+    }
+
+    /**
+     * Either restore the state of the current simulation from a checkpoint file, re-seeding the random number
+     * generator for all simulations but the first one so that they are different, or initialise it from scratch,
+     * including both houseSaleMarket and houseRentalMarket variables (including HPI). For a warm start, run the burn-in
+     * period with a reduced population and then replicate it up to the target population
+     *
+     * @return Time step from which the simulation is to continue
+     */
+    private static int startSimulation() {
+        if (loadCheckpointFileName != null) {
+            setTargetPopulation(config.TARGET_POPULATION);
+            int tStart = Checkpoint.restore(loadCheckpointFileName) + 1;
+            if (nSimulation > 1) reseed(config.SEED + nSimulation - 1);
+            return tStart;
+        } else if (config.WARM_START_SCALE > 1) {
+            setTargetPopulation(config.TARGET_POPULATION/config.WARM_START_SCALE);
+            init();
+            runTimeSteps(0, config.WARM_START_TIME);
+            WarmStart.replicate(config.WARM_START_SCALE);
+            setTargetPopulation(config.TARGET_POPULATION);
+            return config.WARM_START_TIME + 1;
+        } else {
+            setTargetPopulation(config.TARGET_POPULATION);
+            init();
+            return 0;
+        }
+    }
+
+    /**
+     * Run the model from time step tStart to time step tEnd, both included, writing results for each time step
+     */
+    static void runTimeSteps(int tStart, int tEnd) {
+        for (t = tStart; t <= tEnd; t += 1) {
+
+            // Steps model and stores sale and rental markets bid and offer prices, and their averages, into their
+            // respective variables
+            modelStep();
+
+            // Write results of this time step and run to both multi- and single-run files, and pass them to the
+            // listener, if any
+            if (recorder != null) {
+                recorder.writeTimeStampResults(config.recordCoreIndicators, t, config.recordQualityBandPrice);
+            }
+            if (convergenceMonitor != null) convergenceMonitor.step(t);
+            if (pairedComparison != null) pairedComparison.step(t);
+            if (listener != null) {
+                for (int i = 0; i < listenerIndicators.length; i++) listenerValues[i] = listenerIndicators[i].getValue();
+                listener.stepCompleted(t, listenerValues);
+            }
+
+            // Write the full state of the simulation to a checkpoint file, if requested
+            if (saveCheckpointFileName != null && t == checkpointTime) {
+                Checkpoint.save(saveCheckpointFileName + ((config.N_SIMS > 1) ? "-run" + nSimulation : ""));
+            }
+
+            // Print time information to screen
+            if (t % 100 == 0) {
+                System.out.println("Simulation: " + nSimulation + ", time: " + t);
+            }
+        }
+    }
+
+    /**
+     * Open files for writing single-run results at all recorders
+     */
+    static void openSingleRunFiles() {
+        if (recorder == null) return;
+        recorder.openSingleRunFiles(nSimulation, config.recordOutputFile, config.recordQualityBandPrice,
+                config.derivedParams.N_QUALITIES);
+        if (config.recordPriceDistribution) {
+            recorder.openPriceDistributionFile(nSimulation, config.PRICE_DISTRIBUTION_QUANTILES);
+        }
+        if (config.recordMortgageStressTest) {
+            recorder.openMortgageStressTestFile(nSimulation, config.MORTGAGE_STRESS_TEST_PERIOD,
+                    config.MORTGAGE_STRESS_TEST_RATE_SHOCKS, config.MORTGAGE_STRESS_TEST_INCOME_SHOCKS);
+        }
+        transactionRecorder.openSingleRunFiles(nSimulation, config.recordTransactions,
+                config.recordNBidUpFrequency);
+        microDataRecorder.openSingleRunSingleVariableFiles(nSimulation, config.recordHouseholdID,
+                config.recordEmploymentIncome, config.recordRentalIncome, config.recordBankBalance,
+                config.recordHousingWealth, config.recordNHousesOwned, config.recordAge, config.recordSavingRate,
+                householdStats.isMicroDataSampled());
+    }
+
+    /**
+     * Finish a simulation within all recorders (closing single-run files, changing line in multi-run files)
+     */
+    static void finishRun() { finishRun(nSimulation == config.N_SIMS); }
+
+    /**
+     * Finish a simulation within all recorders, given whether it is the last one
+     */
+    private static void finishRun(boolean lastRun) {
+        if (recorder == null) return;
+        recorder.finishRun(config.recordCoreIndicators, config.recordQualityBandPrice, lastRun);
+        transactionRecorder.finishRun(config.recordTransactions, config.recordNBidUpFrequency);
+        microDataRecorder.finishRun(config.recordHouseholdID, config.recordEmploymentIncome,
+                config.recordRentalIncome, config.recordBankBalance, config.recordHousingWealth,
+                config.recordNHousesOwned, config.recordAge, config.recordSavingRate,
+                householdStats.isMicroDataSampled());
+    }
+
+    /**
+     * Write a metadata file to the output folder, recording the random number generator algorithm and seed, as well as
+     * the checkpoint file the simulations were restored from, if any
+     */
+    private static void writeMetadata() {
+        try (PrintWriter writer = new PrintWriter(outputFolder + "metadata.properties", "UTF-8")) {
+            writer.println("RNG_ALGORITHM = " + prng.getAlgorithm());
+            writer.println("SEED = " + config.SEED);
+            writer.println("N_SIMS = " + config.N_SIMS);
+            if (loadCheckpointFileName != null) writer.println("CHECKPOINT = " + loadCheckpointFileName);
+        } catch (IOException ioe) {
+            System.err.println("Writing metadata file to output folder failed. Reason: " + ioe.getMessage());
+        }
+    }
+
+    /**
+     * Read the parameter overrides defining the variant of a paired comparison
+     */
+    private static Properties readPairedVariant() {
+        Properties overrides = new Properties();
+        try (FileReader reader = new FileReader(pairedVariantFileName)) {
+            overrides.load(reader);
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to read paired variant file '"
+                    + pairedVariantFileName + "'");
+            ioe.printStackTrace();
+            System.exit(0);
+        }
+        return overrides;
+    }
+
+    /**
+     * Get the random number stream to be used by a household or subsystem. With common random numbers, this is a
+     * substream of its own, derived from the seed of the current run and the name given, such that its draws do not
+     * depend on how many numbers other households or subsystems have drawn. Otherwise, this is the shared stream
+     *
+     * @param name Name of the household (as household<id>) or subsystem
+     */
+    static RandomSource getSubstream(String name) {
+        if (!config.COMMON_RANDOM_NUMBERS) return prng;
+        return RandomSource.createSubstream(runSeed, name);
+    }
+
+    /**
+     * Re-seed the shared random number stream and, with common random numbers, replace all substreams by those derived
+     * from the new seed
+     */
+    static void reseed(int seed) {
+        prng.setSeed(seed);
+        if (!config.COMMON_RANDOM_NUMBERS) return;
+        runSeed = seed;
+        demographics.setPrng(getSubstream("demographics"));
+        construction.setPrng(getSubstream("construction"));
+        houseSaleMarket.setPrng(getSubstream("saleMarket"));
+        houseRentalMarket.setPrng(getSubstream("rentalMarket"));
+        for (Household h : households) h.setPrng(getSubstream("household" + h.id));
     }
 
     private static void init() {
+        // With common random numbers, derive the substreams of each simulation from its own seed
+        if (config.COMMON_RANDOM_NUMBERS) reseed(config.SEED + nSimulation - 1);
         construction.init();
         houseSaleMarket.init();
         houseRentalMarket.init();
@@ -178,6 +545,7 @@ public class Model {
         householdStats.init();
         creditSupply.init();
         households.clear();
+        bank.updateAffordabilityTable();
     }
 
     private static void modelStep() {
@@ -185,6 +553,12 @@ public class Model {
         demographics.step();
         // Update number of houses
         construction.step();
+        // Notify tenants whose rental agreements come to an end this month
+        houseRentalMarket.notifyTenancyEnds(t);
+        // Notify owner-occupiers whose decision to sell their home is scheduled for this month
+        houseSaleMarket.notifyHomeSaleDecisions(t);
+        // Make monthly payments of all mortgages in the bank's mortgage book, passing the amounts paid to households
+        bank.amortiseMortgages();
         // Updates regional households consumption, housing decisions, and corresponding regional bids and offers
         for(Household h : households) h.step();
         // Reset counters to store credit supply statistics
@@ -209,6 +583,8 @@ public class Model {
         bank.step(Model.households.size());
         // Update central bank policies (currently empty!)
         centralBank.step(coreIndicators);
+        // Take a snapshot of the bank's policy limits and payment factors for the next time step
+        bank.updateAffordabilityTable();
     }
 
     /**
@@ -217,8 +593,10 @@ public class Model {
      * the folder for outputs
      *
      * @param args String with the command line arguments
+     * @return False if no simulation is to be run, either because help was requested or because the arguments could
+     * not be parsed
      */
-    private static void handleInputArguments(String[] args) {
+    static boolean handleInputArguments(String[] args) {
 
         // Create Options object
         Options options = new Options();
@@ -231,29 +609,40 @@ public class Model {
                 "folder will be created if it does not exist.");
         options.addOption("dev", false, "Removes security question before erasing the content" +
                 "inside output folder (if the folder already exists).");
+        options.addOption("saveCheckpoint", true, "File to which the full state of the simulation is written " +
+                "at the end of the time step given by checkpointTime (by default, the last time step).");
+        options.addOption("checkpointTime", true, "Time step at the end of which the checkpoint is written.");
+        options.addOption("loadCheckpoint", true, "File from which the full state of the simulation is " +
+                "restored before running the remaining time steps.");
+        options.addOption("forkScenarios", true, "File with scenario definitions, each line of the form " +
+                "<scenario>.<PARAMETER> = <value>, to be forked at the time step given by forkTime.");
+        options.addOption("forkTime", true, "Time step at the end of which scenarios are forked.");
+        options.addOption("pairedVariant", true, "File with parameter overrides defining a policy variant to be " +
+                "run in pairs with the baseline, forked at the time step given by forkTime.");
+        options.addOption("daemon", true, "Stay resident as a daemon accepting simulation requests on the " +
+                "given local port.");
+        options.addOption("sweep", true, "Run the design-of-experiments sweep defined in the given file.");
+        options.addOption("sweepWorker", true, "Run jobs of the sweep coordinated by a process at the given " +
+                "<host>:<port>.");
         options.addOption("help", false, "Print input arguments usage information.");
 
         // Create help formatter in case it will be needed
         HelpFormatter formatter = new HelpFormatter();
 
         // Parse command line arguments and perform appropriate actions
-        // Create a parser and a boolean variable for later control
+        // Create a parser for the command line arguments
         CommandLineParser parser = new DefaultParser();
-        boolean devBoolean = false;
         try {
             // Parse command line arguments into a CommandLine instance
             CommandLine cmd = parser.parse(options, args);
             // Check if help argument has been passed
             if(cmd.hasOption("help")) {
-                // If it has, then print formatted help to screen and stop program
+                // If it has, then print formatted help to screen and stop
                 formatter.printHelp( "spatial-housing-model", options );
-                System.exit(0);
-            }
-            // Check if dev argument has been passed
-            if(cmd.hasOption("dev")) {
-                // If it has, then activate boolean variable for later control
-                devBoolean = true;
+                return false;
             }
+            // Check if dev argument has been passed, activating the boolean variable for later control
+            devBoolean = cmd.hasOption("dev");
             // Check if configFile argument has been passed
             if(cmd.hasOption("configFile")) {
                 // If it has, then use its value to initialise the respective member variable
@@ -272,17 +661,59 @@ public class Model {
                 // If not, use the default value to initialise the respective member variable
                 outputFolder = "Results/" + Instant.now().toString().replace(":", "-") + "/";
             }
+            // Check if checkpoint arguments have been passed (a negative checkpoint time stands for the last time step)
+            saveCheckpointFileName = cmd.getOptionValue("saveCheckpoint");
+            loadCheckpointFileName = cmd.getOptionValue("loadCheckpoint");
+            checkpointTime = Integer.parseInt(cmd.getOptionValue("checkpointTime", "-1"));
+            // Check if scenario fork arguments have been passed
+            scenariosFileName = cmd.getOptionValue("forkScenarios");
+            forkTime = Integer.parseInt(cmd.getOptionValue("forkTime", "0"));
+            pairedVariantFileName = cmd.getOptionValue("pairedVariant");
+            // Check if daemon argument has been passed (a negative port stands for no daemon)
+            daemonPort = Integer.parseInt(cmd.getOptionValue("daemon", "-1"));
+            // Check if sweep arguments have been passed
+            sweepFileName = cmd.getOptionValue("sweep");
+            sweepCoordinator = cmd.getOptionValue("sweepWorker");
+            // Collect any trailing <PARAMETER>=<value> arguments as config overrides
+            configOverrides = new Properties();
+            for (String arg : cmd.getArgs()) {
+                int separator = arg.indexOf('=');
+                if (separator <= 0) throw new ParseException("Argument '" + arg + "' is not of the form "
+                        + "<PARAMETER>=<value>");
+                configOverrides.setProperty(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            // Paired variants use common random numbers unless explicitly disabled
+            if (pairedVariantFileName != null && !configOverrides.containsKey("COMMON_RANDOM_NUMBERS")) {
+                configOverrides.setProperty("COMMON_RANDOM_NUMBERS", "true");
+            }
         }
-        catch(ParseException pex) {
+        catch(ParseException | NumberFormatException ex) {
             // Catch possible parsing errors
-            System.err.println("Parsing failed. Reason: " + pex.getMessage());
+            System.err.println("Parsing failed. Reason: " + ex.getMessage());
             // And print input arguments usage information
             formatter.printHelp( "spatial-housing-model", options );
+            return false;
         }
+        return true;
+    }
 
+    /**
+     * Prepare the output folder for the simulations requested by the input arguments last handled, creating it if it
+     * does not exist, and copy the config file (and any config overrides) into it
+     *
+     * @param interactive If true, the content of an already existing output folder is erased after asking for
+     *                    approval, unless the dev argument was passed. If false, as for daemon requests, an already
+     *                    existing output folder can only be used if the dev argument was passed
+     * @return False if the output folder cannot be used
+     */
+    static boolean prepareOutputFolder(boolean interactive) {
         // Check if outputFolder directory already exists
         File f = new File(outputFolder);
         if (f.exists() && !devBoolean) {
+            if (!interactive) {
+                System.out.println("The folder chosen for output, '" + outputFolder + "', already exists");
+                return false;
+            }
             // If it does, try removing everything inside (with a warning that requests approval!)
             Scanner reader = new Scanner(System.in);
             System.out.println("\nATTENTION:\n\nThe folder chosen for output, '" + outputFolder + "', already exists and " +
@@ -290,7 +721,7 @@ public class Model {
             String reply = reader.next();
             if (!reply.equalsIgnoreCase("yes") && !reply.equalsIgnoreCase("y")) {
                 // If user does not clearly reply "yes", then stop the program
-                System.exit(0);
+                return false;
             } else {
                 // Otherwise, try to erase everything inside the folder
                 try {
@@ -305,14 +736,65 @@ public class Model {
             f.mkdirs();
         }
 
-        // Copy config file to output folder
+        // Copy config file to output folder, together with any config overrides
         try {
             FileUtils.copyFileToDirectory(new File(configFileName), new File(outputFolder));
         } catch (IOException ioe) {
             System.err.println("Copying config file to output folder failed. Reason: " + ioe.getMessage());
         }
+        if (!configOverrides.isEmpty()) {
+            try (FileOutputStream stream = new FileOutputStream(outputFolder + "overrides.properties")) {
+                configOverrides.store(stream, "Overrides for config file " + configFileName);
+            } catch (IOException ioe) {
+                System.err.println("Writing config overrides to output folder failed. Reason: " + ioe.getMessage());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Address of the config file given by the input arguments last handled
+     */
+    static String getConfigFileName() { return configFileName; }
+
+    /**
+     * @return Output folder given by the input arguments last handled, ending with "/"
+     */
+    static String getOutputFolder() { return outputFolder; }
+
+    /**
+     * @param folder Output folder to be used instead of the one given by the input arguments last handled, ending
+     *               with "/"
+     */
+    static void setOutputFolder(String folder) { outputFolder = folder; }
+
+    /**
+     * @return Config overrides given by the input arguments last handled
+     */
+    static Properties getConfigOverrides() { return configOverrides; }
+
+    static PairedComparison getPairedComparison() { return pairedComparison; }
+
+    /**
+     * Set the target population for the current part of the simulation, both at the Model and at the demographic data.
+     * With a warm start, the expected number of households in each age band of the full population is that of the
+     * burn-in population times the replication factor, such that replication does not lead to a wave of births and
+     * deaths (and thus of inheritances and sales) correcting the rounding differences between the two populations
+     */
+    private static void setTargetPopulation(int population) {
+        targetPopulation = population;
+        if (config.WARM_START_SCALE > 1 && population == config.TARGET_POPULATION) {
+            data.Demographics.setTargetPopulation(population/config.WARM_START_SCALE, config.WARM_START_SCALE);
+        } else {
+            data.Demographics.setTargetPopulation(population);
+        }
     }
 
+    /**
+     * @return Target population for the current part of the simulation, which is reduced during a warm start burn-in
+     */
+    static public int getTargetPopulation() { return targetPopulation; }
+
     /**
      * @return Simulated time in months
      */
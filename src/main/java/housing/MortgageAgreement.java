@@ -13,12 +13,16 @@ public class MortgageAgreement extends PaymentAgreement {
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     public double           downPayment;
     double                  purchasePrice;
     public final boolean    isBuyToLet;
     public final boolean    isFirstTimeBuyer;
-    public double           principal; // Remaining principal to be paid off
+    double                  principal; // Remaining principal to be paid off (while not in the bank's mortgage book)
     double                  monthlyInterestRate;
+    private MortgageBook    book; // Mortgage book holding the terms of this mortgage, null if not in any book
+    private int             slot; // Slot of this mortgage in the mortgage book
 
     //------------------------//
     //----- Constructors -----//
@@ -34,46 +38,36 @@ public class MortgageAgreement extends PaymentAgreement {
     //-------------------//
 
     /**
-     * This method updates the internal variables to simulate a monthly payment being made, though it does not move any
-     * assets from payer to payee!
+     * Monthly payments of mortgages in the bank's mortgage book are made by the monthly amortisation of the whole book,
+     * except for their final payment, which is made by the borrower through this method. For mortgages outside the book
+     * (such as null mortgages on inherited houses), simply count down the number of payments left
      *
      * @return The amount of the monthly payment
      */
     @Override
     public double makeMonthlyPayment() {
-        // If no more payments are due, simply return a zero payment
-        if (nPayments == 0) {
+        if (book != null) {
+            if (book.getnPayments(slot) == 1) return book.makeFinalPayment(slot);
+            System.out.println("Strange: monthly payment requested for a mortgage amortised by the mortgage book");
             return 0.0;
-        // If more payments are still due...
-        } else {
-            // ...then reduce number of payments due by one
-            nPayments -= 1;
-            // ...reduce amount due by amount to be paid this month
-            principal = principal*(1.0 + monthlyInterestRate) - monthlyPayment;
-            // ...and, if this would bring the number of payments to zero, then add any principal left (zero or close to
-            // zero for capital and interest mortgages, full principal for interest-only mortgages)
-            if (nPayments == 0) {
-                return monthlyPayment + payoff(principal);
-            } else {
-                return monthlyPayment;
-            }
         }
+        return super.makeMonthlyPayment();
     }
 
     /**
      * Use this method to pay off the mortgage early or make a one-off payment. Note that if the mortgage is completely
-     * paid off, then it is removed from the bank's list of mortgages.
+     * paid off, then it is removed from the bank's mortgage book.
      *
      * @param amount Desired amount to pay off
      * @return The amount that was actually paid off
      */
     double payoff(double amount) {
+        if (book != null) return book.payoff(slot, amount);
         if (amount >= principal) {
             amount = principal;
             principal = 0.0;
             monthlyPayment = 0.0;
             nPayments = 0;
-            Model.bank.endMortgageContract(this);
         } else {
             monthlyPayment *= (principal - amount) / principal;
             principal -= amount;
@@ -86,9 +80,56 @@ public class MortgageAgreement extends PaymentAgreement {
      *
      * @return The amount that was actually paid off
      */
-    double payoff() { return payoff(principal); }
+    double payoff() { return payoff(getPrincipal()); }
+
+    /**
+     * Make this object a handle to a given slot of a mortgage book
+     */
+    void attach(MortgageBook book, int slot) {
+        this.book = book;
+        this.slot = slot;
+    }
+
+    /**
+     * Stop this object from being a handle to a mortgage book, after its terms have been copied back into its fields
+     */
+    void detach() {
+        book = null;
+        slot = -1;
+    }
 
-    public double getAnnualInterestRate() { return monthlyInterestRate * 12.0; }
+    /**
+     * For a replica of a mortgage, created by deserialising a copy of its borrower and thus still pointing at the slot
+     * of the original mortgage in the mortgage book, copy the current terms of the original mortgage into the fields of
+     * the replica and stop it from being a handle to that slot
+     *
+     * @return True if the original mortgage was in a mortgage book, and thus the replica needs to be added to the book
+     */
+    boolean detachReplicaFromBook() {
+        if (book == null) return false;
+        principal = book.getPrincipal(slot);
+        monthlyPayment = book.getMonthlyPayment(slot);
+        monthlyInterestRate = book.getMonthlyInterestRate(slot);
+        nPayments = book.getnPayments(slot);
+        detach();
+        return true;
+    }
+
+    //----- Getter/setter methods -----//
+
+    int getSlot() { return slot; }
+
+    public double getPrincipal() { return (book != null) ? book.getPrincipal(slot) : principal; }
+
+    @Override
+    public double getMonthlyPayment() { return (book != null) ? book.getMonthlyPayment(slot) : monthlyPayment; }
+
+    @Override
+    int getnPayments() { return (book != null) ? book.getnPayments(slot) : nPayments; }
+
+    public double getAnnualInterestRate() {
+        return ((book != null) ? book.getMonthlyInterestRate(slot) : monthlyInterestRate) * 12.0;
+    }
 
-    public int getMaturity() { return nPayments; }
+    public int getMaturity() { return getnPayments(); }
 }
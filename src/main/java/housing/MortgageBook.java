@@ -0,0 +1,268 @@
+package housing;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Class to store all the mortgage contracts supplied by the bank in a columnar format, with one
+ * primitive array per mortgage variable (principal, monthly payment, number of payments left and
+ * monthly interest rate) and a slot per mortgage. MortgageAgreement objects act as handles into
+ * this book while their mortgages are active. This allows for all mortgages to be amortised once a
+ * month in a single linear sweep over these arrays, with the payments due by each household being
+ * aggregated and passed to the corresponding borrower. Only final payments, which end a mortgage and
+ * thus change the borrower's finance costs, are left for the borrower to make during its own step.
+ * Removing a mortgage moves the last one into its slot, such that the arrays are always densely
+ * packed.
+ *
+ * The book also keeps running totals of outstanding principals and monthly payments, in
+ * fixed-point (long) format, such that adding and subtracting contributions of individual
+ * mortgages does not accumulate rounding errors over time.
+ *
+ *************************************************************************************************/
+public class MortgageBook implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private static final double FIXED_POINT_SCALE = 0x1.0p16; // Scale for storing monetary sums as long integers
+
+    private int                     size; // Number of mortgages currently in the book
+    private MortgageAgreement []    agreements; // Handle for each mortgage
+    private Household []            borrowers; // Household paying each mortgage
+    private double []               principals; // Remaining principal to be paid off
+    private double []               monthlyPayments;
+    private double []               monthlyInterestRates;
+    private int []                  nPayments; // Number of monthly payments left
+    private long []                 bookedPrincipals; // Principal counted in the totals (fixed-point)
+    private long []                 bookedMonthlyPayments; // Monthly payment counted in the totals (fixed-point)
+
+    // Running totals (fixed-point)
+    private long                    totalBTLPrincipal; // Outstanding principal of all buy-to-let mortgages
+    private long                    totalOOPrincipal; // Outstanding principal of all owner-occupier (FTB + HM) mortgages
+    private long                    totalFTBPrincipal; // Outstanding principal of all first-time buyer mortgages
+    private long                    totalMonthlyPayments; // Sum of the monthly payments of all mortgages
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param initialCapacity Number of mortgages for which memory is initially allocated (the book grows as needed)
+     */
+    MortgageBook(int initialCapacity) {
+        initialCapacity = Math.max(initialCapacity, 16);
+        agreements = new MortgageAgreement[initialCapacity];
+        borrowers = new Household[initialCapacity];
+        principals = new double[initialCapacity];
+        monthlyPayments = new double[initialCapacity];
+        monthlyInterestRates = new double[initialCapacity];
+        nPayments = new int[initialCapacity];
+        bookedPrincipals = new long[initialCapacity];
+        bookedMonthlyPayments = new long[initialCapacity];
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Remove all mortgages from the book and reset all totals
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            agreements[i].detach();
+            agreements[i] = null;
+            borrowers[i] = null;
+        }
+        size = 0;
+        totalBTLPrincipal = 0;
+        totalOOPrincipal = 0;
+        totalFTBPrincipal = 0;
+        totalMonthlyPayments = 0;
+    }
+
+    /**
+     * Add a new mortgage to the book, taking its terms from the MortgageAgreement object, which becomes a handle to the
+     * new slot
+     *
+     * @param mortgage The MortgageAgreement object with the initial terms of the mortgage
+     * @param borrower The household paying the mortgage
+     */
+    void add(MortgageAgreement mortgage, Household borrower) {
+        if (size == agreements.length) grow();
+        int slot = size++;
+        agreements[slot] = mortgage;
+        borrowers[slot] = borrower;
+        principals[slot] = mortgage.principal;
+        monthlyPayments[slot] = mortgage.monthlyPayment;
+        monthlyInterestRates[slot] = mortgage.monthlyInterestRate;
+        nPayments[slot] = mortgage.nPayments;
+        mortgage.attach(this, slot);
+        addToTotals(slot);
+    }
+
+    /**
+     * Remove a mortgage from the book, copying its final terms back into the MortgageAgreement object and moving the
+     * last mortgage of the book into the freed slot
+     *
+     * @param mortgage The MortgageAgreement object to be removed
+     */
+    void remove(MortgageAgreement mortgage) {
+        int slot = mortgage.getSlot();
+        removeFromTotals(slot);
+        mortgage.principal = principals[slot];
+        mortgage.monthlyPayment = monthlyPayments[slot];
+        mortgage.monthlyInterestRate = monthlyInterestRates[slot];
+        mortgage.nPayments = nPayments[slot];
+        mortgage.detach();
+        int last = --size;
+        if (slot != last) {
+            agreements[slot] = agreements[last];
+            borrowers[slot] = borrowers[last];
+            principals[slot] = principals[last];
+            monthlyPayments[slot] = monthlyPayments[last];
+            monthlyInterestRates[slot] = monthlyInterestRates[last];
+            nPayments[slot] = nPayments[last];
+            bookedPrincipals[slot] = bookedPrincipals[last];
+            bookedMonthlyPayments[slot] = bookedMonthlyPayments[last];
+            agreements[slot].attach(this, slot);
+        }
+        agreements[last] = null;
+        borrowers[last] = null;
+    }
+
+    /**
+     * Make the monthly payment of every mortgage in the book with more than one payment left, adding the amount paid to
+     * the monthly mortgage payments of the corresponding borrower. Mortgages with a single payment left are passed to
+     * their borrowers, for them to make this final payment during their own step
+     */
+    void amortise() {
+        for (int i = 0; i < size; i++) {
+            if (nPayments[i] > 1) {
+                // Reduce number of payments due by one and the principal by the amount paid this month
+                nPayments[i] -= 1;
+                principals[i] = principals[i]*(1.0 + monthlyInterestRates[i]) - monthlyPayments[i];
+                borrowers[i].addMonthlyMortgagePayment(monthlyPayments[i]);
+                long booked = Math.round(principals[i]*FIXED_POINT_SCALE);
+                addToPrincipalTotals(i, booked - bookedPrincipals[i]);
+                bookedPrincipals[i] = booked;
+            } else if (nPayments[i] == 1) {
+                borrowers[i].addMaturingMortgage(agreements[i]);
+            }
+        }
+    }
+
+    /**
+     * Make the final payment of the mortgage at a given slot, paying off also any principal left (zero or close to zero
+     * for capital and interest mortgages, full principal for interest-only mortgages) and removing it from the book
+     *
+     * @param slot Slot of the mortgage
+     * @return The amount paid
+     */
+    double makeFinalPayment(int slot) {
+        Household borrower = borrowers[slot];
+        nPayments[slot] = 0;
+        principals[slot] = principals[slot]*(1.0 + monthlyInterestRates[slot]) - monthlyPayments[slot];
+        double payment = monthlyPayments[slot] + principals[slot];
+        principals[slot] = 0.0;
+        monthlyPayments[slot] = 0.0;
+        remove(agreements[slot]);
+        Model.householdStats.flagForUpdate(borrower);
+        return payment;
+    }
+
+    /**
+     * Pay off part or all of the principal left in a mortgage. If the mortgage is completely paid off, then it is
+     * removed from the book, otherwise its monthly payment is reduced proportionally
+     *
+     * @param slot Slot of the mortgage
+     * @param amount Desired amount to pay off
+     * @return The amount that was actually paid off
+     */
+    double payoff(int slot, double amount) {
+        if (amount >= principals[slot]) {
+            amount = principals[slot];
+            principals[slot] = 0.0;
+            monthlyPayments[slot] = 0.0;
+            nPayments[slot] = 0;
+            remove(agreements[slot]);
+        } else {
+            monthlyPayments[slot] *= (principals[slot] - amount) / principals[slot];
+            principals[slot] -= amount;
+            removeFromTotals(slot);
+            addToTotals(slot);
+        }
+        return amount;
+    }
+
+    /**
+     * Add the current principal and monthly payment of the mortgage at a given slot to the totals, keeping the
+     * (fixed-point) amounts added for their later subtraction
+     */
+    private void addToTotals(int slot) {
+        bookedPrincipals[slot] = Math.round(principals[slot]*FIXED_POINT_SCALE);
+        bookedMonthlyPayments[slot] = Math.round(monthlyPayments[slot]*FIXED_POINT_SCALE);
+        addToPrincipalTotals(slot, bookedPrincipals[slot]);
+        totalMonthlyPayments += bookedMonthlyPayments[slot];
+    }
+
+    /**
+     * Subtract the last added principal and monthly payment of the mortgage at a given slot from the totals
+     */
+    private void removeFromTotals(int slot) {
+        addToPrincipalTotals(slot, -bookedPrincipals[slot]);
+        totalMonthlyPayments -= bookedMonthlyPayments[slot];
+    }
+
+    /**
+     * Add a (fixed-point) change in principal to the totals corresponding to the type of the mortgage at a given slot
+     */
+    private void addToPrincipalTotals(int slot, long change) {
+        if (agreements[slot].isBuyToLet) {
+            totalBTLPrincipal += change;
+        } else {
+            totalOOPrincipal += change;
+            if (agreements[slot].isFirstTimeBuyer) totalFTBPrincipal += change;
+        }
+    }
+
+    /**
+     * Double the capacity of all columns
+     */
+    private void grow() {
+        int capacity = 2*agreements.length;
+        agreements = Arrays.copyOf(agreements, capacity);
+        borrowers = Arrays.copyOf(borrowers, capacity);
+        principals = Arrays.copyOf(principals, capacity);
+        monthlyPayments = Arrays.copyOf(monthlyPayments, capacity);
+        monthlyInterestRates = Arrays.copyOf(monthlyInterestRates, capacity);
+        nPayments = Arrays.copyOf(nPayments, capacity);
+        bookedPrincipals = Arrays.copyOf(bookedPrincipals, capacity);
+        bookedMonthlyPayments = Arrays.copyOf(bookedMonthlyPayments, capacity);
+    }
+
+    //----- Getter/setter methods -----//
+
+    int size() { return size; }
+
+    MortgageAgreement getMortgage(int slot) { return agreements[slot]; }
+
+    Household getBorrower(int slot) { return borrowers[slot]; }
+
+    double getPrincipal(int slot) { return principals[slot]; }
+
+    double getMonthlyPayment(int slot) { return monthlyPayments[slot]; }
+
+    double getMonthlyInterestRate(int slot) { return monthlyInterestRates[slot]; }
+
+    int getnPayments(int slot) { return nPayments[slot]; }
+
+    // Getters for running totals
+    double getTotalBTLPrincipal() { return totalBTLPrincipal/FIXED_POINT_SCALE; }
+    double getTotalOOPrincipal() { return totalOOPrincipal/FIXED_POINT_SCALE; }
+    double getTotalFTBPrincipal() { return totalFTBPrincipal/FIXED_POINT_SCALE; }
+    double getTotalMonthlyPayments() { return totalMonthlyPayments/FIXED_POINT_SCALE; }
+}
@@ -0,0 +1,48 @@
+package housing;
+
+/**************************************************************************************************
+ * Class to hold the terms of a hypothetical mortgage, as quoted by the bank for a given household
+ * and house price, without any contract being signed. Quotes are mutable and meant to be reused,
+ * such that households can evaluate as many hypothetical purchases as needed without allocating
+ * any new objects nor affecting the bank's mortgage book or statistics.
+ *
+ *************************************************************************************************/
+public class MortgageQuote {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    double          principal;
+    double          downPayment;
+    double          monthlyPayment;
+    int             nPayments;
+    double          monthlyInterestRate;
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Return the first monthly payment of the quoted mortgage, which is zero for mortgages with no payments
+     */
+    double nextPayment() {
+        if (nPayments == 0) {
+            return 0.0;
+        } else {
+            return monthlyPayment;
+        }
+    }
+
+    //----- Getter/setter methods -----//
+
+    public double getPrincipal() { return principal; }
+
+    public double getDownPayment() { return downPayment; }
+
+    public double getMonthlyPayment() { return monthlyPayment; }
+
+    public int getnPayments() { return nPayments; }
+
+    public double getPurchasePrice() { return principal + downPayment; }
+}
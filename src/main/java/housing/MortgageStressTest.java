@@ -0,0 +1,267 @@
+package housing;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+
+/**************************************************************************************************
+ * Class to revalue the whole mortgage book of the bank under a grid of interest rate and income
+ * shocks, and to store distribution summaries of the resulting repayment burdens. All mortgages are
+ * assumed to be repriced at the shocked rate, such that the monthly payment of each repayment (non-
+ * BTL) mortgage is recomputed from its remaining principal and number of payments, while that of
+ * each interest-only (BTL) mortgage is the interest on its remaining principal. Rate shocks are
+ * absolute changes to the annual mortgage interest rate (e.g., 0.02 for a 2 percentage point rise in
+ * the base rate passed on to borrowers), while income shocks are relative changes to the gross
+ * employment income of borrowers (e.g., -0.1 for a 10% fall). Rental incomes are not shocked.
+ *
+ * For each combination of shocks, the following borrower-level ratios are computed:
+ * - Payment-To-Income (PTI): monthly payment on the owner-occupier mortgage of the borrower divided
+ * by its monthly gross employment income, as for the bank's affordability constraint,
+ * - Interest Coverage Ratio (ICR): monthly gross rental income of the borrower divided by the monthly
+ * interest due on all its BTL mortgages, as for the bank's ICR constraint,
+ * - At risk of arrears: whether the total monthly mortgage payments of the borrower exceed its total
+ * monthly gross (employment plus rental) income.
+ *
+ * Borrower data are copied into primitive arrays, grouped by borrower, when the stress test is
+ * built, and the grid of shocks is then evaluated in parallel, each combination of shocks in a
+ * single pass over these arrays.
+ *
+ *************************************************************************************************/
+public class MortgageStressTest {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private double []   rateShocks;
+    private double []   incomeShocks;
+
+    // Book data, with mortgages sorted by borrower, such that the mortgages of borrower b are those with indices from
+    // firstMortgage[b] (included) to firstMortgage[b + 1] (excluded)
+    private int         nBorrowers;
+    private int []      firstMortgage;
+    private double []   principals; // Remaining principal of each mortgage
+    private double []   monthlyInterestRates; // Current monthly interest rate of each mortgage
+    private int []      nPayments; // Number of monthly payments left of each mortgage
+    private boolean []  isBuyToLet;
+    private double []   employmentIncomes; // Monthly gross employment income of each borrower
+    private double []   rentalIncomes; // Monthly gross rental income of each borrower
+
+    // Results for each combination of shocks, indexed as [rate shock index][income shock index]
+    private int [][]    nOOBorrowers; // Number of borrowers with an owner-occupier mortgage
+    private double [][] meanPTI; // Mean PTI over owner-occupier borrowers with positive employment income
+    private double [][] medianPTI;
+    private double [][] p90PTI; // 90th percentile of the PTI distribution
+    private double [][] p99PTI; // 99th percentile of the PTI distribution
+    private double [][] shareAboveMaxAffordability; // Share of owner-occupier borrowers with PTI above the bank's limit
+    private int [][]    nBTLBorrowers; // Number of borrowers with at least one BTL mortgage
+    private double [][] meanICR; // Mean ICR over BTL borrowers with positive interest due
+    private double [][] p10ICR; // 10th percentile of the ICR distribution
+    private double [][] medianICR;
+    private double [][] shareBelowMinICR; // Share of BTL borrowers with ICR below the bank's limit
+    private double [][] shareAtRiskOfArrears; // Share of all borrowers with payments exceeding their income
+    private double [][] totalMonthlyPayments; // Sum of the monthly payments of all mortgages in the book
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Copy the data of all mortgages in the book and of their borrowers, and revalue the book under every combination
+     * of the given rate and income shocks
+     *
+     * @param book Mortgage book to revalue
+     * @param rateShocks Absolute changes to the annual mortgage interest rate
+     * @param incomeShocks Relative changes to the monthly gross employment income of borrowers
+     * @param maxAffordability Maximum PTI allowed by the bank
+     * @param minICR Minimum ICR allowed by the bank
+     */
+    MortgageStressTest(MortgageBook book, double [] rateShocks, double [] incomeShocks, double maxAffordability,
+                       double minICR) {
+        this.rateShocks = rateShocks.clone();
+        this.incomeShocks = incomeShocks.clone();
+        copyBook(book);
+        int nRates = rateShocks.length;
+        int nIncomes = incomeShocks.length;
+        nOOBorrowers = new int[nRates][nIncomes];
+        meanPTI = new double[nRates][nIncomes];
+        medianPTI = new double[nRates][nIncomes];
+        p90PTI = new double[nRates][nIncomes];
+        p99PTI = new double[nRates][nIncomes];
+        shareAboveMaxAffordability = new double[nRates][nIncomes];
+        nBTLBorrowers = new int[nRates][nIncomes];
+        meanICR = new double[nRates][nIncomes];
+        p10ICR = new double[nRates][nIncomes];
+        medianICR = new double[nRates][nIncomes];
+        shareBelowMinICR = new double[nRates][nIncomes];
+        shareAtRiskOfArrears = new double[nRates][nIncomes];
+        totalMonthlyPayments = new double[nRates][nIncomes];
+        IntStream.range(0, nRates*nIncomes).parallel().forEach(
+                k -> revalue(k / nIncomes, k % nIncomes, maxAffordability, minICR));
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Copy the terms of all mortgages in the book, grouped by borrower, together with the current incomes of their
+     * borrowers, into primitive arrays
+     */
+    private void copyBook(MortgageBook book) {
+        int nMortgages = book.size();
+        // Assign an index to each borrower, in order of first appearance in the book, and count its mortgages
+        HashMap<Household, Integer> borrowerIndices = new HashMap<>();
+        int [] borrowerOfMortgage = new int[nMortgages];
+        int [] nMortgagesPerBorrower = new int[nMortgages + 1];
+        for (int slot = 0; slot < nMortgages; slot++) {
+            Integer index = borrowerIndices.get(book.getBorrower(slot));
+            if (index == null) {
+                index = borrowerIndices.size();
+                borrowerIndices.put(book.getBorrower(slot), index);
+            }
+            borrowerOfMortgage[slot] = index;
+            nMortgagesPerBorrower[index]++;
+        }
+        nBorrowers = borrowerIndices.size();
+        firstMortgage = new int[nBorrowers + 1];
+        for (int b = 0; b < nBorrowers; b++) firstMortgage[b + 1] = firstMortgage[b] + nMortgagesPerBorrower[b];
+        // Copy mortgage terms into the position corresponding to their borrower
+        principals = new double[nMortgages];
+        monthlyInterestRates = new double[nMortgages];
+        nPayments = new int[nMortgages];
+        isBuyToLet = new boolean[nMortgages];
+        int [] nextPosition = Arrays.copyOf(firstMortgage, nBorrowers);
+        for (int slot = 0; slot < nMortgages; slot++) {
+            int i = nextPosition[borrowerOfMortgage[slot]]++;
+            principals[i] = book.getPrincipal(slot);
+            monthlyInterestRates[i] = book.getMonthlyInterestRate(slot);
+            nPayments[i] = book.getnPayments(slot);
+            isBuyToLet[i] = book.getMortgage(slot).isBuyToLet;
+        }
+        // Copy borrower incomes
+        employmentIncomes = new double[nBorrowers];
+        rentalIncomes = new double[nBorrowers];
+        for (Household borrower : borrowerIndices.keySet()) {
+            int b = borrowerIndices.get(borrower);
+            employmentIncomes[b] = borrower.getMonthlyGrossEmploymentIncome();
+            rentalIncomes[b] = borrower.getMonthlyGrossRentalIncome();
+        }
+    }
+
+    /**
+     * Revalue the whole book under a given combination of shocks, in a single pass over all borrowers, and store the
+     * summaries of the resulting distributions
+     *
+     * @param i Index of the rate shock
+     * @param j Index of the income shock
+     * @param maxAffordability Maximum PTI allowed by the bank
+     * @param minICR Minimum ICR allowed by the bank
+     */
+    private void revalue(int i, int j, double maxAffordability, double minICR) {
+        double rateShock = rateShocks[i]/Model.config.constants.MONTHS_IN_YEAR;
+        double incomeFactor = 1.0 + incomeShocks[j];
+        double [] ptiValues = new double[nBorrowers];
+        double [] icrValues = new double[nBorrowers];
+        int nPTI = 0;
+        int nICR = 0;
+        int nOO = 0;
+        int nBTL = 0;
+        int nAboveMaxAffordability = 0;
+        int nBelowMinICR = 0;
+        int nAtRisk = 0;
+        double sumPTI = 0.0;
+        double sumICR = 0.0;
+        double sumPayments = 0.0;
+        for (int b = 0; b < nBorrowers; b++) {
+            double employmentIncome = Math.max(employmentIncomes[b]*incomeFactor, 0.0);
+            double ooPayment = 0.0;
+            double btlInterest = 0.0;
+            boolean hasOOMortgage = false;
+            boolean hasBTLMortgage = false;
+            for (int m = firstMortgage[b]; m < firstMortgage[b + 1]; m++) {
+                double r = monthlyInterestRates[m] + rateShock;
+                if (isBuyToLet[m]) {
+                    hasBTLMortgage = true;
+                    btlInterest += principals[m]*r;
+                } else if (nPayments[m] > 0) {
+                    hasOOMortgage = true;
+                    if (r == 0.0) {
+                        ooPayment += principals[m]/nPayments[m];
+                    } else {
+                        ooPayment += principals[m]*r/(1.0 - Math.pow(1.0 + r, -nPayments[m]));
+                    }
+                }
+            }
+            double payments = ooPayment + btlInterest;
+            sumPayments += payments;
+            if (payments > employmentIncome + rentalIncomes[b]) nAtRisk++;
+            // Borrowers without employment income breach the affordability limit but have no defined PTI
+            if (hasOOMortgage) {
+                nOO++;
+                if (employmentIncome > 0.0) {
+                    double pti = ooPayment/employmentIncome;
+                    ptiValues[nPTI++] = pti;
+                    sumPTI += pti;
+                    if (pti > maxAffordability) nAboveMaxAffordability++;
+                } else if (ooPayment > 0.0) {
+                    nAboveMaxAffordability++;
+                }
+            }
+            // Borrowers with no interest due (negative shocked rates) comply with the ICR limit but have no defined ICR
+            if (hasBTLMortgage) {
+                nBTL++;
+                if (btlInterest > 0.0) {
+                    double icr = rentalIncomes[b]/btlInterest;
+                    icrValues[nICR++] = icr;
+                    sumICR += icr;
+                    if (icr < minICR) nBelowMinICR++;
+                }
+            }
+        }
+        Arrays.sort(ptiValues, 0, nPTI);
+        Arrays.sort(icrValues, 0, nICR);
+        nOOBorrowers[i][j] = nOO;
+        meanPTI[i][j] = (nPTI > 0) ? sumPTI/nPTI : Double.NaN;
+        medianPTI[i][j] = quantile(ptiValues, nPTI, 0.5);
+        p90PTI[i][j] = quantile(ptiValues, nPTI, 0.9);
+        p99PTI[i][j] = quantile(ptiValues, nPTI, 0.99);
+        shareAboveMaxAffordability[i][j] = (nOO > 0) ? (double)nAboveMaxAffordability/nOO : 0.0;
+        nBTLBorrowers[i][j] = nBTL;
+        meanICR[i][j] = (nICR > 0) ? sumICR/nICR : Double.NaN;
+        p10ICR[i][j] = quantile(icrValues, nICR, 0.1);
+        medianICR[i][j] = quantile(icrValues, nICR, 0.5);
+        shareBelowMinICR[i][j] = (nBTL > 0) ? (double)nBelowMinICR/nBTL : 0.0;
+        shareAtRiskOfArrears[i][j] = (nBorrowers > 0) ? (double)nAtRisk/nBorrowers : 0.0;
+        totalMonthlyPayments[i][j] = sumPayments;
+    }
+
+    /**
+     * Nearest-rank quantile of the first n values of a sorted array
+     */
+    private static double quantile(double [] sortedValues, int n, double q) {
+        if (n == 0) return Double.NaN;
+        return sortedValues[Math.max((int)Math.ceil(q*n) - 1, 0)];
+    }
+
+    //----- Getter/setter methods -----//
+
+    // Note that all getters for results take the index of the rate shock first, and the index of the income shock second
+    public double [] getRateShocks() { return rateShocks.clone(); }
+    public double [] getIncomeShocks() { return incomeShocks.clone(); }
+    public int getnBorrowers() { return nBorrowers; }
+    public int getnMortgages() { return principals.length; }
+    public int getnOOBorrowers(int i, int j) { return nOOBorrowers[i][j]; }
+    public double getMeanPTI(int i, int j) { return meanPTI[i][j]; }
+    public double getMedianPTI(int i, int j) { return medianPTI[i][j]; }
+    public double getP90PTI(int i, int j) { return p90PTI[i][j]; }
+    public double getP99PTI(int i, int j) { return p99PTI[i][j]; }
+    public double getShareAboveMaxAffordability(int i, int j) { return shareAboveMaxAffordability[i][j]; }
+    public int getnBTLBorrowers(int i, int j) { return nBTLBorrowers[i][j]; }
+    public double getMeanICR(int i, int j) { return meanICR[i][j]; }
+    public double getP10ICR(int i, int j) { return p10ICR[i][j]; }
+    public double getMedianICR(int i, int j) { return medianICR[i][j]; }
+    public double getShareBelowMinICR(int i, int j) { return shareBelowMinICR[i][j]; }
+    public double getShareAtRiskOfArrears(int i, int j) { return shareAtRiskOfArrears[i][j]; }
+    public double getTotalMonthlyPayments(int i, int j) { return totalMonthlyPayments[i][j]; }
+}
@@ -1,5 +1,7 @@
 package housing;
 
+import java.io.Serializable;
+
 /**************************************************************************************************
  * Class to represent a payment contract in general, so as to include both mortgage and rental
  * contracts. It keeps track of the monthly payments associated to the contract and the number of
@@ -8,14 +10,16 @@ package housing;
  * @author daniel, davidrpugh, Adrian Carro
  *
  *************************************************************************************************/
-public class PaymentAgreement {
+public class PaymentAgreement implements Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     int             nPayments;
-    public double   monthlyPayment;
+    double          monthlyPayment;
 
     //-------------------//
     //----- Methods -----//
@@ -43,10 +47,22 @@ public class PaymentAgreement {
      * @return The amount of the next monthly payment
      */
     double nextPayment() {
-        if (nPayments == 0) {
+        if (getnPayments() == 0) {
             return 0.0;
         } else {
-            return monthlyPayment;
+            return getMonthlyPayment();
         }
     }
+
+    //----- Getter/setter methods -----//
+
+    /**
+     * @return The number of monthly payments left
+     */
+    int getnPayments() { return nPayments; }
+
+    /**
+     * @return The amount of each monthly payment
+     */
+    public double getMonthlyPayment() { return monthlyPayment; }
 }
@@ -0,0 +1,270 @@
+package housing;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**************************************************************************************************
+ * Class to store the property holdings of a household, that is, the houses it owns, rents or still
+ * has debt on, with their payment agreements, and the houses it rents out, with their rental
+ * agreements. As most households hold at most one or two houses, each of these two collections
+ * keeps its first two entries in inline fields, spilling to (growing) arrays only when a third
+ * entry is added. Entries are always kept sorted by house, as in a TreeMap, such that iteration
+ * order is deterministic.
+ *
+ * Holdings also cache the household's monthly gross rental income, monthly finance costs and
+ * number of properties owned. These are recomputed only when first requested after a change to the
+ * holdings or to any of the payment agreements, tenancies or ownerships they depend on, such that
+ * repeated calls within a time step cost O(1). Changes to the collections invalidate the cache
+ * automatically, while other changes must be signalled explicitly through invalidateTotals().
+ *
+ *************************************************************************************************/
+public class PropertyHoldings implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private final Household             owner; // Household holding these properties
+    private HouseMap<PaymentAgreement>  housePayments = new HouseMap<>(); // Houses owned or rented and their payment agreements
+    private HouseMap<RentalAgreement>   rentalContracts = new HouseMap<>(); // Houses rented out and their rental agreements
+
+    // Cached totals
+    private boolean                     totalsValid; // False if any cached total needs to be recomputed
+    private double                      monthlyGrossRentalIncome; // Sum of the next payments of all rental contracts
+    private double                      monthlyFinanceCosts; // Sum of the next payments of all mortgages on let houses
+    private int                         nProperties; // Number of houses owned
+
+    /**
+     * Small sorted map from houses to payment agreements, with its first two entries stored inline
+     */
+    private static class HouseMap<V extends PaymentAgreement> implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int             size;
+        House           house0; // Inline entries, used only while no arrays have been allocated
+        House           house1;
+        V               value0;
+        V               value1;
+        House []        houses; // Spilled entries, null until a third entry is added
+        Object []       values;
+
+        House getHouse(int i) {
+            if (houses != null) return houses[i];
+            return (i == 0) ? house0 : house1;
+        }
+
+        @SuppressWarnings("unchecked")
+        V getValue(int i) {
+            if (houses != null) return (V)values[i];
+            return (i == 0) ? value0 : value1;
+        }
+
+        int indexOf(House h) {
+            if (houses != null) return Arrays.binarySearch(houses, 0, size, h);
+            if (size > 0 && house0 == h) return 0;
+            if (size > 1 && house1 == h) return 1;
+            return -1;
+        }
+
+        V get(House h) {
+            int i = indexOf(h);
+            return (i >= 0) ? getValue(i) : null;
+        }
+
+        void put(House h, V value) {
+            int i = indexOf(h);
+            if (i >= 0) {
+                setValue(i, value);
+                return;
+            }
+            if (houses == null && size == 2) {
+                houses = new House[4];
+                values = new Object[4];
+                houses[0] = house0;
+                houses[1] = house1;
+                values[0] = value0;
+                values[1] = value1;
+                house0 = null;
+                house1 = null;
+                value0 = null;
+                value1 = null;
+            }
+            if (houses != null) {
+                if (size == houses.length) {
+                    houses = Arrays.copyOf(houses, 2*size);
+                    values = Arrays.copyOf(values, 2*size);
+                }
+                i = -Arrays.binarySearch(houses, 0, size, h) - 1;
+                System.arraycopy(houses, i, houses, i + 1, size - i);
+                System.arraycopy(values, i, values, i + 1, size - i);
+                houses[i] = h;
+                values[i] = value;
+            } else if (size == 0) {
+                house0 = h;
+                value0 = value;
+            } else if (h.compareTo(house0) > 0) {
+                house1 = h;
+                value1 = value;
+            } else {
+                house1 = house0;
+                value1 = value0;
+                house0 = h;
+                value0 = value;
+            }
+            size++;
+        }
+
+        void removeAt(int i) {
+            size--;
+            if (houses != null) {
+                System.arraycopy(houses, i + 1, houses, i, size - i);
+                System.arraycopy(values, i + 1, values, i, size - i);
+                houses[size] = null;
+                values[size] = null;
+            } else {
+                if (i == 0) {
+                    house0 = house1;
+                    value0 = value1;
+                }
+                house1 = null;
+                value1 = null;
+            }
+        }
+
+        private void setValue(int i, V value) {
+            if (houses != null) {
+                values[i] = value;
+            } else if (i == 0) {
+                value0 = value;
+            } else {
+                value1 = value;
+            }
+        }
+    }
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    PropertyHoldings(Household owner) { this.owner = owner; }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    //----- Houses owned or rented, with their payment agreements -----//
+
+    /**
+     * @return Number of houses with a payment agreement, i.e., owned, rented or with any outstanding debt
+     */
+    public int size() { return housePayments.size; }
+
+    /**
+     * @return House at a given position (in house order) among those with a payment agreement
+     */
+    public House getHouse(int i) { return housePayments.getHouse(i); }
+
+    /**
+     * @return Payment agreement at a given position (in house order)
+     */
+    public PaymentAgreement getPayment(int i) { return housePayments.getValue(i); }
+
+    /**
+     * @return Payment agreement for a given house, or null if there is none
+     */
+    public PaymentAgreement getPayment(House h) { return housePayments.get(h); }
+
+    boolean contains(House h) { return housePayments.indexOf(h) >= 0; }
+
+    void put(House h, PaymentAgreement payment) {
+        housePayments.put(h, payment);
+        totalsValid = false;
+    }
+
+    void remove(House h) {
+        int i = housePayments.indexOf(h);
+        if (i >= 0) removeAt(i);
+    }
+
+    /**
+     * Remove the payment agreement at a given position. When iterating over positions, note that subsequent entries
+     * are shifted one position back
+     */
+    void removeAt(int i) {
+        housePayments.removeAt(i);
+        totalsValid = false;
+    }
+
+    //----- Houses rented out, with their rental agreements -----//
+
+    void putRentalContract(House h, RentalAgreement rentalAgreement) {
+        rentalContracts.put(h, rentalAgreement);
+        totalsValid = false;
+    }
+
+    void removeRentalContract(House h) {
+        int i = rentalContracts.indexOf(h);
+        if (i >= 0) {
+            rentalContracts.removeAt(i);
+            totalsValid = false;
+        }
+    }
+
+    //----- Cached totals -----//
+
+    /**
+     * Signal a change affecting the cached totals which is not a change to the holdings themselves, such as a mortgage
+     * or rental agreement making its last payment, a mortgage being (partially) paid off, or a house changing owner
+     */
+    void invalidateTotals() { totalsValid = false; }
+
+    /**
+     * @return This month's rental income from all currently owned and rented properties
+     */
+    double getMonthlyGrossRentalIncome() {
+        if (!totalsValid) updateTotals();
+        return monthlyGrossRentalIncome;
+    }
+
+    /**
+     * @return This month's interest paid on all houses currently owned and occupied (with a payment due), see
+     * Household.getAnnualFinanceCosts()
+     */
+    double getMonthlyFinanceCosts() {
+        if (!totalsValid) updateTotals();
+        return monthlyFinanceCosts;
+    }
+
+    /**
+     * @return Number of houses owned
+     */
+    int getNProperties() {
+        if (!totalsValid) updateTotals();
+        return nProperties;
+    }
+
+    /**
+     * Recompute all cached totals, adding up contributions in house order
+     */
+    private void updateTotals() {
+        monthlyGrossRentalIncome = 0.0;
+        for (int i = 0; i < rentalContracts.size; i++) {
+            monthlyGrossRentalIncome += rentalContracts.getValue(i).nextPayment();
+        }
+        monthlyFinanceCosts = 0.0;
+        nProperties = 0;
+        for (int i = 0; i < housePayments.size; i++) {
+            House house = housePayments.getHouse(i);
+            PaymentAgreement payment = housePayments.getValue(i);
+            if (payment instanceof MortgageAgreement && house.owner == owner) {
+                nProperties += 1;
+                if (payment.nextPayment() != 0.0 && house.resident != null
+                        && house.resident.getHoldings().getPayment(house).nextPayment() != 0.0) {
+                    monthlyFinanceCosts += payment.nextPayment();
+                }
+            }
+        }
+        totalsValid = true;
+    }
+}
@@ -1,4 +1,10 @@
 package housing;
 
 public class RentalAgreement extends PaymentAgreement {
+
+    private static final long serialVersionUID = 1L;
+
+    final Household tenant; // Household paying the rent
+
+    RentalAgreement(Household tenant) { this.tenant = tenant; }
 }
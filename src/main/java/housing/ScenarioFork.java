@@ -0,0 +1,220 @@
+package housing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import collectors.MicroDataRecorder;
+import collectors.Recorder;
+import collectors.TransactionRecorder;
+
+/**************************************************************************************************
+ * Class to fork a number of alternative scenarios from a running simulation. The scenarios are
+ * defined in a properties file with lines of the form <scenario>.<PARAMETER> = <value>, each
+ * scenario overriding the values of the main configuration file for the given parameters. At the
+ * fork time, the full state of the simulation is serialised once into an in-memory snapshot, which
+ * is never modified. Scenarios are then run one after the other, each of them deserialising a new,
+ * complete copy of this snapshot and continuing the simulation from it under its own
+ * configuration, random number stream and output sub-folder. Note that, since the model state is
+ * held in static fields of the Model class, scenarios cannot run concurrently. Once all scenarios
+ * have run, the snapshot is deserialised once more under the main configuration, such that the
+ * Model is left with the state at the fork time.
+ *
+ * Note that only behavioural and policy parameters should be overridden at the fork, as parameters
+ * defining the structure of the simulation (such as TARGET_POPULATION, RNG_ALGORITHM, the lengths of rolling
+ * windows or CENTRAL_BANK_LTI_MONTHS_TO_CHECK) have already been used to build the state at the
+ * fork time.
+ *
+ *************************************************************************************************/
+public class ScenarioFork {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private ArrayList<Scenario>     scenarios = new ArrayList<>();
+
+    /**
+     * Class to gather the configuration and recorders of a single scenario
+     */
+    private static class Scenario {
+        String              name;
+        Config              config;
+        Recorder            recorder;
+        TransactionRecorder transactionRecorder;
+        MicroDataRecorder   microDataRecorder;
+    }
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * Read scenario definitions, build the configuration of each scenario and open its multi-run output files
+     *
+     * @param configFileName Address of the main configuration file, on top of which overrides are applied
+     * @param configOverrides Overrides of the main configuration, applied before those of each scenario
+     * @param scenariosFileName Address of the file with the scenario definitions
+     * @param outputFolder Main output folder, inside which a sub-folder is created for each scenario
+     */
+    ScenarioFork(String configFileName, Properties configOverrides, String scenariosFileName, String outputFolder) {
+        this(configFileName, configOverrides, readScenarios(scenariosFileName), outputFolder);
+    }
+
+    /**
+     * Build the configuration of each scenario and open its multi-run output files
+     *
+     * @param configFileName Address of the main configuration file, on top of which overrides are applied
+     * @param configOverrides Overrides of the main configuration, applied before those of each scenario
+     * @param overridesByScenario Overrides of each scenario, by scenario name, in the order the scenarios are to be run
+     * @param outputFolder Main output folder, inside which a sub-folder is created for each scenario
+     */
+    ScenarioFork(String configFileName, Properties configOverrides, TreeMap<String, Properties> overridesByScenario,
+                 String outputFolder) {
+        // Build each scenario, with the Model's configuration temporarily replaced by that of the scenario, so that
+        // its recorders are built with it
+        Config mainConfig = Model.config;
+        for (String name : overridesByScenario.keySet()) {
+            Scenario scenario = new Scenario();
+            scenario.name = name;
+            Properties overrides = new Properties();
+            overrides.putAll(configOverrides);
+            overrides.putAll(overridesByScenario.get(name));
+            scenario.config = new Config(configFileName, overrides);
+            String scenarioFolder = outputFolder + name + "/";
+            new File(scenarioFolder).mkdirs();
+            try (FileOutputStream stream = new FileOutputStream(scenarioFolder + "overrides.properties")) {
+                overridesByScenario.get(name).store(stream, "Overrides for scenario " + name);
+            } catch (IOException ioe) {
+                System.out.println("Exception " + ioe + " while trying to write overrides for scenario " + name);
+                ioe.printStackTrace();
+            }
+            Model.config = scenario.config;
+            scenario.recorder = new Recorder(scenarioFolder);
+            scenario.transactionRecorder = new TransactionRecorder(scenarioFolder);
+            scenario.microDataRecorder = new MicroDataRecorder(scenarioFolder);
+            scenario.recorder.openMultiRunFiles(scenario.config.recordCoreIndicators);
+            if (scenario.config.recordMultiRunSummary) {
+                scenario.recorder.openSummary(scenario.config.N_STEPS, scenario.config.MULTI_RUN_SUMMARY_QUANTILES);
+            }
+            scenarios.add(scenario);
+        }
+        Model.config = mainConfig;
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Read scenario definitions, grouping overrides by scenario name (in alphabetical order)
+     */
+    private static TreeMap<String, Properties> readScenarios(String scenariosFileName) {
+        Properties definitions = new Properties();
+        try (FileReader fileReader = new FileReader(scenariosFileName)) {
+            definitions.load(fileReader);
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to read file '" + scenariosFileName + "'");
+            ioe.printStackTrace();
+            System.exit(0);
+        }
+        TreeMap<String, Properties> overridesByScenario = new TreeMap<>();
+        for (String key : definitions.stringPropertyNames()) {
+            int separator = key.indexOf('.');
+            if (separator <= 0 || separator == key.length() - 1) {
+                System.out.println("Scenario definition '" + key + "' is not of the form <scenario>.<PARAMETER>");
+                System.exit(0);
+            }
+            overridesByScenario.computeIfAbsent(key.substring(0, separator), k -> new Properties())
+                    .setProperty(key.substring(separator + 1), definitions.getProperty(key));
+        }
+        return overridesByScenario;
+    }
+
+    /**
+     * Snapshot the current state of the Model and continue it separately for each scenario, from the time step after
+     * the fork time until the last time step of the scenario. At the end, the Model's configuration, government and
+     * recorders are set back to their original values, and the state at the fork time is installed again
+     *
+     * @param forkTime Time step at the end of which the scenarios are forked
+     */
+    void run(int forkTime) {
+        // Serialise the current state once, into a snapshot shared by all scenarios
+        byte [] snapshot;
+        try {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            Checkpoint.write(stream);
+            snapshot = stream.toByteArray();
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to snapshot the simulation at time " + forkTime);
+            ioe.printStackTrace();
+            System.exit(0);
+            return;
+        }
+        Config mainConfig = Model.config;
+        Government mainGovernment = Model.government;
+        Recorder mainRecorder = Model.recorder;
+        TransactionRecorder mainTransactionRecorder = Model.transactionRecorder;
+        MicroDataRecorder mainMicroDataRecorder = Model.microDataRecorder;
+        for (Scenario scenario : scenarios) {
+            System.out.println("Simulation: " + Model.nSimulation + ", forking scenario " + scenario.name
+                    + " at time: " + forkTime);
+            // Install the configuration and recorders of the scenario
+            Model.config = scenario.config;
+            Model.government = new Government();
+            Model.recorder = scenario.recorder;
+            Model.transactionRecorder = scenario.transactionRecorder;
+            Model.microDataRecorder = scenario.microDataRecorder;
+            // Install a private copy of the snapshot, with all configuration references resolved to that of the
+            // scenario, and update policies, household statistics and random number stream accordingly
+            try {
+                Checkpoint.read(new ByteArrayInputStream(snapshot));
+            } catch (IOException | ClassNotFoundException e) {
+                System.out.println("Exception " + e + " while trying to restore the snapshot for scenario "
+                        + scenario.name);
+                e.printStackTrace();
+                System.exit(0);
+            }
+            Model.centralBank.init();
+            Model.bank.setInternalPolicyThresholds();
+            Model.bank.updateAffordabilityTable();
+            Model.householdStats.flagAllForUpdate();
+            Model.reseed(scenario.config.SEED + Model.nSimulation - 1);
+            if (Model.getPairedComparison() != null) Model.getPairedComparison().setArm(scenarios.indexOf(scenario));
+            // Run the scenario until its last time step
+            Model.openSingleRunFiles();
+            Model.runTimeSteps(forkTime + 1, scenario.config.N_STEPS);
+            Model.finishRun();
+        }
+        if (Model.getPairedComparison() != null) Model.getPairedComparison().setArm(-1);
+        // Re-install the main configuration and the snapshot state resolved to it, such that no object of the last
+        // scenario, holding its configuration, is left behind for the next simulation
+        Model.config = mainConfig;
+        try {
+            Checkpoint.read(new ByteArrayInputStream(snapshot));
+        } catch (IOException | ClassNotFoundException e) {
+            System.out.println("Exception " + e + " while trying to restore the snapshot after forking scenarios");
+            e.printStackTrace();
+            System.exit(0);
+        }
+        Model.government = mainGovernment;
+        Model.recorder = mainRecorder;
+        Model.transactionRecorder = mainTransactionRecorder;
+        Model.microDataRecorder = mainMicroDataRecorder;
+    }
+
+    /**
+     * Close the multi-run files of all scenarios
+     */
+    void finish() {
+        for (Scenario scenario : scenarios) {
+            scenario.recorder.finish(scenario.config.recordCoreIndicators);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package housing;
+
+import java.util.Properties;
+
+/**************************************************************************************************
+ * Class to run simulations from other Java code, such as calibration or optimisation loops, rather
+ * than from the command line. Simulations run this way write no files at all: instead, at the end
+ * of each time step, a listener is passed the values of the aggregate indicators it requests (see
+ * SimulationListener and collectors.IndicatorSeries). Results are otherwise identical to those of
+ * a command line run with the same configuration. For example,
+ *
+ *      IndicatorSeries series = new IndicatorSeries(Indicator.SALE_HPI, Indicator.CREDIT_GROWTH);
+ *      Simulation.run(Simulation.config("src/main/resources/config.properties", "SEED", "2"), series);
+ *      double [] hpi = series.get(Indicator.SALE_HPI);
+ *
+ * Each call runs a single simulation (N_SIMS is ignored), from scratch or with a warm start, and
+ * replaces all model state left by any previous call. Calibration data read from the data files,
+ * however, is loaded only once per process, with the data files of the first call, so later calls
+ * with configurations reading different data files (any DATA_* or CALIBRATION_CACHE_FILE
+ * parameter) throw an IllegalArgumentException, and must be run in a new process instead. Since
+ * the state of the model is held in static fields of the Model class, calls must not be made
+ * concurrently from different threads. Note that errors that would stop a command line run (such
+ * as most problems reading input files) still end the process.
+ *
+ *************************************************************************************************/
+public class Simulation {
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Run a single simulation without writing any files, passing the values of the indicators requested by a listener
+     * at the end of each time step
+     *
+     * @param config Configuration to use (all its file recording options are ignored)
+     * @param listener Listener to be passed the values of the indicators it requests at the end of each time step
+     * @throws IllegalArgumentException If the configuration reads different data files from those of the first call
+     */
+    public static void run(Config config, SimulationListener listener) { Model.runWithListener(config, listener); }
+
+    /**
+     * Read a configuration file, replacing the values of some of its parameters
+     *
+     * @param configFileName Address of the configuration file
+     * @param overrides Pairs of parameter names and values replacing those in the configuration file
+     */
+    public static Config config(String configFileName, String... overrides) {
+        if (overrides.length % 2 != 0) {
+            throw new IllegalArgumentException("Overrides must be given as pairs of parameter names and values");
+        }
+        Properties properties = new Properties();
+        for (int i = 0; i < overrides.length; i += 2) properties.setProperty(overrides[i], overrides[i + 1]);
+        return new Config(configFileName, properties);
+    }
+}
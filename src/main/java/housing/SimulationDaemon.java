@@ -0,0 +1,189 @@
+package housing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.output.TeeOutputStream;
+
+/**************************************************************************************************
+ * Class to keep the model resident as a daemon serving simulation requests, such that sweeps over
+ * many parameter points pay class loading, calibration data reading and JIT compilation only once,
+ * instead of once per process. The daemon listens on a local (loopback) port and serves one
+ * request per connection, one after the other, as the state of the model is held in static fields
+ * of the Model class. Callers must first present a token shared with the daemon, read from the
+ * environment variable HOUSING_DAEMON_TOKEN (which must be set when starting it), in a line of the
+ * form "HELLO <token>", connections without the right token being closed. Each request is then a
+ * single line with the same arguments as the command line (output folder, dev and scenario fork
+ * arguments), followed by any number of <PARAMETER>=<value> config overrides, such as SEED=2,
+ * separated by white space. All console output of the requested simulations is streamed back to
+ * the caller, followed by a final line, either "DONE <seconds>" or "FAILED <reason>". A request
+ * consisting of the single word "shutdown" stops the daemon. For example, from a shell,
+ *
+ *      printf 'HELLO %s\n-outputFolder run2 SEED=2\n' "$HOUSING_DAEMON_TOKEN" | nc localhost <port>
+ *
+ * Calibration data read from data files is loaded once, when starting the daemon, and shared by
+ * all requests, which are therefore rejected if their configuration reads any different data file.
+ * Output folders of requests are taken relative to the output folder given when starting the
+ * daemon, and requests are rejected if theirs is not within it. Checkpoint arguments are rejected,
+ * as they would let callers write and deserialize arbitrary files. An already existing output
+ * folder is only used if the dev argument is passed, as there is nobody to ask for approval to
+ * erase its content. Note that errors that would stop a normal run (such as most problems reading
+ * input files) stop the daemon as well, in which case the connection is closed without a final
+ * line.
+ *
+ *************************************************************************************************/
+class SimulationDaemon {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final String TOKEN_VARIABLE = "HOUSING_DAEMON_TOKEN"; // Environment variable with the shared token
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Load all calibration data for the configuration given by the input arguments last handled and then serve
+     * simulation requests until asked to shut down
+     *
+     * @param port Local port on which to listen for requests (zero for any free port)
+     * @param configFileName Address of the config file from which the calibration data is to be loaded
+     * @param outputFolder Folder within which the output folders of all requests are to be created
+     */
+    static void serve(int port, String configFileName, String outputFolder) {
+        String token = System.getenv(TOKEN_VARIABLE);
+        if (token == null || token.trim().isEmpty()) {
+            System.out.println("The daemon needs the environment variable " + TOKEN_VARIABLE + " to be set to a "
+                    + "token shared with its callers");
+            System.exit(0);
+        }
+        byte [] tokenBytes = token.trim().getBytes(StandardCharsets.UTF_8);
+        Path outputRoot = Paths.get(outputFolder).toAbsolutePath().normalize();
+        // Load all calibration data for the daemon's configuration
+        Config daemonConfig = new Config(configFileName, Model.getConfigOverrides());
+        Model.config = daemonConfig;
+        for (String className : new String[] {"data.Demographics", "data.EmploymentIncome", "data.Wealth",
+                "data.Government"}) {
+            try {
+                Class.forName(className);
+            } catch (ClassNotFoundException cnfe) {
+                System.out.println("Exception " + cnfe + " while trying to load calibration data");
+                cnfe.printStackTrace();
+                System.exit(0);
+            }
+        }
+        // Serve requests, one connection at a time
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Daemon listening on port " + serverSocket.getLocalPort());
+            boolean running = true;
+            while (running) {
+                try (Socket socket = serverSocket.accept()) {
+                    running = serveRequest(socket, daemonConfig, tokenBytes, outputRoot);
+                } catch (IOException ioe) {
+                    System.out.println("Exception " + ioe + " while serving a request");
+                    ioe.printStackTrace();
+                }
+            }
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to listen on port " + port);
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Read a request from a connection and run the requested simulations, streaming all console output to the caller
+     *
+     * @param socket Connection from which to read the request
+     * @param daemonConfig Configuration for which calibration data was loaded
+     * @param tokenBytes Token to be presented by the caller before its request
+     * @param outputRoot Absolute and normalised folder within which output folders are to be created
+     * @return False if the daemon is to shut down
+     */
+    private static boolean serveRequest(Socket socket, Config daemonConfig, byte [] tokenBytes, Path outputRoot)
+            throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                StandardCharsets.UTF_8));
+        OutputStream callerStream = socket.getOutputStream();
+        PrintStream caller = new PrintStream(callerStream, true, "UTF-8");
+        // Callers introduce themselves with the shared token
+        String hello = reader.readLine();
+        if (hello == null) return true;
+        hello = hello.trim();
+        if (!hello.startsWith("HELLO ") || !MessageDigest.isEqual(
+                hello.substring(6).trim().getBytes(StandardCharsets.UTF_8), tokenBytes)) {
+            System.out.println("Rejected connection from " + socket.getInetAddress() + " without the right token");
+            caller.println("FAILED invalid token");
+            return true;
+        }
+        String request = reader.readLine();
+        if (request == null) return true;
+        request = request.trim();
+        System.out.println("Request: " + request);
+        if (request.equals("shutdown")) {
+            caller.println("DONE 0.0");
+            return false;
+        }
+        // Stream all console output to the caller while serving the request
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        System.setOut(new PrintStream(new TeeOutputStream(out, callerStream), true, "UTF-8"));
+        System.setErr(new PrintStream(new TeeOutputStream(err, callerStream), true, "UTF-8"));
+        long start = System.nanoTime();
+        String failure = null;
+        try {
+            String [] args = request.isEmpty() ? new String[0] : request.split("\\s+");
+            List<String> argList = Arrays.asList(args);
+            if (argList.contains("-daemon") || argList.contains("-sweep") || argList.contains("-sweepWorker")
+                    || argList.contains("-saveCheckpoint") || argList.contains("-loadCheckpoint")
+                    || !Model.handleInputArguments(args)) {
+                failure = "invalid arguments";
+            } else if (!confineOutputFolder(outputRoot)) {
+                failure = "output folder must be within the daemon's output folder";
+            } else if (!new Config(Model.getConfigFileName(), Model.getConfigOverrides())
+                    .hasSameDataFiles(daemonConfig)) {
+                failure = "configuration reads different data files from those loaded by the daemon";
+            } else if (!Model.prepareOutputFolder(false)) {
+                failure = "output folder cannot be used";
+            } else {
+                Model.run();
+            }
+        } catch (RuntimeException re) {
+            re.printStackTrace();
+            failure = re.toString();
+        } finally {
+            System.out.flush();
+            System.err.flush();
+            System.setOut(out);
+            System.setErr(err);
+        }
+        caller.println((failure == null) ? "DONE " + (double)(System.nanoTime() - start)/1_000_000_000
+                : "FAILED " + failure);
+        return true;
+    }
+
+    /**
+     * Take the output folder given by the request arguments last handled relative to the daemon's output folder
+     *
+     * @return False if the resulting folder is not strictly within the daemon's output folder
+     */
+    private static boolean confineOutputFolder(Path outputRoot) {
+        Path folder = outputRoot.resolve(Model.getOutputFolder()).normalize();
+        if (!folder.startsWith(outputRoot) || folder.equals(outputRoot)) return false;
+        Model.setOutputFolder(folder.toString() + "/");
+        return true;
+    }
+}
@@ -0,0 +1,31 @@
+package housing;
+
+import collectors.Indicator;
+
+/**************************************************************************************************
+ * Interface for objects receiving the results of a simulation run through the embeddable API (see
+ * Simulation). At the end of each time step, the listener is passed the values of the aggregate
+ * indicators it asks for, as an array of doubles, instead of these being written to files.
+ *
+ *************************************************************************************************/
+public interface SimulationListener {
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * @return Indicators whose values are to be passed at the end of each time step, in this order (by default, all
+     * of them)
+     */
+    default Indicator [] getIndicators() { return Indicator.values(); }
+
+    /**
+     * Receive the values of the requested indicators at the end of a time step. Note that the same array is re-used
+     * for all time steps, so its content must be copied if it is to be kept
+     *
+     * @param time Time step just completed
+     * @param values Value of each requested indicator, in the order given by getIndicators()
+     */
+    void stepCompleted(int time, double [] values);
+}
@@ -0,0 +1,750 @@
+package housing;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import collectors.Indicator;
+import collectors.IndicatorSeries;
+
+import org.apache.commons.io.FileUtils;
+
+import utilities.RandomSource;
+
+/**************************************************************************************************
+ * Class to run a design-of-experiments sweep over configuration parameters. The sweep is defined
+ * in a properties file with the following entries:
+ *
+ * DESIGN           Either GRID (all combinations of the levels of each parameter) or
+ *                  LATIN_HYPERCUBE (N_POINTS points, each parameter stratified into N_POINTS equally
+ *                  probable strata, each used exactly once).
+ * range.<PARAM>    Minimum and maximum values (comma-separated) of a numerical parameter. For a grid,
+ *                  GRID_LEVELS equally spaced levels are used. Integer parameters are rounded.
+ * values.<PARAM>   Comma-separated list of values of a parameter, used as levels for a grid or
+ *                  chosen with equal probabilities (stratified) for a Latin hypercube.
+ *                  Parameters naming data files (DATA_*) or the calibration cache file
+ *                  (CALIBRATION_CACHE_FILE) cannot be swept.
+ * N_POINTS         Number of points of a Latin hypercube design.
+ * GRID_LEVELS      Number of levels for parameters given by a range in a grid design (default 3).
+ * DESIGN_SEED      Seed for drawing a Latin hypercube design (default 1).
+ * N_SEEDS          Number of runs of each point, with seeds SEED, SEED + 1... as for successive
+ *                  simulations restored from a checkpoint or forked into scenarios (default 1).
+ * SUMMARY_STEPS    Number of final time steps over which each indicator is summarised by its mean
+ *                  and standard deviation (default 120).
+ * N_WORKERS        Number of local worker processes (by default, the number of available
+ *                  processors).
+ * PORT             Port on which the coordinator listens for workers. By default, any free port is
+ *                  used, so that only the local workers launched by the coordinator can join.
+ * HOST             Address of the interface on which the coordinator listens for workers. By
+ *                  default, only the loopback interface is used, so that workers on other nodes
+ *                  can only join if a HOST (and a PORT) is given.
+ * HEARTBEAT_INTERVAL Seconds between heartbeats sent by workers (default 5).
+ * HEARTBEAT_TIMEOUT Seconds without any message after which a worker is lost (default 30).
+ * MAX_RETRIES      Number of times a job whose worker is lost is run again (default 2).
+ * CACHE_FOLDER     Folder of the result cache, see SweepCache. By default, a 'sweep-cache' folder
+ *                  within the output folder, such that results are only re-used across sweeps
+ *                  given the same CACHE_FOLDER.
+ *
+ * Each run (point and seed) is a job. Jobs whose results are already in the cache are not run
+ * again, while the rest are distributed among worker processes, as the state of the model is held
+ * in static fields of the Model class and thus simulations cannot run concurrently within a single
+ * process. This process acts as coordinator, launching N_WORKERS local workers and accepting any
+ * number of further workers started, say on other nodes, with -sweepWorker <host>:<PORT> (and the
+ * same configuration file and overrides). Workers must present a token shared with the coordinator,
+ * read from the environment variable HOUSING_SWEEP_TOKEN, which must thus be set for both the
+ * coordinator and any workers joining at a given PORT (local workers launched by the coordinator
+ * are passed its token, randomly generated if the variable is not set). Connections without the
+ * right token are closed, and results are only accepted, and cached, for the job last passed to
+ * the same connection. Each worker is a resident process connected by a socket,
+ * running the jobs it is passed one after the other through the embeddable API (see Simulation),
+ * thus paying class loading, calibration data reading and JIT compilation only once, and sending
+ * back their summaries, plus heartbeats while running. Workers whose connection is closed, or which
+ * stay silent for too long, are lost and their jobs retried by other workers (with lost local
+ * workers launched again). Local workers write their console output to log files in the output
+ * folder, where the summary of all jobs is written to Sweep-summary.csv. Note that jobs which fail
+ * too many times are reported as failed, and are not cached, such that they are run again by any
+ * later sweep. If no worker is left to run the remaining jobs (no worker is connected and no local
+ * worker is running or can be launched again), and no other worker can join as no PORT is given,
+ * all remaining jobs are reported as failed as well.
+ *
+ *************************************************************************************************/
+class Sweep {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final String RESULT_PREFIX = "RESULT "; // Marks messages from workers with the results of a job
+    private static final String TOKEN_VARIABLE = "HOUSING_SWEEP_TOKEN"; // Environment variable with the shared token
+
+    private String                  configFileName;
+    private Properties              configOverrides; // Overrides of the base configuration, common to all jobs
+    private String                  outputFolder;
+    private ArrayList<String>       parameters = new ArrayList<>(); // Names of the parameters swept, sorted
+    private ArrayList<String []>    points = new ArrayList<>(); // Values of the parameters swept at each point
+    private int                     nSeeds;
+    private int                     summarySteps;
+    private int                     nWorkers; // Number of local worker processes to launch
+    private int                     port; // Port on which to listen for workers, 0 for any (with local workers only)
+    private String                  host; // Address on which to listen for workers, null for the loopback interface
+    private String                  token; // Token to be presented by workers when joining
+    private int                     heartbeatInterval; // Seconds between heartbeats sent by workers
+    private int                     heartbeatTimeout; // Seconds without messages after which a worker is lost
+    private int                     maxRetries; // Number of times a job whose worker was lost is run again
+    private SweepCache              cache;
+    private LinkedList<Job>         pending = new LinkedList<>(); // Jobs waiting for a worker
+    private int                     nOutstanding; // Jobs neither completed nor given up on yet
+    private int                     nLiveWorkers; // Workers connected (with the right token) and not yet lost
+    private int                     nLaunchableWorkers; // Local workers running or still to be launched (again)
+
+    /**
+     * Class to gather the definition and results of a single run of a point
+     */
+    private static class Job {
+        int         index;
+        int         point;
+        int         seed;
+        Config      config;
+        String      overrides; // Overrides specific to this job, as passed to workers (encoded, space-separated)
+        String      key;
+        double []   summary; // Null until results are available
+        boolean     cached;
+        int         attempts; // Number of times the worker running this job was lost
+    }
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param configFileName Address of the base configuration file
+     * @param configOverrides Overrides of the base configuration, common to all jobs
+     * @param specFileName Address of the file with the definition of the sweep
+     * @param outputFolder Folder in which to write the summary of all jobs and the worker logs
+     */
+    Sweep(String configFileName, Properties configOverrides, String specFileName, String outputFolder) {
+        this.configFileName = configFileName;
+        this.configOverrides = configOverrides;
+        this.outputFolder = outputFolder;
+        Properties spec = new Properties();
+        try (FileReader fileReader = new FileReader(specFileName)) {
+            spec.load(fileReader);
+            FileUtils.copyFileToDirectory(new File(specFileName), new File(outputFolder));
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to read file '" + specFileName + "'");
+            ioe.printStackTrace();
+            System.exit(0);
+        }
+        nSeeds = Integer.parseInt(spec.getProperty("N_SEEDS", "1").trim());
+        summarySteps = Integer.parseInt(spec.getProperty("SUMMARY_STEPS", "120").trim());
+        nWorkers = Integer.parseInt(spec.getProperty("N_WORKERS",
+                String.valueOf(Runtime.getRuntime().availableProcessors())).trim());
+        port = Integer.parseInt(spec.getProperty("PORT", "0").trim());
+        host = spec.containsKey("HOST") ? spec.getProperty("HOST").trim() : null;
+        heartbeatInterval = Integer.parseInt(spec.getProperty("HEARTBEAT_INTERVAL", "5").trim());
+        heartbeatTimeout = Integer.parseInt(spec.getProperty("HEARTBEAT_TIMEOUT", "30").trim());
+        maxRetries = Integer.parseInt(spec.getProperty("MAX_RETRIES", "2").trim());
+        if (heartbeatInterval < 1 || heartbeatTimeout <= heartbeatInterval) {
+            exit("HEARTBEAT_TIMEOUT must be larger than HEARTBEAT_INTERVAL, which must be at least 1");
+        }
+        if (nWorkers < 1 && port <= 0) exit("Without local workers (N_WORKERS), a PORT must be given for others to join");
+        if (host != null && port <= 0) exit("A PORT must be given together with the HOST for workers to join");
+        token = System.getenv(TOKEN_VARIABLE);
+        if (token == null || token.trim().isEmpty()) {
+            if (port > 0) exit("Workers joining at a given PORT need the environment variable " + TOKEN_VARIABLE
+                    + " to be set to a token shared with the coordinator");
+            byte [] bytes = new byte[16];
+            new SecureRandom().nextBytes(bytes);
+            StringBuilder builder = new StringBuilder();
+            for (byte b : bytes) builder.append(String.format("%02x", b));
+            token = builder.toString();
+        }
+        token = token.trim();
+        cache = new SweepCache(spec.getProperty("CACHE_FOLDER", outputFolder + "sweep-cache").trim());
+        generatePoints(spec);
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Generate the design points from the definition of the sweep
+     */
+    private void generatePoints(Properties spec) {
+        // Collect the levels (for a list of values) or the bounds (for a range) of each parameter, sorted by name
+        TreeMap<String, String []> values = new TreeMap<>();
+        TreeMap<String, double []> ranges = new TreeMap<>();
+        for (String key : spec.stringPropertyNames()) {
+            if (key.startsWith("values.") || key.startsWith("range.")) {
+                String name = key.substring(key.indexOf('.') + 1);
+                String [] items = spec.getProperty(key).split(",");
+                for (int i = 0; i < items.length; i++) items[i] = items[i].trim();
+                checkParameter(name, key.startsWith("range."));
+                if (values.containsKey(name) || ranges.containsKey(name)) {
+                    exit("Parameter " + name + " is given more than once in the sweep definition");
+                }
+                if (key.startsWith("values.")) {
+                    values.put(name, items);
+                } else if (items.length != 2) {
+                    exit("Range of parameter " + name + " must be given as <minimum>, <maximum>");
+                } else {
+                    ranges.put(name, new double [] {Double.parseDouble(items[0]), Double.parseDouble(items[1])});
+                }
+            } else if (!key.equals("DESIGN") && !key.equals("N_POINTS") && !key.equals("GRID_LEVELS")
+                    && !key.equals("DESIGN_SEED") && !key.equals("N_SEEDS") && !key.equals("SUMMARY_STEPS")
+                    && !key.equals("N_WORKERS") && !key.equals("CACHE_FOLDER") && !key.equals("PORT")
+                    && !key.equals("HOST") && !key.equals("HEARTBEAT_INTERVAL") && !key.equals("HEARTBEAT_TIMEOUT")
+                    && !key.equals("MAX_RETRIES")) {
+                exit("Unrecognised entry '" + key + "' in the sweep definition");
+            }
+        }
+        parameters.addAll(values.keySet());
+        parameters.addAll(ranges.keySet());
+        Collections.sort(parameters);
+        if (parameters.isEmpty()) exit("No parameters to sweep over in the sweep definition");
+        String design = spec.getProperty("DESIGN", "GRID").trim().toUpperCase();
+        if (design.equals("GRID")) {
+            // Build the levels of each parameter and then all their combinations, with the last parameter varying
+            // fastest
+            int gridLevels = Integer.parseInt(spec.getProperty("GRID_LEVELS", "3").trim());
+            if (!ranges.isEmpty() && gridLevels < 2) exit("GRID_LEVELS must be at least 2");
+            String [][] levels = new String[parameters.size()][];
+            for (int p = 0; p < parameters.size(); p++) {
+                String name = parameters.get(p);
+                if (values.containsKey(name)) {
+                    levels[p] = values.get(name);
+                } else {
+                    double [] range = ranges.get(name);
+                    levels[p] = new String[gridLevels];
+                    for (int l = 0; l < gridLevels; l++) {
+                        levels[p][l] = format(name, range[0] + l*(range[1] - range[0])/(gridLevels - 1));
+                    }
+                }
+            }
+            int [] counters = new int[parameters.size()];
+            while (counters[0] < levels[0].length) {
+                String [] point = new String[parameters.size()];
+                for (int p = 0; p < parameters.size(); p++) point[p] = levels[p][counters[p]];
+                points.add(point);
+                int p = parameters.size() - 1;
+                counters[p]++;
+                while (p > 0 && counters[p] == levels[p].length) {
+                    counters[p] = 0;
+                    counters[--p]++;
+                }
+            }
+        } else if (design.equals("LATIN_HYPERCUBE")) {
+            // For each parameter, shuffle the strata and draw a position uniformly within each stratum
+            int nPoints = Integer.parseInt(spec.getProperty("N_POINTS", "0").trim());
+            if (nPoints < 1) exit("N_POINTS must be at least 1 for a Latin hypercube design");
+            RandomSource rand = RandomSource.create("MERSENNE_TWISTER",
+                    Integer.parseInt(spec.getProperty("DESIGN_SEED", "1").trim()));
+            String [][] columns = new String[parameters.size()][nPoints];
+            for (int p = 0; p < parameters.size(); p++) {
+                String name = parameters.get(p);
+                int [] strata = new int[nPoints];
+                for (int i = 0; i < nPoints; i++) strata[i] = i;
+                for (int i = nPoints - 1; i > 0; i--) {
+                    int j = rand.nextInt(i + 1);
+                    int swap = strata[i];
+                    strata[i] = strata[j];
+                    strata[j] = swap;
+                }
+                for (int i = 0; i < nPoints; i++) {
+                    double position = (strata[i] + rand.nextDouble())/nPoints;
+                    if (values.containsKey(name)) {
+                        columns[p][i] = values.get(name)[(int)(position*values.get(name).length)];
+                    } else {
+                        double [] range = ranges.get(name);
+                        columns[p][i] = format(name, range[0] + position*(range[1] - range[0]));
+                    }
+                }
+            }
+            for (int i = 0; i < nPoints; i++) {
+                String [] point = new String[parameters.size()];
+                for (int p = 0; p < parameters.size(); p++) point[p] = columns[p][i];
+                points.add(point);
+            }
+        } else {
+            exit("Unrecognised design '" + design + "', it must be either GRID or LATIN_HYPERCUBE");
+        }
+    }
+
+    /**
+     * Run all jobs of the sweep not yet in the cache, and write the summary of all of them to the output folder
+     */
+    void run() {
+        long start = System.nanoTime();
+        // Build all jobs, taking the results of those already run from the cache
+        int baseSeed = new Config(configFileName, configOverrides).SEED;
+        ArrayList<Job> jobs = new ArrayList<>();
+        for (int point = 0; point < points.size(); point++) {
+            for (int seed = baseSeed; seed < baseSeed + nSeeds; seed++) {
+                Job job = new Job();
+                job.index = jobs.size();
+                job.point = point;
+                job.seed = seed;
+                StringBuilder overrides = new StringBuilder();
+                Properties properties = new Properties();
+                properties.putAll(configOverrides);
+                for (int p = 0; p < parameters.size(); p++) {
+                    overrides.append(encodeOverride(parameters.get(p), points.get(point)[p])).append(' ');
+                    properties.setProperty(parameters.get(p), points.get(point)[p]);
+                }
+                overrides.append(encodeOverride("SEED", String.valueOf(seed)));
+                properties.setProperty("SEED", String.valueOf(seed));
+                job.overrides = overrides.toString();
+                job.config = new Config(configFileName, properties);
+                job.key = cache.getKey(job.config, summarySteps);
+                job.summary = cache.read(job.key);
+                job.cached = (job.summary != null);
+                if (!job.cached) pending.add(job);
+                jobs.add(job);
+            }
+        }
+        nOutstanding = pending.size();
+        System.out.println("Sweep: " + points.size() + " points, " + jobs.size() + " jobs, "
+                + (jobs.size() - pending.size()) + " of them in the cache");
+        // Distribute all remaining jobs among workers
+        if (nOutstanding > 0) coordinate();
+        // Write the summary of all jobs, reporting those which failed
+        writeSummary(jobs);
+        int nFailed = 0;
+        for (Job job : jobs) if (job.summary == null) nFailed++;
+        if (nFailed > 0) {
+            System.out.println("Sweep: " + nFailed + " jobs failed, see the worker logs");
+        }
+        System.out.println("Computing time: " + (double)(System.nanoTime() - start)/1_000_000_000);
+    }
+
+    /**
+     * Listen for workers, launch the local ones and serve each of them from its own thread, until all jobs are either
+     * completed or given up on
+     */
+    private void coordinate() {
+        ArrayList<Process> processes = new ArrayList<>();
+        // Unless a host is given, listen on the loopback interface only, on any free port if none is given
+        try (ServerSocket serverSocket = new ServerSocket(Math.max(port, 0), 50,
+                (host != null) ? InetAddress.getByName(host) : InetAddress.getLoopbackAddress())) {
+            System.out.println("Sweep: coordinator listening on port " + serverSocket.getLocalPort()
+                    + ((port > 0) ? ", workers can join with -sweepWorker <host>:" + port : ""));
+            Thread acceptor = new Thread(() -> {
+                while (true) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        Thread thread = new Thread(() -> serveWorker(socket));
+                        thread.setDaemon(true);
+                        thread.start();
+                    } catch (IOException ioe) {
+                        return; // The server socket has been closed, as all jobs are done
+                    }
+                }
+            });
+            acceptor.setDaemon(true);
+            acceptor.start();
+            synchronized (this) { nLaunchableWorkers = Math.max(nWorkers, 0); }
+            for (int i = 1; i <= nWorkers; i++) {
+                final int workerId = i;
+                Thread launcher = new Thread(() -> launchLocalWorker(workerId, serverSocket.getLocalPort(),
+                        processes));
+                launcher.setDaemon(true);
+                launcher.start();
+            }
+            synchronized (this) {
+                while (nOutstanding > 0) wait();
+            }
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to listen for sweep workers");
+            ioe.printStackTrace();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        // Local workers stop by themselves once told so, otherwise (if unresponsive) they are killed
+        synchronized (processes) {
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(5, TimeUnit.SECONDS)) process.destroyForcibly();
+                } catch (InterruptedException ie) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+    }
+
+    /**
+     * Launch a local worker process, with the same Java runtime, class path and memory settings as this process, and
+     * launch it again whenever it stops while jobs remain to be done (up to the maximum number of retries), such that
+     * workers failing at start-up, or repeatedly stopped by a job, are eventually given up on
+     */
+    private void launchLocalWorker(int workerId, int coordinatorPort, ArrayList<Process> processes) {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-X") || argument.startsWith("-D")) command.add(argument);
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Model.class.getName());
+        command.add("-configFile");
+        command.add(configFileName);
+        command.add("-sweepWorker");
+        command.add("localhost:" + coordinatorPort);
+        for (String name : configOverrides.stringPropertyNames()) {
+            command.add(name + "=" + configOverrides.getProperty(name));
+        }
+        File logFile = new File(outputFolder + "Sweep-worker" + workerId + ".log");
+        try {
+            for (int launch = 0; launch <= maxRetries; launch++) {
+                Process process;
+                synchronized (processes) {
+                    if (isFinished()) return;
+                    ProcessBuilder builder = new ProcessBuilder(command).redirectErrorStream(true)
+                            .redirectOutput(ProcessBuilder.Redirect.appendTo(logFile));
+                    builder.environment().put(TOKEN_VARIABLE, token);
+                    process = builder.start();
+                    processes.add(process);
+                }
+                process.waitFor();
+            }
+            if (!isFinished()) System.out.println("Sweep: local worker " + workerId + " stopped " + (maxRetries + 1)
+                    + " times, not launching it again");
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to launch sweep worker " + workerId);
+            ioe.printStackTrace();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                nLaunchableWorkers--;
+                giveUpIfNoWorkers();
+            }
+        }
+    }
+
+    /**
+     * Pass jobs to a worker, one at a time, and collect their results until there are no more jobs to be done or the
+     * worker is lost, that is, its connection is closed, it stays silent (without heartbeats) for too long or it rejects
+     * a job. In the latter cases, the job it was running is retried by another worker
+     */
+    private void serveWorker(Socket socket) {
+        String name = socket.getRemoteSocketAddress().toString();
+        Job job = null;
+        boolean connected = false;
+        try (Socket s = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(),
+                     StandardCharsets.UTF_8));
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(s.getOutputStream(),
+                     StandardCharsets.UTF_8), true)) {
+            s.setSoTimeout(1000*heartbeatTimeout);
+            // Workers introduce themselves with the shared token and their name
+            String line = reader.readLine();
+            String [] hello = (line != null) ? line.split(" ", 3) : new String[0];
+            if (hello.length < 3 || !hello[0].equals("HELLO") || !MessageDigest.isEqual(
+                    hello[1].getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+                System.out.println("Sweep: rejected connection from " + name + " without the right token");
+                return;
+            }
+            name = hello[2];
+            synchronized (this) { nLiveWorkers++; }
+            connected = true;
+            writer.println("HEARTBEAT " + heartbeatInterval);
+            while ((job = takeJob()) != null) {
+                writer.println("JOB " + job.index + " " + summarySteps + " " + job.key + " " + job.overrides);
+                do {
+                    line = reader.readLine();
+                } while (line != null && line.equals("HEARTBEAT"));
+                if (line == null) throw new EOFException("connection closed");
+                double [] summary = parseResult(line, job);
+                if (summary == null) {
+                    System.out.println("Sweep: worker " + name + " could not run job " + job.index + ": " + line);
+                    break;
+                }
+                completeJob(job, summary);
+                System.out.println("Sweep: job " + job.index + " (point " + job.point + ", seed " + job.seed
+                        + ") done by worker " + name);
+                job = null;
+            }
+            if (job == null) writer.println("STOP");
+        } catch (IOException ioe) {
+            System.out.println("Sweep: lost worker " + name + " (" + ioe + ")");
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if (job != null) failJob(job);
+        if (connected) {
+            synchronized (this) {
+                nLiveWorkers--;
+                giveUpIfNoWorkers();
+            }
+        }
+    }
+
+    /**
+     * Parse a message from a worker as the results of a given job, which must be the job last passed to the worker,
+     * identified by both its index and its key, with the mean and standard deviation of each indicator
+     *
+     * @return Mean and standard deviation of each indicator, in Indicator order, or null if the message is not a valid
+     * result for the given job
+     */
+    private static double [] parseResult(String line, Job job) {
+        String [] tokens = line.split(" ");
+        double [] summary = new double[2*Indicator.values().length];
+        if (tokens.length != 3 + summary.length || !(tokens[0] + " ").equals(RESULT_PREFIX)
+                || !tokens[1].equals(String.valueOf(job.index)) || !tokens[2].equals(job.key)) {
+            return null;
+        }
+        try {
+            for (int i = 0; i < summary.length; i++) summary[i] = Double.parseDouble(tokens[3 + i]);
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+        return summary;
+    }
+
+    /**
+     * Wait until a job is pending, or all jobs are done
+     *
+     * @return Next job to be run, or null if all jobs are done
+     */
+    private synchronized Job takeJob() throws InterruptedException {
+        while (pending.isEmpty() && nOutstanding > 0) wait();
+        return pending.poll();
+    }
+
+    private void completeJob(Job job, double [] summary) {
+        cache.write(job.key, job.config, summary);
+        synchronized (this) {
+            job.summary = summary;
+            nOutstanding--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Put a job whose worker was lost back in the queue or, if it has already been retried too many times, give up on
+     * it, such that a job stopping any worker running it does not stop the whole sweep
+     */
+    private synchronized void failJob(Job job) {
+        job.attempts++;
+        if (job.attempts <= maxRetries) {
+            System.out.println("Sweep: job " + job.index + " will be retried (attempt " + (job.attempts + 1) + ")");
+            pending.add(job);
+        } else {
+            System.out.println("Sweep: job " + job.index + " failed " + job.attempts + " times, giving up on it");
+            nOutstanding--;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Give up on all remaining jobs if no worker is left to run them, that is, if no worker is connected, no local
+     * worker is running or can be launched again and no other worker can join, as no PORT was given
+     */
+    private synchronized void giveUpIfNoWorkers() {
+        if (nOutstanding == 0 || nLiveWorkers > 0 || nLaunchableWorkers > 0) return;
+        if (port > 0) {
+            System.out.println("Sweep: no workers left, waiting for workers to join at port " + port);
+            return;
+        }
+        System.out.println("Sweep: no workers left, giving up on the " + nOutstanding + " remaining jobs");
+        pending.clear();
+        nOutstanding = 0;
+        notifyAll();
+    }
+
+    private synchronized boolean isFinished() { return nOutstanding == 0; }
+
+    /**
+     * Write a line for each job, with its point, seed, parameter values and summary of each indicator (NaN for jobs
+     * which failed)
+     */
+    private void writeSummary(ArrayList<Job> jobs) {
+        try (PrintWriter writer = new PrintWriter(outputFolder + "Sweep-summary.csv", "UTF-8")) {
+            writer.print("point; seed; cached; failed");
+            for (String name : parameters) writer.print("; " + name);
+            for (Indicator indicator : Indicator.values()) writer.print("; " + indicator + " mean; " + indicator + " sd");
+            for (Job job : jobs) {
+                writer.print("\n" + job.point + "; " + job.seed + "; " + job.cached + "; " + (job.summary == null));
+                for (String value : points.get(job.point)) writer.print("; " + value);
+                for (int i = 0; i < 2*Indicator.values().length; i++) {
+                    writer.print("; " + ((job.summary != null) ? job.summary[i] : Double.NaN));
+                }
+            }
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to write the sweep summary");
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Connect to a sweep coordinator and run the jobs it passes, one at a time, sending back the summary of each of
+     * them, until told to stop or the connection is closed. While connected, a heartbeat is sent at the interval set by
+     * the coordinator. Before running a job, its key is checked against the one computed by the coordinator, such that
+     * workers with a different version of the code or different data files (say, on another node) reject all jobs.
+     * This is the main loop of worker processes
+     *
+     * @param configFileName Address of the base configuration file
+     * @param configOverrides Overrides of the base configuration, common to all jobs
+     * @param coordinator Address of the coordinator, as <host>:<port>
+     */
+    static void work(String configFileName, Properties configOverrides, String coordinator) {
+        SweepCache keys = new SweepCache(null);
+        String host = coordinator.substring(0, coordinator.lastIndexOf(':'));
+        int port = Integer.parseInt(coordinator.substring(coordinator.lastIndexOf(':') + 1));
+        try (Socket socket = new Socket(host, port);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                     StandardCharsets.UTF_8));
+             PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                     StandardCharsets.UTF_8), true)) {
+            String token = System.getenv(TOKEN_VARIABLE);
+            writer.println("HELLO " + ((token != null) ? token.trim() : "") + " "
+                    + ManagementFactory.getRuntimeMXBean().getName());
+            String line = reader.readLine();
+            if (line == null || !line.startsWith("HEARTBEAT ")) return;
+            long heartbeatInterval = 1000*Long.parseLong(line.substring("HEARTBEAT ".length()).trim());
+            Thread heartbeat = new Thread(() -> {
+                while (!writer.checkError()) {
+                    try {
+                        Thread.sleep(heartbeatInterval);
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    synchronized (writer) { writer.println("HEARTBEAT"); }
+                }
+            });
+            heartbeat.setDaemon(true);
+            heartbeat.start();
+            Config firstConfig = null; // Configuration of the first job, whose data files are loaded by this worker
+            while ((line = reader.readLine()) != null && line.startsWith("JOB ")) {
+                // Each job holds its index, the number of time steps to summarise, its key and its (encoded) overrides
+                String [] tokens = line.split(" ");
+                Properties overrides = new Properties();
+                overrides.putAll(configOverrides);
+                StringBuilder description = new StringBuilder("Job " + tokens[1] + ":");
+                for (int i = 4; i < tokens.length; i++) {
+                    int separator = tokens[i].indexOf('=');
+                    String name = URLDecoder.decode(tokens[i].substring(0, separator), "UTF-8");
+                    String value = URLDecoder.decode(tokens[i].substring(separator + 1), "UTF-8");
+                    overrides.setProperty(name, value);
+                    description.append(' ').append(name).append('=').append(value);
+                }
+                System.out.println(description);
+                Config config = new Config(configFileName, overrides);
+                int summarySteps = Integer.parseInt(tokens[2]);
+                String reply;
+                if (firstConfig == null) firstConfig = config;
+                if (!keys.getKey(config, summarySteps).equals(tokens[3])) {
+                    reply = "ERROR configuration, data files or code version differ from those of the coordinator";
+                    System.out.println(reply);
+                } else if (!config.hasSameDataFiles(firstConfig)) {
+                    reply = "ERROR data files differ from those already loaded by this worker for its first job";
+                    System.out.println(reply);
+                } else {
+                    IndicatorSeries series = new IndicatorSeries();
+                    Simulation.run(config, series);
+                    StringBuilder builder = new StringBuilder(RESULT_PREFIX).append(tokens[1]).append(' ')
+                            .append(tokens[3]);
+                    for (double value : summarise(series, summarySteps)) builder.append(' ').append(value);
+                    reply = builder.toString();
+                }
+                synchronized (writer) { writer.println(reply); }
+            }
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while communicating with sweep coordinator " + coordinator);
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Encode a parameter override as a single token of a job message, such that values with white space (or any other
+     * character) are passed unchanged to workers
+     */
+    private static String encodeOverride(String name, String value) {
+        try {
+            return URLEncoder.encode(name, "UTF-8") + "=" + URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new IllegalStateException(uee); // Never thrown, as UTF-8 is always supported
+        }
+    }
+
+    /**
+     * Summarise each indicator by its mean and (population) standard deviation over a number of final time steps
+     *
+     * @return Mean and standard deviation of each indicator, in Indicator order
+     */
+    private static double [] summarise(IndicatorSeries series, int summarySteps) {
+        double [] summary = new double[2*Indicator.values().length];
+        for (Indicator indicator : Indicator.values()) {
+            double [] values = series.get(indicator);
+            int first = Math.max(0, values.length - summarySteps);
+            double sum = 0.0;
+            for (int t = first; t < values.length; t++) sum += values[t];
+            double mean = sum/(values.length - first);
+            double sumOfSquares = 0.0;
+            for (int t = first; t < values.length; t++) sumOfSquares += (values[t] - mean)*(values[t] - mean);
+            summary[2*indicator.ordinal()] = mean;
+            summary[2*indicator.ordinal() + 1] = Math.sqrt(sumOfSquares/(values.length - first));
+        }
+        return summary;
+    }
+
+    /**
+     * Check that a parameter exists in the configuration, that it does not name a data file and, if it is to be given
+     * by a range, that it is numerical
+     */
+    private static void checkParameter(String name, boolean isRange) {
+        if (name.startsWith("DATA_") || name.equals("CALIBRATION_CACHE_FILE")) {
+            exit("Parameter " + name + " cannot be swept, as each worker loads the calibration data from the data "
+                    + "files only once, for its first job");
+        }
+        try {
+            Class<?> type = Config.class.getDeclaredField(name).getType();
+            if (isRange && type != int.class && type != double.class) {
+                exit("Parameter " + name + " is not numerical, so it must be given by a list of values");
+            }
+        } catch (NoSuchFieldException nsfe) {
+            exit("Parameter " + name + " in the sweep definition does not exist");
+        }
+    }
+
+    /**
+     * Write a value drawn from a range in the canonical form of the corresponding parameter, rounding integers
+     */
+    private static String format(String name, double value) {
+        try {
+            if (Config.class.getDeclaredField(name).getType() == int.class) return String.valueOf(Math.round(value));
+        } catch (NoSuchFieldException nsfe) {
+            exit("Parameter " + name + " in the sweep definition does not exist");
+        }
+        return String.valueOf(value);
+    }
+
+    private static void exit(String message) {
+        System.out.println(message);
+        System.exit(0);
+    }
+}
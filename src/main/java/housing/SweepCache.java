@@ -0,0 +1,228 @@
+package housing;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import collectors.Indicator;
+
+/**************************************************************************************************
+ * Class to store the summary results of sweep jobs (see Sweep) in a local, content-addressed
+ * cache, such that jobs already run by any previous sweep are not run again. Each job is
+ * identified by a SHA-256 key computed from its normalised configuration, the number of time steps
+ * summarised and the version of the code, and its results are stored in a file named after this
+ * key. The normalised configuration lists the values of all parameters, sorted by name and written
+ * in a canonical form, such that configurations differing only in the way values are written (say,
+ * 0.5 and 0.50) share their key. Data files are represented by a hash of their contents rather
+ * than by their addresses, while parameters which only affect which files are written or how many
+ * simulations are run (recording options, summary quantiles, N_SIMS, convergence options and
+ * CALIBRATION_CACHE_FILE) are left out. The version of the code is a hash of all compiled classes
+ * of the model (or of the whole jar file, if run from one).
+ *
+ *************************************************************************************************/
+class SweepCache {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private String                      folder;
+    private String                      codeVersion;
+    private HashMap<String, String>     dataFileHashes = new HashMap<>(); // Hash of each data file read so far
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param folder Folder in which results are stored, created if it does not exist, or null if the cache is only to
+     *               be used to compute keys (as by workers)
+     */
+    SweepCache(String folder) {
+        if (folder != null) {
+            this.folder = folder.endsWith("/") ? folder : folder + "/";
+            new File(this.folder).mkdirs();
+        }
+        codeVersion = computeCodeVersion();
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Compute the key identifying a job
+     *
+     * @param config Full configuration of the job, including its seed
+     * @param summarySteps Number of final time steps summarised
+     */
+    String getKey(Config config, int summarySteps) {
+        return toHex(sha256((getNormalisedConfig(config) + "SUMMARY_STEPS = " + summarySteps + "\n"
+                + "CODE_VERSION = " + codeVersion + "\n").getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Read the results of a job from the cache
+     *
+     * @return Summary of each indicator (mean and standard deviation, in Indicator order), or null if not in the cache
+     */
+    double [] read(String key) {
+        File file = new File(folder + key + ".properties");
+        if (!file.exists()) return null;
+        Properties properties = new Properties();
+        try (FileReader reader = new FileReader(file)) {
+            properties.load(reader);
+            double [] summary = new double[2*Indicator.values().length];
+            for (Indicator indicator : Indicator.values()) {
+                summary[2*indicator.ordinal()] = Double.parseDouble(properties.getProperty(indicator + ".mean"));
+                summary[2*indicator.ordinal() + 1] = Double.parseDouble(properties.getProperty(indicator + ".sd"));
+            }
+            return summary;
+        } catch (IOException | NullPointerException | NumberFormatException e) {
+            System.out.println("Exception " + e + " while trying to read sweep cache file '" + file
+                    + "', the job will be run again");
+            return null;
+        }
+    }
+
+    /**
+     * Write the results of a job to the cache, by means of a temporary file and an atomic move, such that simultaneous
+     * sweeps sharing the same cache never read a partially written file
+     *
+     * @param key Key identifying the job
+     * @param config Full configuration of the job, written (in normalised form) as a comment for reference
+     * @param summary Summary of each indicator (mean and standard deviation, in Indicator order)
+     */
+    synchronized void write(String key, Config config, double [] summary) {
+        Path target = Paths.get(folder + key + ".properties");
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(target.getParent(), key, ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (String line : getNormalisedConfig(config).split("\n")) writer.write("# " + line + "\n");
+                for (Indicator indicator : Indicator.values()) {
+                    writer.write(indicator + ".mean = " + summary[2*indicator.ordinal()] + "\n");
+                    writer.write(indicator + ".sd = " + summary[2*indicator.ordinal() + 1] + "\n");
+                }
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException amnse) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to write sweep cache file '" + target + "'");
+            ioe.printStackTrace();
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nothing else to be done, the temporary file is simply left behind
+            }
+        }
+    }
+
+    /**
+     * Write the values of all parameters affecting results, one per line and sorted by name, in a canonical form
+     */
+    private String getNormalisedConfig(Config config) {
+        Field [] fields = config.getClass().getDeclaredFields();
+        Arrays.sort(fields, Comparator.comparing(Field::getName));
+        StringBuilder builder = new StringBuilder();
+        for (Field field : fields) {
+            String name = field.getName();
+            Class<?> type = field.getType();
+            if (Modifier.isStatic(field.getModifiers()) || name.startsWith("record") || name.equals("N_SIMS")
+                    || name.equals("MIN_N_SIMS") || name.startsWith("CONVERGENCE_")
+                    || name.equals("MULTI_RUN_SUMMARY_QUANTILES")
+                    || name.equals("CALIBRATION_CACHE_FILE")
+                    || !(type.isPrimitive() || type == String.class)) {
+                continue;
+            }
+            try {
+                field.setAccessible(true);
+                Object value = field.get(config);
+                if (name.startsWith("DATA_")) value = getDataFileHash((String)value);
+                builder.append(name).append(" = ").append(value).append("\n");
+            } catch (IllegalAccessException iae) {
+                System.out.println("Exception " + iae + " while trying to read the field " + name);
+                iae.printStackTrace();
+                System.exit(0);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Compute (only once per sweep) the hash of the contents of a data file
+     */
+    private String getDataFileHash(String fileName) {
+        return dataFileHashes.computeIfAbsent(fileName, f -> {
+            try {
+                return "sha256:" + toHex(sha256(Files.readAllBytes(Paths.get(f))));
+            } catch (IOException ioe) {
+                System.out.println("Exception " + ioe + " while trying to read file '" + f + "'");
+                ioe.printStackTrace();
+                System.exit(0);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Compute a hash of all compiled classes of the model, or of the whole jar file if the model is run from one
+     */
+    private static String computeCodeVersion() {
+        try {
+            Path location = Paths.get(Model.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (!Files.isDirectory(location)) return toHex(sha256(Files.readAllBytes(location)));
+            List<Path> classFiles;
+            try (Stream<Path> paths = Files.walk(location)) {
+                classFiles = paths.filter(p -> p.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Path classFile : classFiles) {
+                digest.update(location.relativize(classFile).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(sha256(Files.readAllBytes(classFile)));
+            }
+            return toHex(digest.digest());
+        } catch (IOException | URISyntaxException | NoSuchAlgorithmException e) {
+            System.out.println("Exception " + e + " while trying to compute the code version");
+            e.printStackTrace();
+            System.exit(0);
+            return null;
+        }
+    }
+
+    private static byte [] sha256(byte [] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    private static String toHex(byte [] bytes) {
+        StringBuilder builder = new StringBuilder();
+        for (byte b : bytes) builder.append(String.format("%02x", b));
+        return builder.toString();
+    }
+}
@@ -0,0 +1,224 @@
+package housing;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.TreeSet;
+
+/**************************************************************************************************
+ * Class to implement a warm start, in which the burn-in period of the simulation runs with a
+ * population reduced by a given factor, and the population is then replicated this number of times
+ * in order to reach the target population for the rest of the simulation. Each replica is a deep
+ * copy of the whole population of households, with their houses, mortgages, tenancies and offers,
+ * together with the unsold new-build houses that the construction sector has on the sale market,
+ * obtained by deserialising a serialised image of them. References to the objects shared
+ * by all agents (the configuration, the random number generator, the bank and its mortgage book, the
+ * markets, the collectors...) are replaced by placeholders when serialising and resolved back to the
+ * very same objects when deserialising, such that replicas only copy the agents themselves.
+ *
+ * Replicas are then given fresh ids, in the same order as the originals, such that the ordering of
+ * houses within holdings and of records within the offer books is preserved. Their mortgages are
+ * added to the bank's mortgage book, their offers to the offer books and the ends of their
+ * tenancies to the rental market calendar, while all rolling counters of the bank and the
+ * collectors are multiplied by the replication factor. Note that all agents share the Model's
+ * random number generator (or, with common random numbers, replicas are given their own fresh
+ * substreams), such that replicas, initially identical to their originals, diverge as soon as they
+ * make any random draw. To avoid replicas selling their homes in lockstep with their originals,
+ * their pre-drawn (memoryless) waiting times for selling are re-drawn.
+ *
+ *************************************************************************************************/
+class WarmStart {
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Replicate the current population of households, together with all their houses, payment agreements and offers,
+     * such that the population is multiplied by a given factor
+     *
+     * @param factor Number of copies of each household (including the original) after replication
+     */
+    static void replicate(int factor) {
+        ArrayList<Object> sharedObjects = getSharedObjects();
+        byte [] image;
+        try {
+            image = serialise(new Population(new ArrayList<>(Model.households),
+                    new ArrayList<>(Model.construction.getHousesOnMarket())), sharedObjects);
+        } catch (IOException ioe) {
+            System.out.println("Exception " + ioe + " while trying to replicate the population at time "
+                    + Model.getTime());
+            ioe.printStackTrace();
+            System.exit(0);
+            return;
+        }
+        for (int i = 1; i < factor; i++) {
+            try {
+                install(deserialise(image, sharedObjects));
+            } catch (IOException | ClassNotFoundException e) {
+                System.out.println("Exception " + e + " while trying to replicate the population at time "
+                        + Model.getTime());
+                e.printStackTrace();
+                System.exit(0);
+            }
+        }
+        Model.bank.scaleCounters(factor);
+        Model.creditSupply.scaleCounts(factor);
+        Model.housingMarketStats.scaleCounts(factor);
+        Model.rentalMarketStats.scaleCounts(factor);
+    }
+
+    /**
+     * Add a replica of the population to the Model, giving fresh ids to all its households, houses and offer records,
+     * and registering all its mortgages, offers and tenancies with the bank and the markets
+     *
+     * @param replica Replica households, in the same order as the original ones, and replica new-build houses on sale
+     */
+    private static void install(Population replica) {
+        ArrayList<Household> replicas = replica.households;
+        // Collect all houses owned, rented or with any outstanding debt by the replicas, as well as the new-build houses
+        // on sale, in order of their original ids
+        TreeSet<House> houses = new TreeSet<>(replica.newBuildOnMarket);
+        for (Household h : replicas) {
+            PropertyHoldings holdings = h.getHoldings();
+            for (int i = 0; i < holdings.size(); i++) houses.add(holdings.getHouse(i));
+        }
+        // Give fresh ids to all replica households and houses, preserving their relative order
+        for (Household h : replicas) h.assignNewId();
+        // With common random numbers, replicas would otherwise repeat the draws of their originals
+        if (Model.config.COMMON_RANDOM_NUMBERS) {
+            for (Household h : replicas) h.setPrng(Model.getSubstream("household" + h.id));
+        }
+        for (House house : houses) house.assignNewId();
+        // Add replica mortgages to the mortgage book, schedule the end of replica tenancies and the decisions of replica
+        // owner-occupiers to sell their homes
+        for (Household h : replicas) {
+            PropertyHoldings holdings = h.getHoldings();
+            for (int i = 0; i < holdings.size(); i++) {
+                PaymentAgreement payment = holdings.getPayment(i);
+                if (payment instanceof MortgageAgreement) {
+                    MortgageAgreement mortgage = (MortgageAgreement)payment;
+                    if (mortgage.detachReplicaFromBook()) Model.bank.addReplicaMortgage(mortgage, h);
+                } else if (payment instanceof RentalAgreement && ((RentalAgreement)payment).tenant == h) {
+                    Model.houseRentalMarket.scheduleTenancyEnd((RentalAgreement)payment);
+                }
+            }
+            h.restartHomeSaleDecisions();
+        }
+        // Give fresh ids to all replica offer records before adding them to the offer books
+        for (House house : houses) {
+            if (house.saleRecord != null) {
+                house.saleRecord.assignNewId();
+                Model.houseSaleMarket.addReplicaOffer(house.saleRecord);
+            }
+            if (house.rentalRecord != null) {
+                house.rentalRecord.assignNewId();
+                Model.houseRentalMarket.addReplicaOffer(house.rentalRecord);
+            }
+        }
+        // Finally, add replicas to the population, the new-build houses on sale to those of the construction sector, and
+        // all replica houses to the housing stock
+        for (House house : replica.newBuildOnMarket) Model.construction.addReplicaOnMarket(house);
+        for (Household h : replicas) {
+            Model.households.add(h);
+            Model.householdStats.flagForUpdate(h);
+        }
+        Model.construction.addToHousingStock(houses.size());
+    }
+
+    /**
+     * Collect all objects shared by the agents which are not to be copied with them
+     */
+    private static ArrayList<Object> getSharedObjects() {
+        ArrayList<Object> sharedObjects = new ArrayList<>();
+        sharedObjects.add(Model.config);
+        sharedObjects.add(Model.prng);
+        sharedObjects.add(Model.government);
+        sharedObjects.add(Model.demographics);
+        sharedObjects.add(Model.construction);
+        sharedObjects.add(Model.centralBank);
+        sharedObjects.add(Model.bank);
+        sharedObjects.add(Model.bank.getMortgageBook());
+        sharedObjects.add(Model.houseSaleMarket);
+        sharedObjects.add(Model.houseRentalMarket);
+        sharedObjects.add(Model.creditSupply);
+        sharedObjects.add(Model.coreIndicators);
+        sharedObjects.add(Model.householdStats);
+        sharedObjects.add(Model.housingMarketStats);
+        sharedObjects.add(Model.rentalMarketStats);
+        return sharedObjects;
+    }
+
+    /**
+     * Serialise a population into a byte array, replacing all shared objects by placeholders
+     */
+    private static byte [] serialise(Population population, ArrayList<Object> sharedObjects)
+            throws IOException {
+        IdentityHashMap<Object, SharedObjectPlaceholder> placeholders = new IdentityHashMap<>();
+        for (int i = 0; i < sharedObjects.size(); i++) {
+            placeholders.put(sharedObjects.get(i), new SharedObjectPlaceholder(i));
+        }
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream(1 << 16);
+        ObjectOutputStream objectStream = new ObjectOutputStream(byteStream) {
+            {
+                enableReplaceObject(true);
+            }
+            @Override
+            protected Object replaceObject(Object obj) {
+                SharedObjectPlaceholder placeholder = placeholders.get(obj);
+                return (placeholder != null) ? placeholder : obj;
+            }
+        };
+        objectStream.writeObject(population);
+        objectStream.flush();
+        return byteStream.toByteArray();
+    }
+
+    /**
+     * Deserialise a population from a byte array, resolving all placeholders to the corresponding shared objects
+     */
+    private static Population deserialise(byte [] image, ArrayList<Object> sharedObjects)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream objectStream = new ObjectInputStream(new ByteArrayInputStream(image)) {
+            {
+                enableResolveObject(true);
+            }
+            @Override
+            protected Object resolveObject(Object obj) {
+                return (obj instanceof SharedObjectPlaceholder) ?
+                        sharedObjects.get(((SharedObjectPlaceholder)obj).index) : obj;
+            }
+        };
+        return (Population)objectStream.readObject();
+    }
+
+    /**
+     * Households and unsold new-build houses to be replicated together, such that references between them are copied
+     */
+    private static class Population implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final ArrayList<Household> households;
+        private final ArrayList<House> newBuildOnMarket;
+
+        Population(ArrayList<Household> households, ArrayList<House> newBuildOnMarket) {
+            this.households = households;
+            this.newBuildOnMarket = newBuildOnMarket;
+        }
+    }
+
+    /**
+     * Placeholder written instead of an object shared by all agents, identified by its position in the list of shared
+     * objects
+     */
+    private static class SharedObjectPlaceholder implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int index;
+
+        SharedObjectPlaceholder(int index) { this.index = index; }
+    }
+}
@@ -15,6 +15,8 @@ public class BinnedData<D> extends ArrayList<D> {
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private double firstBinMin;     // Minimum edge of the first bin
     private double binWidth;        // Bin width
 
@@ -15,6 +15,8 @@ import org.apache.commons.csv.CSVRecord;
  */
 public class BinnedDataDouble extends BinnedData<Double> {
 
+    private static final long serialVersionUID = 1L;
+
     //------------------------//
     //----- Constructors -----//
     //------------------------//
@@ -0,0 +1,107 @@
+package utilities;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**************************************************************************************************
+ * Class that implements a calendar queue (or timing wheel) of events scheduled for given (integer)
+ * time steps. Events are stored in a circular array of buckets, each bucket holding all events
+ * scheduled for time steps congruent modulo the size of the array, such that scheduling an event
+ * and collecting the events due at a given time step take a time proportional to the number of
+ * events involved, independently of the total number of events in the calendar. Events scheduled
+ * further in the future than the size of the array are kept in their bucket until they are due.
+ *
+ * Note that events cannot be cancelled. Instead, events which may have become obsolete by the time
+ * they are due should be checked for validity when collected.
+ *
+ *************************************************************************************************/
+public class EventCalendar<E> implements Serializable {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private ArrayList<ArrayList<Event<E>>>  buckets;
+    private int                             mask; // Number of buckets minus one (number of buckets is a power of 2)
+    private int                             size; // Number of events currently scheduled
+
+    /**
+     * Class to store an event together with the time step at which it is due
+     */
+    private static class Event<E> implements Serializable {
+        private static final long serialVersionUID = 1L;
+        int time;
+        E   item;
+
+        Event(int time, E item) {
+            this.time = time;
+            this.item = item;
+        }
+    }
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    /**
+     * @param horizon Maximum number of time steps in advance events are expected to be scheduled for (used to choose
+     *                the number of buckets, events can still be scheduled further in the future)
+     */
+    public EventCalendar(int horizon) {
+        int nBuckets = Integer.highestOneBit(Math.max(horizon, 1) - 1) << 1;
+        if (nBuckets == 0) nBuckets = 1;
+        mask = nBuckets - 1;
+        buckets = new ArrayList<>(nBuckets);
+        for (int i = 0; i < nBuckets; i++) buckets.add(new ArrayList<>());
+    }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Schedule an event for a given time step
+     *
+     * @param time Time step at which the event is due
+     * @param item The event
+     */
+    public void schedule(int time, E item) {
+        buckets.get(time & mask).add(new Event<>(time, item));
+        size++;
+    }
+
+    /**
+     * Remove from the calendar all events due at a given time step, adding them to a list in the order in which they
+     * were scheduled. Note that the calendar must be polled at every time step, as events due at earlier time steps
+     * are only collected if they happen to share the same bucket
+     *
+     * @param time Current time step
+     * @param dueEvents List to which due events are added
+     */
+    public void collectDueEvents(int time, List<E> dueEvents) {
+        ArrayList<Event<E>> bucket = buckets.get(time & mask);
+        int nKept = 0;
+        for (Event<E> event : bucket) {
+            if (event.time <= time) {
+                dueEvents.add(event.item);
+            } else {
+                bucket.set(nKept++, event);
+            }
+        }
+        size -= bucket.size() - nKept;
+        bucket.subList(nKept, bucket.size()).clear();
+    }
+
+    /**
+     * Remove all events from the calendar
+     */
+    public void clear() {
+        for (ArrayList<Event<E>> bucket : buckets) bucket.clear();
+        size = 0;
+    }
+
+    public int size() { return size; }
+}
@@ -0,0 +1,129 @@
+package utilities;
+
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+
+/**************************************************************************************************
+ * Base class for random number generators producing 64 random bits at a time, implementing all
+ * other methods in terms of nextLong(). Doubles are built from the 53 high bits of each long, such
+ * that a single call to the underlying generator is needed per double, and seeds of any type are
+ * expanded into a full initial state by means of the SplitMix64 mixing function.
+ *
+ *************************************************************************************************/
+public abstract class LongRandomSource implements RandomSource {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    static final long       GOLDEN_GAMMA = 0x9e3779b97f4a7c15L; // Odd integer closest to 2^64 divided by golden ratio
+    static final double     DOUBLE_UNIT = 0x1.0p-53; // Spacing between consecutive doubles in [0.5, 1)
+
+    private double          nextGaussian; // Second Gaussian value generated by the last polar method draw
+    private boolean         hasNextGaussian; // True if nextGaussian has not been returned yet
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Reset the state of the generator from a 64-bit seed
+     */
+    abstract void seedState(long seed);
+
+    @Override
+    public abstract long nextLong();
+
+    @Override
+    public void setSeed(long seed) {
+        seedState(seed);
+        hasNextGaussian = false;
+    }
+
+    @Override
+    public void setSeed(int seed) { setSeed((long)seed); }
+
+    @Override
+    public void setSeed(int [] seed) {
+        long combined = 0L;
+        for (int value : seed) {
+            combined = mix64(combined + GOLDEN_GAMMA + (value & 0xffffffffL));
+        }
+        setSeed(combined);
+    }
+
+    @Override
+    public double nextDouble() { return (nextLong() >>> 11)*DOUBLE_UNIT; }
+
+    @Override
+    public float nextFloat() { return (nextLong() >>> 40)*0x1.0p-24f; }
+
+    @Override
+    public int nextInt() { return (int)(nextLong() >>> 32); }
+
+    /**
+     * Draw a uniformly distributed integer in [0, n) by multiplying 32 random bits by n and keeping the high bits,
+     * rejecting the few draws that would introduce any bias (Lemire's method)
+     */
+    @Override
+    public int nextInt(int n) {
+        if (n <= 0) throw new NotStrictlyPositiveException(n);
+        long m = (nextLong() >>> 32)*n;
+        long low = m & 0xffffffffL;
+        if (low < n) {
+            long threshold = (0x100000000L - n) % n;
+            while (low < threshold) {
+                m = (nextLong() >>> 32)*n;
+                low = m & 0xffffffffL;
+            }
+        }
+        return (int)(m >>> 32);
+    }
+
+    @Override
+    public boolean nextBoolean() { return nextLong() < 0L; }
+
+    @Override
+    public void nextBytes(byte [] bytes) {
+        int i = 0;
+        while (i < bytes.length) {
+            long bits = nextLong();
+            for (int n = Math.min(bytes.length - i, 8); n > 0; n--) {
+                bytes[i++] = (byte)bits;
+                bits >>>= 8;
+            }
+        }
+    }
+
+    /**
+     * Draw a standard normal value with the Marsaglia polar method, which generates values in pairs
+     */
+    @Override
+    public double nextGaussian() {
+        if (hasNextGaussian) {
+            hasNextGaussian = false;
+            return nextGaussian;
+        }
+        double x, y, s;
+        do {
+            x = 2.0*nextDouble() - 1.0;
+            y = 2.0*nextDouble() - 1.0;
+            s = x*x + y*y;
+        } while (s >= 1.0 || s == 0.0);
+        double factor = Math.sqrt(-2.0*Math.log(s)/s);
+        nextGaussian = y*factor;
+        hasNextGaussian = true;
+        return x*factor;
+    }
+
+    /**
+     * SplitMix64 mixing function (variant 13 of Stafford's mixers), mapping consecutive integers to well scrambled
+     * 64-bit values
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30))*0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27))*0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,30 @@
+package utilities;
+
+import org.apache.commons.math3.random.MersenneTwister;
+
+/**************************************************************************************************
+ * Mersenne Twister random number generator, as implemented by commons-math, producing exactly the
+ * same stream as the generator used by previous versions of the model for the same seed.
+ *
+ *************************************************************************************************/
+public class MersenneTwisterSource extends MersenneTwister implements RandomSource {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    public MersenneTwisterSource(int seed) { super(seed); }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    @Override
+    public Algorithm getAlgorithm() { return Algorithm.MERSENNE_TWISTER; }
+}
@@ -1,7 +1,5 @@
 package utilities;
 
-import org.apache.commons.math3.random.MersenneTwister;
-
 /****
  * Represents an arbitrarily shaped, 1-dimensional Probability Density Function.
  * Supply a DoubleUnaryOperator class that returns the probability density for
@@ -31,6 +29,20 @@ public class Pdf {
 
     public Pdf(final BinnedDataDouble data, int NSamples) { setPdf(data, NSamples); }
 
+    /**
+     * Build the pdf from binned data and an already computed inverse CDF, such as one read from a cache, thus skipping
+     * the integration of the pdf
+     *
+     * @param data binned data the inverse CDF was computed from
+     * @param inverseCDF equi-spaced points on the inverse CDF including 0 and 1
+     */
+    public Pdf(final BinnedDataDouble data, double [] inverseCDF) {
+        setPdfFunction(data);
+        nSamples = inverseCDF.length;
+        dx = (end-start)/INTEGRATION_STEPS;
+        this.inverseCDF = inverseCDF;
+    }
+
     /**
      * @param ipdf functional class whose apply function returns the probability density at that point
      * (should be defined on the interval [istart,iend) )
@@ -56,25 +68,25 @@ public class Pdf {
     }
 
     public void setPdf(final BinnedDataDouble data) {
-        pdf = new DoubleUnaryOperator() {
-            public double applyAsDouble(double operand) {
-                return data.getBinAt(operand)/data.getBinWidth();
-            }};
-        start = data.getSupportLowerBound();
-        end = data.getSupportUpperBound();
+        setPdfFunction(data);
         nSamples = DEFAULT_CDF_SAMPLES;
         initInverseCDF();
     }
 
     public void setPdf(final BinnedDataDouble data, int NSamples) {
+        setPdfFunction(data);
+        nSamples = NSamples;
+        initInverseCDF();
+    }
+
+    private void setPdfFunction(final BinnedDataDouble data) {
+        binnedData = data;
         pdf = new DoubleUnaryOperator() {
             public double applyAsDouble(double operand) {
                 return data.getBinAt(operand)/data.getBinWidth();
             }};
         start = data.getSupportLowerBound();
         end = data.getSupportUpperBound();
-        nSamples = NSamples;
-        initInverseCDF();
     }
 
     public double getSupportLowerBound() { return start; }
@@ -108,7 +120,6 @@ public class Pdf {
         double cp;          // cumulative proability
         double targetcp;    // target cumulative probability
         double x;           // x in P(x)
-        int INTEGRATION_STEPS = 2048;
         double dcp_dx;
         int i;
 
@@ -136,11 +147,21 @@ public class Pdf {
         }
     }
 
+    /**
+     * @return Binned data the pdf was built from, null if it was built from a function
+     */
+    public BinnedDataDouble getBinnedData() { return binnedData; }
+
+    /**
+     * @return Equi-spaced points on the inverse CDF including 0 and 1
+     */
+    public double [] getInverseCDF() { return inverseCDF; }
+
     /***
      * Sample from the PDF
      * @return A random sample from the PDF
      */
-    public double nextDouble(MersenneTwister rand) {
+    public double nextDouble(RandomSource rand) {
         return(inverseCumulativeProbability(rand.nextDouble()));
 //      double uniform = rand.nextDouble(); // uniform random sample on [0:1)
 //      int i = (int)(uniform*(nSamples-1));
@@ -149,10 +170,12 @@ public class Pdf {
     }
 
     DoubleUnaryOperator     pdf;        // function that gives the pdf
+    BinnedDataDouble        binnedData; // binned data the pdf was built from, null if built from a function
     public double           start;      // lowest value of x that has a non-zero probability
     public double           end;        // highest value of x that has a non-zero probability
     double []               inverseCDF; // pre-computed equi-spaced points on the inverse CDF including 0 and 1
     double                  dx;         // dx between samples
     int                     nSamples;   // number of sample points on the CDF
-    static final int        DEFAULT_CDF_SAMPLES = 100;
+    public static final int DEFAULT_CDF_SAMPLES = 100;
+    public static final int INTEGRATION_STEPS = 2048;
 }
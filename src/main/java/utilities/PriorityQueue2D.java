@@ -1,5 +1,6 @@
 package utilities;
 
+import java.io.Serializable;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.TreeSet;
@@ -19,12 +20,14 @@ import java.util.TreeSet;
  * @author daniel, Adrian Carro
  *
  *************************************************************************************************/
-public class PriorityQueue2D<E> implements Iterable<E> {
+public class PriorityQueue2D<E> implements Iterable<E>, Serializable {
 
     //------------------//
     //----- Fields -----//
     //------------------//
 
+    private static final long serialVersionUID = 1L;
+
     private TreeSet<E>          xySortedElements; // X-sorted set of elements with reverse Y-sorting for equal X
     private TreeSet<E>          uncoveredElements; // X-sorted set of uncovered elements
     private XYComparator<E>     comparator;
@@ -66,7 +69,8 @@ public class PriorityQueue2D<E> implements Iterable<E> {
      * Class to encapsulate the XYCompare method at XYComparator such that it can be passed as an argument to the
      * TreeSet constructor
      */
-    public class XYComparatorClass implements Comparator<E> {
+    public class XYComparatorClass implements Comparator<E>, Serializable {
+        private static final long serialVersionUID = 1L;
         public int compare(E arg0, E arg1) { return comparator.XYCompare(arg0, arg1); }
     }
 
@@ -74,7 +78,8 @@ public class PriorityQueue2D<E> implements Iterable<E> {
      * Class to encapsulate the XCompare method at XYComparator such that it can be passed as an argument to the
      * TreeSet constructor
      */
-    public class XComparatorClass implements Comparator<E> {
+    public class XComparatorClass implements Comparator<E>, Serializable {
+        private static final long serialVersionUID = 1L;
         public int compare(E arg0, E arg1) { return comparator.XCompare(arg0, arg1); }
     }
 
@@ -0,0 +1,41 @@
+package utilities;
+
+/**************************************************************************************************
+ * SplitMix64 random number generator, by Steele, Lea and Flood, which simply adds an odd constant
+ * (gamma) to a 64-bit counter and scrambles the result. Being the fastest of the available
+ * generators, but with a period of only 2^64, it is best suited to short runs.
+ *
+ *************************************************************************************************/
+public class SplitMix64Source extends LongRandomSource {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private long    state;
+    private long    gamma; // Odd increment added to the state at each step
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    public SplitMix64Source(long seed) { setSeed(seed); }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    @Override
+    void seedState(long seed) {
+        state = seed;
+        gamma = GOLDEN_GAMMA;
+    }
+
+    @Override
+    public long nextLong() { return mix64(state += gamma); }
+
+    @Override
+    public Algorithm getAlgorithm() { return Algorithm.SPLITMIX64; }
+}
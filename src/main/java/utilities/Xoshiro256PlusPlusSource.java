@@ -0,0 +1,58 @@
+package utilities;
+
+/**************************************************************************************************
+ * Xoshiro256++ random number generator, by Blackman and Vigna, with a period of 2^256 - 1 and a
+ * state of four longs.
+ *
+ *************************************************************************************************/
+public class Xoshiro256PlusPlusSource extends LongRandomSource {
+
+    //------------------//
+    //----- Fields -----//
+    //------------------//
+
+    private static final long serialVersionUID = 1L;
+
+    private long    s0;
+    private long    s1;
+    private long    s2;
+    private long    s3;
+
+    //------------------------//
+    //----- Constructors -----//
+    //------------------------//
+
+    public Xoshiro256PlusPlusSource(long seed) { setSeed(seed); }
+
+    //-------------------//
+    //----- Methods -----//
+    //-------------------//
+
+    /**
+     * Fill the state with four consecutive outputs of a SplitMix64 generator seeded with the given seed, which cannot
+     * all be zero
+     */
+    @Override
+    void seedState(long seed) {
+        s0 = mix64(seed += GOLDEN_GAMMA);
+        s1 = mix64(seed += GOLDEN_GAMMA);
+        s2 = mix64(seed += GOLDEN_GAMMA);
+        s3 = mix64(seed + GOLDEN_GAMMA);
+    }
+
+    @Override
+    public long nextLong() {
+        long result = Long.rotateLeft(s0 + s3, 23) + s0;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    @Override
+    public Algorithm getAlgorithm() { return Algorithm.XOSHIRO256PP; }
+}
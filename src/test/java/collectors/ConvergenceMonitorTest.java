@@ -0,0 +1,66 @@
+package collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.math3.distribution.TDistribution;
+import org.junit.Test;
+
+public class ConvergenceMonitorTest {
+
+    /**
+     * Run a monitor over a number of runs of 10 time steps, with the given value of each indicator at each run
+     */
+    private static ConvergenceMonitor run(String targets, double [][] runValues) {
+        ConvergenceMonitor monitor = new ConvergenceMonitor(targets, 4, 10, 0.95);
+        for (double [] values : runValues) {
+            monitor.startRun();
+            for (int time = 0; time <= 10; time++) monitor.step(time, i -> values[i]);
+            monitor.finishRun();
+        }
+        return monitor;
+    }
+
+    @Test
+    public void averagesOnlyTheFinalTimeSteps() {
+        ConvergenceMonitor monitor = new ConvergenceMonitor("SALE_HPI:0.1", 4, 10, 0.95);
+        monitor.startRun();
+        for (int time = 0; time <= 10; time++) {
+            double value = time;
+            monitor.step(time, i -> value);
+        }
+        monitor.finishRun();
+        assertEquals((7 + 8 + 9 + 10)/4.0, monitor.getRunAverage(0), 1e-12);
+    }
+
+    @Test
+    public void computesStudentTHalfWidth() {
+        ConvergenceMonitor monitor = run("SALE_HPI:0.1", new double [][] {{1.0}, {2.0}, {3.0}, {6.0}});
+        double t = new TDistribution(null, 3).inverseCumulativeProbability(0.975);
+        double variance = ((1 - 3)*(1 - 3) + (2 - 3)*(2 - 3) + 0 + (6 - 3)*(6 - 3))/3.0;
+        assertEquals(3.0, monitor.getMean(0), 1e-12);
+        assertEquals(t*Math.sqrt(variance/4), monitor.getHalfWidth(0), 1e-12);
+    }
+
+    @Test
+    public void hasNotConvergedBeforeTheSecondRun() {
+        ConvergenceMonitor monitor = run("SALE_HPI:1000", new double [][] {{1.0}});
+        assertEquals(Double.POSITIVE_INFINITY, monitor.getHalfWidth(0), 0.0);
+        assertFalse(monitor.hasConverged());
+    }
+
+    @Test
+    public void convergesOnlyWhenAllTargetsAreMet() {
+        double [][] runValues = {{100.0, 1.0}, {101.0, 5.0}, {99.0, 9.0}};
+        assertTrue(run("SALE_HPI:5%, SALE_N_SALES:20", runValues).hasConverged());
+        assertFalse(run("SALE_HPI:5%, SALE_N_SALES:1", runValues).hasConverged());
+        assertFalse(run("SALE_HPI:0.5%, SALE_N_SALES:20", runValues).hasConverged());
+    }
+
+    @Test
+    public void relativeTargetsScaleWithTheMean() {
+        ConvergenceMonitor monitor = run("SALE_HPI:5%", new double [][] {{-200.0}, {-200.0}});
+        assertEquals(10.0, monitor.getTarget(0), 1e-12);
+    }
+}
@@ -0,0 +1,72 @@
+package collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LogHistogramTest {
+
+    @Test
+    public void estimatesQuantilesWithinTheRelativeAccuracy() {
+        LogHistogram histogram = new LogHistogram(1.0, 1.0e7, 0.02);
+        Random random = new Random(1);
+        double [] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1.0e3*Math.exp(2.0*random.nextGaussian());
+            histogram.add(values[i], 1.0);
+        }
+        Arrays.sort(values);
+        for (double p : new double [] {0.05, 0.25, 0.5, 0.75, 0.95}) {
+            double expected = values[(int)(p*values.length)];
+            assertEquals("p = " + p, expected, histogram.getQuantile(p), 0.02*expected);
+        }
+    }
+
+    @Test
+    public void keepsExtremeValuesInTheEndBuckets() {
+        LogHistogram histogram = new LogHistogram(1.0, 100.0, 0.1);
+        histogram.add(-5.0, 1.0);
+        histogram.add(0.0, 1.0);
+        histogram.add(1.0e6, 2.0);
+        assertEquals(2.0, histogram.getBucketCount(0), 0.0);
+        assertEquals(2.0, histogram.getBucketCount(histogram.getnBuckets() - 1), 0.0);
+        assertEquals(4.0, histogram.getTotalCount(), 0.0);
+        // Sums are kept exactly, so the mean of the last bucket is the extreme value itself
+        assertEquals(1.0e6, histogram.getQuantile(0.99), 0.0);
+    }
+
+    @Test
+    public void mergesAsIfAllValuesWereAddedToOne() {
+        LogHistogram a = new LogHistogram(0.01, 100.0, 0.05);
+        LogHistogram b = new LogHistogram(0.01, 100.0, 0.05);
+        LogHistogram all = new LogHistogram(0.01, 100.0, 0.05);
+        Random random = new Random(2);
+        for (int i = 0; i < 1000; i++) {
+            double value = 100.0*random.nextDouble();
+            double weight = 1.0 + random.nextInt(3);
+            ((i % 2 == 0) ? a : b).add(value, weight);
+            all.add(value, weight);
+        }
+        a.merge(b);
+        assertEquals(all.getTotalCount(), a.getTotalCount(), 0.0);
+        for (int i = 0; i < all.getnBuckets(); i++) assertEquals(all.getBucketCount(i), a.getBucketCount(i), 0.0);
+        assertEquals(all.getQuantile(0.3), a.getQuantile(0.3), 1e-9);
+        a.clear();
+        assertEquals(0.0, a.getTotalCount(), 0.0);
+        assertTrue(Double.isNaN(a.getQuantile(0.5)));
+    }
+
+    @Test
+    public void sumsValuesAboveARank() {
+        LogHistogram histogram = new LogHistogram(0.1, 1000.0, 0.001);
+        for (int i = 1; i <= 100; i++) histogram.add(i, 1.0);
+        // Values at ranks 50 to 99 (counting from 0) are 51 to 100
+        double expected = (51 + 100)*50/2.0;
+        assertEquals(expected, histogram.getSumAbove(50), 0.001*expected);
+        assertEquals(5050.0, histogram.getSumAbove(0), 1e-9);
+    }
+}
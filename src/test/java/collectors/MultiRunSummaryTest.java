@@ -0,0 +1,79 @@
+package collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MultiRunSummaryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Write a summary and read back its rows, each as an array of values
+     */
+    private double [][] write(MultiRunSummary summary) throws IOException {
+        File file = folder.newFile();
+        summary.write(file.getPath());
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        return lines.stream().skip(1).filter(line -> !line.isEmpty())
+                .map(line -> Arrays.stream(line.split(";")).mapToDouble(v -> Double.parseDouble(v.trim())).toArray())
+                .toArray(double [][]::new);
+    }
+
+    @Test
+    public void interpolatesQuantilesOfFewRuns() throws IOException {
+        MultiRunSummary summary = new MultiRunSummary(new String [] {"x"}, 0, "0.25, 0.5");
+        for (double x : new double [] {4.0, 1.0, 3.0, 2.0, 5.0}) summary.add(0, new double [] {x});
+        double [] row = write(summary)[0];
+        // Columns: time, number of runs, mean, sd, q0.25, q0.5
+        assertEquals(5, row[1], 0.0);
+        assertEquals(3.0, row[2], 1e-5);
+        assertEquals(Math.sqrt(2.5), row[3], 1e-5);
+        assertEquals(2.0, row[4], 1e-5);
+        assertEquals(3.0, row[5], 1e-5);
+    }
+
+    @Test
+    public void tracksQuantilesOfManyRuns() throws IOException {
+        MultiRunSummary summary = new MultiRunSummary(new String [] {"x"}, 0, "0.1, 0.5, 0.9");
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) summary.add(0, new double [] {random.nextDouble()});
+        double [] row = write(summary)[0];
+        assertEquals(0.5, row[2], 0.01);
+        assertEquals(Math.sqrt(1.0/12.0), row[3], 0.01);
+        assertEquals(0.1, row[4], 0.01);
+        assertEquals(0.5, row[5], 0.01);
+        assertEquals(0.9, row[6], 0.01);
+    }
+
+    @Test
+    public void leavesOutNaNsAndStepsNotReached() throws IOException {
+        MultiRunSummary summary = new MultiRunSummary(new String [] {"x", "y"}, 2, "0.5");
+        summary.add(0, new double [] {1.0, Double.NaN});
+        summary.add(0, new double [] {3.0, 7.0});
+        summary.add(2, new double [] {5.0, 5.0});
+        summary.add(3, new double [] {9.0, 9.0});
+        double [][] rows = write(summary);
+        assertEquals(2, rows.length);
+        // Columns: time, number of runs, then mean, sd and median of each variable
+        assertEquals(0, rows[0][0], 0.0);
+        assertEquals(2, rows[0][1], 0.0);
+        assertEquals(2.0, rows[0][2], 1e-5);
+        assertEquals(7.0, rows[0][5], 1e-5);
+        assertTrue(Double.isNaN(rows[0][6]));
+        assertEquals(2, rows[1][0], 0.0);
+        assertEquals(5.0, rows[1][7], 1e-5);
+    }
+}
@@ -0,0 +1,50 @@
+package collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.math3.distribution.TDistribution;
+import org.junit.Test;
+
+public class PairedComparisonTest {
+
+    /**
+     * Run a pair of 10-step runs forked at time step 5, with each indicator taking, at every time step after the fork,
+     * the given value plus its ordinal
+     */
+    private static void runPair(PairedComparison comparison, double baseline, double variant) {
+        comparison.setArm(-1);
+        for (int time = 0; time <= 5; time++) comparison.step(time, indicator -> Double.NaN);
+        comparison.setArm(0);
+        for (int time = 6; time <= 10; time++) comparison.step(time, indicator -> baseline + indicator.ordinal());
+        comparison.setArm(1);
+        for (int time = 6; time <= 10; time++) comparison.step(time, indicator -> variant + indicator.ordinal());
+        comparison.finishPair();
+    }
+
+    @Test
+    public void ignoresStepsBeforeTheForkAndTheWindow() {
+        PairedComparison comparison = new PairedComparison(3, 10, 0.95);
+        runPair(comparison, 1.0, 4.0);
+        assertEquals(1.0 + Indicator.SALE_HPI.ordinal(), comparison.getBaselineAverage(Indicator.SALE_HPI), 1e-12);
+        assertEquals(4.0 + Indicator.SALE_HPI.ordinal(), comparison.getVariantAverage(Indicator.SALE_HPI), 1e-12);
+        assertEquals(3.0, comparison.getMeanDifference(Indicator.SALE_HPI), 1e-12);
+        assertEquals(Double.POSITIVE_INFINITY, comparison.getPairedHalfWidth(Indicator.SALE_HPI), 0.0);
+    }
+
+    @Test
+    public void pairingRemovesCommonVariation() {
+        // Baselines vary widely between pairs, but the variant is always 2 above its baseline, give or take 0.1
+        double [] baselines = {10.0, 30.0, 20.0, 50.0};
+        double [] offsets = {2.1, 1.9, 2.0, 2.0};
+        PairedComparison comparison = new PairedComparison(5, 10, 0.95);
+        for (int i = 0; i < baselines.length; i++) runPair(comparison, baselines[i], baselines[i] + offsets[i]);
+        double t = new TDistribution(null, 3).inverseCumulativeProbability(0.975);
+        double differenceVariance = (0.1*0.1 + 0.1*0.1)/3.0;
+        assertEquals(4, comparison.getnPairs());
+        assertEquals(2.0, comparison.getMeanDifference(Indicator.CREDIT_GROWTH), 1e-12);
+        assertEquals(t*Math.sqrt(differenceVariance/4), comparison.getPairedHalfWidth(Indicator.CREDIT_GROWTH), 1e-9);
+        assertTrue(comparison.getIndependentHalfWidth(Indicator.CREDIT_GROWTH)
+                > 100*comparison.getPairedHalfWidth(Indicator.CREDIT_GROWTH));
+    }
+}
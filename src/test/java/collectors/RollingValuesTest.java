@@ -0,0 +1,69 @@
+package collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RollingValuesTest {
+
+    /**
+     * Mean of the values at and above the median (the upper of the two middle values for an even number), by sorting
+     */
+    private static double sortedMeanAboveMedian(double [] values) {
+        double [] sorted = values.clone();
+        Arrays.sort(sorted);
+        double sum = 0.0;
+        for (int i = sorted.length/2; i < sorted.length; i++) sum += sorted[i];
+        return sum/(sorted.length - sorted.length/2);
+    }
+
+    @Test
+    public void isNaNWithoutValues() {
+        assertTrue(Double.isNaN(new RollingValues(3, 4, 0.0).getMeanAboveMedian()));
+    }
+
+    @Test
+    public void selectsTheMedianAsSortingWould() {
+        Random random = new Random(1);
+        for (int n = 1; n <= 200; n++) {
+            RollingValues rollingValues = new RollingValues(4, 1, 0.0);
+            double [] values = new double[n];
+            for (int i = 0; i < n; i++) {
+                // Few distinct values, to exercise ties with the pivots
+                values[i] = (n % 2 == 0) ? random.nextInt(5) : random.nextDouble();
+                rollingValues.add(i % 4, values[i]);
+            }
+            assertEquals("n = " + n, sortedMeanAboveMedian(values), rollingValues.getMeanAboveMedian(), 1e-12);
+        }
+    }
+
+    @Test
+    public void dropsClearedMonths() {
+        RollingValues rollingValues = new RollingValues(2, 2, 0.0);
+        rollingValues.add(0, 100.0);
+        rollingValues.add(0, 200.0);
+        rollingValues.add(1, 1.0);
+        rollingValues.add(1, 2.0);
+        rollingValues.add(1, 3.0);
+        rollingValues.clear(0);
+        assertEquals(2.5, rollingValues.getMeanAboveMedian(), 1e-12);
+    }
+
+    @Test
+    public void approximatesWithinTheSketchAccuracy() {
+        Random random = new Random(2);
+        RollingValues exact = new RollingValues(12, 10, 0.0);
+        RollingValues approximate = new RollingValues(12, 10, 0.01);
+        for (int i = 0; i < 5000; i++) {
+            double value = Math.exp(random.nextGaussian());
+            exact.add(i % 12, value);
+            approximate.add(i % 12, value);
+        }
+        double expected = exact.getMeanAboveMedian();
+        assertEquals(expected, approximate.getMeanAboveMedian(), 0.01*expected);
+    }
+}
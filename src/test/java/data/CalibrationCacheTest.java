@@ -0,0 +1,133 @@
+package data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import housing.Config;
+import housing.Model;
+import utilities.BinnedDataDouble;
+import utilities.Pdf;
+
+public class CalibrationCacheTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static File cacheFile;
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        // The cache file is read from the Model's configuration when the cache is first used
+        cacheFile = new File(folder.getRoot(), "calibration.cache");
+        Properties overrides = new Properties();
+        overrides.setProperty("CALIBRATION_CACHE_FILE", cacheFile.getPath());
+        Model.config = new Config("src/main/resources/config.properties", overrides);
+    }
+
+    private static File writeDataFile(String name, String contents) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static double [] toArray(BinnedDataDouble data) {
+        double [] values = new double[data.size() + 2];
+        values[0] = data.getSupportLowerBound();
+        values[1] = data.getBinWidth();
+        for (int i = 0; i < data.size(); i++) values[2 + i] = data.get(i);
+        return values;
+    }
+
+    @Test
+    public void readsBackStoredStructuresExactly() throws IOException {
+        String source = writeDataFile("pdf.csv", "# min, max, density\n0.0, 0.5, 0.3\n0.5, 1.0, 1.1\n1.0, 1.5, 0.6\n")
+                .getPath();
+        Pdf pdf = CalibrationCache.getPdf(source);
+        double [][] arrays = {{1.0/3.0, 2.0}, {Math.PI, -0.0}};
+        CalibrationCache.getArrays("test.arrays", source, () -> arrays);
+        // As a new run would, read all entries back from the file, without any of the loaders being used
+        CalibrationCache.reload();
+        Pdf cachedPdf = CalibrationCache.getPdf(source);
+        double [][] cachedArrays = CalibrationCache.getArrays("test.arrays", source, () -> {
+            fail("Arrays should have been read from the cache");
+            return null;
+        });
+        assertArrayEquals(toArray(pdf.getBinnedData()), toArray(cachedPdf.getBinnedData()), 0.0);
+        assertArrayEquals(pdf.getInverseCDF(), cachedPdf.getInverseCDF(), 0.0);
+        assertArrayEquals(arrays[0], cachedArrays[0], 0.0);
+        assertArrayEquals(arrays[1], cachedArrays[1], 0.0);
+    }
+
+    @Test
+    public void reloadsStructuresWhoseDataFileHasChanged() throws IOException {
+        File source = writeDataFile("binned.csv", "0.0, 1.0, 0.25\n1.0, 2.0, 0.75\n");
+        AtomicInteger nLoads = new AtomicInteger();
+        CalibrationCache.getBinnedData("test.binned", source.getPath(), () -> {
+            nLoads.incrementAndGet();
+            return new BinnedDataDouble(source.getPath());
+        });
+        CalibrationCache.reload();
+        CalibrationCache.getBinnedData("test.binned", source.getPath(), () -> {
+            nLoads.incrementAndGet();
+            return new BinnedDataDouble(source.getPath());
+        });
+        assertEquals(1, nLoads.get());
+        writeDataFile("binned.csv", "0.0, 1.0, 0.5\n1.0, 2.0, 0.5\n");
+        CalibrationCache.reload();
+        BinnedDataDouble data = CalibrationCache.getBinnedData("test.binned", source.getPath(), () -> {
+            nLoads.incrementAndGet();
+            return new BinnedDataDouble(source.getPath());
+        });
+        assertEquals(2, nLoads.get());
+        assertEquals(0.5, data.get(0), 0.0);
+        // The entry appended last replaces the earlier one
+        CalibrationCache.reload();
+        data = CalibrationCache.getBinnedData("test.binned", source.getPath(), () -> {
+            fail("Binned data should have been read from the cache");
+            return null;
+        });
+        assertEquals(0.5, data.get(0), 0.0);
+    }
+
+    @Test
+    public void ignoresAnEntryLeftIncompleteAndAppendsAfterTheValidOnes() throws IOException {
+        File source = writeDataFile("truncated.csv", "0.0, 1.0, 1.0\n");
+        CalibrationCache.getArrays("test.first", source.getPath(), () -> new double [][] {{1.0}});
+        long validLength = cacheFile.length();
+        CalibrationCache.getArrays("test.second", source.getPath(), () -> new double [][] {{2.0, 3.0}});
+        // Simulate a run interrupted while appending the second entry
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "rw")) {
+            file.setLength(cacheFile.length() - 5);
+        }
+        CalibrationCache.reload();
+        CalibrationCache.getArrays("test.first", source.getPath(), () -> {
+            fail("The first entry should still be read from the cache");
+            return null;
+        });
+        double [][] second = CalibrationCache.getArrays("test.second", source.getPath(),
+                () -> new double [][] {{4.0, 5.0}});
+        assertEquals(4.0, second[0][0], 0.0);
+        assertTrue(cacheFile.length() > validLength);
+        CalibrationCache.reload();
+        second = CalibrationCache.getArrays("test.second", source.getPath(), () -> {
+            fail("The second entry should have been appended again");
+            return null;
+        });
+        assertEquals(5.0, second[0][1], 0.0);
+    }
+}
@@ -0,0 +1,72 @@
+package housing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SweepCacheTest {
+
+    private static final String CONFIG_FILE = "src/main/resources/config.properties";
+    private static final String DATA_FILE = "src/main/resources/Age9-Weighted.csv";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Key of a job with the default configuration, except for the given parameter values
+     */
+    private static String getKey(SweepCache cache, int summarySteps, String... overrides) {
+        Properties properties = new Properties();
+        for (int i = 0; i < overrides.length; i += 2) properties.setProperty(overrides[i], overrides[i + 1]);
+        return cache.getKey(new Config(CONFIG_FILE, properties), summarySteps);
+    }
+
+    @Test
+    public void sameValuesWrittenDifferentlyGiveTheSameKey() {
+        SweepCache cache = new SweepCache(null);
+        String key = getKey(cache, 100, "BANK_LTV_HARD_MAX_FTB", "0.9", "N_STEPS", "400");
+        assertEquals(key, getKey(cache, 100, "BANK_LTV_HARD_MAX_FTB", "0.90", "N_STEPS", "400"));
+        assertEquals(key, getKey(cache, 100, "BANK_LTV_HARD_MAX_FTB", " 9e-1 ", "N_STEPS", "0400"));
+    }
+
+    @Test
+    public void differentValuesOrSummaryStepsGiveDifferentKeys() {
+        SweepCache cache = new SweepCache(null);
+        String key = getKey(cache, 100);
+        assertNotEquals(key, getKey(cache, 100, "BANK_LTV_HARD_MAX_FTB", "0.85"));
+        assertNotEquals(key, getKey(cache, 100, "SEED", "2"));
+        assertNotEquals(key, getKey(cache, 50));
+    }
+
+    @Test
+    public void parametersNotAffectingResultsAreIgnored() {
+        SweepCache cache = new SweepCache(null);
+        String key = getKey(cache, 100);
+        assertEquals(key, getKey(cache, 100, "N_SIMS", "7"));
+        assertEquals(key, getKey(cache, 100, "recordCoreIndicators", "false"));
+        assertEquals(key, getKey(cache, 100, "CALIBRATION_CACHE_FILE", "\"/tmp/other.cache\""));
+    }
+
+    @Test
+    public void dataFilesAreIdentifiedByTheirContents() throws IOException {
+        File copy = folder.newFile("copy.csv");
+        Files.copy(Paths.get(DATA_FILE), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        String key = getKey(new SweepCache(null), 100);
+        assertEquals(key, getKey(new SweepCache(null), 100, "DATA_AGE_DISTRIBUTION", "\"" + copy.getPath() + "\""));
+        Files.write(copy.toPath(), "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        assertNotEquals(key, getKey(new SweepCache(null), 100, "DATA_AGE_DISTRIBUTION",
+                "\"" + copy.getPath() + "\""));
+    }
+}
@@ -0,0 +1,66 @@
+package utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class EventCalendarTest {
+
+    @Test
+    public void collectsEventsWhenDueInSchedulingOrder() {
+        EventCalendar<String> calendar = new EventCalendar<>(8);
+        calendar.schedule(3, "a");
+        calendar.schedule(5, "b");
+        calendar.schedule(3, "c");
+        assertEquals(3, calendar.size());
+        ArrayList<String> due = new ArrayList<>();
+        for (int time = 0; time <= 2; time++) calendar.collectDueEvents(time, due);
+        assertTrue(due.isEmpty());
+        calendar.collectDueEvents(3, due);
+        assertEquals(Arrays.asList("a", "c"), due);
+        due.clear();
+        calendar.collectDueEvents(4, due);
+        calendar.collectDueEvents(5, due);
+        assertEquals(Collections.singletonList("b"), due);
+        assertEquals(0, calendar.size());
+    }
+
+    @Test
+    public void keepsEventsBeyondTheHorizonUntilDue() {
+        EventCalendar<Integer> calendar = new EventCalendar<>(4);
+        // With 4 buckets, time steps 1, 5, 9 and 13 share a bucket
+        calendar.schedule(13, 13);
+        calendar.schedule(5, 5);
+        calendar.schedule(9, 9);
+        ArrayList<Integer> due = new ArrayList<>();
+        for (int time = 0; time <= 20; time++) {
+            int before = due.size();
+            calendar.collectDueEvents(time, due);
+            for (int i = before; i < due.size(); i++) assertEquals(time, (int)due.get(i));
+        }
+        assertEquals(Arrays.asList(5, 9, 13), due);
+        assertEquals(0, calendar.size());
+    }
+
+    @Test
+    public void handlesDegenerateHorizonsAndClearing() {
+        for (int horizon : new int [] {0, 1, 2, 3}) {
+            EventCalendar<Integer> calendar = new EventCalendar<>(horizon);
+            for (int time = 1; time <= 6; time++) calendar.schedule(time, time);
+            ArrayList<Integer> due = new ArrayList<>();
+            calendar.collectDueEvents(1, due);
+            calendar.collectDueEvents(2, due);
+            assertEquals("horizon = " + horizon, Arrays.asList(1, 2), due);
+            calendar.clear();
+            assertEquals(0, calendar.size());
+            due.clear();
+            for (int time = 3; time <= 6; time++) calendar.collectDueEvents(time, due);
+            assertTrue(due.isEmpty());
+        }
+    }
+}